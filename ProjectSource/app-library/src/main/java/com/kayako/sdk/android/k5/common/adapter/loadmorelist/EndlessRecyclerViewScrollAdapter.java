@@ -61,6 +61,27 @@ public abstract class EndlessRecyclerViewScrollAdapter extends RecyclerView.Adap
         }
     }
 
+    /**
+     * Replace all the data by only dispatching the changes calculated beforehand (usually on a background thread)
+     *
+     * @param newData    new list of items
+     * @param diffResult changes calculated from the current list (excluding the load more progress item) to newData
+     */
+    public void replaceAllData(List<BaseListItem> newData, DiffUtil.DiffResult diffResult) {
+        if (newData == null) {
+            newData = new ArrayList<>();
+        }
+
+        // The load more progress item is always at the end of the list and is not part of the calculated changes
+        boolean isShowingLoadMoreProgress = mValues.contains(mProgressItem);
+        mValues = newData;
+        if (isShowingLoadMoreProgress) {
+            mValues.add(mProgressItem);
+        }
+
+        diffResult.dispatchUpdatesTo(this);
+    }
+
     public void addLoadMoreData(List<BaseListItem> moreData) {
         int originalSize = mValues.size();
         mValues.addAll(moreData);
@@ -1,7 +1,6 @@
 package com.kayako.sdk.android.k5.common.adapter.messengerlist;
 
 import android.support.v7.widget.RecyclerView;
-import android.text.Html;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -53,6 +52,7 @@ import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.TypingViewHol
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.UnreadSeparatorListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.UnreadSeparatorViewHolder;
 import com.kayako.sdk.android.k5.common.utils.DateTimeUtils;
+import com.kayako.sdk.android.k5.common.utils.HtmlSpannedCache;
 import com.kayako.sdk.android.k5.common.utils.ImageUtils;
 import com.kayako.sdk.android.k5.core.Kayako;
 
@@ -249,7 +249,7 @@ public class MessengerAdapter extends EndlessRecyclerViewScrollAdapter {
                 BotMessageListItem botMessageListItem = (BotMessageListItem) getData().get(position);
                 BotMessageViewHolder botMessageViewHolder = (BotMessageViewHolder) viewHolder;
 
-                botMessageViewHolder.message.setText(Html.fromHtml(botMessageListItem.getMessage()));
+                botMessageViewHolder.message.setText(HtmlSpannedCache.getInstance().fromHtml(null, botMessageListItem.getMessage())); // Parsed when the list was built
 
                 if (botMessageListItem.getTime() == 0) {
                     botMessageViewHolder.time.setVisibility(View.GONE);
@@ -265,7 +265,7 @@ public class MessengerAdapter extends EndlessRecyclerViewScrollAdapter {
                 SystemMessageListItem systemMessageListItem = (SystemMessageListItem) getData().get(position);
                 SystemMessageViewHolder systemMessageViewHolder = (SystemMessageViewHolder) viewHolder;
 
-                systemMessageViewHolder.message.setText(Html.fromHtml(systemMessageListItem.getMessage()));
+                systemMessageViewHolder.message.setText(HtmlSpannedCache.getInstance().fromHtml(null, systemMessageListItem.getMessage())); // Parsed when the list was built
 
                 // No Item Click Listener
                 break;
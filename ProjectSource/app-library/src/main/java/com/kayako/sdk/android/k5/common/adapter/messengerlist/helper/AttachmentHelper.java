@@ -1,14 +1,20 @@
 package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
 
-import android.text.Html;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.kayako.sdk.android.k5.R;
+import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.Attachment;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.AttachmentUrlType;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.AttachmentMessageContinuedOtherListItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.AttachmentMessageContinuedSelfListItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.AttachmentMessageOtherListItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.AttachmentMessageSelfListItem;
+import com.kayako.sdk.android.k5.common.utils.HtmlSpannedCache;
 import com.kayako.sdk.android.k5.common.utils.ImageUtils;
 import com.kayako.sdk.android.k5.common.utils.file.FileAttachmentUtil;
 import com.kayako.sdk.android.k5.common.utils.file.FileStorageUtil;
@@ -37,8 +43,7 @@ public class AttachmentHelper {
                     configureAttachmentPlaceholder(attachmentPlaceholder, type, attachmentUrlType.getFileName());
                 }
 
-                String attachmentCaption = ((AttachmentUrlType) attachment).getCaption();
-                setUpAttachmentCaption(attachmentCaption, captionTextView);
+                setUpAttachmentCaption(getParsedCaption(attachment), captionTextView);
                 break;
 
             case FILE:
@@ -67,8 +72,7 @@ public class AttachmentHelper {
 
                 } finally {
                     // Ensure caption is always shown
-                    String attachmentFileCaption = ((com.kayako.sdk.android.k5.common.adapter.messengerlist.AttachmentFileType) attachment).getCaption();
-                    setUpAttachmentCaption(attachmentFileCaption, captionTextView);
+                    setUpAttachmentCaption(getParsedCaption(attachment), captionTextView);
                 }
                 break;
 
@@ -77,6 +81,35 @@ public class AttachmentHelper {
         }
     }
 
+    /**
+     * @return the url of the thumbnail shown for the attachment, or null if a placeholder is shown instead
+     */
+    @Nullable
+    public static String getThumbnailUrlToLoad(@Nullable Attachment attachment) {
+        if (attachment == null || attachment.getType() != Attachment.TYPE.URL) {
+            return null;
+        }
+
+        AttachmentUrlType attachmentUrlType = (AttachmentUrlType) attachment;
+        AttachmentFileType type = identifyType(attachmentUrlType.getThumbnailType(), attachmentUrlType.getFileName());
+        return type == AttachmentFileType.IMAGE ? attachmentUrlType.getThumbnailUrl() : null;
+    }
+
+    @Nullable
+    public static Attachment getAttachment(@Nullable BaseListItem listItem) {
+        if (listItem instanceof AttachmentMessageOtherListItem) {
+            return ((AttachmentMessageOtherListItem) listItem).getAttachment();
+        } else if (listItem instanceof AttachmentMessageContinuedOtherListItem) {
+            return ((AttachmentMessageContinuedOtherListItem) listItem).getAttachment();
+        } else if (listItem instanceof AttachmentMessageSelfListItem) {
+            return ((AttachmentMessageSelfListItem) listItem).getAttachment();
+        } else if (listItem instanceof AttachmentMessageContinuedSelfListItem) {
+            return ((AttachmentMessageContinuedSelfListItem) listItem).getAttachment();
+        } else {
+            return null;
+        }
+    }
+
     public static void configureAttachmentPlaceholder(View placeholderView, AttachmentFileType fileType, String fileName) {
         ImageView iconView = (ImageView) placeholderView.findViewById(R.id.ko__attachment_placeholder_icon);
         TextView textView = (TextView) placeholderView.findViewById(R.id.ko__attachment_placeholder_text);
@@ -124,12 +157,32 @@ public class AttachmentHelper {
         }
     }
 
-    private static void setUpAttachmentCaption(String caption, TextView captionTextView) {
-        if (TextUtils.isEmpty(caption)) {
+    /**
+     * @return the caption of the attachment converted from html, null if it has none. Cached, so that it is parsed once per caption.
+     */
+    @Nullable
+    public static CharSequence getParsedCaption(@Nullable Attachment attachment) {
+        Long id;
+        String caption;
+        if (attachment instanceof AttachmentUrlType) {
+            id = ((AttachmentUrlType) attachment).getId();
+            caption = ((AttachmentUrlType) attachment).getCaption();
+        } else if (attachment instanceof com.kayako.sdk.android.k5.common.adapter.messengerlist.AttachmentFileType) {
+            id = ((com.kayako.sdk.android.k5.common.adapter.messengerlist.AttachmentFileType) attachment).getId();
+            caption = ((com.kayako.sdk.android.k5.common.adapter.messengerlist.AttachmentFileType) attachment).getCaption();
+        } else {
+            return null;
+        }
+
+        return TextUtils.isEmpty(caption) ? null : HtmlSpannedCache.getInstance().fromHtml(id, caption);
+    }
+
+    private static void setUpAttachmentCaption(@Nullable CharSequence parsedCaption, TextView captionTextView) {
+        if (TextUtils.isEmpty(parsedCaption)) {
             captionTextView.setVisibility(View.GONE);
         } else {
             captionTextView.setVisibility(View.VISIBLE);
-            captionTextView.setText(Html.fromHtml(caption));
+            captionTextView.setText(parsedCaption);
         }
     }
 
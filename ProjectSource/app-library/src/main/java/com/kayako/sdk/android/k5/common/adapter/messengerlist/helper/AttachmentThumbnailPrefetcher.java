@@ -0,0 +1,182 @@
+package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.bumptech.glide.request.target.Target;
+import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
+import com.kayako.sdk.android.k5.common.adapter.loadmorelist.EndlessRecyclerViewScrollAdapter;
+import com.kayako.sdk.android.k5.common.utils.ImageUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warms Glide's cache with the thumbnails of the attachments just beyond the visible items, in the direction the list is scrolled,
+ * so that attachments are shown right away instead of the loading placeholder.
+ * <p>
+ * - The faster the list is scrolled, the further ahead thumbnails are prefetched (up to MAX_PREFETCH_DISTANCE items)
+ * - At most MAX_CONCURRENT_PREFETCHES thumbnails are loaded at a time, nearest first
+ * - Prefetches of items no longer ahead of the visible window are cancelled
+ * <p>
+ * Add as a scroll listener of the RecyclerView. Call {@link #cancel()} when the list is destroyed. Only used on the main thread.
+ */
+public class AttachmentThumbnailPrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final int DEFAULT_PREFETCH_DISTANCE = 6; // items
+    private static final int MAX_PREFETCH_DISTANCE = 18; // items
+    private static final int FAST_SCROLL_FRACTION = 20; // scrolling 1/20th of the list height in one callback doubles the distance
+    private static final int MAX_CONCURRENT_PREFETCHES = 3;
+    private static final int MAX_PREFETCHED_URLS = 200;
+
+    private final Context mContext;
+    private final LinkedHashSet<String> mPendingUrls = new LinkedHashSet<>(); // nearest first
+    private final Map<String, Target<GlideDrawable>> mActivePrefetches = new HashMap<>();
+    private final Set<String> mPrefetchedUrls = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_PREFETCHED_URLS;
+        }
+    });
+
+    private int mLastFirstVisiblePosition = RecyclerView.NO_POSITION;
+    private boolean mIsScrollingTowardsEnd = true; // Towards higher adapter positions
+
+    public AttachmentThumbnailPrefetcher(@NonNull Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        // Also called with dy=0 after every layout, so thumbnails are prefetched before the user starts scrolling
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)
+                || !(recyclerView.getAdapter() instanceof EndlessRecyclerViewScrollAdapter)) {
+            return;
+        }
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int firstVisiblePosition = layoutManager.findFirstVisibleItemPosition();
+        int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+        if (firstVisiblePosition == RecyclerView.NO_POSITION || lastVisiblePosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        // Direction is based on adapter positions rather than dy, so that it is correct for reversed layouts too
+        if (mLastFirstVisiblePosition != RecyclerView.NO_POSITION && firstVisiblePosition != mLastFirstVisiblePosition) {
+            mIsScrollingTowardsEnd = firstVisiblePosition > mLastFirstVisiblePosition;
+        }
+        mLastFirstVisiblePosition = firstVisiblePosition;
+
+        List<BaseListItem> items = ((EndlessRecyclerViewScrollAdapter) recyclerView.getAdapter()).getData();
+        int prefetchDistance = calculatePrefetchDistance(Math.abs(dy), recyclerView.getHeight());
+        prefetch(items, mIsScrollingTowardsEnd ? lastVisiblePosition : firstVisiblePosition, prefetchDistance, mIsScrollingTowardsEnd);
+    }
+
+    /**
+     * Cancel all prefetches
+     */
+    public void cancel() {
+        mPendingUrls.clear();
+        for (Target<GlideDrawable> target : mActivePrefetches.values()) {
+            ImageUtils.cancelPreload(target);
+        }
+        mActivePrefetches.clear();
+    }
+
+    /**
+     * @param scrolledPixels pixels scrolled since the last callback
+     * @param listHeight     height of the list in pixels
+     * @return number of items ahead of the visible window to prefetch
+     */
+    static int calculatePrefetchDistance(int scrolledPixels, int listHeight) {
+        if (listHeight <= 0) {
+            return DEFAULT_PREFETCH_DISTANCE;
+        }
+
+        long distance = DEFAULT_PREFETCH_DISTANCE * (1 + (long) scrolledPixels * FAST_SCROLL_FRACTION / listHeight);
+        return (int) Math.min(MAX_PREFETCH_DISTANCE, distance);
+    }
+
+    /**
+     * @return urls of the thumbnails of items after (or before) the edge position, nearest first
+     */
+    static List<String> getThumbnailUrlsAhead(@NonNull List<BaseListItem> items, int edgePosition, int prefetchDistance, boolean towardsEnd) {
+        List<String> urls = new ArrayList<>();
+        for (int i = 1; i <= prefetchDistance; i++) {
+            int position = towardsEnd ? edgePosition + i : edgePosition - i;
+            if (position < 0 || position >= items.size()) {
+                break;
+            }
+
+            String url = AttachmentHelper.getThumbnailUrlToLoad(AttachmentHelper.getAttachment(items.get(position)));
+            if (url != null && !urls.contains(url)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    private void prefetch(List<BaseListItem> items, int edgePosition, int prefetchDistance, boolean towardsEnd) {
+        List<String> urlsAhead = getThumbnailUrlsAhead(items, edgePosition, prefetchDistance, towardsEnd);
+
+        // Cancel prefetches of items that have been scrolled away (or are now visible, and loaded by the adapter)
+        Iterator<Map.Entry<String, Target<GlideDrawable>>> iterator = mActivePrefetches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Target<GlideDrawable>> entry = iterator.next();
+            if (!urlsAhead.contains(entry.getKey())) {
+                ImageUtils.cancelPreload(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        mPendingUrls.clear();
+        for (String url : urlsAhead) {
+            if (!mPrefetchedUrls.contains(url) && !mActivePrefetches.containsKey(url)) {
+                mPendingUrls.add(url);
+            }
+        }
+
+        startNextPrefetches();
+    }
+
+    private void startNextPrefetches() {
+        Iterator<String> iterator = mPendingUrls.iterator();
+        while (mActivePrefetches.size() < MAX_CONCURRENT_PREFETCHES && iterator.hasNext()) {
+            final String url = iterator.next();
+            iterator.remove();
+
+            Target<GlideDrawable> target = ImageUtils.preloadUrlAsAttachmentImage(mContext, url, null, new ImageUtils.OnImageLoadedListener() {
+                @Override
+                public void onImageLoaded() {
+                    onPrefetchComplete(url);
+                }
+
+                @Override
+                public void onImageFailedToLoad() {
+                    onPrefetchComplete(url); // Not retried - the adapter loads it again when the item is shown
+                }
+            });
+
+            if (!mPrefetchedUrls.contains(url)) { // Already complete if served from memory cache
+                mActivePrefetches.put(url, target);
+            }
+        }
+    }
+
+    private void onPrefetchComplete(String url) {
+        mPrefetchedUrls.add(url);
+        if (mActivePrefetches.remove(url) != null) {
+            startNextPrefetches();
+        }
+    }
+}
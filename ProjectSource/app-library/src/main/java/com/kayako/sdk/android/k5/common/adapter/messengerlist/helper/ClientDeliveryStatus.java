@@ -1,5 +1,5 @@
 package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
 
 public enum ClientDeliveryStatus {
-    SENDING, FAILED_TO_SEND
+    SENDING, WAITING_FOR_NETWORK, FAILED_TO_SEND
 }
@@ -75,24 +75,40 @@ public class DataItemHelper {
                 ids.add(currentDataItem.getId());
             }
 
-            // Add Date Separators wherever applicable
-            addDateSeparators(viewItems, currentDataItem, previousDataItem); // also shown at top of every conversation listing
+            viewItems.addAll(generateListItems(currentDataItem, previousDataItem, nextDataItem));
+        }
 
-            // Add Unread Separator wherever applicable
-            if (previousDataItem != null) { // Prevent it from showing before first message
-                addUnreadSeparator(viewItems, currentDataItem, previousDataItem);
-            }
+        return viewItems;
+    }
 
-            // Define ViewBehaviour
-            ViewBehaviour viewBehaviour = defineViewBehaviour(currentDataItem, previousDataItem, nextDataItem);
-            assert viewBehaviour != null;
+    /**
+     * Generate all the list items of a single data item (separators and messages).
+     * <p>
+     * The generated list items depend only on the current, previous and next data items.
+     *
+     * @param currentDataItem
+     * @param previousDataItem null if current is first item
+     * @param nextDataItem     null if current is last item
+     * @return
+     */
+    protected List<BaseListItem> generateListItems(@NonNull DataItem currentDataItem, DataItem previousDataItem, DataItem nextDataItem) {
+        List<BaseListItem> viewItems = new ArrayList<>();
 
-            // Generate Message
-            List<BaseListItem> generatedItems = generateMessageViews(viewBehaviour, currentDataItem);
+        // Add Date Separators wherever applicable
+        addDateSeparators(viewItems, currentDataItem, previousDataItem); // also shown at top of every conversation listing
 
-            viewItems.addAll(generatedItems);
+        // Add Unread Separator wherever applicable
+        if (previousDataItem != null) { // Prevent it from showing before first message
+            addUnreadSeparator(viewItems, currentDataItem, previousDataItem);
         }
 
+        // Define ViewBehaviour
+        ViewBehaviour viewBehaviour = defineViewBehaviour(currentDataItem, previousDataItem, nextDataItem);
+        assert viewBehaviour != null;
+
+        // Generate Message
+        viewItems.addAll(generateMessageViews(viewBehaviour, currentDataItem));
+
         return viewItems;
     }
 
@@ -369,7 +385,7 @@ public class DataItemHelper {
         return attachmentMessages;
     }
 
-    private boolean areItemsInDescendingOrderOfTimeCreated(long previousTimeInMilliseconds, long currentTimeInMilliseconds) {
+    protected boolean areItemsInDescendingOrderOfTimeCreated(long previousTimeInMilliseconds, long currentTimeInMilliseconds) {
         /*
            ## PROBLEM:
             NOTICED that sometimes, the previous message has a lastCreatedAt time a few seconds AFTER the current message's lastCreatedAt
@@ -20,6 +20,9 @@ public class DeliveryIndicatorHelper {
             case SENDING:
                 return new DeliveryIndicator(R.drawable.ko__delivery_indicator_sending, R.string.ko__messenger_delivery_indicators_sending, null);
 
+            case WAITING_FOR_NETWORK:
+                return new DeliveryIndicator(R.drawable.ko__delivery_indicator_sending, R.string.ko__messenger_delivery_indicators_waiting_for_network, null);
+
             case FAILED_TO_SEND:
                 return new DeliveryIndicator(R.drawable.ko__delivery_indicator_failed, R.string.ko__messenger_delivery_indicators_failed_to_send, null);
         }
@@ -0,0 +1,171 @@
+package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
+
+import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
+import com.kayako.sdk.android.k5.common.adapter.ContentComparable;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.Attachment;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.ChannelDecoration;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.DataItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.DeliveryIndicator;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.UserDecoration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as DataItemHelper, but remembers the list items generated for every data item (by id).
+ * <p>
+ * The list items of a data item depend only on the previous, current and next data items (separators, grouping, time and delivery indicator).
+ * Therefore, when the list is converted again, list items are only regenerated for data items that have changed or whose previous or next
+ * data items have changed. For example, a new message regenerates only itself and the message before it.
+ * <p>
+ * Unlike DataItemHelper, an instance should be used for a single list only.
+ */
+public class IncrementalDataItemHelper extends DataItemHelper {
+
+    private Map<Long, GeneratedListItems> mGeneratedListItems = new HashMap<>();
+
+    @Override
+    public synchronized List<BaseListItem> convertDataItemToListItems(List<DataItem> dataItems) {
+        DataItem currentDataItem;
+        DataItem nextDataItem;
+        DataItem previousDataItem;
+
+        List<BaseListItem> viewItems = new ArrayList<>();
+        Map<Long, GeneratedListItems> generatedListItems = new HashMap<>(); // also used for assertions on ids
+
+        for (int i = 0; i < dataItems.size(); i++) {
+            currentDataItem = dataItems.get(i);
+            previousDataItem = i == 0 ? null : dataItems.get(i - 1);
+            nextDataItem = i == dataItems.size() - 1 ? null : dataItems.get(i + 1);
+
+            // Assertions on time
+            if (previousDataItem != null && !areItemsInDescendingOrderOfTimeCreated(previousDataItem.getTimeInMilliseconds(), currentDataItem.getTimeInMilliseconds())) {
+                throw new AssertionError("The list is not sorted by time! Should be in descending order of creation time with newest item on top of list");
+            }
+
+            GeneratedListItems generated = mGeneratedListItems.get(currentDataItem.getId());
+            if (generated == null || !generated.isGeneratedFrom(currentDataItem, previousDataItem, nextDataItem)) {
+                generated = new GeneratedListItems(currentDataItem, previousDataItem, nextDataItem,
+                        generateListItems(currentDataItem, previousDataItem, nextDataItem));
+            }
+
+            // Assertions on ids
+            if (generatedListItems.put(currentDataItem.getId(), generated) != null) {
+                throw new AssertionError("Every item of the list should have a unique id!");
+            }
+
+            viewItems.addAll(generated.listItems);
+        }
+
+        mGeneratedListItems = generatedListItems; // forget removed data items
+        return viewItems;
+    }
+
+    private static class GeneratedListItems {
+        final DataItem currentDataItem;
+        final DataItem previousDataItem;
+        final DataItem nextDataItem;
+        final List<BaseListItem> listItems;
+
+        GeneratedListItems(DataItem currentDataItem, DataItem previousDataItem, DataItem nextDataItem, List<BaseListItem> listItems) {
+            this.currentDataItem = currentDataItem;
+            this.previousDataItem = previousDataItem;
+            this.nextDataItem = nextDataItem;
+            this.listItems = listItems;
+        }
+
+        boolean isGeneratedFrom(DataItem currentDataItem, DataItem previousDataItem, DataItem nextDataItem) {
+            return areSame(this.currentDataItem, currentDataItem)
+                    && areSame(this.previousDataItem, previousDataItem)
+                    && areSame(this.nextDataItem, nextDataItem);
+        }
+    }
+
+    ////// COMPARISONS ////////
+
+    private static boolean areSame(DataItem item1, DataItem item2) {
+        if (item1 == item2) {
+            return true;
+        } else if (item1 == null || item2 == null) {
+            return false;
+        }
+
+        return areEqual(item1.getId(), item2.getId())
+                && areEqual(item1.getTimeInMilliseconds(), item2.getTimeInMilliseconds())
+                && item1.isRead() == item2.isRead()
+                && areEqual(item1.getMessage(), item2.getMessage())
+                && areSame(item1.getUserDecoration(), item2.getUserDecoration())
+                && areSame(item1.getChannelDecoration(), item2.getChannelDecoration())
+                && areSame(item1.getDeliveryIndicator(), item2.getDeliveryIndicator())
+                && areSame(item1.getAttachments(), item2.getAttachments())
+                && areEqual(item1.getData(), item2.getData());
+    }
+
+    private static boolean areSame(UserDecoration decoration1, UserDecoration decoration2) {
+        if (decoration1 == decoration2) {
+            return true;
+        } else if (decoration1 == null || decoration2 == null) {
+            return false;
+        }
+
+        return decoration1.isSelf() == decoration2.isSelf()
+                && areEqual(decoration1.getUserId(), decoration2.getUserId())
+                && areEqual(decoration1.getAvatarUrl(), decoration2.getAvatarUrl())
+                && areEqual(decoration1.getName(), decoration2.getName());
+    }
+
+    private static boolean areSame(ChannelDecoration decoration1, ChannelDecoration decoration2) {
+        if (decoration1 == decoration2) {
+            return true;
+        } else if (decoration1 == null || decoration2 == null) {
+            return false;
+        }
+
+        return decoration1.getSourceDrawable() == decoration2.getSourceDrawable()
+                && decoration1.isNote() == decoration2.isNote()
+                && areEqual(decoration1.getName(), decoration2.getName());
+    }
+
+    private static boolean areSame(DeliveryIndicator indicator1, DeliveryIndicator indicator2) {
+        if (indicator1 == indicator2) {
+            return true;
+        } else if (indicator1 == null || indicator2 == null) {
+            return false;
+        }
+
+        return areEqual(indicator1.getDeliveryStatusIconResId(), indicator2.getDeliveryStatusIconResId())
+                && areEqual(indicator1.getDeliveryStatusTextResId(), indicator2.getDeliveryStatusTextResId())
+                && areEqual(indicator1.getDeliveryTime(), indicator2.getDeliveryTime());
+    }
+
+    private static boolean areSame(List<Attachment> attachments1, List<Attachment> attachments2) {
+        if (attachments1 == attachments2) {
+            return true;
+        } else if (attachments1 == null || attachments2 == null || attachments1.size() != attachments2.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < attachments1.size(); i++) {
+            if (!areSameContents(attachments1.get(i), attachments2.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean areSameContents(ContentComparable item1, ContentComparable item2) {
+        if (item1 == item2) {
+            return true;
+        } else if (item1 == null || item2 == null) {
+            return false;
+        }
+
+        return item1.getClass() == item2.getClass() && areEqual(item1.getContents(), item2.getContents());
+    }
+
+    private static boolean areEqual(Object object1, Object object2) {
+        return object1 == null ? object2 == null : object1.equals(object2);
+    }
+}
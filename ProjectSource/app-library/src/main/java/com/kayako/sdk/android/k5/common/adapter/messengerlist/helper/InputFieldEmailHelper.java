@@ -2,7 +2,6 @@ package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
 
 import android.content.Context;
 import android.text.Editable;
-import android.text.Html;
 import android.text.TextWatcher;
 import android.util.Patterns;
 import android.view.View;
@@ -10,6 +9,7 @@ import android.view.View;
 import com.kayako.sdk.android.k5.R;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.InputEmailListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.InputEmailViewHolder;
+import com.kayako.sdk.android.k5.common.utils.HtmlSpannedCache;
 import com.kayako.sdk.android.k5.core.Kayako;
 
 public class InputFieldEmailHelper {
@@ -22,21 +22,21 @@ public class InputFieldEmailHelper {
         Context context = Kayako.getApplicationContext();
 
         InputFieldCommonStateHelper.setErrorFieldState(context, viewHolder.emailFieldLayout, viewHolder.messageHint, true);
-        viewHolder.messageHint.setText(Html.fromHtml(context.getString(R.string.ko__messenger_input_email_message_hint_error)));
+        viewHolder.messageHint.setText(HtmlSpannedCache.getInstance().fromHtml(R.string.ko__messenger_input_email_message_hint_error));
         viewHolder.submitButton.setText(context.getResources().getString(R.string.ko__label_submit));
     }
 
     private static void setFocusedFieldState(InputEmailViewHolder viewHolder) {
         Context context = Kayako.getApplicationContext();
         InputFieldCommonStateHelper.setFocusedFieldState(context, viewHolder.emailFieldLayout, viewHolder.messageHint, true);
-        viewHolder.messageHint.setText(Html.fromHtml(context.getString(R.string.ko__messenger_input_email_message_hint_default)));
+        viewHolder.messageHint.setText(HtmlSpannedCache.getInstance().fromHtml(R.string.ko__messenger_input_email_message_hint_default));
         viewHolder.submitButton.setText(context.getResources().getString(R.string.ko__label_submit));
     }
 
     private static void setUnfocusedFieldState(InputEmailViewHolder viewHolder) {
         Context context = Kayako.getApplicationContext();
         InputFieldCommonStateHelper.setUnfocusedFieldState(context, viewHolder.emailFieldLayout, viewHolder.messageHint, true);
-        viewHolder.messageHint.setText(Html.fromHtml(context.getString(R.string.ko__messenger_input_email_message_hint_default)));
+        viewHolder.messageHint.setText(HtmlSpannedCache.getInstance().fromHtml(R.string.ko__messenger_input_email_message_hint_default));
         viewHolder.submitButton.setText(context.getResources().getString(R.string.ko__label_submit));
     }
 
@@ -1,7 +1,6 @@
 package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
 
 import android.content.Context;
-import android.text.Html;
 import android.text.TextUtils;
 import android.view.View;
 
@@ -9,6 +8,7 @@ import com.kayako.sdk.android.k5.R;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.InputFeedback;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.InputFeedbackCommentListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.InputFeedbackCommentViewHolder;
+import com.kayako.sdk.android.k5.common.utils.HtmlSpannedCache;
 import com.kayako.sdk.android.k5.core.Kayako;
 
 public class InputFieldFeedbackCommentHelper {
@@ -20,7 +20,7 @@ public class InputFieldFeedbackCommentHelper {
         Context context = Kayako.getApplicationContext();
 
         InputFieldCommonStateHelper.setErrorFieldState(context, viewHolder.feedbackFieldLayout, viewHolder.messageHint, false);
-        viewHolder.messageHint.setText(Html.fromHtml(context.getString(R.string.ko__messenger_input_feedback_comment_message_hint_error)));
+        viewHolder.messageHint.setText(HtmlSpannedCache.getInstance().fromHtml(R.string.ko__messenger_input_feedback_comment_message_hint_error));
         viewHolder.submitButton.setText(context.getResources().getString(R.string.ko__label_submit));
     }
 
@@ -28,14 +28,14 @@ public class InputFieldFeedbackCommentHelper {
         Context context = Kayako.getApplicationContext();
         InputFieldCommonStateHelper.setFocusedFieldState(context, viewHolder.feedbackFieldLayout, viewHolder.messageHint, false);
 
-        viewHolder.messageHint.setText(Html.fromHtml(context.getString(R.string.ko__messenger_input_feedback_comment_message_hint_default)));
+        viewHolder.messageHint.setText(HtmlSpannedCache.getInstance().fromHtml(R.string.ko__messenger_input_feedback_comment_message_hint_default));
         viewHolder.submitButton.setText(context.getResources().getString(R.string.ko__label_submit));
     }
 
     private static void setUnfocusedFieldState(InputFeedbackCommentViewHolder viewHolder) {
         Context context = Kayako.getApplicationContext();
         InputFieldCommonStateHelper.setUnfocusedFieldState(context, viewHolder.feedbackFieldLayout, viewHolder.messageHint, false);
-        viewHolder.messageHint.setText(Html.fromHtml(context.getString(R.string.ko__messenger_input_feedback_comment_message_hint_default)));
+        viewHolder.messageHint.setText(HtmlSpannedCache.getInstance().fromHtml(R.string.ko__messenger_input_feedback_comment_message_hint_default));
         viewHolder.submitButton.setText(context.getResources().getString(R.string.ko__label_submit));
     }
 
@@ -6,7 +6,6 @@ import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.StringRes;
 import android.text.Editable;
-import android.text.Html;
 import android.text.TextWatcher;
 import android.util.Patterns;
 import android.view.View;
@@ -14,8 +13,8 @@ import android.view.View;
 import com.kayako.sdk.android.k5.R;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.InputFieldViewHolder;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.InputFieldlListItem;
+import com.kayako.sdk.android.k5.common.utils.HtmlSpannedCache;
 import com.kayako.sdk.android.k5.common.utils.ImageUtils;
-import com.kayako.sdk.android.k5.core.Kayako;
 
 public class InputFieldHelper {
 
@@ -27,7 +26,7 @@ public class InputFieldHelper {
     }
 
     public static void configureInputField(InputFieldViewHolder viewHolder, @StringRes int instructionMessageStringResId) {
-        configureInputField(viewHolder, Kayako.getApplicationContext().getResources().getString(instructionMessageStringResId));
+        viewHolder.messageInstruction.setText(HtmlSpannedCache.getInstance().fromHtml(instructionMessageStringResId));
     }
 
     public static void configureInputField(InputFieldViewHolder viewHolder, @NonNull String instructionMessageString) {
@@ -35,7 +34,7 @@ public class InputFieldHelper {
             throw new IllegalArgumentException("instructionMessageString can not be null");
         }
 
-        viewHolder.messageInstruction.setText(Html.fromHtml(instructionMessageString));
+        viewHolder.messageInstruction.setText(HtmlSpannedCache.getInstance().fromHtml(null, instructionMessageString));
     }
 
     public static void enableInputLayoutWithoutButton(InputFieldViewHolder viewHolder) {
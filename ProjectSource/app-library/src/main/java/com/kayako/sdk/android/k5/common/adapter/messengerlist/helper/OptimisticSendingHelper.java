@@ -48,6 +48,20 @@ public class OptimisticSendingHelper {
         }
     }
 
+    public synchronized void markAsFailed(String clientId) {
+        int position = findOptimisticMessage(clientId);
+        if (position != -1) {
+            markAsFailed(unsentMessageList.get(position));
+        }
+    }
+
+    public synchronized void markAsWaitingForNetwork(String clientId) {
+        int position = findOptimisticMessage(clientId);
+        if (position != -1) {
+            markAs(ClientDeliveryStatus.WAITING_FOR_NETWORK, unsentMessageList.get(position));
+        }
+    }
+
     public synchronized void markAllAsSending() {
         for (int i = 0; i < unsentMessageList.size(); i++) {
             markAsSending(unsentMessageList.get(i));
@@ -81,12 +95,16 @@ public class OptimisticSendingHelper {
     }
 
     private void markAsSending(UnsentMessage unsentMessage) {
+        markAs(ClientDeliveryStatus.SENDING, unsentMessage);
+    }
+
+    private void markAs(ClientDeliveryStatus clientDeliveryStatus, UnsentMessage unsentMessage) {
         int position = findOptimisticMessage(unsentMessage.getClientId());
 
         unsentMessageList.remove(position);
         unsentMessageList.add(
                 position,
-                generateUnsentMessageWithChangedDeliveryStatus(ClientDeliveryStatus.SENDING, unsentMessage)
+                generateUnsentMessageWithChangedDeliveryStatus(clientDeliveryStatus, unsentMessage)
         );
     }
 
@@ -0,0 +1,148 @@
+package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A data structure with the same 3 conditions as UniqueSortedUpdatableResourceList:
+ * 1. Sorted (by identifier or a custom Comparator)
+ * 2. No Duplicates (of same identifer)
+ * 3. Elements with new values should replace elements with old values (Elements of same identifier)
+ * <p>
+ * Unlike UniqueSortedUpdatableResourceList, which copies and re-sorts all elements on every call to getList(), this class:
+ * 1. Keeps elements sorted on insert and update (O(log n)) using a TreeSet keyed by (sort value, id) plus an id index
+ * 2. Returns an immutable snapshot from getList() which is only rebuilt (O(n), no sorting) after a change
+ * 3. Reads of an unchanged snapshot and of the id index (exists, getElement, getSize) take no lock
+ * <p>
+ * Note:
+ * - Elements should not be modified in place after being added. To update an element, add a new value with the same id.
+ * - The list returned by getList() is unmodifiable. Copy it before modifying it.
+ */
+public class UniqueSortedResourceIndex<T> implements IUniqueResourceList<T> {
+
+    private final Object mWriteKey = new Object();
+    private final Map<Long, Entry<T>> mIdIndex = new ConcurrentHashMap<>();
+    private TreeSet<Entry<T>> mSortedEntries = new TreeSet<Entry<T>>(new EntryComparator<T>(null));
+    private Comparator<T> mComparator;
+
+    private volatile List<T> mSnapshot = Collections.emptyList();
+
+    @Override
+    public boolean addElement(long id, T t) {
+        synchronized (mWriteKey) {
+            Entry<T> newEntry = new Entry<>(id, t);
+            Entry<T> oldEntry = mIdIndex.put(id, newEntry);
+            if (oldEntry != null) {
+                mSortedEntries.remove(oldEntry);
+            }
+            mSortedEntries.add(newEntry);
+            mSnapshot = null;
+            return true;
+        }
+    }
+
+    public T getElement(long id) {
+        Entry<T> entry = mIdIndex.get(id);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public boolean exists(long id) {
+        return mIdIndex.containsKey(id);
+    }
+
+    @Override
+    public void removeElement(long id) {
+        synchronized (mWriteKey) {
+            Entry<T> oldEntry = mIdIndex.remove(id);
+            if (oldEntry != null) {
+                mSortedEntries.remove(oldEntry);
+                mSnapshot = null;
+            }
+        }
+    }
+
+    @Override
+    public void setSortComparator(Comparator<T> comparator) {
+        synchronized (mWriteKey) {
+            mComparator = comparator;
+
+            TreeSet<Entry<T>> sortedEntries = new TreeSet<Entry<T>>(new EntryComparator<T>(mComparator));
+            sortedEntries.addAll(mIdIndex.values());
+            mSortedEntries = sortedEntries;
+            mSnapshot = null;
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return mIdIndex.size();
+    }
+
+    /**
+     * @return an unmodifiable, sorted snapshot of all elements
+     */
+    @Override
+    public List<T> getList() {
+        List<T> snapshot = mSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        synchronized (mWriteKey) {
+            if (mSnapshot == null) {
+                List<T> values = new ArrayList<>(mSortedEntries.size());
+                for (Entry<T> entry : mSortedEntries) {
+                    values.add(entry.value);
+                }
+                mSnapshot = Collections.unmodifiableList(values);
+            }
+            return mSnapshot;
+        }
+    }
+
+    private static class Entry<T> {
+        final long id;
+        final T value;
+
+        Entry(long id, T value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Sorts by the custom comparator (if any) and then by id, so that two different elements are never considered equal
+     */
+    private static class EntryComparator<T> implements Comparator<Entry<T>> {
+
+        private final Comparator<T> comparator;
+
+        EntryComparator(Comparator<T> comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(Entry<T> lhs, Entry<T> rhs) {
+            if (comparator != null) {
+                int result = comparator.compare(lhs.value, rhs.value);
+                if (result != 0) {
+                    return result;
+                }
+            }
+
+            if (lhs.id == rhs.id) {
+                return 0;
+            } else if (lhs.id < rhs.id) {
+                return -1;
+            } else {
+                return 1;
+            }
+        }
+    }
+}
@@ -20,7 +20,10 @@ import java.util.Map;
  * <p>
  * Note:
  * - Realized one issue of relying on this list is that if an item is no longer being returned via API (say a deleted conversation), it will continue to show until this object is recreated - page reopened)
+ *
+ * @deprecated getList() copies and re-sorts every element on every call. Use {@link UniqueSortedResourceIndex} instead.
  */
+@Deprecated
 public class UniqueSortedUpdatableResourceList<T> implements IUniqueResourceList<T> {
 
     private static final Comparator DEFAULT_ID_COMPARATOR = new Comparator<Long>() {
@@ -3,6 +3,7 @@ package com.kayako.sdk.android.k5.common.fragments;
 import android.os.Bundle;
 import android.os.Handler;
 import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
@@ -89,6 +90,19 @@ public class MessengerListFragment extends BaseListFragment {
         mMessengerAdapter.replaceAllData(items, disableDiffUtils);
     }
 
+    /**
+     * @param items      List of view items, in the same order as {@link #replaceMessengerList(List)}
+     * @param diffResult Changes calculated from the currently displayed items to the reversed items
+     */
+    public void replaceMessengerList(List<BaseListItem> items, DiffUtil.DiffResult diffResult) {
+        // Reverse item order
+        Collections.reverse(items);
+
+        assert mMessengerAdapter != null;
+
+        mMessengerAdapter.replaceAllData(items, diffResult);
+    }
+
     public void setOnItemClickListener(MessengerAdapter.OnItemClickListener listener) {
         mMessengerAdapter.setOnItemClickListener(listener);
     }
@@ -0,0 +1,367 @@
+package com.kayako.sdk.android.k5.common.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.util.LruCache;
+import android.util.SparseArray;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.kayako.sdk.android.k5.R;
+import com.kayako.sdk.android.k5.common.utils.file.FileStorageUtil;
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of avatars that are already cropped into circles, shared by all the avatar views of the SDK.
+ * <p>
+ * - Avatars are keyed by url and size bucket, so that an avatar is decoded and cropped once per size - not once per bind
+ * - Recently used avatars are kept in memory. All cropped avatars are saved to disk, so that they survive the app being closed.
+ * - Avatars are downloaded via Glide (which keeps the original image), on a background thread
+ * <p>
+ * Only used on the main thread, except for the hit/miss counters.
+ */
+public class AvatarCache {
+
+    private static final String TAG = "AvatarCache";
+    private static final String DIRECTORY_NAME = "kayako_avatars";
+    private static final String FILE_EXTENSION = ".png";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    private static final int SIZE_BUCKET_STEP = 32; // px
+    private static final int MAX_SIZE_BUCKET = 512; // px
+    private static final int DEFAULT_SIZE = 48; // dp - used when the size of the view is not known yet
+    private static final int MEMORY_CACHE_FRACTION = 32; // of the max heap
+    private static final long MAX_DISK_CACHE_SIZE = 5 * 1024 * 1024; // 5 MB
+    private static final int MAX_PARALLEL_LOADS = 2;
+
+    private static final Object key = new Object();
+    private static AvatarCache mInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final SparseArray<Bitmap> mPlaceholders = new SparseArray<>(); // circular placeholder per size bucket
+    private final Map<String, List<WeakReference<ImageView>>> mPendingViews = new HashMap<>(); // views waiting for an avatar that is being loaded
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_LOADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final AtomicLong mMemoryHitCount = new AtomicLong();
+    private final AtomicLong mDiskHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    private AvatarCache() {
+        int maxSize = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_FRACTION);
+        mMemoryCache = new LruCache<String, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        };
+    }
+
+    public static AvatarCache getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new AvatarCache();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * Show the circular avatar in the imageView - right away if it is cached in memory, else the placeholder until it is loaded.
+     *
+     * @param context
+     * @param imageView
+     * @param avatarUrl
+     */
+    public void load(@NonNull Context context, @NonNull ImageView imageView, @NonNull String avatarUrl) {
+        Context applicationContext = context.getApplicationContext();
+        int sizeBucket = getSizeBucket(getViewSize(applicationContext, imageView));
+        String cacheKey = generateKey(avatarUrl, sizeBucket);
+
+        Glide.clear(imageView); // Glide must not overwrite the avatar with the result of an older request
+        imageView.setTag(R.id.ko__tag_avatar_cache_key, cacheKey);
+
+        Bitmap bitmap = mMemoryCache.get(cacheKey);
+        if (bitmap != null) {
+            mMemoryHitCount.incrementAndGet();
+            imageView.setImageBitmap(bitmap);
+            return;
+        }
+
+        imageView.setImageBitmap(getPlaceholder(applicationContext, sizeBucket));
+
+        List<WeakReference<ImageView>> pendingViews = mPendingViews.get(cacheKey);
+        if (pendingViews != null) { // Already being loaded for another view
+            pendingViews.add(new WeakReference<>(imageView));
+            return;
+        }
+
+        pendingViews = new ArrayList<>();
+        pendingViews.add(new WeakReference<>(imageView));
+        mPendingViews.put(cacheKey, pendingViews);
+        mExecutor.execute(new LoadAvatarTask(applicationContext, avatarUrl, sizeBucket, cacheKey));
+    }
+
+    /**
+     * Stop showing an avatar that is being loaded in the imageView. Should be called when something else is shown in an avatar view.
+     *
+     * @param imageView
+     */
+    public void cancel(@NonNull ImageView imageView) {
+        imageView.setTag(R.id.ko__tag_avatar_cache_key, null);
+    }
+
+    public long getMemoryHitCount() {
+        return mMemoryHitCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return mDiskHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    public void clear() {
+        mMemoryCache.evictAll();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File[] files = getCacheDirectory().listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the smallest multiple of SIZE_BUCKET_STEP that fits the size, so that views of similar sizes share the same avatar
+     */
+    static int getSizeBucket(int size) {
+        if (size <= SIZE_BUCKET_STEP) {
+            return SIZE_BUCKET_STEP;
+        }
+        int sizeBucket = ((size + SIZE_BUCKET_STEP - 1) / SIZE_BUCKET_STEP) * SIZE_BUCKET_STEP;
+        return Math.min(MAX_SIZE_BUCKET, sizeBucket);
+    }
+
+    private static String generateKey(String avatarUrl, int sizeBucket) {
+        return FileStorageUtil.generateCacheName(avatarUrl + "|" + sizeBucket);
+    }
+
+    private static int getViewSize(Context context, ImageView imageView) {
+        int size = Math.max(imageView.getWidth(), imageView.getHeight());
+        if (size > 0) {
+            return size;
+        }
+
+        ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams(); // Not laid out yet, like views bound by a RecyclerView
+        if (layoutParams != null && Math.max(layoutParams.width, layoutParams.height) > 0) {
+            return Math.max(layoutParams.width, layoutParams.height);
+        }
+
+        return (int) (DEFAULT_SIZE * context.getResources().getDisplayMetrics().density);
+    }
+
+    private Bitmap getPlaceholder(Context context, int sizeBucket) {
+        Bitmap placeholder = mPlaceholders.get(sizeBucket);
+        if (placeholder == null) {
+            Bitmap bitmap = Bitmap.createBitmap(sizeBucket, sizeBucket, Bitmap.Config.ARGB_8888);
+            Drawable drawable = ContextCompat.getDrawable(context, R.drawable.ko__placeholder_avatar);
+            drawable.setBounds(0, 0, sizeBucket, sizeBucket);
+            drawable.draw(new Canvas(bitmap));
+
+            placeholder = cropCircle(bitmap);
+            bitmap.recycle();
+            mPlaceholders.put(sizeBucket, placeholder);
+        }
+        return placeholder;
+    }
+
+    private File getCacheDirectory() {
+        return new File(Kayako.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+    }
+
+    private static Bitmap cropCircle(Bitmap source) {
+        int size = Math.min(source.getWidth(), source.getHeight());
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+
+        Paint paint = new Paint();
+        BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        paint.setShader(shader);
+        paint.setAntiAlias(true);
+
+        float radius = size / 2f;
+        new Canvas(bitmap).drawCircle(radius, radius, radius, paint);
+        return bitmap;
+    }
+
+    private void onAvatarLoaded(String cacheKey, Bitmap bitmap) {
+        List<WeakReference<ImageView>> pendingViews = mPendingViews.remove(cacheKey);
+        if (bitmap == null || pendingViews == null) {
+            return; // Failed to load - the placeholder stays
+        }
+
+        mMemoryCache.put(cacheKey, bitmap);
+        for (WeakReference<ImageView> reference : pendingViews) {
+            ImageView imageView = reference.get();
+            if (imageView != null && cacheKey.equals(imageView.getTag(R.id.ko__tag_avatar_cache_key))) { // Not recycled to show another avatar
+                imageView.setImageBitmap(bitmap);
+            }
+        }
+    }
+
+    private class LoadAvatarTask implements Runnable {
+
+        private final Context mContext;
+        private final String mAvatarUrl;
+        private final int mSizeBucket;
+        private final String mCacheKey;
+
+        LoadAvatarTask(Context context, String avatarUrl, int sizeBucket, String cacheKey) {
+            mContext = context;
+            mAvatarUrl = avatarUrl;
+            mSizeBucket = sizeBucket;
+            mCacheKey = cacheKey;
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap;
+            try {
+                bitmap = loadFromDisk();
+                if (bitmap != null) {
+                    mDiskHitCount.incrementAndGet();
+                } else {
+                    mMissCount.incrementAndGet();
+                    bitmap = download();
+                }
+            } catch (Exception | OutOfMemoryError e) {
+                KayakoLogHelper.e(TAG, "Failed to load avatar");
+                KayakoLogHelper.printStackTrace(TAG, e);
+                bitmap = null;
+            }
+
+            final Bitmap loadedBitmap = bitmap;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onAvatarLoaded(mCacheKey, loadedBitmap);
+                }
+            });
+        }
+
+        private Bitmap loadFromDisk() {
+            File file = new File(getCacheDirectory(), mCacheKey + FILE_EXTENSION);
+            if (!file.exists()) {
+                return null;
+            }
+
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+            if (bitmap == null) {
+                file.delete(); // Corrupt
+            } else {
+                file.setLastModified(System.currentTimeMillis()); // Recently used
+            }
+            return bitmap;
+        }
+
+        private Bitmap download() throws Exception {
+            FutureTarget<Bitmap> target = Glide.with(mContext)
+                    .load(mAvatarUrl)
+                    .asBitmap()
+                    .centerCrop()
+                    .skipMemoryCache(true) // The cropped avatar is kept in memory instead
+                    .diskCacheStrategy(DiskCacheStrategy.SOURCE)
+                    .into(mSizeBucket, mSizeBucket);
+
+            try {
+                Bitmap bitmap = cropCircle(target.get()); // Glide reuses its bitmap once cleared, so a copy is kept
+                saveToDisk(bitmap);
+                return bitmap;
+            } finally {
+                Glide.clear(target);
+            }
+        }
+
+        private void saveToDisk(Bitmap bitmap) {
+            File directory = getCacheDirectory();
+            if (!directory.exists() && !directory.mkdirs()) {
+                return;
+            }
+
+            File file = new File(directory, mCacheKey + FILE_EXTENSION);
+            File tempFile = new File(directory, mCacheKey + TEMP_FILE_EXTENSION);
+            FileOutputStream outputStream = null;
+            try {
+                outputStream = new FileOutputStream(tempFile);
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream); // PNG keeps the transparent corners
+                outputStream.close();
+                outputStream = null;
+
+                if (!tempFile.renameTo(file)) {
+                    tempFile.delete();
+                }
+            } catch (IOException e) {
+                KayakoLogHelper.printStackTrace(TAG, e);
+                tempFile.delete();
+            } finally {
+                if (outputStream != null) {
+                    try {
+                        outputStream.close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File fileToEvict : FileStorageUtil.selectFilesToEvict(Arrays.asList(files), MAX_DISK_CACHE_SIZE)) {
+                    fileToEvict.delete();
+                }
+            }
+        }
+    }
+}
@@ -1,49 +1,132 @@
 package com.kayako.sdk.android.k5.common.utils;
 
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
 import android.os.Handler;
+import android.os.PowerManager;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.kre.base.KreSubscription;
 
+import java.util.List;
+
+/**
+ * Polls as a failsafe for realtime events that may have been missed. How often depends on how healthy realtime is:
+ * <p>
+ * - While a KRE socket is open, events arrive on their own - polling backs off to HEALTHY_INTERVAL
+ * - Otherwise, it polls every UNHEALTHY_INTERVAL. When the socket drops, it polls right away, since events may have been missed.
+ * - While the app is in the background or the device is idle (Doze), it does not poll at all. Pages reload when resumed anyway.
+ * <p>
+ * The state is checked every CHECK_INTERVAL on the shared {@link KayakoScheduler}. onPoll() is called on the main thread.
+ */
 public class FailsafePollingHelper {
 
-    private static final long TIME_INTERVAL = 60 * 1000; // 1 minute in milliseconds
-    private Timer mTimer;
+    private static final long CHECK_INTERVAL = 15 * 1000; // 15 seconds in milliseconds
+    private static final long UNHEALTHY_INTERVAL = 60 * 1000; // 1 minute in milliseconds
+    private static final long HEALTHY_INTERVAL = 5 * 60 * 1000; // 5 minutes in milliseconds
+
+    private KayakoScheduler.Token mToken;
     private Handler mHandler;
 
+    // Only accessed on the scheduler thread
+    private long mLastPollTime;
+    private boolean mWasHealthy;
+
     public FailsafePollingHelper() {
     }
 
     public void startPolling(final PollingListener listener) {
         stopPolling(); // if already polling, it cancels and retries
 
-        mTimer = new Timer();
-        mHandler = new Handler();
+        final Handler handler = mHandler = new Handler();
+        mLastPollTime = System.currentTimeMillis(); // pages load their data when started
+        mWasHealthy = false;
 
-        TimerTask timerTask = new TimerTask() {
+        // Scheduled on the shared scheduler thread, instead of a Timer thread per page
+        mToken = KayakoScheduler.getInstance().scheduleWithFixedDelay(new Runnable() {
             @Override
             public void run() {
+                long now = System.currentTimeMillis();
+                boolean isHealthy = KreSubscription.isAnySocketOpen();
+                boolean shouldPoll = shouldPoll(now, mLastPollTime, mWasHealthy, isHealthy, isAppActive());
+                mWasHealthy = isHealthy;
+
+                if (!shouldPoll) {
+                    return;
+                }
+                mLastPollTime = now;
+
                 // Runs on UI Thread
-                mHandler.post(new Runnable() {
+                handler.post(new Runnable() {
                     @Override
                     public void run() {
-                        listener.onPoll();
+                        if (mHandler == handler) { // not stopped (or restarted) after the poll was posted
+                            listener.onPoll();
+                        }
                     }
                 });
             }
-        };
-
-        mTimer.schedule(timerTask, TIME_INTERVAL, TIME_INTERVAL);
+        }, CHECK_INTERVAL, CHECK_INTERVAL);
     }
 
     public void stopPolling() {
-        if (mTimer != null) {
-            mTimer.cancel();
-            mTimer = null;
+        if (mToken != null) {
+            mToken.cancel();
+            mToken = null;
             mHandler = null;
         }
     }
 
+    /**
+     * @param now          current time
+     * @param lastPollTime time of the last poll (or of starting to poll)
+     * @param wasHealthy   whether a realtime socket was open at the last check
+     * @param isHealthy    whether a realtime socket is open now
+     * @param isAppActive  whether the app is in the foreground and the device is not idle
+     * @return true if it's time to poll
+     */
+    static boolean shouldPoll(long now, long lastPollTime, boolean wasHealthy, boolean isHealthy, boolean isAppActive) {
+        if (!isAppActive) {
+            return false;
+        }
+
+        if (wasHealthy && !isHealthy) {
+            return true; // Socket dropped - catch up on any missed events
+        }
+
+        long interval = isHealthy ? HEALTHY_INTERVAL : UNHEALTHY_INTERVAL;
+        return now - lastPollTime >= interval || now < lastPollTime; // or the clock was changed
+    }
+
+    private static boolean isAppActive() {
+        Context context = Kayako.getApplicationContext();
+        if (context == null) {
+            return false;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (powerManager != null && powerManager.isDeviceIdleMode()) {
+                return false;
+            }
+        }
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        List<ActivityManager.RunningAppProcessInfo> processes = activityManager == null ? null : activityManager.getRunningAppProcesses();
+        if (processes == null) {
+            return true; // Unknown - poll rather than miss changes
+        }
+
+        int pid = android.os.Process.myPid();
+        for (ActivityManager.RunningAppProcessInfo process : processes) {
+            if (process.pid == pid) {
+                return process.importance <= ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE;
+            }
+        }
+        return true;
+    }
+
     public interface PollingListener {
         void onPoll();
     }
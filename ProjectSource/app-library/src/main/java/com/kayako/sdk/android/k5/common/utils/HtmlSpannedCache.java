@@ -0,0 +1,89 @@
+package com.kayako.sdk.android.k5.common.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.StringRes;
+import android.support.v4.util.LruCache;
+import android.text.Html;
+import android.text.SpannedString;
+
+import com.kayako.sdk.android.k5.core.Kayako;
+
+/**
+ * Cache of html converted to text, so that Html.fromHtml() is not called every time a view is bound.
+ * <p>
+ * - Message text is cached per message id and content hash. The content itself is compared too, so an edited message is parsed again.
+ * - String resources are cached per resource id, so they are parsed once per process (again only if the locale changes)
+ * <p>
+ * Thread-safe. Messages are expected to be parsed on a background thread when the list items are built, so that binding only assigns the cached text.
+ */
+public class HtmlSpannedCache {
+
+    private static final int MAX_ENTRIES = 500;
+    private static final String RESOURCE_KEY_PREFIX = "res";
+
+    private static final Object key = new Object();
+    private static HtmlSpannedCache mInstance;
+
+    private final LruCache<String, Entry> mCache = new LruCache<>(MAX_ENTRIES); // synchronized
+
+    private HtmlSpannedCache() {
+    }
+
+    public static HtmlSpannedCache getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new HtmlSpannedCache();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param id   id of the message (or attachment) the html belongs to, null if it has none
+     * @param html
+     * @return the html converted to text
+     */
+    @NonNull
+    public CharSequence fromHtml(@Nullable Long id, @NonNull String html) {
+        return get((id == null ? "" : String.valueOf(id)) + "|" + html.hashCode(), html);
+    }
+
+    /**
+     * @param stringResId string resource containing html
+     * @return the string converted to text
+     */
+    @NonNull
+    public CharSequence fromHtml(@StringRes int stringResId) {
+        String html = Kayako.getApplicationContext().getString(stringResId);
+        return get(RESOURCE_KEY_PREFIX + stringResId, html);
+    }
+
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private CharSequence get(String cacheKey, String html) {
+        Entry entry = mCache.get(cacheKey);
+        if (entry != null && entry.html.equals(html)) {
+            return entry.text;
+        }
+
+        // SpannedString is immutable, so one instance can be shared by all the views - TextView uses it without copying
+        CharSequence text = new SpannedString(Html.fromHtml(html));
+        mCache.put(cacheKey, new Entry(html, text));
+        return text;
+    }
+
+    private static class Entry {
+        final String html;
+        final CharSequence text;
+
+        Entry(String html, CharSequence text) {
+            this.html = html;
+            this.text = text;
+        }
+    }
+}
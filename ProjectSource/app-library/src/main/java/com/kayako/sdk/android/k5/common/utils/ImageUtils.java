@@ -37,16 +37,9 @@ public class ImageUtils {
      */
     public static void setAvatarImage(Context context, ImageView avatarView, String avatarUrl) {
         if (avatarUrl != null) {
-            Glide.with(context)
-                    .load(avatarUrl)
-                    .dontAnimate()
-                    .placeholder(R.drawable.ko__placeholder_avatar)
-                    .bitmapTransform(new CropCircleTransformation(context))
-                    .centerCrop()
-                    .skipMemoryCache(false) // false because avatars are repeatedly used in message listing, case listing, etc - when true, it shows placeholders
-                    .diskCacheStrategy(DiskCacheStrategy.SOURCE)
-                    .into(avatarView);
+            AvatarCache.getInstance().load(context, avatarView, avatarUrl);
         } else {
+            AvatarCache.getInstance().cancel(avatarView);
             Glide.with(context)
                     .load(R.color.ko__avatar_image_background)
                     .bitmapTransform(new CropCircleTransformation(context))
@@ -88,15 +81,9 @@ public class ImageUtils {
      */
     public static void setAvatarImage(Context context, CircleImageView avatarView, String avatarUrl) {
         if (avatarUrl != null) {
-            Glide.with(context)
-                    .load(avatarUrl)
-                    .dontAnimate()
-                    .placeholder(R.drawable.ko__placeholder_avatar)
-                    .centerCrop()
-                    .skipMemoryCache(false) // false because avatars are repeatedly used in message listing, case listing, etc - when true, it shows placeholders
-                    .diskCacheStrategy(DiskCacheStrategy.SOURCE)
-                    .into(avatarView);
+            AvatarCache.getInstance().load(context, avatarView, avatarUrl); // Already circular - CircleImageView draws it as it is
         } else {
+            AvatarCache.getInstance().cancel(avatarView);
             Glide.with(context)
                     .load(R.drawable.ko__placeholder_avatar)
                     .into(avatarView);
@@ -111,6 +98,7 @@ public class ImageUtils {
      * @param avatarResId
      */
     public static void setAvatarImage(Context context, ImageView avatarView, int avatarResId) {
+        AvatarCache.getInstance().cancel(avatarView);
         Glide.with(context)
                 .load(avatarResId)
                 .centerCrop()
@@ -163,17 +151,7 @@ public class ImageUtils {
 
     public static void loadUrlAsAttachmentImage(@NonNull Context context, @NonNull ImageView imageView, @NonNull String imageUrl, boolean showPlaceholder, boolean configureSize, @Nullable final Auth auth, @Nullable final OnImageLoadedListener listener) {
 
-        GlideUrl glideUrl;
-
-        if (auth == null || auth.getHeaders().size() == 0) {
-            glideUrl = new GlideUrl(imageUrl);
-        } else {
-            LazyHeaders.Builder lazyHeaderBuilder = new LazyHeaders.Builder();
-            for (String key : auth.getHeaders().keySet()) {
-                lazyHeaderBuilder.addHeader(key, auth.getHeaders().get(key));
-            }
-            glideUrl = new GlideUrl(imageUrl, lazyHeaderBuilder.build());
-        }
+        GlideUrl glideUrl = generateGlideUrl(imageUrl, auth);
 
         DrawableTypeRequest<GlideUrl> request = Glide.with(context).load(glideUrl);
 
@@ -211,11 +189,60 @@ public class ImageUtils {
                 .into(imageView);
     }
 
+    /**
+     * Load an attachment image into Glide's caches without showing it, so that a later call to
+     * loadUrlAsAttachmentImage() with configureSize=true and the same url and auth is served from memory.
+     *
+     * @return target that can be passed to {@link #cancelPreload(Target)}
+     */
+    public static Target<GlideDrawable> preloadUrlAsAttachmentImage(@NonNull Context context, @NonNull String imageUrl, @Nullable Auth auth, @Nullable final OnImageLoadedListener listener) {
+        return Glide.with(context)
+                .load(generateGlideUrl(imageUrl, auth))
+                .override(width, height) // The size and transformation must match loadUrlAsAttachmentImage() for the cache keys to match
+                .fitCenter()
+                .listener(new RequestListener<GlideUrl, GlideDrawable>() {
+                    @Override
+                    public boolean onException(Exception e, GlideUrl model, Target<GlideDrawable> target, boolean isFirstResource) {
+                        if (listener != null) {
+                            listener.onImageFailedToLoad();
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(GlideDrawable resource, GlideUrl model, Target<GlideDrawable> target, boolean isFromMemoryCache, boolean isFirstResource) {
+                        if (listener != null) {
+                            listener.onImageLoaded();
+                        }
+                        return false;
+                    }
+                })
+                .skipMemoryCache(false)
+                .diskCacheStrategy(DiskCacheStrategy.RESULT)
+                .preload(width, height);
+    }
+
+    public static void cancelPreload(@NonNull Target<GlideDrawable> target) {
+        Glide.clear(target);
+    }
+
+    private static GlideUrl generateGlideUrl(@NonNull String imageUrl, @Nullable Auth auth) {
+        if (auth == null || auth.getHeaders().size() == 0) {
+            return new GlideUrl(imageUrl);
+        } else {
+            LazyHeaders.Builder lazyHeaderBuilder = new LazyHeaders.Builder();
+            for (String key : auth.getHeaders().keySet()) {
+                lazyHeaderBuilder.addHeader(key, auth.getHeaders().get(key));
+            }
+            return new GlideUrl(imageUrl, lazyHeaderBuilder.build());
+        }
+    }
 
     private static AsyncTask clearDiskCacheTask;
 
     public static void clearCache() {
         Glide.get(Kayako.getApplicationContext()).clearMemory();
+        AvatarCache.getInstance().clear();
 
         if (clearDiskCacheTask == null
                 || clearDiskCacheTask.isCancelled() || clearDiskCacheTask.getStatus() != AsyncTask.Status.RUNNING) { // Prevent multiple calls
@@ -0,0 +1,126 @@
+package com.kayako.sdk.android.k5.common.utils;
+
+import android.support.annotation.NonNull;
+
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single scheduler for all the delayed and periodic work of the SDK - failsafe polling, typing auto-disable, realtime request debouncing and socket reconnects.
+ * <p>
+ * - One daemon thread runs all tasks, instead of a Timer thread per page or per event. It is started with the first task and kept alive after,
+ *   since a scheduled executor needs a core thread to run its periodic tasks - being a daemon, it never keeps the process alive.
+ * - Tasks should be short and never block - anything longer should be handed off to another thread (or posted to the main thread).
+ * - Every scheduled task returns a {@link Token} to cancel it
+ */
+public class KayakoScheduler {
+
+    private static final String TAG = "KayakoScheduler";
+
+    private static final Object key = new Object();
+    private static KayakoScheduler mInstance;
+
+    private final ScheduledThreadPoolExecutor mExecutor;
+
+    private KayakoScheduler() {
+        mExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public static KayakoScheduler getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new KayakoScheduler();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param task  runs once on the scheduler thread
+     * @param delay in milliseconds
+     * @return token to cancel the task
+     */
+    @NonNull
+    public Token schedule(@NonNull Runnable task, long delay) {
+        return new Token(mExecutor.schedule(wrap(task), delay, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @param task         runs repeatedly on the scheduler thread, until cancelled
+     * @param initialDelay in milliseconds
+     * @param period       in milliseconds, between the end of one run and the start of the next
+     * @return token to cancel the task
+     */
+    @NonNull
+    public Token scheduleWithFixedDelay(@NonNull Runnable task, long initialDelay, long period) {
+        return new Token(mExecutor.scheduleWithFixedDelay(wrap(task), initialDelay, period, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @return number of threads currently alive in the scheduler - 0 until the first task is scheduled, 1 after
+     */
+    public int getLiveThreadCount() {
+        return mExecutor.getPoolSize();
+    }
+
+    /**
+     * @return number of tasks waiting to run, including cancelled tasks that have not been removed yet
+     */
+    public int getScheduledTaskCount() {
+        return mExecutor.getQueue().size();
+    }
+
+    private static Runnable wrap(final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // An exception would silently cancel a periodic task - log it and keep it running instead
+                    KayakoLogHelper.logException(TAG, e);
+                }
+            }
+        };
+    }
+
+    public static class Token {
+
+        private final ScheduledFuture<?> mFuture;
+
+        private Token(ScheduledFuture<?> future) {
+            mFuture = future;
+        }
+
+        /**
+         * Cancel the task. A task that is already running completes.
+         */
+        public void cancel() {
+            mFuture.cancel(false);
+        }
+
+        public boolean isCancelled() {
+            return mFuture.isCancelled();
+        }
+
+        /**
+         * @return true if the task has run (or was cancelled). Periodic tasks are only done once cancelled.
+         */
+        public boolean isDone() {
+            return mFuture.isDone();
+        }
+    }
+}
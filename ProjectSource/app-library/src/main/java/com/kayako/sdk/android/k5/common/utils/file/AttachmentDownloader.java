@@ -0,0 +1,398 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Downloads attachments into a cache owned by the SDK, so that an attachment is downloaded once - not once per page.
+ * <p>
+ * - An attachment is saved as &lt;cache&gt;/&lt;key&gt;/&lt;file name&gt;, where the key is a hash of its download url and size
+ * - An interrupted download is resumed from its .part file with an HTTP Range request
+ * - At most MAX_PARALLEL_DOWNLOADS run at a time. Downloading an attachment that is already being downloaded joins that download.
+ * - Once the cache exceeds MAX_CACHE_SIZE, the least recently used attachments are deleted
+ * <p>
+ * All listener callbacks are made on the main thread.
+ */
+public class AttachmentDownloader {
+
+    private static final String TAG = "AttachmentDownloader";
+
+    static final String DIRECTORY_NAME = "kayako_attachments"; // also declared in res/xml/ko__file_paths.xml
+    private static final String PART_FILE_EXTENSION = ".part";
+    private static final String DEFAULT_FILE_NAME = "attachment";
+
+    private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50 MB
+    private static final int MAX_PARALLEL_DOWNLOADS = 2;
+    private static final long BUFFER_SIZE = 64 * 1024; // 64 KB
+    private static final long PROGRESS_INTERVAL = 250; // ms
+
+    private static final Object key = new Object();
+    private static AttachmentDownloader mInstance;
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_DOWNLOADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true); // an interrupted download is resumed from its .part file
+            return thread;
+        }
+    });
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Download> mDownloads = new HashMap<>(); // guarded by itself
+
+    private AttachmentDownloader() {
+    }
+
+    public static AttachmentDownloader getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new AttachmentDownloader();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * @return the downloaded attachment, or null if it has not been downloaded yet
+     */
+    @Nullable
+    public File getCachedFile(@NonNull String downloadUrl, @Nullable String fileName, long fileSize) {
+        File directory = getEntryDirectory(generateKey(downloadUrl, fileSize));
+        File file = new File(directory, sanitizeFileName(fileName));
+        if (!file.exists()) {
+            return null;
+        }
+
+        directory.setLastModified(System.currentTimeMillis()); // Mark as recently used
+        return file;
+    }
+
+    public boolean isDownloading(@NonNull String downloadUrl, long fileSize) {
+        synchronized (mDownloads) {
+            return mDownloads.containsKey(generateKey(downloadUrl, fileSize));
+        }
+    }
+
+    /**
+     * Download the attachment into the cache. If it is already being downloaded, the listener is added to that download.
+     *
+     * @param downloadUrl
+     * @param headers     request headers (authentication)
+     * @param fileName
+     * @param fileSize    size of the attachment, as returned by the API. 0 if unknown.
+     * @param listener
+     */
+    public void download(@NonNull String downloadUrl, @Nullable Map<String, String> headers, @Nullable String fileName, long fileSize, @Nullable OnDownloadListener listener) {
+        if (downloadUrl == null) {
+            throw new IllegalArgumentException("Invalid Arguments");
+        }
+
+        String downloadKey = generateKey(downloadUrl, fileSize);
+        synchronized (mDownloads) {
+            Download download = mDownloads.get(downloadKey);
+            if (download == null) {
+                download = new Download(downloadKey, downloadUrl, headers, sanitizeFileName(fileName), fileSize);
+                mDownloads.put(downloadKey, download);
+                mExecutor.execute(download);
+            }
+
+            if (listener != null) {
+                download.listeners.add(listener);
+            }
+        }
+    }
+
+    /**
+     * Stop calling the listener. The downloads themselves continue, so that the attachments are cached for later.
+     */
+    public void removeListener(@Nullable OnDownloadListener listener) {
+        synchronized (mDownloads) {
+            for (Download download : mDownloads.values()) {
+                download.listeners.remove(listener);
+            }
+        }
+    }
+
+    /**
+     * Delete a downloaded attachment, unless it is being downloaded
+     */
+    public void delete(@NonNull String downloadUrl, long fileSize) {
+        String downloadKey = generateKey(downloadUrl, fileSize);
+        synchronized (mDownloads) {
+            if (!mDownloads.containsKey(downloadKey)) {
+                FileStorageUtil.deleteRecursively(getEntryDirectory(downloadKey));
+            }
+        }
+    }
+
+    /**
+     * Cancel all downloads and delete all downloaded attachments
+     */
+    public void clear() {
+        synchronized (mDownloads) {
+            for (Download download : mDownloads.values()) {
+                download.isCancelled = true;
+                download.listeners.clear();
+            }
+            mDownloads.clear();
+        }
+
+        try {
+            FileStorageUtil.deleteRecursively(getCacheDirectory());
+        } catch (Exception e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+        }
+    }
+
+    private File getCacheDirectory() {
+        return new File(Kayako.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+    }
+
+    private File getEntryDirectory(String downloadKey) {
+        return new File(getCacheDirectory(), downloadKey);
+    }
+
+    /**
+     * @param downloadedKey key of the attachment that was just downloaded - kept even if it alone exceeds the budget, so that it can still be opened
+     */
+    private void trimToSize(String downloadedKey) {
+        File[] entries = getCacheDirectory().listFiles();
+        if (entries == null) {
+            return;
+        }
+
+        Set<String> activeKeys;
+        synchronized (mDownloads) {
+            activeKeys = new HashSet<>(mDownloads.keySet());
+        }
+        activeKeys.add(downloadedKey);
+
+        for (File entry : FileStorageUtil.selectFilesToEvict(Arrays.asList(entries), activeKeys, MAX_CACHE_SIZE)) {
+            KayakoLogHelper.d(TAG, "Evicting " + entry.getName());
+            FileStorageUtil.deleteRecursively(entry);
+        }
+    }
+
+    /**
+     * The whole url is part of the key - urls that differ only by their query may point to different attachments
+     */
+    static String generateKey(@NonNull String downloadUrl, long fileSize) {
+        return FileStorageUtil.generateCacheName(downloadUrl + "|" + fileSize);
+    }
+
+    private static String sanitizeFileName(@Nullable String fileName) {
+        String purifiedFileName = fileName == null ? null : FileStorageUtil.purify(fileName);
+        return purifiedFileName == null || purifiedFileName.length() == 0 ? DEFAULT_FILE_NAME : purifiedFileName;
+    }
+
+    private class Download implements Runnable {
+
+        final String key;
+        final String downloadUrl;
+        final Map<String, String> headers;
+        final String fileName;
+        final long fileSize;
+        final List<OnDownloadListener> listeners = new ArrayList<>(); // guarded by mDownloads
+
+        volatile boolean isCancelled;
+        private long mLastProgressTime;
+
+        Download(String key, String downloadUrl, Map<String, String> headers, String fileName, long fileSize) {
+            this.key = key;
+            this.downloadUrl = downloadUrl;
+            this.headers = headers;
+            this.fileName = fileName;
+            this.fileSize = fileSize;
+        }
+
+        @Override
+        public void run() {
+            File downloadedFile = null;
+            try {
+                if (!isCancelled) {
+                    downloadedFile = download();
+                }
+            } catch (InterruptedIOException e) {
+                KayakoLogHelper.d(TAG, "Download cancelled");
+            } catch (IOException | RuntimeException e) {
+                KayakoLogHelper.e(TAG, "Unable to download attachment");
+                KayakoLogHelper.printStackTrace(TAG, e);
+            }
+
+            final List<OnDownloadListener> listenersToCall;
+            synchronized (mDownloads) {
+                if (mDownloads.get(key) == this) {
+                    mDownloads.remove(key);
+                }
+                listenersToCall = new ArrayList<>(listeners);
+            }
+
+            if (downloadedFile != null) {
+                trimToSize(key);
+            }
+
+            if (isCancelled) {
+                return;
+            }
+
+            final File file = downloadedFile;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (OnDownloadListener listener : listenersToCall) {
+                        if (file != null) {
+                            listener.onDownloaded(file);
+                        } else {
+                            listener.onFailed();
+                        }
+                    }
+                }
+            });
+        }
+
+        private File download() throws IOException {
+            File directory = getEntryDirectory(key);
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Unable to create " + directory);
+            }
+
+            File file = new File(directory, fileName);
+            if (file.exists()) {
+                return file;
+            }
+
+            File partFile = new File(directory, fileName + PART_FILE_EXTENSION);
+            long downloadedBytes = partFile.exists() ? partFile.length() : 0;
+
+            Request.Builder requestBuilder = new Request.Builder()
+                    .url(downloadUrl);
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    requestBuilder.header(header.getKey(), header.getValue());
+                }
+            }
+            if (downloadedBytes > 0) {
+                requestBuilder.header("Range", "bytes=" + downloadedBytes + "-");
+            }
+
+            Response response = KayakoClientProvider.getHttpClient().newCall(requestBuilder.build()).execute();
+            try {
+                boolean isResumed;
+                if (response.code() == 416 && downloadedBytes > 0 && downloadedBytes == fileSize) {
+                    isResumed = true; // The part file was complete when the download was interrupted
+
+                } else if (!response.isSuccessful()) {
+                    if (response.code() == 416) {
+                        partFile.delete(); // Part file is unusable - start over next time
+                    }
+                    throw new IOException("Unexpected response code " + response.code());
+
+                } else {
+                    isResumed = response.code() == 206;
+                    if (!isResumed) {
+                        downloadedBytes = 0; // Range not supported - start over
+                    }
+
+                    long contentLength = response.body().contentLength();
+                    long totalBytes = contentLength == -1 ? fileSize : downloadedBytes + contentLength;
+                    writeResponse(response.body().source(), partFile, isResumed, downloadedBytes, totalBytes);
+                }
+
+                if (isResumed && fileSize > 0 && partFile.length() != fileSize) {
+                    partFile.delete(); // The file changed on the server since the part file was written
+                    throw new IOException("Size of resumed download does not match");
+                }
+
+            } finally {
+                response.close();
+            }
+
+            if (!partFile.renameTo(file)) {
+                throw new IOException("Unable to save " + file);
+            }
+
+            directory.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+
+        private void writeResponse(BufferedSource source, File partFile, boolean append, long downloadedBytes, long totalBytes) throws IOException {
+            BufferedSink sink = Okio.buffer(append ? Okio.appendingSink(partFile) : Okio.sink(partFile));
+            try {
+                long read;
+                while ((read = source.read(sink.buffer(), BUFFER_SIZE)) != -1) {
+                    if (isCancelled) {
+                        throw new InterruptedIOException("Download cancelled");
+                    }
+
+                    sink.emitCompleteSegments();
+                    downloadedBytes += read;
+                    postProgress(downloadedBytes, totalBytes);
+                }
+            } finally {
+                sink.close();
+            }
+        }
+
+        private void postProgress(final long downloadedBytes, final long totalBytes) {
+            long currentTime = System.currentTimeMillis();
+            if (currentTime - mLastProgressTime < PROGRESS_INTERVAL) {
+                return;
+            }
+            mLastProgressTime = currentTime;
+
+            final List<OnDownloadListener> listenersToCall;
+            synchronized (mDownloads) {
+                listenersToCall = new ArrayList<>(listeners);
+            }
+
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (OnDownloadListener listener : listenersToCall) {
+                        listener.onProgress(downloadedBytes, totalBytes);
+                    }
+                }
+            });
+        }
+    }
+
+    public interface OnDownloadListener {
+        /**
+         * @param downloadedBytes
+         * @param totalBytes      0 or less if unknown
+         */
+        void onProgress(long downloadedBytes, long totalBytes);
+
+        void onDownloaded(File file);
+
+        void onFailed();
+    }
+}
@@ -19,6 +19,7 @@ import com.kayako.sdk.android.k5.core.KayakoLogHelper;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static android.text.TextUtils.isEmpty;
 
@@ -94,6 +95,23 @@ public class FileAttachmentUtil {
         return null;
     }
 
+    /**
+     * Call this method in the onActivityResult() lifecycle callback. Unlike getFileOnActivityResult(), the file is copied on a background thread.
+     *
+     * @param resultCode
+     * @param data
+     * @param maxFileSize
+     * @param listener
+     * @return the import task that can be cancelled, or null if no file was picked
+     */
+    @Nullable
+    public static FileImportTask importFileOnActivityResult(int resultCode, Intent data, long maxFileSize, @NonNull FileImportTask.OnFileImportListener listener) {
+        if (resultCode == Activity.RESULT_OK && data != null && data.getData() != null) {
+            return FileImportTask.start(Kayako.getApplicationContext(), data.getData(), maxFileSize, listener);
+        }
+        return null;
+    }
+
     /**
      * Clear saved files once the attachments have been used or discarded
      */
@@ -107,6 +125,21 @@ public class FileAttachmentUtil {
         }
     }
 
+    /**
+     * Clear saved files, except the ones given
+     *
+     * @param fileNamesToKeep names of the saved files that are still needed
+     */
+    public static void clearSavedAttachmentsExcept(@NonNull Set<String> fileNamesToKeep) {
+        try {
+            Context context = Kayako.getApplicationContext();
+            FileStorageUtil.deleteSavedFiles(context, fileNamesToKeep);
+        } catch (Exception e) {
+            KayakoLogHelper.e(TAG, "A little test to see how reliable the fileList() methods are across different android versions. Ideally, this shouldn't crash.");
+            KayakoLogHelper.logException(TAG, e);
+        }
+    }
+
     public static void clearSavedAttachment(File file) {
         try {
             Context context = Kayako.getApplicationContext();
@@ -192,7 +225,7 @@ public class FileAttachmentUtil {
         return new FileAttachment(key, file.getPath());
     }
 
-    private static String getFileName(Context context, Uri uri) throws NullPointerException {
+    static String getFileName(Context context, Uri uri) throws NullPointerException {
         String fileName = null;
         if ("file".equals(uri.getScheme())) {
             // Process as a uri that points to a file
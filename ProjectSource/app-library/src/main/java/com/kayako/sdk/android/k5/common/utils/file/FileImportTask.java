@@ -0,0 +1,173 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Copies a picked file into internal storage on a dedicated I/O thread, so that large files never block the main thread.
+ * <p>
+ * All listener callbacks are made on the main thread. Once cancelled, no more callbacks are made and the partially copied file is deleted.
+ */
+public class FileImportTask {
+
+    public static final int FAILURE_TOO_LARGE = 1;
+    public static final int FAILURE_UNEXPECTED_ERROR = 2;
+
+    private static final String TAG = "FileImportTask";
+    private static final long PROGRESS_INTERVAL = 100; // ms - avoid flooding the main thread with progress updates
+
+    // Imports are sequential - parallel copies would only compete for the same storage
+    private static final ExecutorService sIoExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final OnFileImportListener mListener;
+    private volatile boolean mIsCancelled;
+    private long mLastProgressTime;
+
+    private FileImportTask(@NonNull OnFileImportListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @param context
+     * @param uri
+     * @param maxFileSize files larger than this fail with FAILURE_TOO_LARGE. Images are not limited here, since they are downscaled
+     *                    before they are sent - their size should be checked once processed (see ImageAttachmentProcessor).
+     * @param listener
+     * @return task that can be cancelled
+     */
+    public static FileImportTask start(@NonNull Context context, @NonNull final Uri uri, final long maxFileSize, @NonNull OnFileImportListener listener) {
+        if (context == null || uri == null || listener == null) {
+            throw new IllegalArgumentException("Invalid Arguments");
+        }
+
+        final Context applicationContext = context.getApplicationContext();
+        final FileImportTask task = new FileImportTask(listener);
+        sIoExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                task.run(applicationContext, uri, maxFileSize);
+            }
+        });
+        return task;
+    }
+
+    public void cancel() {
+        mIsCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mIsCancelled;
+    }
+
+    private void run(Context context, Uri uri, long maxFileSize) {
+        if (mIsCancelled) {
+            return;
+        }
+
+        try {
+            String fileName = FileAttachmentUtil.getFileName(context, uri);
+            long maxCopySize = fileName != null && FileStorageUtil.isImage(new File(fileName)) ? Long.MAX_VALUE : maxFileSize;
+            File file = FileStorageUtil.saveFile(context, uri, fileName, maxCopySize, new FileStorageUtil.OnCopyListener() {
+                @Override
+                public void onProgress(long copiedBytes, long totalBytes) {
+                    postProgress(copiedBytes, totalBytes);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return mIsCancelled;
+                }
+            });
+            postImported(file);
+
+        } catch (InterruptedIOException e) {
+            KayakoLogHelper.d(TAG, "File import cancelled");
+
+        } catch (FileTooLargeException e) {
+            KayakoLogHelper.e(TAG, e.getMessage());
+            postFailed(FAILURE_TOO_LARGE);
+
+        } catch (IOException | RuntimeException e) {
+            // SecurityException & NullPointerException are thrown by some content providers
+            KayakoLogHelper.e(TAG, "Unable to import file");
+            KayakoLogHelper.logException(TAG, e);
+            postFailed(FAILURE_UNEXPECTED_ERROR);
+        }
+    }
+
+    private void postProgress(final long copiedBytes, final long totalBytes) {
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - mLastProgressTime < PROGRESS_INTERVAL && copiedBytes != totalBytes) {
+            return;
+        }
+        mLastProgressTime = currentTime;
+
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mIsCancelled) {
+                    mListener.onProgress(copiedBytes, totalBytes);
+                }
+            }
+        });
+    }
+
+    private void postImported(final File file) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mIsCancelled) {
+                    mListener.onImported(file);
+                } else {
+                    FileAttachmentUtil.clearSavedAttachment(file); // Cancelled after the copy was completed
+                }
+            }
+        });
+    }
+
+    private void postFailed(final int failureReason) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mIsCancelled) {
+                    mListener.onFailed(failureReason);
+                }
+            }
+        });
+    }
+
+    public interface OnFileImportListener {
+        /**
+         * @param copiedBytes
+         * @param totalBytes  FileStorageUtil.UNKNOWN_SIZE if the size of the file can not be known before it is copied
+         */
+        void onProgress(long copiedBytes, long totalBytes);
+
+        void onImported(File file);
+
+        /**
+         * @param failureReason FAILURE_TOO_LARGE or FAILURE_UNEXPECTED_ERROR
+         */
+        void onFailed(int failureReason);
+    }
+}
@@ -3,6 +3,7 @@ package com.kayako.sdk.android.k5.common.utils.file;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
+import android.os.ParcelFileDescriptor;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
@@ -10,10 +11,27 @@ import android.webkit.MimeTypeMap;
 
 import com.kayako.sdk.android.k5.core.KayakoLogHelper;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 public class FileStorageUtil {
@@ -26,6 +44,19 @@ public class FileStorageUtil {
 
     private static final String TAG = "FileStorageUtil";
     private static final String ATTACHMENT_NAME_PREFIX = "attachment__";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    public static final long UNKNOWN_SIZE = -1;
+    private static final long TRANSFER_CHUNK_SIZE = 512 * 1024; // 512 KB - progress is reported and cancellation checked per chunk
+    private static final int COPY_BUFFER_SIZE = 64 * 1024; // 64 KB
+
+    // One direct buffer per I/O thread, reused for every stream copy
+    private static final ThreadLocal<ByteBuffer> sCopyBuffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+        }
+    };
 
     /**
      * Generate a unique file name with a specific prefix to ensure only the files created by this class are deleted.
@@ -54,6 +85,143 @@ public class FileStorageUtil {
     }
 
 
+    /**
+     * Generate a name that is safe to use for files and directories in a cache
+     *
+     * @param value
+     * @return SHA-1 hex digest of the value
+     */
+    public static String generateCacheName(@NonNull String value) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            byte[] digest = messageDigest.digest(value.getBytes("UTF-8"));
+
+            StringBuilder stringBuilder = new StringBuilder();
+            for (byte b : digest) {
+                stringBuilder.append(String.format("%02x", b));
+            }
+            return stringBuilder.toString();
+
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return String.valueOf(value.hashCode()); // Never expected
+        }
+    }
+
+
+    /**
+     * Select the files to delete from a cache of files, where the last modified time of a file is the time it was last used
+     *
+     * @param files
+     * @param maxSize
+     * @return the least recently used files to delete, so that the total size of the remaining files is within maxSize
+     */
+    public static List<File> selectFilesToEvict(@NonNull List<File> files, long maxSize) {
+        return selectFilesToEvict(files, Collections.<String>emptySet(), maxSize);
+    }
+
+    /**
+     * Select the files to delete from a cache of files, where the last modified time of a file is the time it was last used.
+     * A file may be a directory, in which case its size is the size of all its contents.
+     *
+     * @param files
+     * @param namesToKeep names of the files that are in use and should never be deleted
+     * @param maxSize
+     * @return the least recently used files to delete, so that the total size of the remaining files is within maxSize
+     */
+    public static List<File> selectFilesToEvict(@NonNull List<File> files, @NonNull Set<String> namesToKeep, long maxSize) {
+        final Map<File, Long> lastModifiedTimes = new HashMap<>();
+        Map<File, Long> sizes = new HashMap<>();
+        long totalSize = 0;
+        for (File file : files) {
+            lastModifiedTimes.put(file, file.lastModified()); // read once, so that the sort is stable even if a file is touched meanwhile
+            long size = getSize(file);
+            sizes.put(file, size);
+            totalSize += size;
+        }
+
+        List<File> sortedFiles = new ArrayList<>(files);
+        Collections.sort(sortedFiles, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                long time1 = lastModifiedTimes.get(file1);
+                long time2 = lastModifiedTimes.get(file2);
+                return time1 < time2 ? -1 : (time1 == time2 ? 0 : 1);
+            }
+        });
+
+        List<File> filesToEvict = new ArrayList<>();
+        for (File file : sortedFiles) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+
+            if (!namesToKeep.contains(file.getName())) {
+                filesToEvict.add(file);
+                totalSize -= sizes.get(file);
+            }
+        }
+        return filesToEvict;
+    }
+
+    /**
+     * Write a file of a cache. The bytes are written to a temporary file first, which then replaces the file -
+     * so that a crash while writing never leaves a half-written file behind.
+     *
+     * @param file
+     * @param bytes
+     * @throws IOException if the file could not be written
+     */
+    public static void writeFile(@NonNull File file, @NonNull byte[] bytes) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File tempFile = new File(directory, file.getName() + TEMP_FILE_EXTENSION);
+        FileOutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            outputStream.write(bytes);
+        } finally {
+            outputStream.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Unable to save " + file);
+        }
+    }
+
+    /**
+     * Delete a file, or a directory with all its contents
+     *
+     * @param file
+     */
+    public static void deleteRecursively(@NonNull File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static long getSize(File file) {
+        if (!file.isDirectory()) {
+            return file.length();
+        }
+
+        long size = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                size += getSize(child);
+            }
+        }
+        return size;
+    }
+
+
     /**
      * Extract the file path
      *
@@ -116,50 +284,151 @@ public class FileStorageUtil {
      * @return
      */
     public static File saveFile(Context context, Uri contentUri, String originalFileName) {
-        FileOutputStream outputStream = null;
-        InputStream inputStream = null;
+        try {
+            return saveFile(context, contentUri, originalFileName, Long.MAX_VALUE, null);
+        } catch (IOException e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            return null;
+        }
+    }
+
+    /**
+     * Save file in internal storage to ensure access. Should never be called on the main thread.
+     * <p>
+     * If the uri points to a regular file, bytes are moved with FileChannel.transferFrom() without passing through the Java heap.
+     * Otherwise (pipes, network backed providers), the stream is copied through a reused direct buffer.
+     * <p>
+     * The partially copied file is deleted if the copy does not complete.
+     *
+     * @param context
+     * @param contentUri
+     * @param originalFileName
+     * @param maxFileSize      the copy is stopped with a FileTooLargeException as soon as the file is known to exceed this size
+     * @param listener         optional - for progress and cancellation
+     * @return
+     * @throws FileTooLargeException if the file is larger than maxFileSize
+     * @throws InterruptedIOException if cancelled via the listener
+     * @throws IOException           if the file could not be copied
+     */
+    public static File saveFile(Context context, Uri contentUri, String originalFileName, long maxFileSize, @Nullable OnCopyListener listener) throws IOException {
         ContentResolver resolver = context.getContentResolver();
 
+        // Create a unique filename that does not already exist in internal storage
+        String fileName = getUniqueFileNameForInternalStorage(purify(originalFileName));
+
+        ParcelFileDescriptor fileDescriptor = null;
+        ReadableByteChannel inputChannel = null;
+        FileChannel outputChannel = null;
+        boolean isCopied = false;
+
         try {
-            inputStream = resolver.openInputStream(contentUri);
+            long totalSize = UNKNOWN_SIZE;
+            try {
+                fileDescriptor = resolver.openFileDescriptor(contentUri, "r");
+                totalSize = fileDescriptor == null ? UNKNOWN_SIZE : fileDescriptor.getStatSize(); // -1 if not a regular file
+            } catch (IOException | SecurityException | UnsupportedOperationException e) {
+                // Provider does not offer file descriptors - fall back to streams
+            }
 
-            // Create a unique filename that does not already exist in internal storage
-            String fileName = getUniqueFileNameForInternalStorage(purify(originalFileName));
+            if (totalSize > maxFileSize) {
+                throw new FileTooLargeException(totalSize, maxFileSize); // Fail before copying a single byte
+            }
 
             // Create file in Internal App Directory
-            outputStream = context.openFileOutput(fileName, Context.MODE_PRIVATE); // creates file if not existing
+            outputChannel = context.openFileOutput(fileName, Context.MODE_PRIVATE).getChannel(); // creates file if not existing
 
-            // Transfer bytes from uri inputstream to temporary file outputstream
-            int bufferSize = 1024 * 4; // 4 KB
-            byte[] buffer = new byte[bufferSize];
-            int len = 0;
-            while ((len = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, len);
+            if (totalSize >= 0) {
+                inputChannel = new FileInputStream(fileDescriptor.getFileDescriptor()).getChannel();
+                transferFile((FileChannel) inputChannel, outputChannel, totalSize, maxFileSize, listener);
+            } else {
+                InputStream inputStream = resolver.openInputStream(contentUri);
+                if (inputStream == null) {
+                    throw new FileNotFoundException("Unable to open " + contentUri);
+                }
+                inputChannel = Channels.newChannel(inputStream);
+                copyStream(inputChannel, outputChannel, maxFileSize, listener);
             }
 
+            isCopied = true;
             return context.getFileStreamPath(fileName);
 
-        } catch (IOException e) {
-            KayakoLogHelper.printStackTrace(TAG, e);
         } finally {
-            if (outputStream != null) {
+            close(inputChannel);
+            close(outputChannel);
+            if (fileDescriptor != null) {
                 try {
-                    outputStream.close();
-                } catch (IOException e1) {
-                    KayakoLogHelper.printStackTrace(TAG, e1);
+                    fileDescriptor.close(); // ParcelFileDescriptor is only Closeable from API 16
+                } catch (IOException e) {
+                    KayakoLogHelper.printStackTrace(TAG, e);
                 }
             }
 
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException e1) {
-                    KayakoLogHelper.printStackTrace(TAG, e1);
-                }
+            if (!isCopied) {
+                deleteSavedFile(context, fileName);
+            }
+        }
+    }
+
+    static void transferFile(FileChannel inputChannel, FileChannel outputChannel, long totalSize, long maxFileSize, @Nullable OnCopyListener listener) throws IOException {
+        long position = 0;
+        while (position < totalSize) {
+            assertNotCancelled(listener);
+
+            long transferred = outputChannel.transferFrom(inputChannel, position, Math.min(TRANSFER_CHUNK_SIZE, totalSize - position));
+            if (transferred <= 0) {
+                break; // file shrunk while copying
+            }
+            position += transferred;
+
+            if (position > maxFileSize) {
+                throw new FileTooLargeException(position, maxFileSize); // file grew while copying
+            }
+            if (listener != null) {
+                listener.onProgress(position, totalSize);
             }
         }
+    }
+
+    static void copyStream(ReadableByteChannel inputChannel, FileChannel outputChannel, long maxFileSize, @Nullable OnCopyListener listener) throws IOException {
+        ByteBuffer buffer = sCopyBuffer.get();
+        buffer.clear();
 
-        return null;
+        long copied = 0;
+        int read;
+        while ((read = inputChannel.read(buffer)) != -1) {
+            assertNotCancelled(listener);
+
+            copied += read;
+            if (copied > maxFileSize) {
+                throw new FileTooLargeException(copied, maxFileSize);
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                outputChannel.write(buffer);
+            }
+            buffer.clear();
+
+            if (listener != null) {
+                listener.onProgress(copied, UNKNOWN_SIZE);
+            }
+        }
+    }
+
+    private static void assertNotCancelled(@Nullable OnCopyListener listener) throws InterruptedIOException {
+        if (listener != null && listener.isCancelled()) {
+            throw new InterruptedIOException("File copy was cancelled");
+        }
+    }
+
+    private static void close(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                KayakoLogHelper.printStackTrace(TAG, e);
+            }
+        }
     }
 
     /**
@@ -178,10 +447,20 @@ public class FileStorageUtil {
      * @param context
      */
     public static boolean deleteSavedFiles(Context context) throws Exception {
+        return deleteSavedFiles(context, Collections.<String>emptySet());
+    }
+
+    /**
+     * Clear existing files in internal storage (previous attachments), except the ones given
+     *
+     * @param context
+     * @param fileNamesToKeep
+     */
+    public static boolean deleteSavedFiles(Context context, @NonNull Set<String> fileNamesToKeep) throws Exception {
         boolean isDeleted = false;
         for (String fileName : context.fileList()) {
             // Only deleting files with a prefix to ensure that other internal files (created by Google Analytics & Fabric) are not deleted as well
-            if (fileName.startsWith(ATTACHMENT_NAME_PREFIX)) {
+            if (fileName.startsWith(ATTACHMENT_NAME_PREFIX) && !fileNamesToKeep.contains(fileName)) {
                 deleteSavedFile(context, fileName);
                 isDeleted = true;
             }
@@ -197,4 +476,14 @@ public class FileStorageUtil {
     public static boolean isExisting(@Nullable File file) {
         return file != null && file.exists();
     }
+
+    public interface OnCopyListener {
+        /**
+         * @param copiedBytes
+         * @param totalBytes  UNKNOWN_SIZE if the size of the file can not be known before it is copied
+         */
+        void onProgress(long copiedBytes, long totalBytes);
+
+        boolean isCancelled();
+    }
 }
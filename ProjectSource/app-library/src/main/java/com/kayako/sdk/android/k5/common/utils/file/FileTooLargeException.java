@@ -0,0 +1,29 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a file being saved to internal storage is larger than the max attachment size
+ */
+public class FileTooLargeException extends IOException {
+
+    private final long mFileSize;
+    private final long mMaxFileSize;
+
+    public FileTooLargeException(long fileSize, long maxFileSize) {
+        super(String.format("File size %d bytes exceeds the max size of %d bytes", fileSize, maxFileSize));
+        mFileSize = fileSize;
+        mMaxFileSize = maxFileSize;
+    }
+
+    /**
+     * @return size of the file, or the number of bytes read before the copy was stopped
+     */
+    public long getFileSize() {
+        return mFileSize;
+    }
+
+    public long getMaxFileSize() {
+        return mMaxFileSize;
+    }
+}
@@ -0,0 +1,235 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+import com.kayako.sdk.android.k5.core.MessengerPref;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Downscales and recompresses picked images before they are sent as attachments.
+ * <p>
+ * - The image is decoded with an inSampleSize so that a full resolution camera image is never loaded in memory
+ * - It is then scaled down to fit the max dimension, rotated as per its EXIF orientation and re-encoded with the configured quality
+ * - Re-encoding drops all EXIF metadata (location, device details, etc)
+ * - If the re-encoded image is not smaller than the original (eg: an already compressed JPEG), the original file is kept
+ * <p>
+ * Only JPEG and PNG images are processed. Other images (GIFs, etc) are sent as they are. If processing fails for any reason, the original file is used.
+ */
+public class ImageAttachmentProcessor {
+
+    private static final String TAG = "ImageAttachmentProcessor";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private ImageAttachmentProcessor() {
+    }
+
+    /**
+     * Process the image on a background thread, as configured via MessengerBuilder. The listener is called on the main thread.
+     *
+     * @param file     File saved in internal storage by FileStorageUtil
+     * @param listener
+     */
+    public static void processAsync(@NonNull final File file, @NonNull final OnImageProcessedListener listener) {
+        if (file == null || listener == null) {
+            throw new IllegalArgumentException("Invalid Arguments");
+        }
+
+        final boolean isEnabled = MessengerPref.getInstance().isImageCompressionEnabled();
+        final int maxDimension = MessengerPref.getInstance().getImageMaxDimension();
+        final int quality = MessengerPref.getInstance().getImageQuality();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long originalSize = file.length();
+                final File processedFile = isEnabled ? process(file, maxDimension, quality) : file;
+                final long processedSize = processedFile.length();
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onImageProcessed(processedFile, originalSize, processedSize);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Downscale and recompress the image, replacing the original file. Should never be called on the main thread.
+     *
+     * @param file
+     * @param maxDimension max width or height of the processed image
+     * @param quality      JPEG quality (0-100). Ignored for PNG images.
+     * @return the processed file, or the original file if it was left untouched
+     */
+    public static File process(@NonNull File file, int maxDimension, int quality) {
+        Bitmap.CompressFormat format = getCompressFormat(file);
+        if (format == null) {
+            return file;
+        }
+
+        long startTime = System.currentTimeMillis();
+        long originalSize = file.length();
+        Bitmap bitmap = null;
+        File tempFile = new File(file.getParentFile(), file.getName() + TEMP_FILE_SUFFIX);
+
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(file.getPath(), options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return file; // Not a decodable image
+            }
+
+            int rotation = getRotation(file);
+            boolean requiresScaling = Math.max(options.outWidth, options.outHeight) > maxDimension;
+            if (!requiresScaling && rotation == 0 && format == Bitmap.CompressFormat.PNG) {
+                return file; // PNGs are lossless and carry no EXIF - nothing to gain
+            }
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxDimension);
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+            if (bitmap == null) {
+                return file;
+            }
+
+            float scale = calculateScale(bitmap.getWidth(), bitmap.getHeight(), maxDimension);
+            if (scale != 1 || rotation != 0) {
+                Matrix matrix = new Matrix();
+                matrix.postScale(scale, scale);
+                matrix.postRotate(rotation);
+                Bitmap transformedBitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+                if (transformedBitmap != bitmap) {
+                    bitmap.recycle();
+                    bitmap = transformedBitmap;
+                }
+            }
+
+            if (!writeBitmap(bitmap, format, quality, tempFile)) {
+                return file;
+            }
+
+            if (tempFile.length() >= originalSize) {
+                KayakoLogHelper.d(TAG, String.format("Kept %s - re-encoding did not make it smaller (%d bytes to %d bytes)", file.getName(), originalSize, tempFile.length()));
+                return file; // the temp file is deleted below
+            }
+
+            if (!tempFile.renameTo(file)) {
+                return file;
+            }
+
+            KayakoLogHelper.d(TAG, String.format("Processed %s in %d ms - %d bytes to %d bytes", file.getName(), System.currentTimeMillis() - startTime, originalSize, file.length()));
+            return file;
+
+        } catch (Exception | OutOfMemoryError e) {
+            KayakoLogHelper.e(TAG, "Failed to process image. Sending original file instead.");
+            KayakoLogHelper.printStackTrace(TAG, e);
+            return file;
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the largest power of 2 by which the image can be subsampled while its longer side remains at least maxDimension
+     */
+    static int calculateInSampleSize(int width, int height, int maxDimension) {
+        int longerSide = Math.max(width, height);
+        int inSampleSize = 1;
+        while (longerSide / (inSampleSize * 2) >= maxDimension) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * @return the scale to fit the longer side of the image within maxDimension. Images are never scaled up.
+     */
+    static float calculateScale(int width, int height, int maxDimension) {
+        int longerSide = Math.max(width, height);
+        if (longerSide <= maxDimension) {
+            return 1;
+        }
+        return (float) maxDimension / longerSide;
+    }
+
+    private static Bitmap.CompressFormat getCompressFormat(File file) {
+        String mimeType = FileStorageUtil.getMimeType(file);
+        if ("image/jpeg".equals(mimeType)) {
+            return Bitmap.CompressFormat.JPEG;
+        } else if ("image/png".equals(mimeType)) {
+            return Bitmap.CompressFormat.PNG;
+        } else {
+            return null; // The file extension and mime type must stay the same, so only formats Bitmap can encode are processed
+        }
+    }
+
+    private static int getRotation(File file) {
+        try {
+            ExifInterface exifInterface = new ExifInterface(file.getPath());
+            switch (exifInterface.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean writeBitmap(Bitmap bitmap, Bitmap.CompressFormat format, int quality, File outputFile) throws IOException {
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(outputFile);
+            return bitmap.compress(format, quality, outputStream);
+        } finally {
+            if (outputStream != null) {
+                outputStream.close();
+            }
+        }
+    }
+
+    public interface OnImageProcessedListener {
+        /**
+         * @param file          the file to send (the original file if it was not processed)
+         * @param originalSize  size in bytes before processing
+         * @param processedSize size in bytes after processing
+         */
+        void onImageProcessed(File file, long originalSize, long processedSize);
+    }
+}
@@ -0,0 +1,15 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import android.support.v4.content.FileProvider;
+
+/**
+ * Shares files downloaded by the SDK with other apps. A subclass, so that it does not clash with a FileProvider declared by the app itself.
+ */
+public class KayakoFileProvider extends FileProvider {
+
+    private static final String AUTHORITY_SUFFIX = ".kayako.fileprovider"; // also declared in AndroidManifest.xml
+
+    public static String getAuthority(String packageName) {
+        return packageName + AUTHORITY_SUFFIX;
+    }
+}
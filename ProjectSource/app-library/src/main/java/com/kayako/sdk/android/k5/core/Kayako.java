@@ -6,11 +6,16 @@ import android.text.TextUtils;
 import android.webkit.URLUtil;
 
 import com.kayako.sdk.android.k5.activities.KayakoHelpCenterActivity;
+import com.kayako.sdk.android.k5.common.utils.HtmlSpannedCache;
 import com.kayako.sdk.android.k5.common.utils.ImageUtils;
+import com.kayako.sdk.android.k5.common.utils.file.AttachmentDownloader;
+import com.kayako.sdk.android.k5.helpcenter.HelpCenterStore;
+import com.kayako.sdk.android.k5.helpcenter.articlepage.ArticleContentStore;
 import com.kayako.sdk.android.k5.messenger.data.MessengerRepoFactory;
 import com.kayako.sdk.android.k5.messenger.data.conversation.ConversationStore;
 import com.kayako.sdk.android.k5.messenger.data.conversation.unreadcounter.OnUnreadCountChangeListener;
 import com.kayako.sdk.android.k5.messenger.data.conversation.unreadcounter.UnreadCounterRepository;
+import com.kayako.sdk.android.k5.messenger.data.outbox.ReplyOutbox;
 
 import java.lang.ref.WeakReference;
 import java.util.Locale;
@@ -33,6 +38,9 @@ public class Kayako {
         MessengerPref.createInstance(applicationContext);
         MessengerStylePref.createInstance(applicationContext);
         MessengerUserPref.createInstance(applicationContext);
+
+        // Send replies that could not be sent before the app was closed
+        ReplyOutbox.getInstance().start();
     }
 
     public static void clearCache() {
@@ -44,6 +52,12 @@ public class Kayako {
         MessengerRepoFactory.reset();
         UnreadCounterRepository.clear();
         ConversationStore.getInstance().clear();
+        KayakoClientProvider.clear();
+        ReplyOutbox.getInstance().clear();
+        AttachmentDownloader.getInstance().clear();
+        HtmlSpannedCache.getInstance().clear();
+        ArticleContentStore.getInstance().clear();
+        HelpCenterStore.getInstance().clear();
 
         ImageUtils.clearCache();
     }
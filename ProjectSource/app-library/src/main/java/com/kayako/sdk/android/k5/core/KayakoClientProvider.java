@@ -0,0 +1,119 @@
+package com.kayako.sdk.android.k5.core;
+
+import android.support.annotation.NonNull;
+
+import com.kayako.sdk.auth.FingerprintAuth;
+import com.kayako.sdk.helpcenter.HelpCenter;
+import com.kayako.sdk.messenger.Messenger;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Single place where the SDK gets its API clients from.
+ * <p>
+ * - The Messenger client is reused for all requests and only rebuilt when the url or fingerprint in {@link MessengerPref} changes
+ * - HelpCenter clients are reused per help center url and locale
+ * - One OkHttpClient with a shared connection pool and dispatcher limits is used for all HTTP requests made by the SDK itself.
+ *   It has no response cache - attachments, its only use, are saved by AttachmentDownloader.
+ * <p>
+ * {@link #clear()} should be called when the user clears the cache, so that no client of the previous user is kept in memory.
+ */
+public class KayakoClientProvider {
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_DURATION = 5; // minutes
+    private static final int MAX_REQUESTS = 16;
+    private static final int MAX_REQUESTS_PER_HOST = 5;
+
+    private static final Object key = new Object();
+
+    private static OkHttpClient sHttpClient;
+
+    private static Messenger sMessenger;
+    private static String sMessengerUrl;
+    private static String sMessengerFingerprintId;
+
+    private static Map<String, HelpCenter> sHelpCenters = new HashMap<>();
+
+    private KayakoClientProvider() {
+    }
+
+    /**
+     * @return the Messenger client for the current url and fingerprint in MessengerPref. Without a fingerprint, the client is unauthenticated.
+     */
+    @NonNull
+    public static Messenger getMessenger() {
+        String url = MessengerPref.getInstance().getUrl();
+        String fingerprintId = MessengerPref.getInstance().getFingerprintId();
+
+        synchronized (key) {
+            if (sMessenger == null || !areEqual(url, sMessengerUrl) || !areEqual(fingerprintId, sMessengerFingerprintId)) {
+                if (fingerprintId != null && fingerprintId.length() != 0) {
+                    sMessenger = new Messenger(url, new FingerprintAuth(fingerprintId));
+                } else {
+                    sMessenger = new Messenger(url);
+                }
+                sMessengerUrl = url;
+                sMessengerFingerprintId = fingerprintId;
+            }
+            return sMessenger;
+        }
+    }
+
+    @NonNull
+    public static HelpCenter getHelpCenter(String helpCenterUrl, Locale locale) {
+        String helpCenterKey = helpCenterUrl + "|" + locale;
+
+        synchronized (key) {
+            HelpCenter helpCenter = sHelpCenters.get(helpCenterKey);
+            if (helpCenter == null) {
+                helpCenter = new HelpCenter(helpCenterUrl, locale);
+                sHelpCenters.put(helpCenterKey, helpCenter);
+            }
+            return helpCenter;
+        }
+    }
+
+    /**
+     * @return OkHttpClient to be used for all HTTP requests made by the SDK itself. Use newBuilder() to customize it for a request - the connection pool and dispatcher are still shared.
+     */
+    @NonNull
+    public static OkHttpClient getHttpClient() {
+        synchronized (key) {
+            if (sHttpClient == null) {
+                Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequests(MAX_REQUESTS);
+                dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+                sHttpClient = new OkHttpClient.Builder()
+                        .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION, TimeUnit.MINUTES))
+                        .dispatcher(dispatcher)
+                        .build();
+            }
+            return sHttpClient;
+        }
+    }
+
+    /**
+     * Forget all API clients. The HTTP client is kept - connections are not user specific.
+     */
+    public static void clear() {
+        synchronized (key) {
+            sMessenger = null;
+            sMessengerUrl = null;
+            sMessengerFingerprintId = null;
+            sHelpCenters.clear();
+        }
+    }
+
+    private static boolean areEqual(String string1, String string2) {
+        return string1 == null ? string2 == null : string1.equals(string2);
+    }
+}
@@ -28,6 +28,12 @@ public class MessengerBuilder {
     private String fingerprintId;
     private String userEmail;
 
+    // Optional - Attachments
+    private long maxAttachmentSize = MessengerPref.DEFAULT_MAX_ATTACHMENT_SIZE;
+    private boolean imageCompressionEnabled = MessengerPref.DEFAULT_IMAGE_COMPRESSION_ENABLED;
+    private int imageMaxDimension = MessengerPref.DEFAULT_IMAGE_MAX_DIMENSION;
+    private int imageQuality = MessengerPref.DEFAULT_IMAGE_QUALITY;
+
     public MessengerBuilder() {
     }
 
@@ -110,6 +116,47 @@ public class MessengerBuilder {
         return this;
     }
 
+    /**
+     * Files larger than this (in bytes) can not be attached by the user
+     */
+    public MessengerBuilder setMaxAttachmentSize(long maxAttachmentSize) {
+        if (maxAttachmentSize < 1) {
+            throw new IllegalArgumentException("Invalid Max Attachment Size");
+        }
+        this.maxAttachmentSize = maxAttachmentSize;
+        return this;
+    }
+
+    /**
+     * Images attached by the user are downscaled and recompressed before they are sent. Enabled by default.
+     */
+    public MessengerBuilder setImageCompressionEnabled(boolean isEnabled) {
+        this.imageCompressionEnabled = isEnabled;
+        return this;
+    }
+
+    /**
+     * Max width or height (in px) of an image attachment after it is downscaled
+     */
+    public MessengerBuilder setImageMaxDimension(int maxDimension) {
+        if (maxDimension < 1) {
+            throw new IllegalArgumentException("Invalid Max Dimension");
+        }
+        this.imageMaxDimension = maxDimension;
+        return this;
+    }
+
+    /**
+     * JPEG quality (0-100) used when recompressing an image attachment
+     */
+    public MessengerBuilder setImageQuality(int quality) {
+        if (quality < 0 || quality > 100) {
+            throw new IllegalArgumentException("Invalid Quality. Should be between 0 and 100");
+        }
+        this.imageQuality = quality;
+        return this;
+    }
+
     public void open(AppCompatActivity activity) {
         commonOpen();
         KayakoMessengerActivity.startActivity(activity);
@@ -134,6 +181,14 @@ public class MessengerBuilder {
 
         // Optional Fields
         saveIfAvailableUserEmail();
+        saveAttachmentOptions();
+    }
+
+    private void saveAttachmentOptions() {
+        MessengerPref.getInstance().setMaxAttachmentSize(maxAttachmentSize);
+        MessengerPref.getInstance().setImageCompressionEnabled(imageCompressionEnabled);
+        MessengerPref.getInstance().setImageMaxDimension(imageMaxDimension);
+        MessengerPref.getInstance().setImageQuality(imageQuality);
     }
 
     private void saveIfAvailableUserEmail() {
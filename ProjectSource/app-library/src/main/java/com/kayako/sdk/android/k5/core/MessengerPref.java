@@ -11,6 +11,15 @@ public class MessengerPref {
     final private static String KEY_DESCRIPTION = "description";
     final private static String KEY_URL = "url";
     final private static String KEY_EMAIL_ID = "email_id";
+    final private static String KEY_IMAGE_COMPRESSION_ENABLED = "image_compression_enabled";
+    final private static String KEY_IMAGE_MAX_DIMENSION = "image_max_dimension";
+    final private static String KEY_IMAGE_QUALITY = "image_quality";
+    final private static String KEY_MAX_ATTACHMENT_SIZE = "max_attachment_size";
+
+    public static final boolean DEFAULT_IMAGE_COMPRESSION_ENABLED = true;
+    public static final int DEFAULT_IMAGE_MAX_DIMENSION = 1920; // px
+    public static final int DEFAULT_IMAGE_QUALITY = 80;
+    public static final long DEFAULT_MAX_ATTACHMENT_SIZE = 20 * 1024 * 1024; // 20 MB
 
     private static MessengerPref sInstance;
     private static SharedPreferences sPrefs;
@@ -81,6 +90,38 @@ public class MessengerPref {
         sPrefs.edit().putString(KEY_EMAIL_ID, email).apply();
     }
 
+    public boolean isImageCompressionEnabled() {
+        return sPrefs.getBoolean(KEY_IMAGE_COMPRESSION_ENABLED, DEFAULT_IMAGE_COMPRESSION_ENABLED);
+    }
+
+    public void setImageCompressionEnabled(boolean isEnabled) {
+        sPrefs.edit().putBoolean(KEY_IMAGE_COMPRESSION_ENABLED, isEnabled).apply();
+    }
+
+    public int getImageMaxDimension() {
+        return sPrefs.getInt(KEY_IMAGE_MAX_DIMENSION, DEFAULT_IMAGE_MAX_DIMENSION);
+    }
+
+    public void setImageMaxDimension(int maxDimension) {
+        sPrefs.edit().putInt(KEY_IMAGE_MAX_DIMENSION, maxDimension).apply();
+    }
+
+    public int getImageQuality() {
+        return sPrefs.getInt(KEY_IMAGE_QUALITY, DEFAULT_IMAGE_QUALITY);
+    }
+
+    public void setImageQuality(int quality) {
+        sPrefs.edit().putInt(KEY_IMAGE_QUALITY, quality).apply();
+    }
+
+    public long getMaxAttachmentSize() {
+        return sPrefs.getLong(KEY_MAX_ATTACHMENT_SIZE, DEFAULT_MAX_ATTACHMENT_SIZE);
+    }
+
+    public void setMaxAttachmentSize(long maxAttachmentSize) {
+        sPrefs.edit().putLong(KEY_MAX_ATTACHMENT_SIZE, maxAttachmentSize).apply();
+    }
+
     public void clearAll() {
         sPrefs.edit().clear().apply();
     }
@@ -0,0 +1,297 @@
+package com.kayako.sdk.android.k5.helpcenter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import com.kayako.sdk.android.k5.common.utils.file.FileStorageUtil;
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+import com.kayako.sdk.error.KayakoException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Stores help center resources (categories, sections, articles) on disk, so that pages seen before are shown right away and are still available offline.
+ * <p>
+ * - Resources are saved per help center url, locale and resource id - data of one help center or locale is never shown for another
+ * - Saved resources are served for MAX_AGE. After that, they are fetched again and the file is only rewritten if the resources changed.
+ * - If fetching fails (e.g. no network), saved resources are served regardless of their age
+ * - When a different help center is used, the resources of the previous one are deleted. Once the store exceeds MAX_CACHE_SIZE, the least recently fetched files are deleted.
+ * <p>
+ * Should never be used on the main thread, except for {@link #isCached(String, Locale, String)} and {@link #getCached(String, Locale, String)}, which read at most one saved file.
+ */
+public class HelpCenterStore {
+
+    private static final String TAG = "HelpCenterStore";
+    private static final String DIRECTORY_NAME = "kayako_helpcenter";
+
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(30);
+    private static final long MAX_CACHE_SIZE = 2 * 1024 * 1024; // 2 MB
+    private static final int MAX_ENTRIES_IN_MEMORY = 50;
+
+    private static final Object key = new Object();
+    private static HelpCenterStore mInstance;
+
+    private final LruCache<String, Entry> mEntries = new LruCache<>(MAX_ENTRIES_IN_MEMORY); // synchronized
+    private String mCurrentHelpCenterDirectory;
+
+    public interface Fetcher<T extends Serializable> {
+        List<T> fetch() throws KayakoException;
+    }
+
+    private HelpCenterStore() {
+    }
+
+    public static HelpCenterStore getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new HelpCenterStore();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    public static String getCategoriesId() {
+        return "categories";
+    }
+
+    public static String getSectionsId(long categoryId) {
+        return "sections-" + categoryId;
+    }
+
+    public static String getArticlesId(long sectionId, int offset, int limit) {
+        return "articles-" + sectionId + "-" + offset + "-" + limit;
+    }
+
+    /**
+     * @param helpCenterUrl
+     * @param locale
+     * @param resourceId    one of the ids generated by this class
+     * @param useCache      true, to serve saved resources if they were fetched less than MAX_AGE ago
+     * @param fetcher       fetches the resources from the help center
+     * @return the saved or freshly fetched resources
+     * @throws KayakoException if fetching failed and no resources were saved before
+     */
+    @NonNull
+    public <T extends Serializable> List<T> get(@NonNull String helpCenterUrl, @NonNull Locale locale, @NonNull String resourceId, boolean useCache, @NonNull Fetcher<T> fetcher) throws KayakoException {
+        File file = getFile(helpCenterUrl, locale, resourceId);
+
+        Entry entry = useCache ? read(file) : null;
+        if (entry != null && isFresh(entry.fetchedAt, System.currentTimeMillis())) {
+            return this.<T>getItems(entry);
+        }
+
+        List<T> items;
+        try {
+            items = fetcher.fetch();
+        } catch (KayakoException e) {
+            Entry savedEntry = entry != null ? entry : read(file);
+            if (savedEntry == null) {
+                throw e;
+            }
+            KayakoLogHelper.e(TAG, "Failed to fetch " + resourceId + ", showing saved resources instead");
+            return this.<T>getItems(savedEntry);
+        }
+
+        if (items != null) {
+            save(file, new ArrayList<>(items));
+        }
+        return items;
+    }
+
+    /**
+     * @return true if the resources have been saved before, regardless of their age
+     */
+    public boolean isCached(@NonNull String helpCenterUrl, @NonNull Locale locale, @NonNull String resourceId) {
+        File file = getFile(helpCenterUrl, locale, resourceId);
+        return mEntries.get(file.getPath()) != null || file.exists();
+    }
+
+    /**
+     * @return the saved resources regardless of their age, or null if they have not been saved before
+     */
+    @Nullable
+    public <T extends Serializable> List<T> getCached(@NonNull String helpCenterUrl, @NonNull Locale locale, @NonNull String resourceId) {
+        Entry entry = read(getFile(helpCenterUrl, locale, resourceId));
+        return entry == null ? null : this.<T>getItems(entry);
+    }
+
+    public void clear() {
+        synchronized (this) {
+            mEntries.evictAll();
+            mCurrentHelpCenterDirectory = null;
+            FileStorageUtil.deleteRecursively(getCacheDirectory());
+        }
+    }
+
+    /**
+     * @param fetchedAt time the resources were fetched at
+     * @param now
+     * @return true if the resources can be served without fetching them again
+     */
+    static boolean isFresh(long fetchedAt, long now) {
+        return fetchedAt <= now && now - fetchedAt < MAX_AGE; // fetchedAt is in the future if the clock was changed
+    }
+
+    static byte[] serialize(@NonNull ArrayList<? extends Serializable> items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream outputStream = new ObjectOutputStream(bytes);
+        try {
+            outputStream.writeObject(items);
+        } finally {
+            outputStream.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<?> deserialize(@NonNull byte[] bytes) throws IOException, ClassNotFoundException {
+        ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return (List<?>) inputStream.readObject();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> getItems(Entry entry) {
+        return (List<T>) entry.items; // Only ever saved under the resource id of the same type
+    }
+
+    @Nullable
+    private Entry read(File file) {
+        String cacheKey = file.getPath();
+        Entry entry = mEntries.get(cacheKey);
+        if (entry != null) {
+            return entry;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = readFile(file);
+            entry = new Entry(file.lastModified(), bytes, deserialize(bytes));
+            mEntries.put(cacheKey, entry);
+            return entry;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // Corrupt, or saved by a version of the SDK with incompatible models
+            KayakoLogHelper.printStackTrace(TAG, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void save(File file, ArrayList<? extends Serializable> items) {
+        try {
+            byte[] bytes = serialize(items);
+            long now = System.currentTimeMillis();
+
+            Entry savedEntry = read(file);
+            if (savedEntry != null && Arrays.equals(savedEntry.bytes, bytes)) {
+                // Unchanged - only mark as fetched again
+                file.setLastModified(now);
+                mEntries.put(file.getPath(), new Entry(now, savedEntry.bytes, savedEntry.items));
+                return;
+            }
+
+            synchronized (this) {
+                removeOtherHelpCenters(file.getParentFile().getParentFile());
+                FileStorageUtil.writeFile(file, bytes);
+                mEntries.put(file.getPath(), new Entry(now, bytes, items));
+                trimToSize();
+            }
+        } catch (IOException e) {
+            KayakoLogHelper.e(TAG, "Failed to save " + file.getName());
+            KayakoLogHelper.printStackTrace(TAG, e);
+        }
+    }
+
+    private void removeOtherHelpCenters(File helpCenterDirectory) {
+        if (helpCenterDirectory.getName().equals(mCurrentHelpCenterDirectory)) {
+            return;
+        }
+
+        File[] helpCenterDirectories = getCacheDirectory().listFiles();
+        if (helpCenterDirectories != null) {
+            for (File directory : helpCenterDirectories) {
+                if (!directory.getName().equals(helpCenterDirectory.getName())) {
+                    FileStorageUtil.deleteRecursively(directory);
+                }
+            }
+        }
+        mEntries.evictAll();
+        mCurrentHelpCenterDirectory = helpCenterDirectory.getName();
+    }
+
+    private void trimToSize() {
+        List<File> files = new ArrayList<>();
+        File[] helpCenterDirectories = getCacheDirectory().listFiles();
+        if (helpCenterDirectories != null) {
+            for (File helpCenterDirectory : helpCenterDirectories) {
+                File[] localeDirectories = helpCenterDirectory.listFiles();
+                if (localeDirectories != null) {
+                    for (File localeDirectory : localeDirectories) {
+                        File[] localeFiles = localeDirectory.listFiles();
+                        if (localeFiles != null) {
+                            files.addAll(Arrays.asList(localeFiles));
+                        }
+                    }
+                }
+            }
+        }
+
+        for (File file : FileStorageUtil.selectFilesToEvict(files, MAX_CACHE_SIZE)) {
+            mEntries.remove(file.getPath());
+            file.delete();
+        }
+    }
+
+    private File getCacheDirectory() {
+        return new File(Kayako.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+    }
+
+    private File getFile(String helpCenterUrl, Locale locale, String resourceId) {
+        File helpCenterDirectory = new File(getCacheDirectory(), FileStorageUtil.generateCacheName(helpCenterUrl));
+        return new File(new File(helpCenterDirectory, locale.toString()), resourceId);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        BufferedSource source = Okio.buffer(Okio.source(file));
+        try {
+            return source.readByteArray();
+        } finally {
+            source.close();
+        }
+    }
+
+    private static class Entry {
+        final long fetchedAt;
+        final byte[] bytes; // kept to tell whether fetched resources have changed
+        final List<?> items;
+
+        Entry(long fetchedAt, byte[] bytes, List<?> items) {
+            this.fetchedAt = fetchedAt;
+            this.bytes = bytes;
+            this.items = items;
+        }
+    }
+}
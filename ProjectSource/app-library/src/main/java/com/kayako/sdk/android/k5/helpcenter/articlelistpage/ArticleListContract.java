@@ -21,6 +21,14 @@ public interface ArticleListContract {
 
         boolean isCached(long sectionId);
 
+        /**
+         * @return plain text excerpt of the article's contents. Should be called on a background thread.
+         */
+        String getExcerpt(Article article);
+
+        /**
+         * @return false if the help center url or locale has changed since this was created - the data source should then be replaced, since it only reads and saves resources of its own help center and locale
+         */
         boolean doesHelpCenterPreferencesMatch();
     }
 
@@ -1,7 +1,5 @@
 package com.kayako.sdk.android.k5.helpcenter.articlelistpage;
 
-import android.text.Html;
-
 import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
 import com.kayako.sdk.android.k5.common.adapter.list.ListItem;
 import com.kayako.sdk.helpcenter.articles.Article;
@@ -15,7 +13,7 @@ import java.util.List;
  */
 public class ArticleListPresenter implements ArticleListContract.Presenter {
 
-    private static final int REQUEST_LIMIT = 20;
+    static final int REQUEST_LIMIT = 20;
     private int mOffset = 0;
 
     private ArticleListContract.View mView;
@@ -150,12 +148,7 @@ public class ArticleListPresenter implements ArticleListContract.Presenter {
             List<BaseListItem> items = new ArrayList<>();
             for (Article article : articles) {
 
-                String contentsWithoutHtml = "";
-                if (article.getContents() != null && article.getContents().length() > 0) {
-                    contentsWithoutHtml = Html.fromHtml(article.getContents()).toString();
-                }
-
-                ListItem item = new ListItem(article.getTitle(), contentsWithoutHtml, article);
+                ListItem item = new ListItem(article.getTitle(), mData.getExcerpt(article), article);
                 items.add(item);
             }
             return items;
@@ -1,6 +1,9 @@
 package com.kayako.sdk.android.k5.helpcenter.articlelistpage;
 
 import com.kayako.sdk.android.k5.core.HelpCenterPref;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
+import com.kayako.sdk.android.k5.helpcenter.HelpCenterStore;
+import com.kayako.sdk.android.k5.helpcenter.articlepage.ArticleContentStore;
 import com.kayako.sdk.error.KayakoException;
 import com.kayako.sdk.helpcenter.HelpCenter;
 import com.kayako.sdk.helpcenter.articles.Article;
@@ -9,31 +12,34 @@ import java.util.List;
 import java.util.Locale;
 
 /**
+ * Pages of articles are saved per section in {@link HelpCenterStore}, so they outlive this repository and are available offline.
+ *
  * @author Neil Mathew <neil.mathew@kayako.com>
  */
 public class ArticleListRepository implements ArticleListContract.Data {
 
     private HelpCenter mHelpCenter;
-    private List<Article> mArticles;
-    private long mSectionId;
-
     private String mHelpCenterUrl;
     private Locale mLocale;
 
     public ArticleListRepository(String helpCenterUrl, Locale locale) {
-        mHelpCenter = new HelpCenter(helpCenterUrl, locale);
+        mHelpCenter = KayakoClientProvider.getHelpCenter(helpCenterUrl, locale);
         mHelpCenterUrl = helpCenterUrl;
         mLocale = locale;
     }
 
     @Override
-    public List<Article> getArticles(long sectionId, int offset, int limit, boolean useCache) throws KayakoException{
-        if (!useCache || mArticles == null || mArticles.size() == 0 || mSectionId != sectionId) {
-            mSectionId = sectionId;
-            return mArticles = mHelpCenter.getArticles(sectionId, offset, limit);
-        } else {
-            return mArticles;
-        }
+    public List<Article> getArticles(final long sectionId, final int offset, final int limit, boolean useCache) throws KayakoException {
+        return HelpCenterStore.getInstance().get(mHelpCenterUrl, mLocale, HelpCenterStore.getArticlesId(sectionId, offset, limit), useCache, new HelpCenterStore.Fetcher<Article>() {
+            @Override
+            public List<Article> fetch() throws KayakoException {
+                List<Article> articles = mHelpCenter.getArticles(sectionId, offset, limit);
+                if (articles != null) {
+                    ArticleContentStore.getInstance().save(articles, mLocale); // So that opening an article only loads a local file
+                }
+                return articles;
+            }
+        });
     }
 
     /**
@@ -42,7 +48,12 @@ public class ArticleListRepository implements ArticleListContract.Data {
      * @return
      */
     public boolean isCached(long sectionId) {
-        return mArticles != null && mArticles.size() != 0 && mSectionId == sectionId;
+        return HelpCenterStore.getInstance().isCached(mHelpCenterUrl, mLocale, HelpCenterStore.getArticlesId(sectionId, 0, ArticleListPresenter.REQUEST_LIMIT));
+    }
+
+    @Override
+    public String getExcerpt(Article article) {
+        return ArticleContentStore.getInstance().getExcerpt(article, mLocale);
     }
 
     @Override
@@ -0,0 +1,264 @@
+package com.kayako.sdk.android.k5.helpcenter.articlepage;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.text.Html;
+
+import com.kayako.sdk.android.k5.common.utils.file.FileStorageUtil;
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+import com.kayako.sdk.helpcenter.articles.Article;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Stores the contents of articles on disk, ready to be shown - so that articles are sanitized, styled and summarized once, when they are fetched.
+ * <p>
+ * - An article is saved as &lt;cache&gt;/&lt;locale&gt;/&lt;id&gt;-&lt;last updated&gt;.html, a complete html document (with the stylesheet inlined)
+ * - Its excerpt (the plain text shown in the article list) is saved alongside as a .txt file
+ * - Once the store exceeds MAX_CACHE_SIZE, the least recently used files are deleted
+ * <p>
+ * Should never be used on the main thread.
+ */
+public class ArticleContentStore {
+
+    private static final String TAG = "ArticleContentStore";
+    private static final String DIRECTORY_NAME = "kayako_articles";
+    private static final String DOCUMENT_EXTENSION = ".html";
+    private static final String EXCERPT_EXTENSION = ".txt";
+
+    private static final String STYLESHEET_ASSET = "kayako-style.css";
+    private static final int MAX_EXCERPT_LENGTH = 200; // characters - the article list shows two lines
+    private static final int MAX_EXCERPTS_IN_MEMORY = 200;
+    private static final long MAX_CACHE_SIZE = 10 * 1024 * 1024; // 10 MB
+
+    private static final Pattern SCRIPT_PATTERN = Pattern.compile("<script\\b[^>]*>.*?</script\\s*>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    private static final Object key = new Object();
+    private static ArticleContentStore mInstance;
+
+    private final LruCache<String, String> mExcerpts = new LruCache<>(MAX_EXCERPTS_IN_MEMORY); // synchronized
+    private volatile String mStylesheet;
+
+    private ArticleContentStore() {
+    }
+
+    public static ArticleContentStore getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new ArticleContentStore();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * Save the document and excerpt of every article that has not been saved yet, or has been updated since
+     *
+     * @param articles
+     * @param locale   locale the articles were fetched in
+     */
+    public void save(@NonNull List<Article> articles, @NonNull Locale locale) {
+        boolean hasSavedFiles = false;
+        for (Article article : articles) {
+            try {
+                hasSavedFiles |= saveDocument(article, locale);
+                getExcerpt(article, locale);
+            } catch (IOException e) {
+                KayakoLogHelper.e(TAG, "Failed to save article " + article.getId());
+                KayakoLogHelper.printStackTrace(TAG, e);
+            }
+        }
+
+        if (hasSavedFiles) {
+            trimToSize();
+        }
+    }
+
+    /**
+     * @param article
+     * @param locale
+     * @return the saved document of the article, else a new document generated from the article's contents (not opened from the article list, or evicted)
+     */
+    @NonNull
+    public String getDocument(@NonNull Article article, @NonNull Locale locale) {
+        File document = getFile(article, locale, DOCUMENT_EXTENSION);
+        try {
+            if (document.exists()) {
+                String savedDocument = readFile(document);
+                document.setLastModified(System.currentTimeMillis()); // Recently used
+                return savedDocument;
+            }
+
+            return generateDocument(article.getContents(), getStylesheet());
+        } catch (IOException e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            return generateDocument(article.getContents(), ""); // Unstyled, but still readable
+        }
+    }
+
+    /**
+     * @param article
+     * @param locale
+     * @return the plain text excerpt of the article's contents - converted from html only the first time
+     */
+    @NonNull
+    public String getExcerpt(@NonNull Article article, @NonNull Locale locale) {
+        File excerptFile = getFile(article, locale, EXCERPT_EXTENSION);
+        String cacheKey = excerptFile.getPath();
+
+        String excerpt = mExcerpts.get(cacheKey);
+        if (excerpt != null) {
+            return excerpt;
+        }
+
+        try {
+            if (excerptFile.exists()) {
+                excerpt = readFile(excerptFile);
+            } else {
+                String contents = article.getContents();
+                excerpt = contents == null || contents.length() == 0 ? "" : generateExcerpt(Html.fromHtml(contents).toString());
+                FileStorageUtil.writeFile(excerptFile, excerpt.getBytes("UTF-8"));
+            }
+        } catch (IOException e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            if (excerpt == null) {
+                excerpt = "";
+            }
+        }
+
+        mExcerpts.put(cacheKey, excerpt);
+        return excerpt;
+    }
+
+    public void clear() {
+        mExcerpts.evictAll();
+        FileStorageUtil.deleteRecursively(getCacheDirectory());
+    }
+
+    /**
+     * The stylesheet is inlined because the document is loaded with the help center as its origin, which can not load files from assets.
+     * <p>
+     * Removing scripts only makes the document smaller - it does not make the html safe. The WebView showing it runs no JavaScript and has no file access.
+     *
+     * @param htmlContent contents of an article
+     * @param stylesheet  css to style the document with
+     * @return a complete html document
+     */
+    static String generateDocument(@Nullable String htmlContent, @NonNull String stylesheet) {
+        return "<!DOCTYPE html><html><head>"
+                + "<meta charset=\"utf-8\" />"
+                + "<style type=\"text/css\">" + stylesheet + "</style>"
+                + "</head><body>"
+                + (htmlContent == null ? "" : SCRIPT_PATTERN.matcher(htmlContent).replaceAll(""))
+                + "</body></html>";
+    }
+
+    /**
+     * @param text contents of an article as plain text
+     * @return the beginning of the text with all whitespace collapsed, cut at a word boundary
+     */
+    static String generateExcerpt(@NonNull String text) {
+        String excerpt = WHITESPACE_PATTERN.matcher(text).replaceAll(" ").trim();
+        if (excerpt.length() <= MAX_EXCERPT_LENGTH) {
+            return excerpt;
+        }
+
+        int end = excerpt.lastIndexOf(' ', MAX_EXCERPT_LENGTH);
+        if (end <= 0) {
+            end = MAX_EXCERPT_LENGTH; // A single very long word
+        }
+        return excerpt.substring(0, end) + "\u2026";
+    }
+
+    /**
+     * @return true if a new document was saved
+     */
+    private boolean saveDocument(Article article, Locale locale) throws IOException {
+        File document = getFile(article, locale, DOCUMENT_EXTENSION);
+        if (document.exists()) {
+            return false;
+        }
+
+        deleteOlderVersions(document.getParentFile(), article);
+        FileStorageUtil.writeFile(document, generateDocument(article.getContents(), getStylesheet()).getBytes("UTF-8"));
+        return true;
+    }
+
+    private void deleteOlderVersions(File directory, Article article) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        String prefix = article.getId() + "-";
+        String currentPrefix = prefix + article.getLastUpdated() + ".";
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.getName().startsWith(currentPrefix)) {
+                file.delete();
+            }
+        }
+    }
+
+    private void trimToSize() {
+        List<File> files = new ArrayList<>();
+        File[] localeDirectories = getCacheDirectory().listFiles();
+        if (localeDirectories != null) {
+            for (File localeDirectory : localeDirectories) {
+                File[] localeFiles = localeDirectory.listFiles();
+                if (localeFiles != null) {
+                    for (File file : localeFiles) {
+                        files.add(file);
+                    }
+                }
+            }
+        }
+
+        for (File file : FileStorageUtil.selectFilesToEvict(files, MAX_CACHE_SIZE)) {
+            file.delete(); // Whichever of the document or excerpt remains is recreated when needed
+        }
+    }
+
+    private String getStylesheet() throws IOException {
+        if (mStylesheet == null) {
+            BufferedSource source = Okio.buffer(Okio.source(Kayako.getApplicationContext().getAssets().open(STYLESHEET_ASSET)));
+            try {
+                mStylesheet = source.readUtf8();
+            } finally {
+                source.close();
+            }
+        }
+        return mStylesheet;
+    }
+
+    private File getCacheDirectory() {
+        return new File(Kayako.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+    }
+
+    private File getFile(Article article, Locale locale, String extension) {
+        // Last updated is part of the name, so that an updated article is never served from an older file
+        File localeDirectory = new File(getCacheDirectory(), locale.toString());
+        return new File(localeDirectory, article.getId() + "-" + article.getLastUpdated() + extension);
+    }
+
+    private static String readFile(File file) throws IOException {
+        BufferedSource source = Okio.buffer(Okio.source(file));
+        try {
+            return source.readUtf8();
+        } finally {
+            source.close();
+        }
+    }
+}
@@ -19,7 +19,11 @@ public interface ArticleContract {
 
         void setArticleDirectoryPath(String path);
 
-        void setArticleContent(String htmlContent);
+        void setArticleContent(String baseUrl, String document);
+
+        void startBackgroundTaskToLoadContent();
+
+        void cancelBackgroundTasks();
 
         void setArticleLastUpdated(String lastUpdated);
 
@@ -46,6 +50,10 @@ public interface ArticleContract {
 
         void initPage(Article article);
 
+        boolean loadContentInBackground();
+
+        void onContentLoadedInBackground(boolean isSuccessful);
+
         void onContentLoaded();
 
         void onClickLinkInArticle(String url);
@@ -1,11 +1,13 @@
 package com.kayako.sdk.android.k5.helpcenter.articlepage;
 
+import com.kayako.sdk.android.k5.core.HelpCenterPref;
+
 /**
  * @author Neil Mathew <neil.mathew@kayako.com>
  */
 public class ArticleFactory {
 
     public static ArticleContract.Presenter getPresenter(ArticleContract.View view) {
-        return new ArticlePresenter(view);
+        return new ArticlePresenter(view, HelpCenterPref.getInstance().getHelpCenterUrl(), HelpCenterPref.getInstance().getLocale());
     }
 }
@@ -2,6 +2,7 @@ package com.kayako.sdk.android.k5.helpcenter.articlepage;
 
 import android.content.Intent;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
@@ -17,6 +18,7 @@ import android.webkit.WebViewClient;
 import android.widget.TextView;
 
 import com.kayako.sdk.android.k5.R;
+import com.kayako.sdk.android.k5.common.task.BackgroundTask;
 import com.kayako.sdk.android.k5.common.utils.ImageUtils;
 import com.kayako.sdk.android.k5.common.utils.ViewUtils;
 import com.kayako.sdk.android.k5.common.view.CircleImageView;
@@ -32,6 +34,7 @@ public class ArticleFragment extends Fragment implements ArticleContract.View {
     private View mRoot;
     private ArticleContract.Presenter mPresenter;
     private DefaultStateViewHelper mStateViewHelper;
+    private BackgroundTask mTaskToLoadContent;
 
     public static ArticleFragment newInstance(Article article) {
         Bundle bundle = new Bundle();
@@ -61,6 +64,13 @@ public class ArticleFragment extends Fragment implements ArticleContract.View {
         mPresenter.initPage(article);
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelBackgroundTasks();
+        mTaskToLoadContent = null;
+    }
+
     @Override
     public void setAuthorName(String name) {
         ((TextView) mRoot.findViewById(R.id.ko__article_author_name)).setText(name);
@@ -83,12 +93,43 @@ public class ArticleFragment extends Fragment implements ArticleContract.View {
     }
 
     @Override
-    public void setArticleContent(String htmlContent) {
-        // The webview is formatted with the CSS file available in assets folder
+    public void setArticleContent(String baseUrl, String document) {
+        // Already styled by ArticleContentStore. Relative links and images resolve against the help center.
+        WebView articleContent = getConfiguredWebView();
+        articleContent.loadDataWithBaseURL(baseUrl, document, "text/html; charset=utf-8", "UTF-8", null);
+    }
+
+    @Override
+    public void startBackgroundTaskToLoadContent() {
+        cancelBackgroundTasks();
+
+        mTaskToLoadContent = (BackgroundTask) new BackgroundTask(getActivity()) {
+            @Override
+            protected boolean performInBackground() {
+                return mPresenter.loadContentInBackground();
+            }
+
+            @Override
+            protected void performOnCompletion(boolean isSuccessful) {
+                mPresenter.onContentLoadedInBackground(isSuccessful);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @Override
+    public void cancelBackgroundTasks() {
+        if (mTaskToLoadContent != null) {
+            mTaskToLoadContent.cancelTask();
+        }
+    }
+
+    private WebView getConfiguredWebView() {
         WebView articleContent = (WebView) mRoot.findViewById(R.id.ko__article_web_view);
-        String styledHtmlData = "<link rel=\"stylesheet\" type=\"text/css\" href=\"kayako-style.css\" />" + htmlContent;
-        articleContent.loadDataWithBaseURL("file:///android_asset/", styledHtmlData, "text/html; charset=utf-8", "UTF-8", null);
         articleContent.getSettings().setLayoutAlgorithm(WebSettings.LayoutAlgorithm.SINGLE_COLUMN);
+        // The article html comes from the server - it gets no JavaScript and no access to local files
+        articleContent.getSettings().setJavaScriptEnabled(false);
+        articleContent.getSettings().setAllowFileAccess(false);
+        articleContent.getSettings().setAllowContentAccess(false);
         articleContent.setWebViewClient(new WebViewClient() {
             @Override
             public void onPageFinished(WebView view, String url) {
@@ -108,6 +149,7 @@ public class ArticleFragment extends Fragment implements ArticleContract.View {
                 return true;
             }
         });
+        return articleContent;
     }
 
     @Override
@@ -4,15 +4,23 @@ import com.kayako.sdk.helpcenter.articles.Article;
 import com.kayako.sdk.helpcenter.category.Category;
 import com.kayako.sdk.helpcenter.section.Section;
 
+import java.util.Locale;
+
 /**
  * @author Neil Mathew <neil.mathew@kayako.com>
  */
 public class ArticlePresenter implements ArticleContract.Presenter {
 
     private ArticleContract.View mView;
+    private String mHelpCenterUrl;
+    private Locale mLocale;
+    private Article mArticle;
+    private String mDocument;
 
-    public ArticlePresenter(ArticleContract.View view) {
+    public ArticlePresenter(ArticleContract.View view, String helpCenterUrl, Locale locale) {
         mView = view;
+        mHelpCenterUrl = helpCenterUrl;
+        mLocale = locale;
     }
 
     @Override
@@ -24,12 +32,28 @@ public class ArticlePresenter implements ArticleContract.Presenter {
         mView.setAuthorAvatar(article.getAuthor().getAvatarUrl());
         mView.setArticleTitle(article.getTitle());
         mView.setArticleDirectoryPath(String.format("%s > %s", category.getTitle(), section.getTitle()));
-        mView.setArticleContent(article.getContents());
+        mArticle = article;
+        mView.startBackgroundTaskToLoadContent(); // The document is read from disk
         mView.setArticleLastUpdated(String.format("Updated %s", mView.formatTime(article.getLastUpdated())));
         mView.setArticleLastPosted(String.format("Posted %s", mView.formatTime(article.getLastPosted())));
         showOnlyLoading();
     }
 
+    @Override
+    public boolean loadContentInBackground() {
+        mDocument = ArticleContentStore.getInstance().getDocument(mArticle, mLocale);
+        return true;
+    }
+
+    @Override
+    public void onContentLoadedInBackground(boolean isSuccessful) {
+        if (isSuccessful) {
+            mView.setArticleContent(mHelpCenterUrl, mDocument);
+        } else {
+            mView.showFailedToLoadErrorMessage();
+        }
+    }
+
     @Override
     public void onContentLoaded() {
         mView.hideContentScrollbarsWhileAllowingScroll();
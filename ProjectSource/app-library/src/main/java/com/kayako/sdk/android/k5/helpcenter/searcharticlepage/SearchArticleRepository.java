@@ -1,5 +1,6 @@
 package com.kayako.sdk.android.k5.helpcenter.searcharticlepage;
 
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
 import com.kayako.sdk.error.KayakoException;
 import com.kayako.sdk.helpcenter.HelpCenter;
 import com.kayako.sdk.helpcenter.search.SearchArticle;
@@ -15,7 +16,7 @@ public class SearchArticleRepository implements SearchArticleContract.Data {
     private HelpCenter mHelpCenter;
 
     public SearchArticleRepository(String helpCenterUrl, Locale locale) {
-        mHelpCenter = new HelpCenter(helpCenterUrl, locale);
+        mHelpCenter = KayakoClientProvider.getHelpCenter(helpCenterUrl, locale);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package com.kayako.sdk.android.k5.helpcenter.sectionbycategorypage;
 
 import com.kayako.sdk.android.k5.core.HelpCenterPref;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
 import com.kayako.sdk.error.KayakoException;
 import com.kayako.sdk.helpcenter.HelpCenter;
 
@@ -20,7 +21,7 @@ public class SectionByCategoryContainerRepository implements SectionByCategoryCo
     private Locale mCurrentLocale;
 
     public SectionByCategoryContainerRepository(String helpCenterUrl, Locale locale) {
-        mHelpCenter = new HelpCenter(helpCenterUrl, locale);
+        mHelpCenter = KayakoClientProvider.getHelpCenter(helpCenterUrl, locale);
         mHelpCenterUrl = helpCenterUrl;
         mCurrentLocale = locale;
     }
@@ -23,6 +23,9 @@ public interface SectionByCategoryContract {
 
         boolean isCached();
 
+        /**
+         * @return false if the help center url or locale has changed since this was created - the data source should then be replaced, since it only reads and saves resources of its own help center and locale
+         */
         boolean doHelpCenterPreferencesMatch();
     }
 
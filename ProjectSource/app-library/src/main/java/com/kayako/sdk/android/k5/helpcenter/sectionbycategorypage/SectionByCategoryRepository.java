@@ -1,6 +1,8 @@
 package com.kayako.sdk.android.k5.helpcenter.sectionbycategorypage;
 
 import com.kayako.sdk.android.k5.core.HelpCenterPref;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
+import com.kayako.sdk.android.k5.helpcenter.HelpCenterStore;
 import com.kayako.sdk.error.KayakoException;
 import com.kayako.sdk.helpcenter.HelpCenter;
 import com.kayako.sdk.helpcenter.category.Category;
@@ -13,65 +15,67 @@ import java.util.Locale;
 import java.util.Map;
 
 /**
+ * Categories and sections are saved in {@link HelpCenterStore}, so they outlive this repository and are available offline.
+ *
  * @author Neil Mathew <neil.mathew@kayako.com>
  */
 public class SectionByCategoryRepository implements SectionByCategoryContract.Data {
 
-    private List<Category> mCategories = null;
-    private Map<Category, List<Section>> mSectionsByCategory = null;
-
     private HelpCenter mHelpCenter;
     private String mHelpCenterUrl;
     private Locale mLocale;
 
     public SectionByCategoryRepository(String helpCenterUrl, Locale locale) {
-        mHelpCenter = new HelpCenter(helpCenterUrl, locale);
+        mHelpCenter = KayakoClientProvider.getHelpCenter(helpCenterUrl, locale);
         mHelpCenterUrl = helpCenterUrl;
         mLocale = locale;
     }
 
     public List<Category> getCategories(boolean useCache) throws KayakoException {
-        if (useCache && areCategoriesCached()) {
-            return mCategories;
-        } else {
-            return mCategories = mHelpCenter.getCategories(0, 999); // hack to load all categories
-        }
+        return HelpCenterStore.getInstance().get(mHelpCenterUrl, mLocale, HelpCenterStore.getCategoriesId(), useCache, new HelpCenterStore.Fetcher<Category>() {
+            @Override
+            public List<Category> fetch() throws KayakoException {
+                return mHelpCenter.getCategories(0, 999); // hack to load all categories
+            }
+        });
     }
 
-    public Map<Category, List<Section>> getSectionsByCategory(List<Category> categories, boolean useCache) throws KayakoException{
-        if (!areCategoriesCached()) {
+    public Map<Category, List<Section>> getSectionsByCategory(List<Category> categories, boolean useCache) throws KayakoException {
+        if (categories == null) {
             throw new NullPointerException("Categories have not been fetched yet. Please call getCategories() first");
         }
 
-        if (useCache && areSectionsByCategoryCached()) { // Also check size - since hashmap is instantiated before the network call can fail
-            return mSectionsByCategory;
-        } else {
-            mSectionsByCategory = new HashMap<>();
-            for (Category category : categories) {
-                List<Section> sections = mHelpCenter.getSections(category.getId(), 0, 999); // hack to load all sections
-                if (sections != null && sections.size() > 0) {
-                    mSectionsByCategory.put(category, sections);
-                } else {
-                    mSectionsByCategory.put(category, new ArrayList<Section>());
+        Map<Category, List<Section>> sectionsByCategory = new HashMap<>();
+        for (final Category category : categories) {
+            List<Section> sections = HelpCenterStore.getInstance().get(mHelpCenterUrl, mLocale, HelpCenterStore.getSectionsId(category.getId()), useCache, new HelpCenterStore.Fetcher<Section>() {
+                @Override
+                public List<Section> fetch() throws KayakoException {
+                    return mHelpCenter.getSections(category.getId(), 0, 999); // hack to load all sections
                 }
+            });
+
+            if (sections != null && sections.size() > 0) {
+                sectionsByCategory.put(category, sections);
+            } else {
+                sectionsByCategory.put(category, new ArrayList<Section>());
             }
-            return mSectionsByCategory;
         }
+        return sectionsByCategory;
     }
 
     public boolean isCached() {
-        return areSectionsByCategoryCached();
-    }
-
-    private boolean areCategoriesCached() {
-        return mCategories != null
-                && mCategories.size() > 0;
-    }
+        List<Category> categories = HelpCenterStore.getInstance().getCached(mHelpCenterUrl, mLocale, HelpCenterStore.getCategoriesId());
+        if (categories == null) {
+            return false;
+        }
 
-    private boolean areSectionsByCategoryCached() {
-        return areCategoriesCached()
-                && mSectionsByCategory != null
-                && mSectionsByCategory.size() == mCategories.size();
+        // Fetching the sections of a category may have failed after the categories were saved
+        for (Category category : categories) {
+            if (!HelpCenterStore.getInstance().isCached(mHelpCenterUrl, mLocale, HelpCenterStore.getSectionsId(category.getId()))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public boolean doHelpCenterPreferencesMatch() {
@@ -13,12 +13,7 @@ import com.kayako.sdk.android.k5.kre.base.credentials.KreFingerprintCredentials;
 import com.kayako.sdk.android.k5.kre.base.credentials.KreSessionCredentials;
 
 import org.phoenixframework.channels.Channel;
-import org.phoenixframework.channels.IErrorCallback;
-import org.phoenixframework.channels.ISocketCloseCallback;
-import org.phoenixframework.channels.ISocketOpenCallback;
-import org.phoenixframework.channels.Socket;
 
-import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 class KreConnection {
@@ -33,7 +28,7 @@ class KreConnection {
     private static final String PARAM_VERSION = "vsn";
     private static final String VERSION_NO = "1.0.0";
 
-    private Socket mSocket;
+    private KreSocketPool.ChannelRequest mChannelRequest;
     private AtomicBoolean mIsConnected = new AtomicBoolean();
 
     /**
@@ -60,87 +55,76 @@ class KreConnection {
     protected synchronized void connect(@NonNull KreCredentials kreCredentials, final @NonNull String channelName, @NonNull final OnOpenConnectionListener listener, @Nullable final JsonNode jsonPayload) {
 
         if (!NetworkUtils.isConnectedToNetwork(Kayako.getApplicationContext())) {
-            KayakoLogHelper.e(TAG, "No Internet Connection! Not going forward with connect()");
-            listener.onError("No Network Connection. Please connect to the Internet.");
-            return;
+            // Not reported as an error - the channel is still registered with the socket pool, which connects once the network is back
+            // If the pool fails to connect, its error is the only one passed on to the listener
+            KayakoLogHelper.e(TAG, "No Internet Connection! Waiting for network to connect()");
         }
 
         String url = generateUrlFromKreCredentials(kreCredentials);
 
-        try {
-            mIsConnected.set(false);
+        // Release the previous channel, if any, so that it no longer holds on to the shared socket
+        releaseChannelRequest();
+        mIsConnected.set(false);
 
-            mSocket = new Socket(url);
+        // All channels with the same credentials share one socket
+        mChannelRequest = KreSocketPool.getInstance().openChannel(url, channelName, jsonPayload, new KreSocketPool.ChannelListener() {
+            @Override
+            public void onOpen(Channel channel) {
+                listener.onOpen(channel);
+                mIsConnected.set(true);
+            }
 
-            // When the KRE Client Library throws an exception or fails for any reason, the app does not crash but instead calls this
-            mSocket.setOnSocketThrowExceptionListener(new Socket.OnSocketThrowExceptionListener() {
-                @Override
-                public void onThrowException(String method, Throwable e) {
-                    KayakoLogHelper.e(TAG, "Non-Fatal: Crash has been prevented but intended behaviour no longer guaranteed.");
-                    KayakoLogHelper.logException(TAG, e);
-                }
-            });
-
-            mSocket
-                    .onOpen(new ISocketOpenCallback() {
-                        @Override
-                        public void onOpen() {
-                            Channel channel = mSocket.chan(channelName, jsonPayload);
-                            listener.onOpen(channel);
-                            mIsConnected.set(true);
-                        }
-                    })
-                    .onError(new IErrorCallback() {
-                        @Override
-                        public void onError(String s) {
-                            listener.onError(s);
-                            mIsConnected.set(false);
-                        }
-                    })
-                    .connect();
-
-        } catch (IOException e) {
-            KayakoLogHelper.printStackTrace(TAG, e); // Don't track IOExceptions on Crashlytics
-        } catch (Throwable e) {
-            KayakoLogHelper.logException(TAG, e);
-        }
+            @Override
+            public void onRejoin(Channel channel) {
+                mIsConnected.set(true);
+                KreConnection.this.onRejoin(channel);
+            }
+
+            @Override
+            public void onError(String message) {
+                listener.onError(message);
+                mIsConnected.set(false);
+            }
+        });
     }
 
     /**
-     * Disconnect the socket
+     * Disconnect from the channel. The shared socket is only disconnected once no other channel is using it.
      */
     protected synchronized void disconnect(@Nullable final OnCloseConnectionListener listener) {
-        if (mSocket != null) {
+        if (mChannelRequest != null) {
             try {
-                mSocket
-                        .onClose(new ISocketCloseCallback() {
-                            @Override
-                            public void onClose() {
-                                if (listener != null) {
-                                    listener.onClose();
-                                }
-                                mIsConnected.set(false);
-                            }
-                        })
-                        .onError(new IErrorCallback() {
-                            @Override
-                            public void onError(String s) {
-                                if (listener != null) {
-                                    listener.onError(s);
-                                }
-                            }
-                        })
-                        .disconnect();
-
+                releaseChannelRequest();
                 mIsConnected.set(false);
-            } catch (IOException e) {
-                KayakoLogHelper.printStackTrace(TAG, e); // Don't track IOExceptions on Crashlytics
+
+                if (listener != null) {
+                    listener.onClose();
+                }
             } catch (Throwable e) {
                 KayakoLogHelper.logException(TAG, e);
+                if (listener != null) {
+                    listener.onError(e.getMessage());
+                }
             }
         }
     }
 
+    /**
+     * Called after the socket was lost and reconnected. The channel passed is a new instance with the same name and payload,
+     * which should be joined again.
+     *
+     * @param channel
+     */
+    protected void onRejoin(@NonNull Channel channel) {
+    }
+
+    private void releaseChannelRequest() {
+        if (mChannelRequest != null) {
+            KreSocketPool.getInstance().closeChannel(mChannelRequest);
+            mChannelRequest = null;
+        }
+    }
+
     /**
      * Check if the connection was successful. If true, then we can listen for events and call unsubscribe
      *
@@ -0,0 +1,493 @@
+package com.kayako.sdk.android.k5.kre.base;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.kayako.sdk.android.k5.common.utils.KayakoScheduler;
+import com.kayako.sdk.android.k5.common.utils.NetworkUtils;
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import org.phoenixframework.channels.Channel;
+import org.phoenixframework.channels.IErrorCallback;
+import org.phoenixframework.channels.ISocketOpenCallback;
+import org.phoenixframework.channels.Socket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Multiplexes KRE channels over a single Phoenix socket per set of credentials (the socket url).
+ * <p>
+ * Previously, every KreConnection opened its own websocket - one per conversation and one per user presence channel.
+ * Now, the first channel opened for a url creates the socket and every following channel is joined on that same socket.
+ * <p>
+ * The socket is reference counted by the channels opened on it and is only disconnected when the last channel is closed.
+ * Joining and leaving the individual channels is still the responsibility of the KreSubscription using the channel.
+ * <p>
+ * If the socket fails while channels are still open, it is reconnected with a jittered exponential backoff.
+ * While there is no network, no attempts are made - instead, a reconnect is made as soon as the network is back.
+ * Once reconnected, every previously opened channel is recreated with its original payload and handed back via onRejoin().
+ * <p>
+ * Note: Listeners are always called outside the pool lock to prevent deadlocks with the locks held by KreSubscription
+ */
+class KreSocketPool {
+
+    private static final String TAG = "KreSocketPool";
+    private static final KreSocketPool sInstance = new KreSocketPool();
+
+    private static final long MIN_RECONNECT_DELAY = 1000; // 1 second in milliseconds
+    private static final long MAX_RECONNECT_DELAY = 60 * 1000; // 1 minute in milliseconds
+    private static final int MAX_BACKOFF_EXPONENT = 6; // 2^6 seconds exceeds MAX_RECONNECT_DELAY
+
+    private final Object mPoolKey = new Object();
+    private final Map<String, SharedSocket> mSockets = new HashMap<>();
+    private final Random mRandom = new Random();
+
+    private BroadcastReceiver mNetworkChangeReceiver;
+
+    private KreSocketPool() {
+    }
+
+    static KreSocketPool getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Open a channel on the shared socket for the url. The socket is created and connected if it does not already exist.
+     * <p>
+     * The listener is called with the channel once the socket is open. If the socket is already open, it is called immediately.
+     *
+     * @param url         socket url generated from the kre credentials
+     * @param channelName
+     * @param jsonPayload
+     * @param listener
+     * @return request which should be used to close the channel
+     */
+    ChannelRequest openChannel(@NonNull String url, @NonNull String channelName, @Nullable JsonNode jsonPayload, @NonNull ChannelListener listener) {
+        ChannelRequest request = new ChannelRequest(url, channelName, jsonPayload, listener);
+        boolean shouldConnect;
+        boolean isAlreadyOpen;
+        SharedSocket sharedSocket;
+
+        synchronized (mPoolKey) {
+            sharedSocket = mSockets.get(url);
+            if (sharedSocket == null) {
+                sharedSocket = new SharedSocket(url);
+                mSockets.put(url, sharedSocket);
+                registerNetworkChangeReceiverIfNeeded();
+            }
+
+            sharedSocket.requests.add(request);
+            KayakoLogHelper.d(TAG, String.format("Open channel %s, Channels on socket: %s, Total sockets: %s", channelName, sharedSocket.requests.size(), mSockets.size()));
+
+            isAlreadyOpen = sharedSocket.state == State.OPEN;
+            shouldConnect = sharedSocket.state == State.CLOSED;
+            if (shouldConnect) {
+                sharedSocket.state = State.CONNECTING;
+            }
+        }
+
+        if (isAlreadyOpen) {
+            deliverChannel(sharedSocket, request, false);
+        } else if (shouldConnect) {
+            connectSocket(sharedSocket);
+        }
+
+        return request;
+    }
+
+    /**
+     * Close a channel previously opened via openChannel(). If this was the last channel on the socket, the socket is disconnected.
+     *
+     * @param request
+     */
+    void closeChannel(@NonNull ChannelRequest request) {
+        Socket socketToDisconnect = null;
+
+        synchronized (mPoolKey) {
+            SharedSocket sharedSocket = mSockets.get(request.getUrl());
+            if (sharedSocket == null || !sharedSocket.requests.remove(request)) {
+                return; // already closed
+            }
+
+            if (request.getChannel() != null && sharedSocket.socket != null) {
+                sharedSocket.socket.remove(request.getChannel());
+            }
+
+            KayakoLogHelper.d(TAG, String.format("Close channel %s, Channels remaining on socket: %s", request.getChannelName(), sharedSocket.requests.size()));
+
+            if (sharedSocket.requests.size() == 0) {
+                mSockets.remove(request.getUrl());
+                cancelScheduledReconnect(sharedSocket);
+                socketToDisconnect = sharedSocket.socket;
+                sharedSocket.socket = null;
+                sharedSocket.state = State.CLOSED;
+
+                if (mSockets.size() == 0) {
+                    unregisterNetworkChangeReceiver();
+                }
+            }
+        }
+
+        if (socketToDisconnect != null) {
+            KayakoLogHelper.d(TAG, "Last channel closed. Disconnecting socket");
+            disconnectQuietly(socketToDisconnect);
+        }
+    }
+
+    /**
+     * @return number of sockets currently open, being opened or waiting to reconnect
+     */
+    int getSocketCount() {
+        synchronized (mPoolKey) {
+            return mSockets.size();
+        }
+    }
+
+    /**
+     * @return true if at least one socket is open - its channels are receiving events
+     */
+    boolean hasOpenSocket() {
+        synchronized (mPoolKey) {
+            for (SharedSocket sharedSocket : mSockets.values()) {
+                if (sharedSocket.state == State.OPEN) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    ////// CONNECTION STATE MACHINE ////////
+
+    private void connectSocket(final SharedSocket sharedSocket) {
+        Socket connectingSocket = null; // only set under the lock - sharedSocket.socket must not be read outside it
+        try {
+            final Socket socket = new Socket(sharedSocket.url);
+
+            // When the KRE Client Library throws an exception or fails for any reason, the app does not crash but instead calls this
+            socket.setOnSocketThrowExceptionListener(new Socket.OnSocketThrowExceptionListener() {
+                @Override
+                public void onThrowException(String method, Throwable e) {
+                    KayakoLogHelper.e(TAG, "Non-Fatal: Crash has been prevented but intended behaviour no longer guaranteed.");
+                    KayakoLogHelper.logException(TAG, e);
+                }
+            });
+
+            socket
+                    .onOpen(new ISocketOpenCallback() {
+                        @Override
+                        public void onOpen() {
+                            onSocketOpen(sharedSocket, socket);
+                        }
+                    })
+                    .onError(new IErrorCallback() {
+                        @Override
+                        public void onError(String reason) {
+                            onSocketError(sharedSocket, socket, reason);
+                        }
+                    });
+
+            synchronized (mPoolKey) {
+                if (sharedSocket.state != State.CONNECTING) {
+                    return; // all channels were closed while connecting
+                }
+                sharedSocket.socket = socket;
+                connectingSocket = socket;
+            }
+
+            socket.connect();
+
+        } catch (IOException e) {
+            KayakoLogHelper.printStackTrace(TAG, e); // Don't track IOExceptions on Crashlytics
+            onSocketError(sharedSocket, connectingSocket, e.getMessage());
+        } catch (Throwable e) {
+            KayakoLogHelper.logException(TAG, e);
+            onSocketError(sharedSocket, connectingSocket, e.getMessage());
+        }
+    }
+
+    private void onSocketOpen(SharedSocket sharedSocket, Socket socket) {
+        List<ChannelRequest> requests;
+
+        synchronized (mPoolKey) {
+            if (sharedSocket.socket != socket) {
+                return; // stale socket
+            }
+
+            if (sharedSocket.reconnectAttempts != 0) {
+                KayakoLogHelper.d(TAG, String.format("Reconnected after %s attempts", sharedSocket.reconnectAttempts));
+            }
+
+            sharedSocket.state = State.OPEN;
+            sharedSocket.reconnectAttempts = 0;
+            requests = new ArrayList<>(sharedSocket.requests);
+        }
+
+        for (ChannelRequest request : requests) {
+            deliverChannel(sharedSocket, request, request.getChannel() != null);
+        }
+    }
+
+    private void onSocketError(SharedSocket sharedSocket, Socket socket, String reason) {
+        List<ChannelRequest> requests;
+
+        synchronized (mPoolKey) {
+            if (sharedSocket.socket != socket || sharedSocket.state == State.CLOSED) {
+                return; // stale socket or already closed
+            }
+
+            sharedSocket.socket = null;
+            requests = new ArrayList<>(sharedSocket.requests);
+            scheduleReconnect(sharedSocket);
+        }
+
+        disconnectQuietly(socket);
+
+        for (ChannelRequest request : requests) {
+            request.getListener().onError(reason);
+        }
+    }
+
+    private void scheduleReconnect(final SharedSocket sharedSocket) {
+        cancelScheduledReconnect(sharedSocket);
+        sharedSocket.state = State.WAITING_TO_RECONNECT;
+
+        if (!isConnectedToNetwork()) {
+            KayakoLogHelper.d(TAG, "No network. Waiting for network change to reconnect");
+            return;
+        }
+
+        long delay = calculateReconnectDelay(sharedSocket.reconnectAttempts++);
+        KayakoLogHelper.d(TAG, String.format("Reconnect attempt %s in %s ms", sharedSocket.reconnectAttempts, delay));
+
+        sharedSocket.scheduledReconnect = KayakoScheduler.getInstance().schedule(new Runnable() {
+            @Override
+            public void run() {
+                reconnect(sharedSocket); // Socket.connect() does not block
+            }
+        }, delay);
+    }
+
+    private void reconnect(SharedSocket sharedSocket) {
+        synchronized (mPoolKey) {
+            if (sharedSocket.state != State.WAITING_TO_RECONNECT || mSockets.get(sharedSocket.url) != sharedSocket) {
+                return;
+            }
+
+            sharedSocket.scheduledReconnect = null;
+            sharedSocket.state = State.CONNECTING;
+        }
+
+        connectSocket(sharedSocket);
+    }
+
+    private void cancelScheduledReconnect(SharedSocket sharedSocket) {
+        if (sharedSocket.scheduledReconnect != null) {
+            sharedSocket.scheduledReconnect.cancel();
+            sharedSocket.scheduledReconnect = null;
+        }
+    }
+
+    /**
+     * Exponential backoff with "equal jitter" - the delay is randomly picked between half of the exponential delay and the full delay.
+     * This prevents all clients from reconnecting at the same time after a server outage.
+     *
+     * @param attempt number of attempts made so far
+     * @return delay in milliseconds
+     */
+    private long calculateReconnectDelay(int attempt) {
+        long exponentialDelay = Math.min(MAX_RECONNECT_DELAY, MIN_RECONNECT_DELAY << Math.min(attempt, MAX_BACKOFF_EXPONENT));
+        long halfDelay = exponentialDelay / 2;
+        return halfDelay + (long) (mRandom.nextDouble() * halfDelay);
+    }
+
+    private void deliverChannel(SharedSocket sharedSocket, ChannelRequest request, boolean isRejoin) {
+        Channel channel;
+
+        synchronized (mPoolKey) {
+            if (!sharedSocket.requests.contains(request) || sharedSocket.socket == null) {
+                return; // closed before the socket could open
+            }
+
+            // Channels are recreated with the original payload since they belonged to the previous socket
+            channel = sharedSocket.socket.chan(request.getChannelName(), request.getJsonPayload());
+            request.setChannel(channel);
+        }
+
+        if (isRejoin) {
+            request.getListener().onRejoin(channel);
+        } else {
+            request.getListener().onOpen(channel);
+        }
+    }
+
+    private void disconnectQuietly(@Nullable Socket socket) {
+        if (socket == null) {
+            return;
+        }
+
+        try {
+            socket.disconnect();
+        } catch (IOException e) {
+            KayakoLogHelper.printStackTrace(TAG, e); // Don't track IOExceptions on Crashlytics
+        } catch (Throwable e) {
+            KayakoLogHelper.logException(TAG, e);
+        }
+    }
+
+    ////// NETWORK CHANGES ////////
+
+    private void onNetworkChange() {
+        if (!isConnectedToNetwork()) {
+            return;
+        }
+
+        List<SharedSocket> socketsToReconnect = new ArrayList<>();
+        synchronized (mPoolKey) {
+            for (SharedSocket sharedSocket : mSockets.values()) {
+                if (sharedSocket.state == State.WAITING_TO_RECONNECT) {
+                    // Network is back - reconnect right away instead of waiting for the backoff
+                    cancelScheduledReconnect(sharedSocket);
+                    sharedSocket.reconnectAttempts = 0;
+                    socketsToReconnect.add(sharedSocket);
+                }
+            }
+        }
+
+        for (SharedSocket sharedSocket : socketsToReconnect) {
+            KayakoLogHelper.d(TAG, "Network available. Reconnecting now");
+            reconnect(sharedSocket);
+        }
+    }
+
+    private void registerNetworkChangeReceiverIfNeeded() {
+        if (mNetworkChangeReceiver != null) {
+            return;
+        }
+
+        try {
+            mNetworkChangeReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    onNetworkChange();
+                }
+            };
+            Kayako.getApplicationContext().registerReceiver(mNetworkChangeReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        } catch (Throwable e) {
+            KayakoLogHelper.logException(TAG, e);
+            mNetworkChangeReceiver = null;
+        }
+    }
+
+    private void unregisterNetworkChangeReceiver() {
+        if (mNetworkChangeReceiver == null) {
+            return;
+        }
+
+        try {
+            Kayako.getApplicationContext().unregisterReceiver(mNetworkChangeReceiver);
+        } catch (Throwable e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+        } finally {
+            mNetworkChangeReceiver = null;
+        }
+    }
+
+    private boolean isConnectedToNetwork() {
+        try {
+            return NetworkUtils.isConnectedToNetwork(Kayako.getApplicationContext());
+        } catch (Throwable e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            return true; // attempt reconnecting if the network state is unknown
+        }
+    }
+
+    private enum State {
+        CLOSED, CONNECTING, OPEN, WAITING_TO_RECONNECT
+    }
+
+    private static class SharedSocket {
+        final String url;
+        final Set<ChannelRequest> requests = new LinkedHashSet<>();
+        Socket socket;
+        State state = State.CLOSED;
+        int reconnectAttempts;
+        KayakoScheduler.Token scheduledReconnect;
+
+        SharedSocket(String url) {
+            this.url = url;
+        }
+    }
+
+    interface ChannelListener {
+
+        /**
+         * Called when the channel is first created on an open socket
+         */
+        void onOpen(Channel channel);
+
+        /**
+         * Called with a new channel (same name and payload) after the socket has been reconnected. The channel needs to be joined again.
+         */
+        void onRejoin(Channel channel);
+
+        /**
+         * Called every time the socket fails. A reconnect is already scheduled at this point.
+         */
+        void onError(String message);
+    }
+
+    static class ChannelRequest {
+
+        private final String url;
+        private final String channelName;
+        private final JsonNode jsonPayload;
+        private final ChannelListener listener;
+        private volatile Channel channel;
+
+        ChannelRequest(String url, String channelName, JsonNode jsonPayload, ChannelListener listener) {
+            this.url = url;
+            this.channelName = channelName;
+            this.jsonPayload = jsonPayload;
+            this.listener = listener;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        String getChannelName() {
+            return channelName;
+        }
+
+        JsonNode getJsonPayload() {
+            return jsonPayload;
+        }
+
+        ChannelListener getListener() {
+            return listener;
+        }
+
+        Channel getChannel() {
+            return channel;
+        }
+
+        void setChannel(Channel channel) {
+            this.channel = channel;
+        }
+    }
+}
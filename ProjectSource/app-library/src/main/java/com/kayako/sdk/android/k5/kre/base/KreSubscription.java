@@ -1,15 +1,14 @@
 package com.kayako.sdk.android.k5.kre.base;
 
-import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kayako.sdk.android.k5.core.KayakoLogHelper;
 import com.kayako.sdk.android.k5.kre.base.credentials.KreCredentials;
 import com.kayako.sdk.android.k5.kre.data.Payload;
 import com.kayako.sdk.android.k5.kre.data.PushData;
+import com.kayako.sdk.android.k5.kre.helpers.PushDataHelper;
 
 import org.phoenixframework.channels.Channel;
 import org.phoenixframework.channels.Envelope;
@@ -18,6 +17,7 @@ import org.phoenixframework.channels.IMessageCallback;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * Fixes the following problems:
  * - Ensures reset if new channel name received : Only one subscription is allowed at a time for the same channel name. If a new subscription is made with a new channel name, the older channel is unsubscribed
  * - Ensures all subscriptions use one single connection : New subscriptions will receive the same events, although only one connection is made per channel (this is done using a list of listeners)
+ * - Ensures all channels share one socket : Channels connected with the same credentials are multiplexed over a single socket (this is done using the KreSocketPool)
  * <p>
  * This does not fix the following problems:
  * - Mutliple calls to listenFor for the same event may cause ConcurrentModificationExceptions and inconsistentency when receicing events
@@ -37,19 +38,18 @@ public class KreSubscription extends KreConnection {
 
     private static final String TAG = "KreSubscription";
     private static final String EVENT_OK = "ok";
-    private static final long FIVE_SECONDS = 5 * 1000;
 
     private String mCurrentChannel;
 
-    private final Object mRunTriggerMethodKey = new Object();
     private final Object mTriggerKey = new Object();
     private final Object mListenerKey = new Object();
     private AtomicReference<Channel> mChannel = new AtomicReference<Channel>();
     private AtomicBoolean mHasSubscribedSuccessfully = new AtomicBoolean(false);
     private List<OnSubscriptionListener> mOnSubscriptionListeners = new ArrayList<>();
+    private List<OnReconnectListener> mOnReconnectListeners = new ArrayList<>();
+    private List<EventBinding> mEventBindings = new ArrayList<>(); // kept to re-bind events on a new channel after reconnecting
 
-    private AsyncTask mUnSubscribeTask;
-    private TriggerTask mTriggerTask;
+    private Future<?> mUnSubscribeTask;
 
     private String mTagWithName; // to track what the KreSubscription is being used for
 
@@ -116,9 +116,8 @@ public class KreSubscription extends KreConnection {
                                             .join()
                                             .receive(EVENT_OK, new IMessageCallback() {
                                                 public void onMessage(Envelope envelope) {
-                                                    if (!mHasSubscribedSuccessfully.get()) { // Prevent this method from being called repeatedly - "ok" can be received multiple times, especially after a push event
+                                                    if (!mHasSubscribedSuccessfully.getAndSet(true)) { // Prevent this method from being called repeatedly - "ok" can be received multiple times, especially after a push event. Also, a rejoin may have completed the subscription already
                                                         KayakoLogHelper.d(mTagWithName, "Subscribe-START");
-                                                        mHasSubscribedSuccessfully.set(true); // ensure the state is set before any other operations
                                                         callOnSubscriptions();
                                                     }
                                                 }
@@ -154,20 +153,64 @@ public class KreSubscription extends KreConnection {
     /**
      * @param eventName
      * @param eventListener
+     * @deprecated the payload is converted back to a json string for every event. Use {@link #listenFor(String, OnEventPayloadListener)} instead.
      */
+    @Deprecated
     public void listenFor(final String eventName, final OnEventListener eventListener) {
+        listenFor(eventName, new OnEventPayloadListener() {
+            @Override
+            public void onEvent(String event, @Nullable JsonNode payload) {
+                eventListener.onEvent(event, payload == null ? null : payload.toString());
+            }
+
+            @Override
+            public void onError(String message) {
+                eventListener.onError(message);
+            }
+        });
+    }
+
+    /**
+     * @param eventName
+     * @param eventListener
+     */
+    public void listenFor(final String eventName, final OnEventPayloadListener eventListener) {
         // KayakoLogHelper.d(TAG, "listenFor:" + eventName);
         assertValidSubscription();
 
+        IMessageCallback callback = new IMessageCallback() {
+            public void onMessage(Envelope envelope) {
+                KayakoLogHelper.d(mTagWithName, "onMessage:" + eventName);
+                callOnEvent(eventListener, envelope);
+            }
+        };
+
+        synchronized (mListenerKey) {
+            mEventBindings.add(new EventBinding(eventName, callback));
+        }
+
         // Listen for specific events
         mChannel
                 .get()
-                .on(eventName, new IMessageCallback() {
-                    public void onMessage(Envelope envelope) {
-                        KayakoLogHelper.d(mTagWithName, "onMessage:" + eventName + " - " + envelope.getPayload().toString());
-                        callOnEvent(eventListener, envelope);
-                    }
-                });
+                .on(eventName, callback);
+    }
+
+    /**
+     * Listen for the channel being rejoined after the socket connection was lost and re-established.
+     * Events sent while disconnected are missed, so this is the time to catch up on any changes.
+     *
+     * @param onReconnectListener
+     */
+    public void addOnReconnectListener(@NonNull OnReconnectListener onReconnectListener) {
+        synchronized (mListenerKey) {
+            mOnReconnectListeners.add(onReconnectListener);
+        }
+    }
+
+    public void removeOnReconnectListener(@NonNull OnReconnectListener onReconnectListener) {
+        synchronized (mListenerKey) {
+            mOnReconnectListeners.remove(onReconnectListener);
+        }
     }
 
     /**
@@ -225,6 +268,58 @@ public class KreSubscription extends KreConnection {
         }
     }
 
+    /**
+     * After a reconnect, the new channel is joined again and all previous events are bound to it.
+     * <p>
+     * This includes a channel lost before its first join was acknowledged - the "ok" for that join never arrives, so the subscription is completed by the rejoin instead.
+     *
+     * @param channel
+     */
+    @Override
+    protected void onRejoin(@NonNull Channel channel) {
+        final List<EventBinding> eventBindings;
+        synchronized (mListenerKey) {
+            if (mOnSubscriptionListeners.size() == 0) {
+                return; // unsubscribed - nothing to rejoin
+            }
+            eventBindings = new ArrayList<>(mEventBindings);
+        }
+
+        KayakoLogHelper.d(mTagWithName, "Rejoin-START");
+        mChannel.set(channel);
+
+        try {
+            for (EventBinding eventBinding : eventBindings) {
+                channel.on(eventBinding.eventName, eventBinding.callback);
+            }
+
+            channel
+                    .join()
+                    .receive(EVENT_OK, new IMessageCallback() {
+                        private AtomicBoolean mHasRejoined = new AtomicBoolean(false);
+
+                        public void onMessage(Envelope envelope) {
+                            if (mHasRejoined.getAndSet(true)) { // "ok" can be received multiple times, especially after a push event
+                                return;
+                            }
+
+                            if (!mHasSubscribedSuccessfully.getAndSet(true)) {
+                                KayakoLogHelper.d(mTagWithName, "Subscribe-START (on rejoin)");
+                                callOnSubscriptions();
+                            } else {
+                                KayakoLogHelper.d(mTagWithName, "Rejoin-SUCCESS");
+                                callOnReconnects();
+                            }
+                        }
+                    });
+        } catch (IOException e) {
+            KayakoLogHelper.printStackTrace(mTagWithName, e);
+            if (e.getMessage() != null) {
+                callOnErrors(e.getMessage());
+            }
+        }
+    }
+
     /**
      * Checks if subsciption was successful. If true, one can expect proper listening of events and should not call subscribe again
      *
@@ -254,9 +349,6 @@ public class KreSubscription extends KreConnection {
     private void performUnSubscribe() {
         KayakoLogHelper.d(mTagWithName, "unSubscribe-FINAL");
 
-        // Cancel running trigger tasks
-        cancelTask(mTriggerTask);
-
         // Leave Channel
         if (mChannel.get() != null) {
             try {
@@ -273,6 +365,8 @@ public class KreSubscription extends KreConnection {
     private void resetVariables() {
         synchronized (mListenerKey) { // ensure mOnSubscriptionListeners is handled synchronously
             mOnSubscriptionListeners = new ArrayList<>();
+            mOnReconnectListeners = new ArrayList<>();
+            mEventBindings = new ArrayList<>();
             mHasSubscribedSuccessfully.set(false);
             mCurrentChannel = null;
         }
@@ -287,80 +381,42 @@ public class KreSubscription extends KreConnection {
     }
 
     private <T extends PushData> void performTriggerInBackground(final String event, final T t) {
-        // don't cancel trigger task - causes you to disconnect from socket
-        runTriggerTask(event, t);
+        // Sent in order on the single writer thread - no task per event, so events are never rejected or sent out of order
+        KreWriter.getInstance().submit(new Runnable() {
+            @Override
+            public void run() {
+                performTrigger(event, t);
+            }
+        });
     }
 
-    private void cancelTask(AsyncTask task) {
-        if (task != null && task.getStatus() != AsyncTask.Status.FINISHED) {
-            task.cancel(true);
+    private void cancelTask(Future<?> task) {
+        if (task != null && !task.isDone()) {
+            task.cancel(false); // never interrupt the writer thread - it is shared by all channels
         }
     }
 
     private void runUnSubscribeTask() {
-        mUnSubscribeTask = new AsyncTask<Void, Void, Void>() {
+        // On the writer thread, so that events triggered before unsubscribing are still sent
+        mUnSubscribeTask = KreWriter.getInstance().submit(new Runnable() {
             @Override
-            protected Void doInBackground(Void[] params) {
+            public void run() {
                 performUnSubscribe();
-                return null;
             }
-        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        });
     }
 
-    private void cancelUnSubscribeTask() {
-        cancelTask(mUnSubscribeTask);
-    }
-
-    private <T extends PushData> void runTriggerTask(final String event, final T t) {
-        synchronized (mRunTriggerMethodKey) { // Ensure conditions are checked in a synchronized manner
-            final long currentTime = System.currentTimeMillis();
-
-            // Skip if the new trigger task does the same job as the previous one sent within the same 30 seconds
-            // This check has been added to minimize the chances of the RejectedExecutionException from happening
-            if (mTriggerTask != null
-                    && mTriggerTask.getStatus() == AsyncTask.Status.RUNNING && !mTriggerTask.isCancelled()
-                    && mTriggerTask.getEvent() != null && mTriggerTask.getEvent().equals(event)
-                    && mTriggerTask.getPayload() != null && mTriggerTask.getPayload().equals(t)
-                    && (currentTime - mTriggerTask.getExecutedAt() < FIVE_SECONDS)) {
-                KayakoLogHelper.e(getClass().getName(), "Skipping Trigger Task... Same as last one FIVE_SECONDS ago");
-                KayakoLogHelper.e(getClass().getName(), mTriggerTask.getEvent());
-                KayakoLogHelper.e(getClass().getName(), mTriggerTask.getPayload().toString());
-                return;
-            }
-
-            mTriggerTask = new TriggerTask<T>() {
-                @Override
-                protected Object doInBackground(Object[] params) {
-                    performTrigger(event, t);
-                    return null;
-                }
-
-                @Override
-                public String getEvent() {
-                    return event;
-                }
-
-                @Override
-                public T getPayload() {
-                    return t;
-                }
-
-                @Override
-                public long getExecutedAt() {
-                    return currentTime;
-                }
-            };
+    ////// OTHER METHODS ////////
 
-            mTriggerTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-        }
+    /**
+     * @return true if realtime events are being received on at least one socket, by any subscription
+     */
+    public static boolean isAnySocketOpen() {
+        return KreSocketPool.getInstance().hasOpenSocket();
     }
 
-    ////// OTHER METHODS ////////
-
     public static <T> JsonNode convertObjectToJsonNode(@NonNull T t) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode node = objectMapper.valueToTree(t);
-        return node;
+        return PushDataHelper.convertToJsonNode(t);
     }
 
     private void assertValidSubscription() {
@@ -380,9 +436,9 @@ public class KreSubscription extends KreConnection {
         }
     }
 
-    private void callOnEvent(@Nullable final OnEventListener listener, Envelope envelope) {
+    private void callOnEvent(@Nullable final OnEventPayloadListener listener, Envelope envelope) {
         if (listener != null) {
-            listener.onEvent(envelope.getEvent(), envelope.getPayload().toString()); // TODO: Validate if valid json - may cause errors
+            listener.onEvent(envelope.getEvent(), envelope.getPayload()); // Already parsed by the Phoenix client - decoded from the tree as it is
         }
     }
 
@@ -402,6 +458,17 @@ public class KreSubscription extends KreConnection {
         }
     }
 
+    private void callOnReconnects() {
+        List<OnReconnectListener> onReconnectListeners;
+        synchronized (mListenerKey) { // ensure mOnReconnectListeners is handled synchronously
+            onReconnectListeners = new ArrayList<>(mOnReconnectListeners);
+        }
+
+        for (OnReconnectListener listener : onReconnectListeners) {
+            listener.onReconnect();
+        }
+    }
+
     private void callOnSubscription(@Nullable final OnSubscriptionListener listener) {
         if (listener != null) {
             listener.onSubscription();
@@ -414,12 +481,18 @@ public class KreSubscription extends KreConnection {
         }
     }
 
-    private abstract class TriggerTask<T extends PushData> extends AsyncTask {
-        public abstract String getEvent();
+    private static class EventBinding {
+        final String eventName;
+        final IMessageCallback callback;
 
-        public abstract T getPayload();
+        EventBinding(String eventName, IMessageCallback callback) {
+            this.eventName = eventName;
+            this.callback = callback;
+        }
+    }
 
-        public abstract long getExecutedAt();
+    public interface OnReconnectListener {
+        void onReconnect();
     }
 
     public interface OnErrorListener {
@@ -432,7 +505,19 @@ public class KreSubscription extends KreConnection {
         void onUnsubscription();
     }
 
+    /**
+     * @deprecated use {@link OnEventPayloadListener}, which receives the payload as already parsed by the Phoenix client
+     */
+    @Deprecated
     public interface OnEventListener extends OnErrorListener {
         void onEvent(String event, String jsonBody);
     }
+
+    public interface OnEventPayloadListener extends OnErrorListener {
+        /**
+         * @param event
+         * @param payload payload of the event, null if it has none. Decode it with {@link PushDataHelper#convertFromJsonNode(Class, JsonNode)}.
+         */
+        void onEvent(String event, @Nullable JsonNode payload);
+    }
 }
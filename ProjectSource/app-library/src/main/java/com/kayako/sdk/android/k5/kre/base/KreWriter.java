@@ -0,0 +1,89 @@
+package com.kayako.sdk.android.k5.kre.base;
+
+import android.support.annotation.NonNull;
+
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single writer thread for everything sent over KRE sockets - pushing events and leaving channels.
+ * <p>
+ * - One daemon thread sends in the order submitted, instead of an AsyncTask per event. It is started with the first task and kept alive after,
+ *   since a scheduled executor needs a core thread to run its delayed tasks - being a daemon, it never keeps the process alive.
+ * - Unlike the {@link com.kayako.sdk.android.k5.common.utils.KayakoScheduler}, tasks may block on the socket
+ */
+public class KreWriter {
+
+    private static final String TAG = "KreWriter";
+
+    private static final Object key = new Object();
+    private static KreWriter mInstance;
+
+    private final ScheduledThreadPoolExecutor mExecutor;
+
+    private KreWriter() {
+        mExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public static KreWriter getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new KreWriter();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param task runs on the writer thread, after all previously submitted tasks
+     * @return future to cancel the task before it runs
+     */
+    @NonNull
+    public Future<?> submit(@NonNull Runnable task) {
+        return mExecutor.submit(wrap(task));
+    }
+
+    /**
+     * @param task  runs once on the writer thread
+     * @param delay in milliseconds
+     * @return future to cancel the task before it runs
+     */
+    @NonNull
+    public Future<?> schedule(@NonNull Runnable task, long delay) {
+        return mExecutor.schedule(wrap(task), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return number of threads currently alive - 0 until the first task is submitted, 1 after
+     */
+    public int getLiveThreadCount() {
+        return mExecutor.getPoolSize();
+    }
+
+    private static Runnable wrap(final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // One failed push should not stop the others from being sent
+                    KayakoLogHelper.logException(TAG, e);
+                }
+            }
+        };
+    }
+}
@@ -49,6 +49,7 @@ public class KreCaseSubscription {
     private List<RawCaseChangeListener> mCaseChangeListeners = new ArrayList<>();
     private List<RawUserOnCasePresenceListener> mUserPresenceListeners = new ArrayList<>();
     private List<RawCasePostChangeListener> mRawCasePostChangeListeners = new ArrayList<>();
+    private List<KreSubscription.OnReconnectListener> mReconnectListeners = new ArrayList<>();
 
     public KreCaseSubscription(@NonNull String name, long currentUserId) {
         mKreSubscription = new KreSubscription(name);
@@ -80,6 +81,10 @@ public class KreCaseSubscription {
         mUserPresenceListeners.add(listener);
     }
 
+    public void addReconnectListener(KreSubscription.OnReconnectListener listener) {
+        mReconnectListeners.add(listener);
+    }
+
     public void removeClientTypingListener(RawClientTypingListener listener) {
         mClientTypingListeners.remove(listener);
     }
@@ -104,6 +109,10 @@ public class KreCaseSubscription {
         mUserPresenceListeners.remove(listener);
     }
 
+    public void removeReconnectListener(KreSubscription.OnReconnectListener listener) {
+        mReconnectListeners.remove(listener);
+    }
+
     public void triggerUpdatingEvent(boolean isUpdating) {
         if (mKreSubscription.isConnected()) {
             mKrePresenceHelper.triggerClientUpdatingCaseEvent(isUpdating);
@@ -295,6 +304,20 @@ public class KreCaseSubscription {
                         }
                     });
 
+                    mKreSubscription.addOnReconnectListener(new KreSubscription.OnReconnectListener() {
+                        @Override
+                        public void onReconnect() {
+                            // Presence metas are lost with the previous socket, trigger again just like onSubscription()
+                            mKrePresenceHelper.triggerClientForegroundEvent(isAgent, isAgent);
+
+                            if (mReconnectListeners != null) {
+                                for (KreSubscription.OnReconnectListener listener : mReconnectListeners) {
+                                    listener.onReconnect();
+                                }
+                            }
+                        }
+                    });
+
                     hasSubscribeBeenCalledOnce.set(true); // ensure state set once all events are subscribed to
                 }
 
@@ -328,6 +351,7 @@ public class KreCaseSubscription {
             mKrePresenceHelper.triggerClientTypingCaseEvent(false, false);
             mKrePresenceHelper.triggerClientUpdatingCaseEvent(false);
             mKrePresenceHelper.triggerClientForegroundEvent(false, false);
+            mKrePresenceHelper.flushClientEvents(); // sent before leaving the channel
 
             mKreSubscription.unSubscribe(onSubscriptionListener);
             mKreSubscription.unSubscribe(mMainListener);
@@ -347,6 +371,7 @@ public class KreCaseSubscription {
         mClientActivityListeners = new ArrayList<>();
         mCaseChangeListeners = new ArrayList<>();
         mUserPresenceListeners = new ArrayList<>();
+        mReconnectListeners = new ArrayList<>();
         mChildListeners = new ArrayList<>();
     }
 }
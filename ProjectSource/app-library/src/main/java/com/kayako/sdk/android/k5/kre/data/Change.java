@@ -9,6 +9,10 @@ public class Change extends PushData {
     public String resource_url;
     public ChangedProperties changed_properties;
 
+    private Change() {
+        // Used when decoded from json
+    }
+
     public Change(Long resource_id, String resource_type, String resource_url, ChangedProperties changed_properties) {
         this.resource_id = resource_id;
         this.resource_type = resource_type;
@@ -11,6 +11,10 @@ public class ChangedProperties {
     public Long updated_at; // in seconds
     public Long last_agent_activity_at;
 
+    private ChangedProperties() {
+        // Used when decoded from json
+    }
+
     public ChangedProperties(Long last_assigned_at, Integer post_count, Long last_replier, Long last_updated_by, Long updated_at, Long last_agent_activity_at) {
         this.last_assigned_at = last_assigned_at;
         this.post_count = post_count;
@@ -2,7 +2,9 @@ package com.kayako.sdk.android.k5.kre.data;
 
 /**
  * @author Neil Mathew <neil.mathew@kayako.com>
+ * @deprecated presence states are now merged into a single {@link ClientPresenceMeta} update
  */
+@Deprecated
 public class ClientForegroundViewing extends PushData {
 
     public boolean is_viewing; // NOTE: retain this pascal case - required for json representation
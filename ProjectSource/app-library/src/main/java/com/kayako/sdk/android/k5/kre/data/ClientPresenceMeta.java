@@ -0,0 +1,42 @@
+package com.kayako.sdk.android.k5.kre.data;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Typing, updating and viewing state merged into a single presence meta update. Only the states that changed are set - the others are left out of the json.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ClientPresenceMeta extends PushData {
+
+    public Boolean is_typing; // NOTE: retain this pascal case - required for json representation
+    public Boolean is_updating;
+    public Boolean is_viewing;
+    public Boolean is_foreground;
+    public long last_active_at;
+
+    public ClientPresenceMeta() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        // DO NOT COMPARE the lastActiveAt - consistent with the other client presence data
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ClientPresenceMeta that = (ClientPresenceMeta) o;
+
+        if (is_typing != null ? !is_typing.equals(that.is_typing) : that.is_typing != null) return false;
+        if (is_updating != null ? !is_updating.equals(that.is_updating) : that.is_updating != null) return false;
+        if (is_viewing != null ? !is_viewing.equals(that.is_viewing) : that.is_viewing != null) return false;
+        return is_foreground != null ? is_foreground.equals(that.is_foreground) : that.is_foreground == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = is_typing != null ? is_typing.hashCode() : 0;
+        result = 31 * result + (is_updating != null ? is_updating.hashCode() : 0);
+        result = 31 * result + (is_viewing != null ? is_viewing.hashCode() : 0);
+        result = 31 * result + (is_foreground != null ? is_foreground.hashCode() : 0);
+        return result;
+    }
+}
@@ -7,10 +7,12 @@ import com.google.gson.Gson;
  */
 public abstract class PushData {
 
+    private static final Gson GSON = new Gson(); // thread-safe
+
     @Override
     public String toString() {
         try {
-            return new Gson().toJson(this);
+            return GSON.toJson(this);
         } catch (Exception e) {
             return super.toString();
         }
@@ -2,6 +2,8 @@ package com.kayako.sdk.android.k5.kre.helpers;
 
 import android.support.annotation.NonNull;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import com.kayako.sdk.android.k5.kre.base.KreSubscription;
 import com.kayako.sdk.android.k5.kre.data.Change;
 
@@ -15,11 +17,10 @@ public class KreCaseChangeHelper {
     }
 
     public static void addRawCaseChangeListener(@NonNull KreSubscription kreSubscription, @NonNull final RawCaseChangeListener listener) {
-        kreSubscription.listenFor(EVENT_CHANGE, new KreSubscription.OnEventListener() {
+        kreSubscription.listenFor(EVENT_CHANGE, new KreSubscription.OnEventPayloadListener() {
             @Override
-            public void onEvent(String event, String jsonBody) {
-                // KayakoLogHelper.e("KRE: Before Parse, Json = ", jsonBody);
-                final Change pushData = PushDataHelper.convertFromJsonString(Change.class, jsonBody);
+            public void onEvent(String event, JsonNode payload) {
+                final Change pushData = PushDataHelper.convertFromJsonNode(Change.class, payload);
                 // KayakoLogHelper.e("KRE: After Parse, Object = ", pushData.toString());
                 listener.onCaseChange(pushData);
             }
@@ -2,8 +2,9 @@ package com.kayako.sdk.android.k5.kre.helpers;
 
 import android.support.annotation.NonNull;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import com.kayako.sdk.android.k5.kre.base.KreSubscription;
-import com.kayako.sdk.android.k5.kre.data.Change;
 import com.kayako.sdk.android.k5.kre.data.ChangePost;
 
 public class KreCasePostChangeHelper {
@@ -19,10 +20,10 @@ public class KreCasePostChangeHelper {
     }
 
     public static void addRawCasePostChangeListener(@NonNull KreSubscription kreSubscription, @NonNull final RawCasePostChangeListener listener) {
-        kreSubscription.listenFor(EVENT_CHANGE_POST, new KreSubscription.OnEventListener() {
+        kreSubscription.listenFor(EVENT_CHANGE_POST, new KreSubscription.OnEventPayloadListener() {
             @Override
-            public void onEvent(String event, String jsonBody) {
-                ChangePost changePost = PushDataHelper.convertFromJsonString(ChangePost.class, jsonBody);
+            public void onEvent(String event, JsonNode payload) {
+                ChangePost changePost = PushDataHelper.convertFromJsonNode(ChangePost.class, payload);
                 if (changePost != null && RESOURCE_TYPE.equals(changePost.resource_type)) {
                     listener.onChangePost(changePost.resource_id);
                 }
@@ -34,10 +35,10 @@ public class KreCasePostChangeHelper {
             }
         });
 
-        kreSubscription.listenFor(EVENT_NEW_POST, new KreSubscription.OnEventListener() {
+        kreSubscription.listenFor(EVENT_NEW_POST, new KreSubscription.OnEventPayloadListener() {
             @Override
-            public void onEvent(String event, String jsonBody) {
-                ChangePost changePost = PushDataHelper.convertFromJsonString(ChangePost.class, jsonBody);
+            public void onEvent(String event, JsonNode payload) {
+                ChangePost changePost = PushDataHelper.convertFromJsonNode(ChangePost.class, payload);
                 if (changePost != null && RESOURCE_TYPE.equals(changePost.resource_type)) {
                     listener.onNewPost(changePost.resource_id);
                 }
@@ -1,18 +1,35 @@
 package com.kayako.sdk.android.k5.kre.helpers;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.kayako.sdk.android.k5.core.KayakoLogHelper;
 import com.kayako.sdk.android.k5.kre.data.PushData;
 
+import java.io.IOException;
+
+/**
+ * Converts push data to and from json.
+ * <p>
+ * KRE events arrive as a Jackson tree (parsed once by the Phoenix client), so they are decoded straight from that tree with {@link #convertFromJsonNode(Class, JsonNode)} - never converted back to a string to be parsed again.
+ * The ObjectMapper and Gson instances are shared - both are thread-safe once configured, and cache what they learn about each class.
+ */
 public class PushDataHelper {
 
     private static final String TAG = "PushDataHelper";
 
+    private static final Gson GSON = new Gson();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false); // KRE sends more properties than are modelled
+
     public static String convertToJsonString(Object data) {
         try {
-            Gson gson = new Gson();
-            return gson.toJson(data);
+            return GSON.toJson(data);
         } catch (JsonSyntaxException e) {
             KayakoLogHelper.printStackTrace(TAG, e);
             return null;
@@ -21,13 +38,48 @@ public class PushDataHelper {
 
     public static <T extends PushData> T convertFromJsonString(Class<T> clazz, String jsonData) {
         try {
-            Gson gson = new Gson();
-            T t = gson.fromJson(jsonData, clazz);
-            return t;
+            return GSON.fromJson(jsonData, clazz);
         } catch (JsonSyntaxException e) {
             KayakoLogHelper.printStackTrace(TAG, e);
             return null;
         }
     }
 
+    /**
+     * @param clazz
+     * @param payload payload of a KRE event
+     * @return the payload decoded into clazz, null if the payload does not match it
+     */
+    @Nullable
+    public static <T extends PushData> T convertFromJsonNode(Class<T> clazz, @Nullable JsonNode payload) {
+        if (payload == null || !payload.isObject()) {
+            return null;
+        }
+
+        try {
+            return OBJECT_MAPPER.treeToValue(payload, clazz);
+        } catch (IOException | IllegalArgumentException e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            return null;
+        }
+    }
+
+    @NonNull
+    public static <T> JsonNode convertToJsonNode(@NonNull T t) {
+        return OBJECT_MAPPER.valueToTree(t);
+    }
+
+    /**
+     * @param jsonData
+     * @return json parsed into a tree, null if it is not valid json
+     */
+    @Nullable
+    public static JsonNode parseJsonNode(String jsonData) {
+        try {
+            return OBJECT_MAPPER.readTree(jsonData);
+        } catch (IOException e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            return null;
+        }
+    }
 }
@@ -2,15 +2,16 @@ package com.kayako.sdk.android.k5.kre.helpers.presence;
 
 import android.support.annotation.NonNull;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.kayako.sdk.android.k5.core.KayakoLogHelper;
 import com.kayako.sdk.android.k5.kre.base.KreSubscription;
 import com.kayako.sdk.android.k5.kre.helpers.MinimalClientTypingListener;
+import com.kayako.sdk.android.k5.kre.helpers.PushDataHelper;
 import com.kayako.sdk.android.k5.kre.helpers.RawClientActivityListener;
 import com.kayako.sdk.android.k5.kre.helpers.RawClientTypingListener;
 import com.kayako.sdk.android.k5.kre.helpers.RawUserOnCasePresenceListener;
 import com.kayako.sdk.android.k5.kre.helpers.RawUserSubscribedPresenceListener;
 
-import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -37,7 +38,7 @@ public class KrePresenceHelper {
     private RawUserSubscribedPresenceListener mRawUserSubscribedPresenceListener;
     private MinimalClientTypingListener mMinimalClientTypingListener;
 
-    protected Set<PresenceUser> mOnlineUsers = new HashSet<>();
+    protected KrePresenceStore mOnlineUsers = new KrePresenceStore();
     protected boolean mShowLogs = true; // used in test cases
     private long mCurrentUserId;
     private boolean mHideCurrentUser; // if true, ensures the current user is removed from all user presence events
@@ -45,11 +46,14 @@ public class KrePresenceHelper {
     private AtomicBoolean mHasAlreadyBeenCalled_OnUsersAlreadyViewingCase = new AtomicBoolean(false); // ensures that the presence_state event is consumed ONLY once and onUsersAlreadyViewingCase() is called only once
     private final Object eventKey = new Object(); // ensure onDiff, onState, onError, mRawUserOnCasePresenceListener is called one at a time - Need: Ensure UI updates happen one at a time with correct info
 
+    // to merge typing, updating and viewing states into one presence meta update per tick
+    private final KrePresencePushDataCoalescer mPresenceMetaCoalescer;
+
     // to record state and auto-disable Typing after 5 seconds of inactivity
     private KrePresencePushDataConservativelyHelper mTriggerTypingConservativelyHelper = new KrePresencePushDataConservativelyHelper(new KrePresencePushDataConservativelyHelper.PerformTriggerOperationCallback() {
         @Override
         public void performTriggerOperation(KreSubscription kreSubscription, boolean state) {
-            KrePresencePushDataHelper.triggerTypingEvent(kreSubscription, state);
+            mPresenceMetaCoalescer.setTyping(state);
         }
 
     });
@@ -57,12 +61,13 @@ public class KrePresenceHelper {
     private KrePresencePushDataConservativelyHelper mTriggerUpdatingConservativelyHelper = new KrePresencePushDataConservativelyHelper(new KrePresencePushDataConservativelyHelper.PerformTriggerOperationCallback() {
         @Override
         public void performTriggerOperation(KreSubscription kreSubscription, boolean state) {
-            KrePresencePushDataHelper.triggerUpdatingEvent(kreSubscription, state);
+            mPresenceMetaCoalescer.setUpdating(state);
         }
     });
 
     public KrePresenceHelper(@NonNull final KreSubscription kreSubscription, final boolean hideCurrentUser, final long currentUserId) {
         mKreSubscription = kreSubscription;
+        mPresenceMetaCoalescer = KrePresencePushDataHelper.getCoalescer(kreSubscription);
         mHideCurrentUser = hideCurrentUser;
         mCurrentUserId = currentUserId;
     }
@@ -141,7 +146,18 @@ public class KrePresenceHelper {
     }
 
     public void triggerClientForegroundEvent(boolean isViewing, boolean isForeground) {
-        KrePresencePushDataHelper.triggerForegroundViewingEvent(mKreSubscription, isViewing, isForeground);
+        if (isForeground && !isViewing) {
+            throw new IllegalArgumentException("A user first views the case, then keeps it in foreground. Not vice versa!");
+        }
+
+        mPresenceMetaCoalescer.setForegroundViewing(isViewing, isForeground);
+    }
+
+    /**
+     * Send the pending typing, updating and viewing states right away, instead of at the next tick. Call before unsubscribing.
+     */
+    public void flushClientEvents() {
+        mPresenceMetaCoalescer.flush();
     }
 
     private void subscribeForChangesIfNotAlreadyDone() {
@@ -155,10 +171,10 @@ public class KrePresenceHelper {
 
     // Made protected for test cases
     protected void startTracking() {
-        mKreSubscription.listenFor(EVENT_PRESENCE_DIFF, new KreSubscription.OnEventListener() {
+        mKreSubscription.listenFor(EVENT_PRESENCE_DIFF, new KreSubscription.OnEventPayloadListener() {
             @Override
-            public void onEvent(String event, String jsonBody) {
-                callOnPresenceDiffEvent(jsonBody);
+            public void onEvent(String event, JsonNode payload) {
+                callOnPresenceDiffEvent(payload);
             }
 
             @Override
@@ -166,10 +182,10 @@ public class KrePresenceHelper {
                 callOnError(message);
             }
         });
-        mKreSubscription.listenFor(EVENT_PRESENCE_STATE, new KreSubscription.OnEventListener() {
+        mKreSubscription.listenFor(EVENT_PRESENCE_STATE, new KreSubscription.OnEventPayloadListener() {
             @Override
-            public void onEvent(String event, String jsonBody) {
-                callOnPresenceStateEvent(jsonBody);
+            public void onEvent(String event, JsonNode payload) {
+                callOnPresenceStateEvent(payload);
             }
 
             @Override
@@ -181,12 +197,16 @@ public class KrePresenceHelper {
 
     // Made protected for test cases
     protected void callOnPresenceDiffEvent(String jsonBody) {
+        callOnPresenceDiffEvent(PushDataHelper.parseJsonNode(jsonBody));
+    }
+
+    private void callOnPresenceDiffEvent(JsonNode payload) {
         if (mShowLogs) {
-            KayakoLogHelper.d(EVENT_PRESENCE_DIFF, jsonBody);
+            KayakoLogHelper.d(EVENT_PRESENCE_DIFF, String.valueOf(payload));
         }
         synchronized (eventKey) {
-            Set<PresenceUser> joinedUsers = KrePresenceJsonHelper.parsePresenceDiffJsonAndGetJoins(jsonBody);
-            Set<PresenceUser> leftUsers = KrePresenceJsonHelper.parsePresenceDiffJsonAndGetLeaves(jsonBody);
+            Set<PresenceUser> joinedUsers = KrePresenceJsonHelper.parsePresenceDiffJoins(payload);
+            Set<PresenceUser> leftUsers = KrePresenceJsonHelper.parsePresenceDiffLeaves(payload);
 
             // Remove current user if set
             if (mHideCurrentUser) {
@@ -228,8 +248,12 @@ public class KrePresenceHelper {
 
     // Made protected for test cases
     protected synchronized void callOnPresenceStateEvent(String jsonBody) {
+        callOnPresenceStateEvent(PushDataHelper.parseJsonNode(jsonBody));
+    }
+
+    private synchronized void callOnPresenceStateEvent(JsonNode payload) {
         if (mShowLogs) {
-            KayakoLogHelper.d(EVENT_PRESENCE_STATE, jsonBody);
+            KayakoLogHelper.d(EVENT_PRESENCE_STATE, String.valueOf(payload));
         }
 
         synchronized (eventKey) {
@@ -239,7 +263,7 @@ public class KrePresenceHelper {
 
             try {
                 // Retrieve users from presence state
-                Set<PresenceUser> newUsers = KrePresenceJsonHelper.parsePresenceStateJson(jsonBody);
+                Set<PresenceUser> newUsers = KrePresenceJsonHelper.parsePresenceState(payload);
 
                 // Remove logged in user if hideCurrentUser set
                 if (mHideCurrentUser) {
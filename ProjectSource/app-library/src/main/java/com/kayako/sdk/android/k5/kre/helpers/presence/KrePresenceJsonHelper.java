@@ -1,14 +1,15 @@
 package com.kayako.sdk.android.k5.kre.helpers.presence;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+import com.kayako.sdk.android.k5.kre.helpers.PushDataHelper;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,48 +38,66 @@ class KrePresenceJsonHelper {
     private static final String JSON_ELEMENT_META_IS_FOREGROUND = "is_foreground";
 
     public static Set<PresenceUser> parsePresenceStateJson(String json) {
-        JsonObject body = new JsonParser().parse(json).getAsJsonObject();
-        Set<PresenceUser> users = new HashSet<>();
-
-        if (!body.isJsonNull()) {
-            Set<PresenceUser> userToRemove = extractPresenceUserFromJsonObject(body);
-            users.addAll(userToRemove);
-        }
-        return users;
+        return parsePresenceState(PushDataHelper.parseJsonNode(json));
     }
 
     public static Set<PresenceUser> parsePresenceDiffJsonAndGetJoins(String json) {
-        JsonObject body = new JsonParser().parse(json).getAsJsonObject();
-        JsonObject leavesNode = body.getAsJsonObject(JSON_NODE_JOINS);
-        if (!leavesNode.isJsonNull()) {
-            return extractPresenceUserFromJsonObject(leavesNode);
-        } else {
-            return Collections.EMPTY_SET;
-        }
+        return parsePresenceDiffJoins(PushDataHelper.parseJsonNode(json));
     }
 
     public static Set<PresenceUser> parsePresenceDiffJsonAndGetLeaves(String json) {
-        JsonObject body = new JsonParser().parse(json).getAsJsonObject();
-        JsonObject leavesNode = body.getAsJsonObject(JSON_NODE_LEAVES);
-        if (!leavesNode.isJsonNull()) {
-            return extractPresenceUserFromJsonObject(leavesNode);
+        return parsePresenceDiffLeaves(PushDataHelper.parseJsonNode(json));
+    }
+
+    /**
+     * @param payload payload of a presence_state event
+     * @return all users in the presence state
+     */
+    public static Set<PresenceUser> parsePresenceState(@Nullable JsonNode payload) {
+        if (payload == null || !payload.isObject()) {
+            return new HashSet<>();
+        }
+        return extractPresenceUserFromJsonObject(payload);
+    }
+
+    /**
+     * @param payload payload of a presence_diff event - the same tree is read for both joins and leaves
+     * @return users with updated information
+     */
+    public static Set<PresenceUser> parsePresenceDiffJoins(@Nullable JsonNode payload) {
+        return extractPresenceUserFromMember(payload, JSON_NODE_JOINS);
+    }
+
+    /**
+     * @param payload payload of a presence_diff event - the same tree is read for both joins and leaves
+     * @return users with obsolete information
+     */
+    public static Set<PresenceUser> parsePresenceDiffLeaves(@Nullable JsonNode payload) {
+        return extractPresenceUserFromMember(payload, JSON_NODE_LEAVES);
+    }
+
+    private static Set<PresenceUser> extractPresenceUserFromMember(@Nullable JsonNode payload, String memberName) {
+        JsonNode member = payload == null ? null : payload.get(memberName);
+        if (member != null && member.isObject()) {
+            return extractPresenceUserFromJsonObject(member);
         } else {
-            return Collections.EMPTY_SET;
+            return Collections.emptySet();
         }
     }
 
-    private static Set<PresenceUser> extractPresenceUserFromJsonObject(@NonNull JsonObject node) {
+    private static Set<PresenceUser> extractPresenceUserFromJsonObject(@NonNull JsonNode node) {
         if (node == null) {
             throw new IllegalArgumentException("node can not be null!");
         }
 
         Set<PresenceUser> users = new HashSet<>();
-        for (Map.Entry<String, JsonElement> entry : node.entrySet()) {
+        Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
             // If unable parse to parse a single user, skip that user, log the json that couldn't be parsed, then continue to add those users that can be parsed
             try {
-                JsonObject bodyObject = entry.getValue().getAsJsonObject();
-                JsonObject metaObject = bodyObject.getAsJsonArray(JSON_NODE_METAS).get(0).getAsJsonObject(); // one element in [{
-                JsonObject userObject = metaObject.get(JSON_NODE_META_USER).getAsJsonObject();
+                JsonNode metaObject = entry.getValue().get(JSON_NODE_METAS).get(0); // one element in [{
+                JsonNode userObject = metaObject.get(JSON_NODE_META_USER);
 
                 PresenceMetaActivityData presenceMetaActivityData = extractMetaActivityData(metaObject);
                 PresenceMetaUserData presenceMetaUserData = extractMetaUserData(userObject);
@@ -92,20 +111,20 @@ class KrePresenceJsonHelper {
         return users;
     }
 
-    private static PresenceMetaUserData extractMetaUserData(@NonNull JsonObject userNode) {
+    private static PresenceMetaUserData extractMetaUserData(@NonNull JsonNode userNode) {
         return new PresenceMetaUserData(
-                userNode.get(JSON_ELEMENT_META_USER_ID).getAsLong(),
-                userNode.get(JSON_ELEMENT_META_USER_FULL_NAME).getAsString(),
-                userNode.get(JSON_ELEMENT_META_USER_AVATAR).getAsString()
+                userNode.get(JSON_ELEMENT_META_USER_ID).asLong(),
+                getText(userNode, JSON_ELEMENT_META_USER_FULL_NAME),
+                getText(userNode, JSON_ELEMENT_META_USER_AVATAR)
         );
     }
 
-    private static PresenceMetaActivityData extractMetaActivityData(@NonNull JsonObject metaNode) {
-        Boolean isTyping = metaNode.has(JSON_ELEMENT_META_IS_TYPING) ? metaNode.get(JSON_ELEMENT_META_IS_TYPING).getAsBoolean() : null;
-        Boolean isUpdating = metaNode.has(JSON_ELEMENT_META_IS_UPDATING) ? metaNode.get(JSON_ELEMENT_META_IS_UPDATING).getAsBoolean() : null;
-        Boolean isViewing = metaNode.has(JSON_ELEMENT_META_IS_VIEWING) ? metaNode.get(JSON_ELEMENT_META_IS_VIEWING).getAsBoolean() : null;
-        Boolean isForeground = metaNode.has(JSON_ELEMENT_META_IS_FOREGROUND) ? metaNode.get(JSON_ELEMENT_META_IS_FOREGROUND).getAsBoolean() : null;
-        Long lastActiveAt = metaNode.has(JSON_ELEMENT_META_LAST_ACTIVE_AT) ? metaNode.get(JSON_ELEMENT_META_LAST_ACTIVE_AT).getAsLong() : null;
+    private static PresenceMetaActivityData extractMetaActivityData(@NonNull JsonNode metaNode) {
+        Boolean isTyping = metaNode.has(JSON_ELEMENT_META_IS_TYPING) ? metaNode.get(JSON_ELEMENT_META_IS_TYPING).asBoolean() : null;
+        Boolean isUpdating = metaNode.has(JSON_ELEMENT_META_IS_UPDATING) ? metaNode.get(JSON_ELEMENT_META_IS_UPDATING).asBoolean() : null;
+        Boolean isViewing = metaNode.has(JSON_ELEMENT_META_IS_VIEWING) ? metaNode.get(JSON_ELEMENT_META_IS_VIEWING).asBoolean() : null;
+        Boolean isForeground = metaNode.has(JSON_ELEMENT_META_IS_FOREGROUND) ? metaNode.get(JSON_ELEMENT_META_IS_FOREGROUND).asBoolean() : null;
+        Long lastActiveAt = metaNode.has(JSON_ELEMENT_META_LAST_ACTIVE_AT) ? metaNode.get(JSON_ELEMENT_META_LAST_ACTIVE_AT).asLong() : null;
 
         return new PresenceMetaActivityData(
                 isTyping,
@@ -115,4 +134,9 @@ class KrePresenceJsonHelper {
                 isForeground
         );
     }
+
+    private static String getText(JsonNode node, String fieldName) {
+        JsonNode value = node.get(fieldName);
+        return value == null || value.isNull() ? null : value.asText();
+    }
 }
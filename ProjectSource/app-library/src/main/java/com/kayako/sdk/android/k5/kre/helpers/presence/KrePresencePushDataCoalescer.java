@@ -0,0 +1,126 @@
+package com.kayako.sdk.android.k5.kre.helpers.presence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.kayako.sdk.android.k5.kre.base.KreWriter;
+import com.kayako.sdk.android.k5.kre.data.ClientPresenceMeta;
+
+/**
+ * Merges the typing, updating and viewing states of a channel into one presence meta update per TICK.
+ * <p>
+ * - The first state change schedules a flush on the {@link KreWriter} thread. Changes made until then are merged into the same update.
+ * - If a state changes more than once within a tick, only its latest value is sent
+ * - Call {@link #flush()} to send pending changes right away (eg: before unsubscribing)
+ */
+public class KrePresencePushDataCoalescer {
+
+    static final long TICK = 250; // milliseconds
+
+    private static final Scheduler DEFAULT_SCHEDULER = new Scheduler() {
+        @Override
+        public void schedule(Runnable task, long delay) {
+            KreWriter.getInstance().schedule(task, delay);
+        }
+    };
+
+    private final PushCallback mPushCallback;
+    private final Scheduler mScheduler;
+    private final Object mKey = new Object();
+
+    private ClientPresenceMeta mPendingMeta; // null if there are no changes to send
+    private boolean mIsFlushScheduled;
+
+    // PUBLIC so that instances can be created to save state
+    public KrePresencePushDataCoalescer(@NonNull PushCallback pushCallback) {
+        this(pushCallback, DEFAULT_SCHEDULER);
+    }
+
+    KrePresencePushDataCoalescer(@NonNull PushCallback pushCallback, @NonNull Scheduler scheduler) {
+        mPushCallback = pushCallback;
+        mScheduler = scheduler;
+    }
+
+    public void setTyping(boolean isTyping) {
+        synchronized (mKey) {
+            getPendingMeta().is_typing = isTyping;
+            scheduleFlush();
+        }
+    }
+
+    public void setUpdating(boolean isUpdating) {
+        synchronized (mKey) {
+            getPendingMeta().is_updating = isUpdating;
+            scheduleFlush();
+        }
+    }
+
+    public void setForegroundViewing(boolean isViewing, boolean isForeground) {
+        synchronized (mKey) {
+            ClientPresenceMeta pendingMeta = getPendingMeta();
+            pendingMeta.is_viewing = isViewing;
+            pendingMeta.is_foreground = isForeground;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Send the pending changes (if any) in a single update, on the calling thread
+     */
+    public void flush() {
+        ClientPresenceMeta pendingMeta = takePendingMeta();
+        if (pendingMeta != null) {
+            mPushCallback.push(pendingMeta);
+        }
+    }
+
+    /**
+     * @return the merged changes since the last flush, null if there are none
+     */
+    @Nullable
+    ClientPresenceMeta takePendingMeta() {
+        synchronized (mKey) {
+            ClientPresenceMeta pendingMeta = mPendingMeta;
+            mPendingMeta = null;
+            mIsFlushScheduled = false;
+            return pendingMeta;
+        }
+    }
+
+    private ClientPresenceMeta getPendingMeta() {
+        if (mPendingMeta == null) {
+            mPendingMeta = new ClientPresenceMeta();
+        }
+        mPendingMeta.last_active_at = System.currentTimeMillis();
+        return mPendingMeta;
+    }
+
+    private void scheduleFlush() {
+        if (mIsFlushScheduled) {
+            return; // merged into the update already scheduled
+        }
+
+        mIsFlushScheduled = true;
+        mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, TICK);
+    }
+
+    /**
+     * Runs the scheduled flushes - the {@link KreWriter}, unless replaced in tests
+     */
+    interface Scheduler {
+        /**
+         * @param task  runs once, after the delay
+         * @param delay in milliseconds
+         */
+        void schedule(Runnable task, long delay);
+    }
+
+    public interface PushCallback {
+        void push(ClientPresenceMeta clientPresenceMeta);
+    }
+}
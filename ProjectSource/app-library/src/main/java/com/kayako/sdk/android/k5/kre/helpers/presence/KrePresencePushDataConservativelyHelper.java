@@ -1,10 +1,9 @@
 package com.kayako.sdk.android.k5.kre.helpers.presence;
 
+import com.kayako.sdk.android.k5.common.utils.KayakoScheduler;
 import com.kayako.sdk.android.k5.kre.base.KreSubscription;
 
 import java.lang.ref.WeakReference;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -26,8 +25,7 @@ public class KrePresencePushDataConservativelyHelper {
     private boolean mAutoDisableEvent;
     private AtomicLong mLastTimePositiveAutoDisableEventTriggeredByClient = new AtomicLong(0); // measures client triggers - not events sent over socket
     private final Object mKey = new Object();
-    private TimerTask mTimerTask;
-    private Timer mTimer;
+    private KayakoScheduler.Token mAutoDisableToken;
 
     public void triggerOperation(final KreSubscription kreSubscription, final boolean state, boolean autoDisableTriggerState) {
         // trigger state event (whatever it may be, eg: typing event) - should be called whenever the state is changed (eg: typing by user)
@@ -46,26 +44,23 @@ public class KrePresencePushDataConservativelyHelper {
     }
 
     private void runAutoDisableStateEvent(final WeakReference<KreSubscription> kreSubscription) {
-        // Cancel running tasks when a new event is triggered
-        if (mTimerTask != null && mTimer != null) {
-            mTimer.cancel();
-            mTimerTask.cancel();
+        // Cancel the scheduled task when a new event is triggered
+        if (mAutoDisableToken != null) {
+            mAutoDisableToken.cancel();
         }
 
         // The last time when the calling class calls the triggerEvent() with state (eg: isTyping) = true
         mLastTimePositiveAutoDisableEventTriggeredByClient.set(System.currentTimeMillis());
 
-        // Set up TimerTask
-        mTimer = new Timer(true);
-        mTimerTask = new TimerTask() {
+        // Scheduled on the shared scheduler - no new thread per keystroke
+        mAutoDisableToken = KayakoScheduler.getInstance().schedule(new Runnable() {
             @Override
             public void run() {
                 synchronized (mKey) {
                     // Assertions
-                    if (kreSubscription == null || kreSubscription.get() == null // if no longer valid, cancel thread
+                    if (kreSubscription == null || kreSubscription.get() == null // if no longer valid
                             || !mAutoDisableEvent // if autoDisableEvent is disasbled
                             || !kreSubscription.get().isConnected()) { // if kreSubscription is no longer properly connected
-                        cancel();
                         return;
                     }
 
@@ -75,9 +70,7 @@ public class KrePresencePushDataConservativelyHelper {
                     }
                 }
             }
-        };
-
-        mTimer.schedule(mTimerTask, FIVE_SECONDS);
+        }, FIVE_SECONDS);
     }
 
     /**
@@ -89,7 +82,7 @@ public class KrePresencePushDataConservativelyHelper {
      * <p>
      * Reason:
      * 1. This is done to prevent multiple calls for the same event.
-     * This is done to prevent multiple trigger threads getting executed leading to java.util.concurrent.RejectedExecutionException
+     * Repeated events only add to the presence meta updates sent over the socket
      * <p>
      * 2. However, it should also ensure the events are sent regularly.
      * Since we're relying on sockets, an agent or customer may open the relevant page at any time. Therefore, regular sending of events are required so that new subscribers will also receive events.
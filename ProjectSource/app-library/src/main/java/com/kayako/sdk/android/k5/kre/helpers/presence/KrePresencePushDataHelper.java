@@ -1,48 +1,99 @@
 package com.kayako.sdk.android.k5.kre.helpers.presence;
 
+import android.support.annotation.NonNull;
+
 import com.kayako.sdk.android.k5.kre.base.KreSubscription;
-import com.kayako.sdk.android.k5.kre.data.ClientForegroundViewing;
-import com.kayako.sdk.android.k5.kre.data.ClientTyping;
-import com.kayako.sdk.android.k5.kre.data.ClientUpdating;
+import com.kayako.sdk.android.k5.kre.data.ClientPresenceMeta;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 public class KrePresencePushDataHelper {
 
     private static final String EVENT_UPDATE_PRESENCE_META = "update-presence-meta";
 
+    // One coalescer per subscription, so that all the states of a channel are merged - whichever class sets them
+    private static final Map<KreSubscription, KrePresencePushDataCoalescer> sCoalescers = new WeakHashMap<>();
+
     private KrePresencePushDataHelper() {
     }
 
+    public static boolean triggerPresenceMetaEvent(KreSubscription kreSubscription, ClientPresenceMeta clientPresenceMeta) {
+        if (kreSubscription.hasSubscribed()) {
+            kreSubscription.triggerEvent(EVENT_UPDATE_PRESENCE_META, clientPresenceMeta);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @deprecated use {@link KrePresenceHelper#triggerClientUpdatingCaseEvent(boolean)}. The state is now merged with the other states of the channel and sent at the next tick.
+     */
+    @Deprecated
     public static boolean triggerUpdatingEvent(KreSubscription kreSubscription, boolean isUpdating) {
         if (kreSubscription.hasSubscribed()) {
-            kreSubscription.triggerEvent(EVENT_UPDATE_PRESENCE_META, new ClientUpdating(isUpdating, System.currentTimeMillis()));
+            getCoalescer(kreSubscription).setUpdating(isUpdating);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * @deprecated use {@link KrePresenceHelper#triggerClientTypingCaseEvent(boolean, boolean)}. The state is now merged with the other states of the channel and sent at the next tick.
+     */
+    @Deprecated
     public static boolean triggerTypingEvent(KreSubscription kreSubscription, boolean isTyping) {
         if (kreSubscription.hasSubscribed()) {
-            kreSubscription.triggerEvent(EVENT_UPDATE_PRESENCE_META, new ClientTyping(isTyping, System.currentTimeMillis()));
+            getCoalescer(kreSubscription).setTyping(isTyping);
             return true;
         } else {
             return false;
         }
-
     }
 
+    /**
+     * @deprecated use {@link KrePresenceHelper#triggerClientForegroundEvent(boolean, boolean)}. The state is now merged with the other states of the channel and sent at the next tick.
+     */
+    @Deprecated
     public static boolean triggerForegroundViewingEvent(KreSubscription kreSubscription, boolean isViewing, boolean isForeground) {
         if (isForeground && !isViewing) {
             throw new IllegalArgumentException("A user first views the case, then keeps it in foreground. Not vice versa!");
         }
 
         if (kreSubscription.hasSubscribed()) {
-            kreSubscription.triggerEvent(EVENT_UPDATE_PRESENCE_META, new ClientForegroundViewing(isViewing, isForeground, System.currentTimeMillis()));
+            getCoalescer(kreSubscription).setForegroundViewing(isViewing, isForeground);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * @param kreSubscription
+     * @return the coalescer that sends the presence meta updates of the subscription, created on first use
+     */
+    @NonNull
+    static KrePresencePushDataCoalescer getCoalescer(@NonNull KreSubscription kreSubscription) {
+        synchronized (sCoalescers) {
+            KrePresencePushDataCoalescer coalescer = sCoalescers.get(kreSubscription);
+            if (coalescer == null) {
+                // Weak reference - the coalescer is a value of sCoalescers and should not keep the subscription from being collected
+                final WeakReference<KreSubscription> subscriptionReference = new WeakReference<>(kreSubscription);
+                coalescer = new KrePresencePushDataCoalescer(new KrePresencePushDataCoalescer.PushCallback() {
+                    @Override
+                    public void push(ClientPresenceMeta clientPresenceMeta) {
+                        KreSubscription subscription = subscriptionReference.get();
+                        if (subscription != null) {
+                            triggerPresenceMetaEvent(subscription, clientPresenceMeta);
+                        }
+                    }
+                });
+                sCoalescers.put(kreSubscription, coalescer);
+            }
+            return coalescer;
+        }
+    }
 }
-
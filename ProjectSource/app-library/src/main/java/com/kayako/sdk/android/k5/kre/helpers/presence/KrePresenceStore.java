@@ -0,0 +1,164 @@
+package com.kayako.sdk.android.k5.kre.helpers.presence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LongSparseArray;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Online users of a presence channel, keyed by user id.
+ * <p>
+ * - presence_state and presence_diff events are applied by looking up only the users in the event - never by going through all online users
+ * - Every change is returned as a {@link PresenceEvent}, in the order the callbacks should be triggered
+ * <p>
+ * Not thread-safe. KrePresenceHelper applies events one at a time.
+ */
+class KrePresenceStore {
+
+    private final LongSparseArray<PresenceUser> mUsers = new LongSparseArray<>();
+
+    public int size() {
+        return mUsers.size();
+    }
+
+    public boolean contains(long userId) {
+        return mUsers.get(userId) != null;
+    }
+
+    @Nullable
+    public PresenceUser get(long userId) {
+        return mUsers.get(userId);
+    }
+
+    /**
+     * Set the users already online, from the first presence_state (or presence_diff) received
+     *
+     * @param users
+     * @return ALREADY_SUBSCRIBED for every user, and ALREADY_VIEWING for the users viewing the case
+     */
+    @NonNull
+    public List<PresenceEvent> applyState(@NonNull Collection<PresenceUser> users) {
+        if (mUsers.size() != 0) {
+            throw new IllegalStateException("Online Users should not have been previously set! Ensure calling class calls this method only once");
+        }
+
+        List<PresenceEvent> viewingEvents = new ArrayList<>();
+        List<PresenceEvent> subscribedEvents = new ArrayList<>(users.size());
+        for (PresenceUser user : users) {
+            PresenceUserHelper.replaceNullMetaValuesWithDefaultValues(user);
+            mUsers.put(user.getUserData().getId(), user);
+
+            if (isViewing(user)) {
+                viewingEvents.add(new PresenceEvent(PresenceEvent.Type.ALREADY_VIEWING, user));
+            }
+            subscribedEvents.add(new PresenceEvent(PresenceEvent.Type.ALREADY_SUBSCRIBED, user));
+        }
+
+        viewingEvents.addAll(subscribedEvents);
+        return viewingEvents;
+    }
+
+    /**
+     * Leaves are applied before joins. A user both leaving and joining in the same diff has only had their meta values changed.
+     *
+     * @param joins users joining, or with changed meta values
+     * @param leaves users leaving, or with meta values being replaced
+     * @return changes to the users in the diff - viewing and activity changes first, then subscription changes
+     */
+    @NonNull
+    public List<PresenceEvent> applyDiff(@NonNull Collection<PresenceUser> joins, @NonNull Collection<PresenceUser> leaves) {
+        LongSparseArray<PresenceUser> joinsById = new LongSparseArray<>(joins.size());
+        for (PresenceUser join : joins) {
+            joinsById.put(join.getUserData().getId(), join);
+        }
+
+        List<PresenceEvent> events = new ArrayList<>();
+        List<PresenceEvent> subscriptionEvents = new ArrayList<>();
+
+        for (PresenceUser leave : leaves) {
+            long userId = leave.getUserData().getId();
+            PresenceUser existingUser = mUsers.get(userId);
+            if (existingUser == null || joinsById.get(userId) != null) {
+                continue; // not online, or only changing meta values
+            }
+
+            mUsers.remove(userId);
+            events.add(new PresenceEvent(PresenceEvent.Type.NO_LONGER_VIEWING, existingUser));
+            subscriptionEvents.add(new PresenceEvent(PresenceEvent.Type.UNSUBSCRIBED, existingUser));
+        }
+
+        for (PresenceUser join : joins) {
+            long userId = join.getUserData().getId();
+            PresenceUser existingUser = mUsers.get(userId);
+
+            setupMetaValuesIfNotComplete(join, existingUser);
+            mUsers.put(userId, join);
+
+            PresenceUser userToCompareWith;
+            if (existingUser != null) {
+                userToCompareWith = existingUser;
+            } else {
+                userToCompareWith = PresenceUserHelper.getDefaultUser(); // All values are set as false - which should trigger for any status = true
+                subscriptionEvents.add(new PresenceEvent(PresenceEvent.Type.SUBSCRIBED, join));
+            }
+
+            PresenceMetaActivityData before = userToCompareWith.getActivityData();
+            PresenceMetaActivityData after = join.getActivityData();
+
+            // Looking at only isForeground - tab is opened and actively being viewed. Not looking at isViewing because of inconsistencies
+            if (before.isForeground().booleanValue() != after.isForeground().booleanValue()) {
+                events.add(new PresenceEvent(after.isForeground() ? PresenceEvent.Type.VIEWING : PresenceEvent.Type.NO_LONGER_VIEWING, join));
+            }
+
+            if (before.getLastActiveAt().longValue() != after.getLastActiveAt().longValue()) {
+                events.add(new PresenceEvent(PresenceEvent.Type.ACTIVE, join));
+            }
+
+            if (before.isUpdating().booleanValue() != after.isUpdating().booleanValue()) {
+                events.add(new PresenceEvent(PresenceEvent.Type.UPDATING, join));
+            }
+
+            if (before.isTyping().booleanValue() != after.isTyping().booleanValue()) {
+                events.add(new PresenceEvent(PresenceEvent.Type.TYPING, join));
+            }
+        }
+
+        events.addAll(subscriptionEvents);
+        return events;
+    }
+
+    /**
+     * This method has been added to fix the following issue that arises when frontend is being used via the same user on multiple clients, expecially with the new KRE rules. (28/FEB/2017)
+     * <p>
+     * The issue?
+     * Sometimes the new user does not contain all necessary meta values. For example, while isTyping is provided in one presence_diff event, the isUpdating event is not provided.
+     * Which leads to the question. What value should I consider for the unprovided values?
+     * <p>
+     * The solution?
+     * 1. If the meta value is provided, use the provided meta value as the final value.
+     * 2. If the meta value is not provided, and the presence_diff is of a NEW user, set the meta value as false by default.
+     * 3. If the meta value is not provided, and the presence_diff is of an EXISTING user, carry forward the meta value from the existing user info.
+     *
+     * @param user
+     * @param existingUser null if the user is new
+     */
+    private static void setupMetaValuesIfNotComplete(@NonNull PresenceUser user, @Nullable PresenceUser existingUser) {
+        if (existingUser != null) {
+            PresenceUserHelper.replaceNullMetaValues(user, existingUser);
+        } else {
+            PresenceUserHelper.replaceNullMetaValuesWithDefaultValues(user);
+        }
+    }
+
+    /**
+     * User is considered online on Case if his activity data has isForeground = true
+     */
+    static boolean isViewing(@NonNull PresenceUser user) {
+        return user.getActivityData() != null
+                && user.getActivityData().isForeground() != null
+                && user.getActivityData().isForeground().booleanValue();
+    }
+}
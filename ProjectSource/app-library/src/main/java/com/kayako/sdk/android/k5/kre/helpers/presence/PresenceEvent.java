@@ -0,0 +1,51 @@
+package com.kayako.sdk.android.k5.kre.helpers.presence;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A change to the presence of a single user, as determined by {@link KrePresenceStore}
+ */
+class PresenceEvent {
+
+    enum Type {
+        ALREADY_SUBSCRIBED, // user in the first presence state
+        ALREADY_VIEWING, // user in the first presence state, with the case in the foreground
+        SUBSCRIBED,
+        UNSUBSCRIBED,
+        VIEWING,
+        NO_LONGER_VIEWING,
+        ACTIVE, // last_active_at changed
+        UPDATING, // is_updating changed
+        TYPING // is_typing changed
+    }
+
+    @NonNull
+    private final Type type;
+
+    @NonNull
+    private final PresenceUser user;
+
+    PresenceEvent(@NonNull Type type, @NonNull PresenceUser user) {
+        this.type = type;
+        this.user = user;
+    }
+
+    @NonNull
+    public Type getType() {
+        return type;
+    }
+
+    @NonNull
+    public PresenceUser getUser() {
+        return user;
+    }
+
+    public long getUserId() {
+        return user.getUserData().getId();
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + getUserId();
+    }
+}
@@ -2,10 +2,6 @@ package com.kayako.sdk.android.k5.kre.helpers.presence;
 
 import android.support.annotation.NonNull;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-
 class PresenceUserHelper {
 
     private static final PresenceUser DEFAULT_PRESENCE_USER = new PresenceUser(0L); // ensures non-null values in activityData and sets default values = false
@@ -13,37 +9,6 @@ class PresenceUserHelper {
     private PresenceUserHelper() {
     }
 
-    public static List<Long> convertToListOfIds(Collection<PresenceUser> presenceUsers) {
-        List<Long> ids = new ArrayList<>();
-        for (PresenceUser presenceUser : presenceUsers) {
-            ids.add(presenceUser.getUserData().getId());
-        }
-        return ids;
-    }
-
-    public static Long convertToId(PresenceUser presenceUser) {
-        return presenceUser.getUserData().getId();
-    }
-
-    public static boolean isExistingUser(Collection<PresenceUser> onlineUsers, long userId) {
-        PresenceUser newUser = new PresenceUser(userId);
-        return onlineUsers.contains(newUser);
-    }
-
-    public static PresenceUser getExistingUser(Collection<PresenceUser> onlineUsers, long userId) {
-        if (!isExistingUser(onlineUsers, userId)) {
-            throw new IllegalStateException("This method should not be called if an existing user is not available! Call isExistingUser() before");
-        }
-
-        for (PresenceUser user : onlineUsers) {
-            if (user.getUserData().getId().equals(userId)) {
-                return user;
-            }
-        }
-
-        throw new IllegalArgumentException("The user should be existing and contained in onlineUsers!");
-    }
-
     public static PresenceUser getDefaultUser() {
         return DEFAULT_PRESENCE_USER; // All values are set as false (default values)
     }
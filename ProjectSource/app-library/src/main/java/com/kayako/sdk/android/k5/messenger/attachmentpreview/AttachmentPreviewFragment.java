@@ -172,6 +172,12 @@ public class AttachmentPreviewFragment extends Fragment implements PopupMenu.OnM
         popup.show();
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mFileAttachmentDownloadHelper.removeListeners();
+    }
+
     @Override
     public boolean onMenuItemClick(MenuItem item) {
         int i = item.getItemId();
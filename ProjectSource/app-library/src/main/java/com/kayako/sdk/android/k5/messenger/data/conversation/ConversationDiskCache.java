@@ -0,0 +1,376 @@
+package com.kayako.sdk.android.k5.messenger.data.conversation;
+
+import android.content.Context;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+import com.kayako.sdk.messenger.conversation.Conversation;
+import com.kayako.sdk.messenger.message.Message;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persists the last-known conversations and the latest messages of each conversation on disk.
+ * <p>
+ * This allows the messenger to paint the conversation list and message list instantly on open (even after process death),
+ * while the network request to reconcile the data is still in progress.
+ * <p>
+ * Layout:
+ * - conversations.json : the most recently updated conversations (at most MAX_CONVERSATIONS)
+ * - messages/{conversationId}.json : the latest messages of a conversation (at most MAX_MESSAGES_PER_CONVERSATION)
+ * <p>
+ * The message files are evicted in least-recently-used order (by last modified time, which is updated on every read and write)
+ * once the total size of the cache exceeds MAX_CACHE_SIZE_IN_BYTES.
+ * <p>
+ * All disk operations run sequentially on a single background thread. Callbacks are posted to the thread the method was called on.
+ */
+public class ConversationDiskCache {
+
+    private static final String TAG = "ConversationDiskCache";
+
+    private static final String DIRECTORY_NAME = "kayako-messenger-cache";
+    private static final String MESSAGES_DIRECTORY_NAME = "messages";
+    private static final String CONVERSATIONS_FILE_NAME = "conversations.json";
+    private static final String FILE_EXTENSION = ".json";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    private static final int MAX_CONVERSATIONS = 50;
+    private static final int MAX_MESSAGES_PER_CONVERSATION = 60; // two pages of messages
+    private static final long MAX_CACHE_SIZE_IN_BYTES = 2 * 1024 * 1024; // 2 MB
+
+    static final Type CONVERSATION_LIST_TYPE = new TypeToken<List<Conversation>>() {
+    }.getType();
+    static final Type MESSAGE_LIST_TYPE = new TypeToken<List<Message>>() {
+    }.getType();
+
+    private static final Gson GSON = new Gson();
+
+    private static final Object key = new Object();
+    private static ConversationDiskCache mInstance;
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true); // files are written to a temporary file first - an interrupted write never leaves a half-written file behind
+            return thread;
+        }
+    });
+    private final AtomicReference<List<Conversation>> mConversationsToSave = new AtomicReference<>();
+
+    private ConversationDiskCache() {
+    }
+
+    public static ConversationDiskCache getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new ConversationDiskCache();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    ////// CONVERSATIONS ////////
+
+    public void loadConversations(@NonNull final OnLoadFromDiskListener<Conversation> listener) {
+        final Handler handler = new Handler();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Conversation> conversations = readList(getConversationsFile(), CONVERSATION_LIST_TYPE);
+                postResult(handler, listener, conversations);
+            }
+        });
+    }
+
+    /**
+     * Save the conversations, replacing whatever was saved before.
+     * <p>
+     * Multiple calls made before the pending save runs are coalesced into a single write of the latest list.
+     *
+     * @param conversations sorted by most recently updated first
+     */
+    public void saveConversations(@NonNull List<Conversation> conversations) {
+        List<Conversation> conversationsToSave = new ArrayList<>(conversations.subList(0, Math.min(conversations.size(), MAX_CONVERSATIONS)));
+        if (mConversationsToSave.getAndSet(conversationsToSave) != null) {
+            return; // a save is already pending and will pick up the latest list
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<Conversation> latestConversations = mConversationsToSave.getAndSet(null);
+                if (latestConversations != null) {
+                    writeList(getConversationsFile(), latestConversations, CONVERSATION_LIST_TYPE);
+                }
+            }
+        });
+    }
+
+    ////// MESSAGES ////////
+
+    public void loadMessages(final long conversationId, @NonNull final OnLoadFromDiskListener<Message> listener) {
+        final Handler handler = new Handler();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File file = getMessagesFile(conversationId);
+                final List<Message> messages = readList(file, MESSAGE_LIST_TYPE);
+                if (messages != null) {
+                    markAsRecentlyUsed(file);
+                }
+                postResult(handler, listener, messages);
+            }
+        });
+    }
+
+    /**
+     * Save the latest messages of a conversation, replacing whatever was saved before for the conversation.
+     *
+     * @param conversationId
+     * @param messages       sorted by oldest message first
+     */
+    public void saveMessages(final long conversationId, @NonNull List<Message> messages) {
+        int size = messages.size();
+        final List<Message> messagesToSave = new ArrayList<>(messages.subList(Math.max(0, size - MAX_MESSAGES_PER_CONVERSATION), size));
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File file = getMessagesFile(conversationId);
+                if (file == null) {
+                    return;
+                }
+
+                writeList(file, messagesToSave, MESSAGE_LIST_TYPE);
+                markAsRecentlyUsed(file);
+                evictLeastRecentlyUsedIfNeeded();
+            }
+        });
+    }
+
+    ////// CLEAR ////////
+
+    public void clear() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mConversationsToSave.set(null);
+                File directory = getCacheDirectory();
+                if (directory != null) {
+                    deleteRecursively(directory);
+                }
+            }
+        });
+    }
+
+    ////// DISK OPERATIONS - only to be called on mExecutor ////////
+
+    private void evictLeastRecentlyUsedIfNeeded() {
+        File messagesDirectory = getMessagesDirectory();
+        File conversationsFile = getConversationsFile();
+        if (messagesDirectory == null || conversationsFile == null) {
+            return;
+        }
+
+        File[] files = messagesDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalSize = conversationsFile.length();
+        for (File file : files) {
+            totalSize += file.length();
+        }
+
+        if (totalSize <= MAX_CACHE_SIZE_IN_BYTES) {
+            return;
+        }
+
+        List<File> filesByLastUsed = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(filesByLastUsed, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long leftLastModified = lhs.lastModified();
+                long rightLastModified = rhs.lastModified();
+
+                // ascending order of time - least recently used first
+                if (leftLastModified == rightLastModified) {
+                    return 0;
+                } else if (leftLastModified < rightLastModified) {
+                    return -1;
+                } else {
+                    return 1;
+                }
+            }
+        });
+
+        // Never evict the most recently used file - it was just written
+        for (int i = 0; i < filesByLastUsed.size() - 1 && totalSize > MAX_CACHE_SIZE_IN_BYTES; i++) {
+            File file = filesByLastUsed.get(i);
+            long length = file.length();
+            if (file.delete()) {
+                totalSize -= length;
+                KayakoLogHelper.d(TAG, "Evicted " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * The SDK models are serialized field by field, so the file is discarded if it can not be read back into them (for example, after an SDK update).
+     *
+     * @return the saved list, null if nothing was saved or the file could not be read
+     */
+    @Nullable
+    static <T> List<T> readList(@Nullable File file, Type type) {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            return GSON.fromJson(reader, type);
+        } catch (Throwable e) {
+            // A corrupt file should never break the messenger - discard it and rely on the network
+            KayakoLogHelper.printStackTrace(TAG, e);
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    static <T> void writeList(@Nullable File file, List<T> items, Type type) {
+        if (file == null) {
+            return;
+        }
+
+        // Write to a temporary file first so that a crash while writing never leaves a half-written file behind
+        File tempFile = new File(file.getPath() + TEMP_FILE_EXTENSION);
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8");
+            GSON.toJson(items, type, writer);
+            writer.close();
+            writer = null;
+
+            if (!tempFile.renameTo(file)) {
+                KayakoLogHelper.e(TAG, "Failed to save " + file.getName());
+                tempFile.delete();
+            }
+        } catch (Throwable e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            tempFile.delete();
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private void markAsRecentlyUsed(File file) {
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    private void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                KayakoLogHelper.printStackTrace(TAG, e);
+            }
+        }
+    }
+
+    @Nullable
+    private File getCacheDirectory() {
+        Context context = Kayako.getApplicationContext();
+        if (context == null) {
+            return null;
+        }
+
+        File directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        if (!directory.exists() && !directory.mkdirs()) {
+            return null;
+        }
+        return directory;
+    }
+
+    @Nullable
+    private File getMessagesDirectory() {
+        File cacheDirectory = getCacheDirectory();
+        if (cacheDirectory == null) {
+            return null;
+        }
+
+        File directory = new File(cacheDirectory, MESSAGES_DIRECTORY_NAME);
+        if (!directory.exists() && !directory.mkdirs()) {
+            return null;
+        }
+        return directory;
+    }
+
+    @Nullable
+    private File getConversationsFile() {
+        File cacheDirectory = getCacheDirectory();
+        return cacheDirectory == null ? null : new File(cacheDirectory, CONVERSATIONS_FILE_NAME);
+    }
+
+    @Nullable
+    private File getMessagesFile(long conversationId) {
+        File messagesDirectory = getMessagesDirectory();
+        return messagesDirectory == null ? null : new File(messagesDirectory, conversationId + FILE_EXTENSION);
+    }
+
+    private <T> void postResult(Handler handler, final OnLoadFromDiskListener<T> listener, @Nullable final List<T> items) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (items == null || items.size() == 0) {
+                    listener.onNothingCached();
+                } else {
+                    listener.onLoad(items);
+                }
+            }
+        });
+    }
+
+    public interface OnLoadFromDiskListener<T> {
+        void onLoad(@NonNull List<T> items);
+
+        void onNothingCached();
+    }
+}
@@ -2,10 +2,9 @@ package com.kayako.sdk.android.k5.messenger.data.conversation;
 
 import android.os.Handler;
 
-import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UniqueSortedUpdatableResourceList;
-import com.kayako.sdk.android.k5.core.MessengerPref;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UniqueSortedResourceIndex;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
 import com.kayako.sdk.android.k5.messenger.data.conversation.unreadcounter.UnreadCounterRepository;
-import com.kayako.sdk.auth.FingerprintAuth;
 import com.kayako.sdk.base.callback.ItemCallback;
 import com.kayako.sdk.base.callback.ListCallback;
 import com.kayako.sdk.error.KayakoException;
@@ -14,14 +13,20 @@ import com.kayako.sdk.messenger.conversation.Conversation;
 import com.kayako.sdk.messenger.conversation.PostConversationBodyParams;
 
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ConversationStore {
 
     private static final Object key = new Object();
     private static ConversationStore mInstance;
 
-    private UniqueSortedUpdatableResourceList<Conversation> mConversations = new UniqueSortedUpdatableResourceList<>();
+    private UniqueSortedResourceIndex<Conversation> mConversations = new UniqueSortedResourceIndex<>();
+    private AtomicBoolean mHasLoadedFromNetwork = new AtomicBoolean(false); // once true, the disk cache is never used to populate the list
+    private final Object mDiskKey = new Object(); // guards the disk paint against the first page loaded from the network
+    private final Set<Long> mConversationIdsFromDisk = new HashSet<>(); // guarded by mDiskKey. Replaced by the first page loaded from the network
 
     private ConversationStore() {
         mConversations.setSortComparator(new Comparator<Conversation>() {
@@ -44,14 +49,12 @@ public class ConversationStore {
     }
 
     /**
-     * Messenger is newly created because otherwise, it doesn't get cleared from memory when the user clears the cache
+     * Messenger is not kept as a field because it has to be rebuilt when the user clears the cache or the fingerprint changes
      *
      * @return
      */
     private Messenger getMessenger() {
-        String url = MessengerPref.getInstance().getUrl();
-        FingerprintAuth fingerprintAuth = new FingerprintAuth(MessengerPref.getInstance().getFingerprintId());
-        return new Messenger(url, fingerprintAuth);
+        return KayakoClientProvider.getMessenger();
     }
 
     public synchronized static ConversationStore getInstance() {
@@ -69,8 +72,17 @@ public class ConversationStore {
         return mConversations.getList();
     }
 
+    /**
+     * @return the conversation if loaded before, else null
+     */
+    public Conversation getCachedConversation(long conversationId) {
+        return mConversations.getElement(conversationId);
+    }
+
     public void getConversation(final long conversationId, final ConversationLoaderCallback callback) {
         final Handler handler = new Handler();
+        final AtomicBoolean hasLoadedFromNetwork = new AtomicBoolean(false);
+
         if (mConversations.exists(conversationId)) {
             handler.post(new Runnable() {
                 @Override
@@ -78,11 +90,33 @@ public class ConversationStore {
                     callback.onLoadConversation(mConversations.getElement(conversationId));
                 }
             });
+        } else {
+            // Cold start - show the last-known conversation from disk while the network request is in progress
+            ConversationDiskCache.getInstance().loadConversations(new ConversationDiskCache.OnLoadFromDiskListener<Conversation>() {
+                @Override
+                public void onLoad(List<Conversation> items) {
+                    if (hasLoadedFromNetwork.get()) {
+                        return;
+                    }
+
+                    for (Conversation item : items) {
+                        if (item.getId() != null && item.getId() == conversationId) {
+                            callback.onLoadConversation(item);
+                            return;
+                        }
+                    }
+                }
+
+                @Override
+                public void onNothingCached() {
+                }
+            });
         }
 
         getMessenger().getConversation(conversationId, new ItemCallback<Conversation>() {
             @Override
             public void onSuccess(final Conversation item) {
+                hasLoadedFromNetwork.set(true);
                 addConversation(item);
                 handler.post(new Runnable() {
                     @Override
@@ -114,15 +148,42 @@ public class ConversationStore {
                     callback.onLoadConversations(getSortedConversations(offset, limit));
                 }
             });
+        } else if (offset == 0 && !mHasLoadedFromNetwork.get()) {
+            // Cold start - paint the last-known conversations from disk while the network request is in progress
+            ConversationDiskCache.getInstance().loadConversations(new ConversationDiskCache.OnLoadFromDiskListener<Conversation>() {
+                @Override
+                public void onLoad(List<Conversation> items) {
+                    synchronized (mDiskKey) {
+                        if (mHasLoadedFromNetwork.get()) {
+                            return; // network data already shown - never replace newer data with older data
+                        }
+
+                        for (Conversation item : items) {
+                            mConversations.addElement(item.getId(), item);
+                            mConversationIdsFromDisk.add(item.getId());
+                        }
+                        UnreadCounterRepository.updateUnreadCounts(items);
+                    }
+
+                    callback.onLoadConversations(getSortedConversations(offset, limit));
+                }
+
+                @Override
+                public void onNothingCached() {
+                }
+            });
         }
 
         getMessenger().getConversationList(offset, limit, new ListCallback<Conversation>() {
             @Override
             public void onSuccess(final List<Conversation> items) {
-
-                for (Conversation item : items) {
-                    addConversation(item);
+                synchronized (mDiskKey) {
+                    mHasLoadedFromNetwork.set(true);
+                    if (offset == 0) {
+                        removeConversationsFromDisk(items);
+                    }
                 }
+                addConversations(items);
 
                 handler.post(new Runnable() {
                     @Override
@@ -181,7 +242,12 @@ public class ConversationStore {
     }
 
     public void clear() {
-        mConversations = new UniqueSortedUpdatableResourceList<>();
+        mConversations = new UniqueSortedResourceIndex<>();
+        synchronized (mDiskKey) {
+            mHasLoadedFromNetwork.set(false);
+            mConversationIdsFromDisk.clear();
+        }
+        ConversationDiskCache.getInstance().clear();
     }
 
     private List<Conversation> getSortedConversations(int offset, int limit) {
@@ -196,7 +262,48 @@ public class ConversationStore {
 
     public void addConversation(Conversation item) {
         mConversations.addElement(item.getId(), item);
-        UnreadCounterRepository.refreshUnreadCounter();
+        synchronized (mDiskKey) {
+            mConversationIdsFromDisk.remove(item.getId());
+        }
+        UnreadCounterRepository.updateUnreadCount(item);
+        ConversationDiskCache.getInstance().saveConversations(getCachedConversations());
+    }
+
+    /**
+     * Add a page of conversations, updating the unread counter and disk cache once for the whole page
+     *
+     * @param items
+     */
+    public void addConversations(List<Conversation> items) {
+        synchronized (mDiskKey) {
+            for (Conversation item : items) {
+                mConversations.addElement(item.getId(), item);
+                mConversationIdsFromDisk.remove(item.getId());
+            }
+        }
+        UnreadCounterRepository.updateUnreadCounts(items);
+        ConversationDiskCache.getInstance().saveConversations(getCachedConversations());
+    }
+
+    /**
+     * The conversations loaded from disk are only shown until the first page is loaded from the network.
+     * Any that are still valid are in the pages loaded from the network - the rest (like deleted conversations) should not stay in the list,
+     * nor be counted as unread.
+     * <p>
+     * Should only be called while holding mDiskKey
+     *
+     * @param firstPage the first page loaded from the network, about to be added - kept, so that their unread counts are updated and not removed
+     */
+    private void removeConversationsFromDisk(List<Conversation> firstPage) {
+        for (Conversation item : firstPage) {
+            mConversationIdsFromDisk.remove(item.getId());
+        }
+
+        for (Long conversationId : mConversationIdsFromDisk) {
+            mConversations.removeElement(conversationId);
+        }
+        UnreadCounterRepository.removeConversations(mConversationIdsFromDisk);
+        mConversationIdsFromDisk.clear();
     }
 
     public interface ConversationLoaderCallback {
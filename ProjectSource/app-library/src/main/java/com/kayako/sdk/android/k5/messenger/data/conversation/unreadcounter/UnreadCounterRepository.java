@@ -1,15 +1,20 @@
 package com.kayako.sdk.android.k5.messenger.data.conversation.unreadcounter;
 
-import com.kayako.sdk.android.k5.messenger.data.conversation.ConversationStore;
 import com.kayako.sdk.messenger.conversation.Conversation;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Track all the unread posts in all conversations.
  * <p>
+ * The unread count of every conversation is remembered so that an update to a conversation only applies the difference
+ * to the total (O(1)) instead of summing the unread counts of all conversations again.
+ * <p>
  * This class needs to be used in every class which loads conversations
  */
 public class UnreadCounterRepository {
@@ -17,6 +22,8 @@ public class UnreadCounterRepository {
     private static final Object sConversationKey = new Object();
 
     private static int sUnreadCounter;
+    private static int sTotalUnreadCount; // includes the unread count of the conversation being viewed
+    private static Map<Long, Integer> sUnreadCountPerConversation = new HashMap<>();
 
     private static final Object sListenerKey = new Object();
     private static List<OnUnreadCountChangeListener> sListeners = new ArrayList<>();
@@ -34,6 +41,8 @@ public class UnreadCounterRepository {
     public static void clear() {
         synchronized (sConversationKey) {
             sUnreadCounter = 0;
+            sTotalUnreadCount = 0;
+            sUnreadCountPerConversation.clear();
             sCurrentConversationBeingViewedId.set(0);
         }
 
@@ -68,22 +77,92 @@ public class UnreadCounterRepository {
         }
     }
 
-    public static void refreshUnreadCounter() {
+    /**
+     * Apply the latest unread count of a single conversation.
+     *
+     * @param conversation newly loaded or updated conversation
+     */
+    public static void updateUnreadCount(Conversation conversation) {
         synchronized (sConversationKey) {
-            int previousCount = sUnreadCounter;
-            sUnreadCounter = 0;
+            applyUnreadCount(conversation);
+            refreshUnreadCounter();
+        }
+    }
 
-            List<Conversation> conversations = ConversationStore.getInstance().getCachedConversations();
+    /**
+     * Apply the latest unread counts of multiple conversations. Listeners are called at most once for the whole batch.
+     *
+     * @param conversations newly loaded or updated conversations
+     */
+    public static void updateUnreadCounts(List<Conversation> conversations) {
+        synchronized (sConversationKey) {
             for (Conversation conversation : conversations) {
-                if (conversation.getReadMarker() != null
-                        && sCurrentConversationBeingViewedId.get() != conversation.getId()) { // skip adding unread count of current conversation if the user is viewing it
-                    sUnreadCounter += conversation.getReadMarker().getUnreadCount();
-                }
+                applyUnreadCount(conversation);
+            }
+            refreshUnreadCounter();
+        }
+    }
+
+    /**
+     * Take the unread count of a conversation out of the total - for a conversation that is no longer listed
+     *
+     * @param conversationId
+     */
+    public static void removeConversation(long conversationId) {
+        synchronized (sConversationKey) {
+            removeUnreadCount(conversationId);
+            refreshUnreadCounter();
+        }
+    }
+
+    /**
+     * Take the unread counts of multiple conversations out of the total. Listeners are called at most once for the whole batch.
+     *
+     * @param conversationIds
+     */
+    public static void removeConversations(Collection<Long> conversationIds) {
+        synchronized (sConversationKey) {
+            for (Long conversationId : conversationIds) {
+                removeUnreadCount(conversationId);
             }
+            refreshUnreadCounter();
+        }
+    }
+
+    public static void refreshUnreadCounter() {
+        synchronized (sConversationKey) {
+            int previousCount = sUnreadCounter;
+
+            // skip adding unread count of current conversation if the user is viewing it
+            Integer currentConversationUnreadCount = sUnreadCountPerConversation.get(sCurrentConversationBeingViewedId.get());
+            sUnreadCounter = sTotalUnreadCount - (currentConversationUnreadCount == null ? 0 : currentConversationUnreadCount);
 
             if (previousCount != sUnreadCounter) { // prevent redundant callbacks
                 callListeners(sUnreadCounter);
             }
         }
     }
+
+    /**
+     * Should only be called while holding sConversationKey
+     */
+    private static void applyUnreadCount(Conversation conversation) {
+        if (conversation == null || conversation.getId() == null) {
+            return;
+        }
+
+        int unreadCount = conversation.getReadMarker() == null ? 0 : conversation.getReadMarker().getUnreadCount();
+        Integer previousUnreadCount = sUnreadCountPerConversation.put(conversation.getId(), unreadCount);
+        sTotalUnreadCount += unreadCount - (previousUnreadCount == null ? 0 : previousUnreadCount);
+    }
+
+    /**
+     * Should only be called while holding sConversationKey
+     */
+    private static void removeUnreadCount(Long conversationId) {
+        Integer previousUnreadCount = sUnreadCountPerConversation.remove(conversationId);
+        if (previousUnreadCount != null) {
+            sTotalUnreadCount -= previousUnreadCount;
+        }
+    }
 }
@@ -3,10 +3,11 @@ package com.kayako.sdk.android.k5.messenger.data.conversation.viewmodel;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UniqueSortedUpdatableResourceList;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UniqueSortedResourceIndex;
 import com.kayako.sdk.android.k5.core.MessengerPref;
 import com.kayako.sdk.messenger.conversation.Conversation;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -26,7 +27,7 @@ import static com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.BotM
  */
 public class ConversationViewModelHelper {
 
-    private UniqueSortedUpdatableResourceList<ConversationViewModel> conversations = new UniqueSortedUpdatableResourceList<>();
+    private UniqueSortedResourceIndex<ConversationViewModel> conversations = new UniqueSortedResourceIndex<>();
 
     public ConversationViewModelHelper() {
         conversations.setSortComparator(new Comparator<ConversationViewModel>() {
@@ -119,7 +120,7 @@ public class ConversationViewModelHelper {
      * @return
      */
     public List<ConversationViewModel> getConversationList() {
-        List<ConversationViewModel> list = conversations.getList();
+        List<ConversationViewModel> list = new ArrayList<>(conversations.getList()); // copy since the snapshot is unmodifiable
         Collections.reverse(list);
         return list;
     }
@@ -2,9 +2,7 @@ package com.kayako.sdk.android.k5.messenger.data.conversationstarter;
 
 import android.os.Handler;
 
-import com.kayako.sdk.android.k5.core.HelpCenterPref;
-import com.kayako.sdk.android.k5.core.MessengerPref;
-import com.kayako.sdk.auth.FingerprintAuth;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
 import com.kayako.sdk.base.callback.ItemCallback;
 import com.kayako.sdk.error.KayakoException;
 import com.kayako.sdk.messenger.Messenger;
@@ -14,18 +12,14 @@ import java.util.concurrent.atomic.AtomicReference;
 
 public class ConversationStarterRepository implements IConversationStarterRepository {
 
-    private Messenger mMessenger;
     private ConversationStarter mConversationStarter; // cached in memory since it's used throughout app
     private final Object key = new Object();
 
     public ConversationStarterRepository() {
-        String fingerprintId = MessengerPref.getInstance().getFingerprintId();
-        if (fingerprintId != null && fingerprintId.length() != 0) {
-            FingerprintAuth fingerprintAuth = new FingerprintAuth(fingerprintId);
-            mMessenger = new Messenger(MessengerPref.getInstance().getUrl(), fingerprintAuth);
-        } else {
-            mMessenger = new Messenger(MessengerPref.getInstance().getUrl());
-        }
+    }
+
+    private Messenger getMessenger() {
+        return KayakoClientProvider.getMessenger();
     }
 
     @Override
@@ -39,7 +33,7 @@ public class ConversationStarterRepository implements IConversationStarterReposi
             }
         }
 
-        mMessenger.getConversationStarter(new ItemCallback<ConversationStarter>() {
+        getMessenger().getConversationStarter(new ItemCallback<ConversationStarter>() {
             @Override
             public void onSuccess(final ConversationStarter item) {
                 synchronized (key) {
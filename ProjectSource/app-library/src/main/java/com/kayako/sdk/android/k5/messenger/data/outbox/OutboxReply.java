@@ -0,0 +1,131 @@
+package com.kayako.sdk.android.k5.messenger.data.outbox;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.kayako.sdk.android.k5.common.utils.file.FileAttachment;
+import com.kayako.sdk.android.k5.common.utils.file.FileAttachmentUtil;
+import com.kayako.sdk.base.requester.AttachmentFile;
+import com.kayako.sdk.messenger.message.MessageSourceType;
+import com.kayako.sdk.messenger.message.PostMessageBodyParams;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reply to an existing conversation that is yet to be sent. Saved on disk by {@link ReplyOutbox} as json.
+ * <p>
+ * Only plain values are kept (no File or FileAttachment objects) so that it can be restored after the process is killed.
+ */
+public class OutboxReply {
+
+    private static final String LANE_MESSAGES = "messages";
+    private static final String LANE_ATTACHMENT = "attachment";
+    private static final String ATTACHMENT_KEY = "attachment"; // same key as the attachments picked on the message page
+
+    private long conversationId;
+    private String clientId;
+    private String message;
+
+    private String attachmentPath;
+    private String attachmentMimeType;
+    private String attachmentName;
+
+    private OutboxReply(long conversationId, @NonNull String clientId) {
+        if (clientId == null) {
+            throw new IllegalArgumentException("Invalid Arguments");
+        }
+
+        this.conversationId = conversationId;
+        this.clientId = clientId;
+    }
+
+    public static OutboxReply createMessageReply(long conversationId, @NonNull String clientId, @NonNull String message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Invalid Arguments");
+        }
+
+        OutboxReply reply = new OutboxReply(conversationId, clientId);
+        reply.message = message;
+        return reply;
+    }
+
+    public static OutboxReply createAttachmentReply(long conversationId, @NonNull String clientId, @NonNull FileAttachment fileAttachment) {
+        if (fileAttachment == null || fileAttachment.getFile() == null) {
+            throw new IllegalArgumentException("Invalid Arguments");
+        }
+
+        OutboxReply reply = new OutboxReply(conversationId, clientId);
+        reply.message = fileAttachment.getName(); // TODO: Find a way to send ONLY attachment without title
+        reply.attachmentPath = fileAttachment.getFile().getPath();
+        reply.attachmentMimeType = fileAttachment.getMimeType();
+        reply.attachmentName = fileAttachment.getName();
+        return reply;
+    }
+
+    public long getConversationId() {
+        return conversationId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isAttachment() {
+        return attachmentPath != null;
+    }
+
+    /**
+     * @return attachment to show for the reply, null if it is not an attachment or the file no longer exists
+     */
+    @Nullable
+    public FileAttachment getAttachment() {
+        if (!isAttachment() || !canBeSent()) {
+            return null;
+        }
+        return FileAttachmentUtil.generateFileAttachment(ATTACHMENT_KEY, new File(attachmentPath));
+    }
+
+    /**
+     * Replies of the same lane are sent strictly one after the other, in the order they were added.
+     * Messages of a conversation share a lane. Every attachment has a lane of its own so that attachments are sent in parallel,
+     * and neither messages nor other attachments are held back by a large attachment.
+     */
+    String getLane() {
+        if (isAttachment()) {
+            return conversationId + "-" + LANE_ATTACHMENT + "-" + clientId;
+        } else {
+            return conversationId + "-" + LANE_MESSAGES;
+        }
+    }
+
+    File getAttachmentFile() {
+        return isAttachment() ? new File(attachmentPath) : null;
+    }
+
+    /**
+     * @return false if the attachment file no longer exists and the reply can never be sent
+     */
+    boolean canBeSent() {
+        return !isAttachment() || new File(attachmentPath).exists();
+    }
+
+    PostMessageBodyParams generatePostMessageBodyParams() {
+        if (!isAttachment()) {
+            return new PostMessageBodyParams(message, MessageSourceType.MESSENGER, clientId);
+        }
+
+        List<AttachmentFile> attachmentFiles = new ArrayList<>();
+        attachmentFiles.add(new AttachmentFile(
+                new File(attachmentPath),
+                attachmentMimeType,
+                attachmentName
+        ));
+        return new PostMessageBodyParams(message, MessageSourceType.MESSENGER, clientId, attachmentFiles);
+    }
+}
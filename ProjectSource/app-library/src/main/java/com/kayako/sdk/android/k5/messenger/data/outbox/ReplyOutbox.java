@@ -0,0 +1,586 @@
+package com.kayako.sdk.android.k5.messenger.data.outbox;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.kayako.sdk.android.k5.common.utils.NetworkUtils;
+import com.kayako.sdk.android.k5.common.utils.file.FileAttachmentUtil;
+import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+import com.kayako.sdk.base.callback.ItemCallback;
+import com.kayako.sdk.error.KayakoException;
+import com.kayako.sdk.messenger.message.Message;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent, ordered outbox of replies to existing conversations.
+ * <p>
+ * Replies are saved on disk before they are sent and only removed once the server has accepted them. The outbox is drained
+ * when a reply is added, when the SDK is initialized (replies left over from a killed process) and when connectivity is restored -
+ * whether the message page is open or not.
+ * <p>
+ * Ordering is the same as AddReplyHelper: replies of a lane (see {@link OutboxReply#getLane()}) are sent one at a time, in the
+ * order they were added. A failed reply is kept, and holds back the rest of its lane until it is sent. Retries reuse the client id of the reply,
+ * so a reply that reached the server before the connection dropped is not added twice. Attachments are sent in parallel, at most
+ * MAX_ATTACHMENTS_SENDING at a time.
+ * <p>
+ * The outbox owns the attachment files of its replies, and deletes them once they are sent.
+ * <p>
+ * All state is accessed on a single background thread. Listeners are called once, on the thread the reply was sent from.
+ */
+public class ReplyOutbox {
+
+    private static final String TAG = "ReplyOutbox";
+
+    private static final String DIRECTORY_NAME = "kayako-messenger-outbox";
+    private static final String OUTBOX_FILE_NAME = "outbox.json";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    private static final int MAX_SENT_REPLIES = 50;
+    static final int MAX_ATTACHMENTS_SENDING = 3; // the only limit on attachments being sent - AddReplyHelper hands over every attachment right away
+
+    private static final Type OUTBOX_REPLY_LIST_TYPE = new TypeToken<List<OutboxReply>>() {
+    }.getType();
+
+    private static final Object key = new Object();
+    private static ReplyOutbox mInstance;
+
+    private final Gson mGson = new Gson();
+    private final Executor mExecutor;
+    private final Backend mBackend;
+    private final AtomicBoolean mIsStarted = new AtomicBoolean(false);
+
+    // Only accessed on mExecutor
+    private List<OutboxReply> mReplies; // null until loaded from disk
+    private final Set<String> mLanesInFlight = new HashSet<>();
+    private int mAttachmentsInFlight;
+    private final Set<String> mFailedClientIds = new HashSet<>(); // not retried until the next reply, resend or connectivity change
+    private final Map<String, ListenerRegistration> mListeners = new HashMap<>();
+    private final Map<String, Message> mSentReplies = new LinkedHashMap<String, Message>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Message> eldest) {
+            return size() > MAX_SENT_REPLIES;
+        }
+    };
+
+    private ReplyOutbox() {
+        this(Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true); // the outbox is saved on disk before a reply is sent, so nothing is lost if the process exits
+                return thread;
+            }
+        }), new DefaultBackend());
+    }
+
+    /**
+     * @param executor should run tasks one at a time, in the order they were submitted
+     */
+    ReplyOutbox(@NonNull Executor executor, @NonNull Backend backend) {
+        mExecutor = executor;
+        mBackend = backend;
+    }
+
+    public static ReplyOutbox getInstance() {
+        if (mInstance == null) {
+            synchronized (key) {
+                if (mInstance == null) {
+                    return mInstance = new ReplyOutbox();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * Send the replies left over from before and keep draining the outbox whenever connectivity is restored.
+     * Should be called once the SDK is initialized.
+     */
+    public void start() {
+        if (mIsStarted.getAndSet(true)) {
+            return;
+        }
+
+        Context context = Kayako.getApplicationContext();
+        if (context != null) {
+            context.registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    if (NetworkUtils.isConnectedToNetwork(context)) {
+                        drain();
+                    }
+                }
+            }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        }
+
+        drain();
+    }
+
+    /**
+     * Add a reply to the outbox and send it as soon as possible. Adding a reply that is already in the outbox (same client id) only retries it.
+     *
+     * @param listener called once the reply is sent or fails to send. Replaces any listener set before for the same reply.
+     */
+    public void send(@NonNull final OutboxReply reply, @Nullable final OnReplySentListener listener) {
+        final Executor callbackExecutor = listener == null ? null : mBackend.getCallingThreadExecutor();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+
+                String clientId = reply.getClientId();
+                if (listener == null) {
+                    mListeners.remove(clientId);
+                } else {
+                    mListeners.put(clientId, new ListenerRegistration(callbackExecutor, listener));
+                }
+
+                Message sentMessage = mSentReplies.get(clientId);
+                if (sentMessage != null) {
+                    notifySuccess(clientId, sentMessage); // already sent in the background
+                    return;
+                }
+
+                if (findReply(clientId) == null) {
+                    mReplies.add(reply);
+                    save();
+                }
+
+                mFailedClientIds.clear();
+                drainOnExecutor();
+            }
+        });
+    }
+
+    /**
+     * Load the replies of a conversation that are yet to be sent, in the order they were added - so that a reopened page can show them.
+     * Sending them again (same client id) only registers a listener and retries them.
+     *
+     * @param listener called on the calling thread
+     */
+    public void getPendingReplies(final long conversationId, @NonNull final OnLoadPendingRepliesListener listener) {
+        final Executor callbackExecutor = mBackend.getCallingThreadExecutor();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+
+                final List<OutboxReply> pendingReplies = new ArrayList<>();
+                for (OutboxReply reply : mReplies) {
+                    if (reply.getConversationId() == conversationId) {
+                        pendingReplies.add(reply);
+                    }
+                }
+
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onLoad(pendingReplies);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Send the first reply of every lane that is not already being sent
+     */
+    public void drain() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+                mFailedClientIds.clear();
+                drainOnExecutor();
+            }
+        });
+    }
+
+    /**
+     * Stop calling back the listeners of replies being sent. The replies are still sent.
+     */
+    public void removeListeners() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mListeners.clear();
+            }
+        });
+    }
+
+    /**
+     * Discard all replies yet to be sent. Should be called when the user clears the cache.
+     */
+    public void clear() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mReplies = new ArrayList<>();
+                mListeners.clear();
+                mSentReplies.clear();
+                mFailedClientIds.clear();
+
+                File file = getOutboxFile();
+                if (file != null) {
+                    file.delete();
+                }
+
+                FileAttachmentUtil.clearSavedAttachments();
+            }
+        });
+    }
+
+    /**
+     * Delete the saved attachment files that no reply in the outbox is waiting to send (eg: picked but never sent, or left behind by a closed page)
+     */
+    public void clearSavedAttachmentsNotInOutbox() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+
+                Set<String> fileNamesToKeep = new HashSet<>();
+                for (OutboxReply reply : mReplies) {
+                    File file = reply.getAttachmentFile();
+                    if (file != null) {
+                        fileNamesToKeep.add(file.getName());
+                    }
+                }
+                mBackend.clearSavedAttachmentsExcept(fileNamesToKeep);
+            }
+        });
+    }
+
+    ////// SENDING - only to be called on mExecutor ////////
+
+    private void drainOnExecutor() {
+        if (mReplies.isEmpty() || !mBackend.isConnectedToNetwork()) {
+            return; // drained again when connectivity is restored
+        }
+
+        Set<String> lanes = new HashSet<>();
+        boolean removedReplies = false;
+
+        Iterator<OutboxReply> iterator = mReplies.iterator();
+        while (iterator.hasNext()) {
+            OutboxReply reply = iterator.next();
+            if (!reply.canBeSent()) {
+                KayakoLogHelper.e(TAG, "Attachment file no longer exists, discarding reply " + reply.getClientId());
+                iterator.remove();
+                removedReplies = true;
+                notifyFailure(reply.getClientId());
+                continue;
+            }
+
+            String lane = reply.getLane();
+            if (lanes.add(lane) && !mLanesInFlight.contains(lane)) { // only the first reply of a lane
+                if (mFailedClientIds.contains(reply.getClientId())) {
+                    continue; // holds back the rest of its lane
+                }
+
+                if (reply.isAttachment() && mAttachmentsInFlight >= MAX_ATTACHMENTS_SENDING) {
+                    continue; // sent once another attachment is sent
+                }
+
+                post(reply);
+            }
+        }
+
+        if (removedReplies) {
+            save();
+        }
+    }
+
+    private void post(final OutboxReply reply) {
+        mLanesInFlight.add(reply.getLane());
+        if (reply.isAttachment()) {
+            mAttachmentsInFlight++;
+        }
+
+        mBackend.postMessage(reply, new ItemCallback<Message>() {
+            @Override
+            public void onSuccess(final Message item) {
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSent(reply, item);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(KayakoException exception) {
+                KayakoLogHelper.printStackTrace(TAG, exception);
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFailedToSend(reply);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onSent(OutboxReply reply, Message message) {
+        onPostCompleted(reply);
+        if (!mReplies.remove(reply)) {
+            return; // cleared while sending
+        }
+
+        deleteAttachmentFile(reply);
+        mSentReplies.put(reply.getClientId(), message);
+        save();
+        notifySuccess(reply.getClientId(), message);
+
+        drainOnExecutor(); // next reply of the lane
+    }
+
+    private void onFailedToSend(OutboxReply reply) {
+        onPostCompleted(reply);
+        if (!mReplies.contains(reply)) {
+            return; // cleared while sending
+        }
+
+        // Kept until it is sent, so that the user can retry it. Not retried right away - the next reply, manual resend or connectivity change triggers it
+        mFailedClientIds.add(reply.getClientId());
+        notifyFailure(reply.getClientId());
+
+        drainOnExecutor(); // Other lanes (like attachments waiting for a free slot) are not held back by this failure
+    }
+
+    private void onPostCompleted(OutboxReply reply) {
+        mLanesInFlight.remove(reply.getLane());
+        if (reply.isAttachment()) {
+            mAttachmentsInFlight--;
+        }
+    }
+
+    private void deleteAttachmentFile(OutboxReply reply) {
+        File file = reply.getAttachmentFile();
+        if (file != null) {
+            FileAttachmentUtil.clearSavedAttachment(file);
+        }
+    }
+
+    @Nullable
+    private OutboxReply findReply(String clientId) {
+        for (OutboxReply reply : mReplies) {
+            if (reply.getClientId().equals(clientId)) {
+                return reply;
+            }
+        }
+        return null;
+    }
+
+    private void notifySuccess(String clientId, final Message message) {
+        final ListenerRegistration registration = mListeners.remove(clientId);
+        if (registration != null) {
+            registration.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    registration.listener.onSuccess(message);
+                }
+            });
+        }
+    }
+
+    private void notifyFailure(final String clientId) {
+        final ListenerRegistration registration = mListeners.remove(clientId);
+        if (registration != null) {
+            registration.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    registration.listener.onFailure(clientId);
+                }
+            });
+        }
+    }
+
+    ////// DISK OPERATIONS - only to be called on mExecutor ////////
+
+    private void ensureLoaded() {
+        if (mReplies != null) {
+            return;
+        }
+
+        mReplies = new ArrayList<>();
+
+        File file = getOutboxFile();
+        if (file == null || !file.exists()) {
+            return;
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            List<OutboxReply> replies = mGson.fromJson(reader, OUTBOX_REPLY_LIST_TYPE);
+            if (replies != null) {
+                mReplies.addAll(replies);
+            }
+        } catch (Throwable e) {
+            // A corrupt file should never break the messenger - the replies in it are lost
+            KayakoLogHelper.printStackTrace(TAG, e);
+            file.delete();
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void save() {
+        File file = getOutboxFile();
+        if (file == null) {
+            return;
+        }
+
+        // Write to a temporary file first so that a crash while writing never loses the replies saved before
+        File tempFile = new File(file.getPath() + TEMP_FILE_EXTENSION);
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8");
+            mGson.toJson(mReplies, OUTBOX_REPLY_LIST_TYPE, writer);
+            writer.close();
+            writer = null;
+
+            if (!tempFile.renameTo(file)) {
+                KayakoLogHelper.e(TAG, "Failed to save " + file.getName());
+                tempFile.delete();
+            }
+        } catch (Throwable e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            tempFile.delete();
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                KayakoLogHelper.printStackTrace(TAG, e);
+            }
+        }
+    }
+
+    @Nullable
+    private File getOutboxFile() {
+        File directory = mBackend.getDirectory();
+        if (directory == null || (!directory.exists() && !directory.mkdirs())) {
+            return null;
+        }
+        return new File(directory, OUTBOX_FILE_NAME);
+    }
+
+    private static class ListenerRegistration {
+        final Executor executor;
+        final OnReplySentListener listener;
+
+        ListenerRegistration(Executor executor, OnReplySentListener listener) {
+            this.executor = executor;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Everything the outbox needs from the app and the network
+     */
+    interface Backend {
+
+        /**
+         * @return directory to save the outbox in, null if not available
+         */
+        @Nullable
+        File getDirectory();
+
+        boolean isConnectedToNetwork();
+
+        void postMessage(OutboxReply reply, ItemCallback<Message> callback);
+
+        /**
+         * @return executor that runs listener callbacks on the calling thread
+         */
+        Executor getCallingThreadExecutor();
+
+        void clearSavedAttachmentsExcept(Set<String> fileNamesToKeep);
+    }
+
+    private static class DefaultBackend implements Backend {
+
+        @Nullable
+        @Override
+        public File getDirectory() {
+            Context context = Kayako.getApplicationContext();
+            return context == null ? null : new File(context.getFilesDir(), DIRECTORY_NAME);
+        }
+
+        @Override
+        public boolean isConnectedToNetwork() {
+            Context context = Kayako.getApplicationContext();
+            return context != null && NetworkUtils.isConnectedToNetwork(context);
+        }
+
+        @Override
+        public void postMessage(OutboxReply reply, ItemCallback<Message> callback) {
+            KayakoClientProvider.getMessenger().postMessage(reply.getConversationId(), reply.generatePostMessageBodyParams(), callback);
+        }
+
+        @Override
+        public Executor getCallingThreadExecutor() {
+            final Handler handler = new Handler();
+            return new Executor() {
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    handler.post(command);
+                }
+            };
+        }
+
+        @Override
+        public void clearSavedAttachmentsExcept(Set<String> fileNamesToKeep) {
+            FileAttachmentUtil.clearSavedAttachmentsExcept(fileNamesToKeep);
+        }
+    }
+
+    public interface OnReplySentListener {
+        void onSuccess(Message message); // message contains clientId
+
+        void onFailure(String clientId);
+    }
+
+    public interface OnLoadPendingRepliesListener {
+        void onLoad(List<OutboxReply> replies);
+    }
+}
@@ -0,0 +1,38 @@
+package com.kayako.sdk.android.k5.messenger.data.realtime;
+
+import android.support.annotation.Nullable;
+
+import com.kayako.sdk.android.k5.kre.data.Change;
+
+/**
+ * Decides if a KRE CHANGE event needs the conversation to be loaded again via the REST API.
+ * <p>
+ * The payload only contains a few timestamps and ids, and the conversation model can not be modified. So changes are never applied
+ * from the payload - but an event for a change that the cached conversation already has (like the echo of a reply sent by the
+ * user, or an event repeated after a reconnect) does not need the conversation to be loaded again.
+ */
+class ConversationChangeHelper {
+
+    private ConversationChangeHelper() {
+    }
+
+    /**
+     * The updated_at of a conversation changes on every change to it. A CHANGE event with the same updated_at as the cached
+     * conversation is for a change that was already loaded - whatever other properties it contains.
+     *
+     * @param cachedUpdatedAt updatedAt of the last known conversation (in milliseconds), null if not loaded before
+     * @param change          KRE CHANGE event
+     * @return true if the cached conversation already has the change, false if the conversation should be loaded via the REST API
+     */
+    static boolean isChangeLoaded(@Nullable Long cachedUpdatedAt, @Nullable Change change) {
+        if (cachedUpdatedAt == null
+                || change == null
+                || change.getChangedProperties() == null
+                || change.getChangedProperties().getUpdatedAt() == null) {
+            return false;
+        }
+
+        long updatedAt = change.getChangedProperties().getUpdatedAt() * 1000; // payload is in seconds, conversation is in milliseconds
+        return updatedAt == cachedUpdatedAt;
+    }
+}
@@ -1,7 +1,6 @@
 package com.kayako.sdk.android.k5.messenger.data.realtime;
 
-import com.kayako.sdk.android.k5.core.MessengerPref;
-import com.kayako.sdk.auth.FingerprintAuth;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
 import com.kayako.sdk.base.callback.ItemCallback;
 import com.kayako.sdk.messenger.Messenger;
 import com.kayako.sdk.messenger.conversation.Conversation;
@@ -13,10 +12,7 @@ public class LoadResourceHelper {
     }
 
     private static Messenger getMessenger() {
-        String url = MessengerPref.getInstance().getUrl();
-        String fingerprintId = MessengerPref.getInstance().getFingerprintId();
-
-        return new Messenger(url, new FingerprintAuth(fingerprintId));
+        return KayakoClientProvider.getMessenger();
     }
 
     public static void loadConversation(long conversationId, ItemCallback<Conversation> conversationItemCallback) {
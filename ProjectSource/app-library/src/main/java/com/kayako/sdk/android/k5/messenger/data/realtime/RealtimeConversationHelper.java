@@ -49,7 +49,12 @@ public class RealtimeConversationHelper {
     private static Set<OnConversationUserOnlineListener> sOnConversationUserOnlineListeners = new HashSet<>();
 
     private static final Object mActiveUsersKey = new Object();
-    private static LongSparseArray<Set<Long>> sMapActiveUsers = new LongSparseArray<>();
+    private static LongSparseArray<LongSparseArray<Boolean>> sMapActiveUsers = new LongSparseArray<>(); // conversation id -> ids of the users viewing it (only the keys are used)
+
+    // A single change to a conversation results in multiple KRE events - load each resource once for all of them
+    private static final long DEFAULT_DEBOUNCE_TIME = 300; // milliseconds
+    private static final RealtimeRequestCoalescer<Long> sConversationRequests = new RealtimeRequestCoalescer<>(DEFAULT_DEBOUNCE_TIME);
+    private static final RealtimeRequestCoalescer<Long> sMessageRequests = new RealtimeRequestCoalescer<>(DEFAULT_DEBOUNCE_TIME);
 
     private RealtimeConversationHelper() {
     }
@@ -114,27 +119,10 @@ public class RealtimeConversationHelper {
                     public void onCaseChange(Change change) {
                         KayakoLogHelper.d(TAG, "onCaseChange()");
 
-                        LoadResourceHelper.loadConversation(conversationId, new ItemCallback<Conversation>() {
-                            @Override
-                            public void onSuccess(final Conversation conversation) {
-                                // Cache all conversations in the ConversationStore
-                                ConversationStore.getInstance().addConversation(conversation);
-
-                                handler.post(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        for (OnConversationChangeListener onConversationChangeListener : sOnConversationChangeListeners) {
-                                            onConversationChangeListener.onChange(conversation);
-                                        }
-                                    }
-                                });
-                            }
-
-                            @Override
-                            public void onFailure(KayakoException exception) {
-                                KayakoLogHelper.printStackTrace(TAG, exception);
-                            }
-                        });
+                        Conversation cachedConversation = ConversationStore.getInstance().getCachedConversation(conversationId);
+                        if (cachedConversation == null || !ConversationChangeHelper.isChangeLoaded(cachedConversation.getUpdatedAt(), change)) {
+                            loadConversationAndNotifyChange(conversationId, handler);
+                        }
                     }
 
                     @Override
@@ -143,6 +131,16 @@ public class RealtimeConversationHelper {
                     }
                 });
 
+                kreCaseSubscription.addReconnectListener(new KreSubscription.OnReconnectListener() {
+                    @Override
+                    public void onReconnect() {
+                        // Events may have been missed while disconnected. A single conversation fetch is enough to catch up -
+                        // listeners reload the latest messages only if the conversation's lastRepliedAt has changed
+                        KayakoLogHelper.d(TAG, "onReconnect()");
+                        loadConversationAndNotifyChange(conversationId, handler);
+                    }
+                });
+
                 kreCaseSubscription.addMinimalClientTypingListener(new MinimalClientTypingListener() {
                     @Override
                     public void onUserTyping(final long userId, final String userName, final String userAvatar, final boolean isTyping) {
@@ -179,25 +177,12 @@ public class RealtimeConversationHelper {
 
                     @Override
                     public void onChangePost(final long messageId) {
-                        LoadResourceHelper.loadMessage(conversationId, messageId, new ItemCallback<Message>() {
-                            @Override
-                            public void onSuccess(final Message item) {
+                        // The payload has no message fields, so the message has to be loaded - but only if someone is showing messages
+                        if (sOnConversationMessagesChangeListeners.isEmpty()) {
+                            return;
+                        }
 
-                                handler.post(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        for (OnConversationMessagesChangeListener onConversationMessagesChangeListener : sOnConversationMessagesChangeListeners) {
-                                            onConversationMessagesChangeListener.onUpdateMessage(conversationId, item);
-                                        }
-                                    }
-                                });
-                            }
-
-                            @Override
-                            public void onFailure(KayakoException exception) {
-                                KayakoLogHelper.printStackTrace(TAG, exception);
-                            }
-                        });
+                        loadMessageAndNotifyChange(conversationId, messageId, handler);
                     }
 
                     @Override
@@ -208,7 +193,7 @@ public class RealtimeConversationHelper {
 
                 kreCaseSubscription.addUserPresenceListener(new RawUserOnCasePresenceListener() {
                     @Override
-                    public void onUsersAlreadyViewingCase(final List<Long> onlineUserIds, long entryTime) {
+                    public void onUsersAlreadyViewingCase(final List<Long> onlineUserIds, final long entryTime) {
                         handler.post(new Runnable() {
                             @Override
                             public void run() {
@@ -219,9 +204,10 @@ public class RealtimeConversationHelper {
 
                                 // Save state BEFORE CALLBACKS
                                 synchronized (mActiveUsersKey) {
-                                    Set<Long> activeUsers = getActiveUsers(conversationId);
-                                    activeUsers.addAll(onlineUserIds);
-                                    sMapActiveUsers.put(conversationId, activeUsers);
+                                    LongSparseArray<Boolean> activeUsers = getOrCreateActiveUsers(conversationId);
+                                    for (Long userId : onlineUserIds) {
+                                        activeUsers.put(userId, Boolean.TRUE);
+                                    }
                                 }
 
                                 // Callbacks
@@ -237,7 +223,7 @@ public class RealtimeConversationHelper {
                     }
 
                     @Override
-                    public void onNewUserViewingCase(final Long onlineUser, long entryTime) {
+                    public void onNewUserViewingCase(final Long onlineUser, final long entryTime) {
                         handler.post(new Runnable() {
                             @Override
                             public void run() {
@@ -245,9 +231,7 @@ public class RealtimeConversationHelper {
 
                                     // Save state BEFORE CALLBACKS
                                     synchronized (mActiveUsersKey) {
-                                        Set<Long> activeUsers = getActiveUsers(conversationId);
-                                        activeUsers.add(onlineUser);
-                                        sMapActiveUsers.put(conversationId, activeUsers);
+                                        getOrCreateActiveUsers(conversationId).put(onlineUser, Boolean.TRUE);
                                     }
 
                                     // Callbacks
@@ -270,9 +254,7 @@ public class RealtimeConversationHelper {
 
                                     // Save state BEFORE CALLBACKS
                                     synchronized (mActiveUsersKey) {
-                                        Set<Long> activeUsers = getActiveUsers(conversationId);
-                                        activeUsers.remove(offlineUserId);
-                                        sMapActiveUsers.put(conversationId, activeUsers);
+                                        getOrCreateActiveUsers(conversationId).remove(offlineUserId);
                                     }
 
                                     // Callbacks
@@ -308,6 +290,69 @@ public class RealtimeConversationHelper {
         };
     }
 
+    private static void loadConversationAndNotifyChange(final long conversationId, final Handler handler) {
+        sConversationRequests.request(conversationId, new RealtimeRequestCoalescer.Request() {
+            @Override
+            public void execute(final RealtimeRequestCoalescer.OnRequestCompleteListener listener) {
+                LoadResourceHelper.loadConversation(conversationId, new ItemCallback<Conversation>() {
+                    @Override
+                    public void onSuccess(final Conversation conversation) {
+                        addConversationAndNotifyChange(conversation, handler);
+                        listener.onComplete();
+                    }
+
+                    @Override
+                    public void onFailure(KayakoException exception) {
+                        KayakoLogHelper.printStackTrace(TAG, exception);
+                        listener.onComplete();
+                    }
+                });
+            }
+        });
+    }
+
+    private static void loadMessageAndNotifyChange(final long conversationId, final long messageId, final Handler handler) {
+        sMessageRequests.request(messageId, new RealtimeRequestCoalescer.Request() {
+            @Override
+            public void execute(final RealtimeRequestCoalescer.OnRequestCompleteListener listener) {
+                LoadResourceHelper.loadMessage(conversationId, messageId, new ItemCallback<Message>() {
+                    @Override
+                    public void onSuccess(final Message item) {
+                        handler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                for (OnConversationMessagesChangeListener onConversationMessagesChangeListener : sOnConversationMessagesChangeListeners) {
+                                    onConversationMessagesChangeListener.onUpdateMessage(conversationId, item);
+                                }
+                            }
+                        });
+                        listener.onComplete();
+                    }
+
+                    @Override
+                    public void onFailure(KayakoException exception) {
+                        KayakoLogHelper.printStackTrace(TAG, exception);
+                        listener.onComplete();
+                    }
+                });
+            }
+        });
+    }
+
+    private static void addConversationAndNotifyChange(final Conversation conversation, final Handler handler) {
+        // Cache all conversations in the ConversationStore
+        ConversationStore.getInstance().addConversation(conversation);
+
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (OnConversationChangeListener onConversationChangeListener : sOnConversationChangeListeners) {
+                    onConversationChangeListener.onChange(conversation);
+                }
+            }
+        });
+    }
+
     private static void unsubscribe(String conversationPresenceChannelName, KreSubscription.OnSubscriptionListener onSubscriptionListener) {
         if (!sMapSubscriptions.containsKey(conversationPresenceChannelName)) {
             throw new IllegalStateException("Can not call unsubscribe before subcribe is called!");
@@ -337,6 +382,9 @@ public class RealtimeConversationHelper {
         sOnConversationMessagesChangeListeners.clear();
         sMapActiveUsers.clear();
 
+        sConversationRequests.clear();
+        sMessageRequests.clear();
+
         // DO NOT untrack onClose and onOpen
     }
 
@@ -409,14 +457,58 @@ public class RealtimeConversationHelper {
         sOnConversationUserOnlineListeners.remove(listener);
     }
 
+    /**
+     * @param debounceTime time in milliseconds to wait for more realtime events before loading a changed conversation or message
+     */
+    public static void setDebounceTime(long debounceTime) {
+        sConversationRequests.setDebounceTime(debounceTime);
+        sMessageRequests.setDebounceTime(debounceTime);
+    }
+
+    /**
+     * @return coalescer of the conversations loaded due to realtime events - use for its counters
+     */
+    public static RealtimeRequestCoalescer<Long> getConversationRequests() {
+        return sConversationRequests;
+    }
+
+    /**
+     * @return coalescer of the messages loaded due to realtime events - use for its counters
+     */
+    public static RealtimeRequestCoalescer<Long> getMessageRequests() {
+        return sMessageRequests;
+    }
+
+    /**
+     * @return ids of the users viewing the conversation - a copy, changes to it are not saved
+     */
     @NonNull
     public static Set<Long> getActiveUsers(long conversationId) {
         synchronized (mActiveUsersKey) {
-            if (sMapActiveUsers == null) {
-                throw new IllegalStateException("No yet initialized! Method called too soon!");
+            Set<Long> userIds = new HashSet<>();
+            LongSparseArray<Boolean> activeUsers = sMapActiveUsers.get(conversationId);
+            if (activeUsers != null) {
+                for (int i = 0; i < activeUsers.size(); i++) {
+                    userIds.add(activeUsers.keyAt(i));
+                }
             }
+            return userIds;
+        }
+    }
+
+    public static boolean isActiveUser(long conversationId, long userId) {
+        synchronized (mActiveUsersKey) {
+            LongSparseArray<Boolean> activeUsers = sMapActiveUsers.get(conversationId);
+            return activeUsers != null && activeUsers.get(userId) != null;
+        }
+    }
 
-            return sMapActiveUsers.get(conversationId, new HashSet<Long>()); // Return empty set that can be added to! Not null!
+    private static LongSparseArray<Boolean> getOrCreateActiveUsers(long conversationId) {
+        LongSparseArray<Boolean> activeUsers = sMapActiveUsers.get(conversationId);
+        if (activeUsers == null) {
+            activeUsers = new LongSparseArray<>();
+            sMapActiveUsers.put(conversationId, activeUsers);
         }
+        return activeUsers;
     }
 }
@@ -0,0 +1,200 @@
+package com.kayako.sdk.android.k5.messenger.data.realtime;
+
+import android.support.annotation.NonNull;
+
+import com.kayako.sdk.android.k5.common.utils.KayakoScheduler;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the requests triggered by realtime events for the same resource (conversation id, message id).
+ * <p>
+ * A single change on the server usually results in multiple KRE events within milliseconds. Instead of making a request for every event:
+ * - A request is only made after the debounce time, so that events received within that time result in a single request
+ * - At most one request is in flight for a resource. Events received while it is running result in one follow-up request once it completes.
+ * <p>
+ * The follow-up request always uses the latest {@link Request} passed for the resource.
+ *
+ * @param <K> resource identifier
+ */
+public class RealtimeRequestCoalescer<K> {
+
+    private static final String TAG = "RealtimeRequestCoalescer";
+
+    private static final Scheduler DEFAULT_SCHEDULER = new Scheduler() {
+        @Override
+        public Cancellable schedule(Runnable task, long delay) {
+            final KayakoScheduler.Token token = KayakoScheduler.getInstance().schedule(task, delay);
+            return new Cancellable() {
+                @Override
+                public void cancel() {
+                    token.cancel();
+                }
+            };
+        }
+    };
+
+    private final Map<K, PendingRequest> mPendingRequests = new HashMap<>();
+    private final AtomicLong mEventsReceived = new AtomicLong(0);
+    private final AtomicLong mRequestsIssued = new AtomicLong(0);
+    private final Scheduler mScheduler;
+    private volatile long mDebounceTime;
+
+    /**
+     * @param debounceTime time in milliseconds to wait for more events before making a request
+     */
+    public RealtimeRequestCoalescer(long debounceTime) {
+        this(debounceTime, DEFAULT_SCHEDULER);
+    }
+
+    RealtimeRequestCoalescer(long debounceTime, @NonNull Scheduler scheduler) {
+        mScheduler = scheduler;
+        setDebounceTime(debounceTime);
+    }
+
+    public void setDebounceTime(long debounceTime) {
+        if (debounceTime < 0) {
+            throw new IllegalArgumentException("Debounce time can not be negative");
+        }
+        mDebounceTime = debounceTime;
+    }
+
+    public long getDebounceTime() {
+        return mDebounceTime;
+    }
+
+    /**
+     * @return number of realtime events that asked for a request
+     */
+    public long getEventsReceived() {
+        return mEventsReceived.get();
+    }
+
+    /**
+     * @return number of requests actually made
+     */
+    public long getRequestsIssued() {
+        return mRequestsIssued.get();
+    }
+
+    public synchronized void request(@NonNull K key, @NonNull Request request) {
+        mEventsReceived.incrementAndGet();
+
+        PendingRequest pendingRequest = mPendingRequests.get(key);
+        if (pendingRequest == null) {
+            pendingRequest = new PendingRequest(request);
+            mPendingRequests.put(key, pendingRequest);
+            schedule(key, pendingRequest);
+        } else {
+            pendingRequest.request = request;
+            if (pendingRequest.inFlight) {
+                pendingRequest.requestAgain = true;
+            } // else already scheduled - coalesced with the scheduled request
+        }
+    }
+
+    /**
+     * Cancel all scheduled requests. Requests in flight complete but do not trigger follow-up requests.
+     */
+    public synchronized void clear() {
+        for (PendingRequest pendingRequest : mPendingRequests.values()) {
+            if (pendingRequest.scheduled != null) {
+                pendingRequest.scheduled.cancel();
+            }
+        }
+        mPendingRequests.clear();
+    }
+
+    private void schedule(final K key, final PendingRequest pendingRequest) {
+        // Only schedules requests on the shared scheduler - the requests themselves are asynchronous
+        pendingRequest.scheduled = mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute(key, pendingRequest);
+            }
+        }, mDebounceTime);
+    }
+
+    private void execute(final K key, final PendingRequest pendingRequest) {
+        Request request;
+        synchronized (this) {
+            if (mPendingRequests.get(key) != pendingRequest) {
+                return; // cleared
+            }
+
+            pendingRequest.scheduled = null;
+            pendingRequest.inFlight = true;
+            pendingRequest.requestAgain = false;
+            request = pendingRequest.request;
+        }
+
+        mRequestsIssued.incrementAndGet();
+        try {
+            request.execute(new OnRequestCompleteListener() {
+                @Override
+                public void onComplete() {
+                    complete(key, pendingRequest);
+                }
+            });
+        } catch (Exception e) {
+            KayakoLogHelper.printStackTrace(TAG, e);
+            complete(key, pendingRequest);
+        }
+    }
+
+    private synchronized void complete(K key, PendingRequest pendingRequest) {
+        if (mPendingRequests.get(key) != pendingRequest || !pendingRequest.inFlight) {
+            return; // cleared or completed already
+        }
+
+        pendingRequest.inFlight = false;
+        if (pendingRequest.requestAgain) {
+            schedule(key, pendingRequest);
+        } else {
+            mPendingRequests.remove(key);
+        }
+    }
+
+    private static class PendingRequest {
+        Request request;
+        Cancellable scheduled;
+        boolean inFlight;
+        boolean requestAgain;
+
+        PendingRequest(Request request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * Runs the debounced requests - the shared {@link KayakoScheduler}, unless replaced in tests
+     */
+    interface Scheduler {
+        /**
+         * @param task  runs once, after the delay
+         * @param delay in milliseconds
+         */
+        Cancellable schedule(Runnable task, long delay);
+    }
+
+    interface Cancellable {
+        /**
+         * Cancel the task, if it has not run yet
+         */
+        void cancel();
+    }
+
+    public interface Request {
+        /**
+         * @param listener should be called once the request succeeds or fails
+         */
+        void execute(OnRequestCompleteListener listener);
+    }
+
+    public interface OnRequestCompleteListener {
+        void onComplete();
+    }
+}
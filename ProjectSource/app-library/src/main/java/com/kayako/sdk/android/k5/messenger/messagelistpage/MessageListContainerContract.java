@@ -1,6 +1,7 @@
 package com.kayako.sdk.android.k5.messenger.messagelistpage;
 
 import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
 
 import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.Attachment;
@@ -12,10 +13,10 @@ import com.kayako.sdk.android.k5.common.mvp.BasePresenter;
 import com.kayako.sdk.android.k5.common.mvp.BaseView;
 import com.kayako.sdk.android.k5.common.utils.file.FileAttachment;
 import com.kayako.sdk.android.k5.messenger.data.conversationstarter.AssignedAgentData;
+import com.kayako.sdk.android.k5.messenger.data.outbox.OutboxReply;
 import com.kayako.sdk.messenger.conversation.Conversation;
 import com.kayako.sdk.messenger.conversation.PostConversationBodyParams;
 import com.kayako.sdk.messenger.message.Message;
-import com.kayako.sdk.messenger.message.PostMessageBodyParams;
 import com.kayako.sdk.messenger.rating.PostRatingBodyParams;
 import com.kayako.sdk.messenger.rating.PutRatingBodyParams;
 import com.kayako.sdk.messenger.rating.Rating;
@@ -28,10 +29,18 @@ public class MessageListContainerContract {
 
     public interface Data extends BaseData {
 
-        void postNewMessage(long conversationId, PostMessageBodyParams postMessageBodyParams, final String clientId, final MessageListContainerContract.PostNewMessageCallback callback);
+        void postNewMessage(OutboxReply reply, final MessageListContainerContract.PostNewMessageCallback callback);
+
+        void removeReplyListeners();
+
+        void getPendingReplies(long conversationId, OnLoadPendingRepliesListener listener);
 
         void getMessages(final OnLoadMessagesListener listener, long conversationId, int offset, int limit);
 
+        void getCachedMessages(long conversationId, OnLoadCachedMessagesListener listener);
+
+        void cacheMessages(long conversationId, List<Message> messages);
+
         void startNewConversation(PostConversationBodyParams bodyParams, MessageListContainerContract.PostConversationCallback postConversationCallback);
 
         void getConversation(long conversationId, final OnLoadConversationListener onLoadConversationListener);
@@ -57,6 +66,11 @@ public class MessageListContainerContract {
 
         void setupListInMessageListingView(List<BaseListItem> baseListItems);
 
+        /**
+         * @return false if the list could not be updated with the changes, in which case setupListInMessageListingView() should be used instead
+         */
+        boolean updateListInMessageListingView(List<BaseListItem> baseListItems, DiffUtil.DiffResult diffResult);
+
         void showEmptyViewInMessageListingView();
 
         void showErrorViewInMessageListingView();
@@ -134,6 +148,12 @@ public class MessageListContainerContract {
         void onSuccess(Message message); // message contains clientId
 
         void onFailure(String clientId);
+
+        void onWaitingForNetwork(String clientId); // saved in the outbox and sent once connectivity is restored
+    }
+
+    public interface OnLoadPendingRepliesListener {
+        void onLoad(List<OutboxReply> replies);
     }
 
     public interface OnLoadMessagesListener {
@@ -142,6 +162,10 @@ public class MessageListContainerContract {
         void onFailure(String errorMessage);
     }
 
+    public interface OnLoadCachedMessagesListener {
+        void onLoad(List<Message> messageList);
+    }
+
     public interface PostConversationCallback {
         void onSuccess(String clientId, Conversation conversation);
 
@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.app.AppCompatActivity;
 import android.view.Gravity;
 import android.view.LayoutInflater;
@@ -25,7 +26,11 @@ import com.kayako.sdk.android.k5.common.fragments.OnScrollListListener;
 import com.kayako.sdk.android.k5.common.utils.KeyboardUtils;
 import com.kayako.sdk.android.k5.common.utils.file.FileAttachment;
 import com.kayako.sdk.android.k5.common.utils.file.FileAttachmentUtil;
+import com.kayako.sdk.android.k5.common.utils.file.FileImportTask;
+import com.kayako.sdk.android.k5.common.utils.file.FileStorageUtil;
+import com.kayako.sdk.android.k5.common.utils.file.ImageAttachmentProcessor;
 import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+import com.kayako.sdk.android.k5.core.MessengerPref;
 import com.kayako.sdk.android.k5.messenger.data.conversationstarter.AssignedAgentData;
 import com.kayako.sdk.android.k5.messenger.replyboxview.ReplyBoxContract;
 import com.kayako.sdk.android.k5.messenger.toolbarview.MessengerToolbarContract;
@@ -47,6 +52,7 @@ public class MessageListContainerFragment extends Fragment implements MessageLis
 
     private View mLastAttachmentListItemViewClicked;
     private FileAttachment mLastFileAttachmentAttached;
+    private FileImportTask mFileImportTask;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -122,11 +128,33 @@ public class MessageListContainerFragment extends Fragment implements MessageLis
 
         try {
             if (requestCode == REQUEST_CODE_ADD_ATTACHMENT) {
-                File file = FileAttachmentUtil.getFileOnActivityResult(resultCode, data);
-                if (file != null) {
-                    mLastFileAttachmentAttached = FileAttachmentUtil.generateFileAttachment("attachment", file);
-                    KayakoAttachmentPreviewActivity.startActivityForConfirmation(getActivity(), MessageListContainerFragment.this, mLastFileAttachmentAttached.getPath(), REQUEST_CODE_VIEW_ATTACHMENT_BEFORE_SENDING);
-                } else {
+                cancelFileImport();
+                mFileImportTask = FileAttachmentUtil.importFileOnActivityResult(resultCode, data, MessengerPref.getInstance().getMaxAttachmentSize(), new FileImportTask.OnFileImportListener() {
+                    @Override
+                    public void onProgress(long copiedBytes, long totalBytes) {
+                        // The file is usually copied before the picker's exit animation completes - no progress UI needed
+                    }
+
+                    @Override
+                    public void onImported(File file) {
+                        mFileImportTask = null;
+                        if (hasPageLoaded()) {
+                            onFileAttached(file);
+                        }
+                    }
+
+                    @Override
+                    public void onFailed(int failureReason) {
+                        mFileImportTask = null;
+                        if (hasPageLoaded()) {
+                            showToastMessage(failureReason == FileImportTask.FAILURE_TOO_LARGE
+                                    ? R.string.ko__attachment_msg_file_too_large
+                                    : R.string.ko__attachment_msg_unable_to_attach_file);
+                        }
+                    }
+                });
+
+                if (mFileImportTask == null) {
                     mLastFileAttachmentAttached = null; // RESET IF CANCELLED
                 }
 
@@ -146,9 +174,49 @@ public class MessageListContainerFragment extends Fragment implements MessageLis
         }
     }
 
+    private void onFileAttached(File file) {
+        if (FileStorageUtil.isImage(file)) {
+            // Downscale images before they are previewed and sent
+            ImageAttachmentProcessor.processAsync(file, new ImageAttachmentProcessor.OnImageProcessedListener() {
+                @Override
+                public void onImageProcessed(File processedFile, long originalSize, long processedSize) {
+                    KayakoLogHelper.d(getClass().getName(), String.format("Image attachment: %d bytes to %d bytes", originalSize, processedSize));
+
+                    // Images are imported without a size limit - only the processed image that is sent has to be within it
+                    if (processedSize > MessengerPref.getInstance().getMaxAttachmentSize()) {
+                        FileAttachmentUtil.clearSavedAttachment(processedFile);
+                        if (hasPageLoaded()) {
+                            showToastMessage(R.string.ko__attachment_msg_file_too_large);
+                        }
+                        return;
+                    }
+
+                    if (hasPageLoaded()) {
+                        confirmSendingOfAttachment(processedFile);
+                    }
+                }
+            });
+        } else {
+            confirmSendingOfAttachment(file);
+        }
+    }
+
+    private void cancelFileImport() {
+        if (mFileImportTask != null) {
+            mFileImportTask.cancel();
+            mFileImportTask = null;
+        }
+    }
+
+    private void confirmSendingOfAttachment(File file) {
+        mLastFileAttachmentAttached = FileAttachmentUtil.generateFileAttachment("attachment", file);
+        KayakoAttachmentPreviewActivity.startActivityForConfirmation(getActivity(), MessageListContainerFragment.this, mLastFileAttachmentAttached.getPath(), REQUEST_CODE_VIEW_ATTACHMENT_BEFORE_SENDING);
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        cancelFileImport();
         mPresenter.closePage();
     }
 
@@ -213,6 +281,17 @@ public class MessageListContainerFragment extends Fragment implements MessageLis
         }
     }
 
+    @Override
+    public boolean updateListInMessageListingView(List<BaseListItem> baseListItems, DiffUtil.DiffResult diffResult) {
+        if (!hasPageLoaded()) {
+            return false;
+        }
+
+        synchronized (this) { // Ensure the message listing is updated at a time
+            return mMessageListView.updateList(baseListItems, diffResult);
+        }
+    }
+
     @Override
     public void showEmptyViewInMessageListingView() {
         if (!hasPageLoaded()) {
@@ -1,5 +1,7 @@
 package com.kayako.sdk.android.k5.messenger.messagelistpage;
 
+import android.support.v7.util.DiffUtil;
+
 import com.kayako.sdk.android.k5.R;
 import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.Attachment;
@@ -16,6 +18,7 @@ import com.kayako.sdk.android.k5.common.utils.file.FileAttachment;
 import com.kayako.sdk.android.k5.core.MessengerPref;
 import com.kayako.sdk.android.k5.messenger.data.conversation.unreadcounter.UnreadCounterRepository;
 import com.kayako.sdk.android.k5.messenger.data.conversation.viewmodel.UserViewModel;
+import com.kayako.sdk.android.k5.messenger.data.outbox.OutboxReply;
 import com.kayako.sdk.android.k5.messenger.data.realtime.OnConversationChangeListener;
 import com.kayako.sdk.android.k5.messenger.data.realtime.OnConversationClientActivityListener;
 import com.kayako.sdk.android.k5.messenger.data.realtime.OnConversationMessagesChangeListener;
@@ -26,6 +29,7 @@ import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.ConversationH
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.ConversationMessagesHelper;
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.FileAttachmentDownloadHelper;
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.FileAttachmentHelper;
+import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.MessengerListDiffHelper;
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.MessengerListHelper;
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.MarkReadHelper;
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.MessengerPrefHelper;
@@ -34,11 +38,8 @@ import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.OnboardingHel
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.OptimisticSendingViewHelper;
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.RealtimeHelper;
 import com.kayako.sdk.android.k5.messenger.messagelistpage.helpers.ReplyBoxViewHelper;
-import com.kayako.sdk.base.requester.AttachmentFile;
 import com.kayako.sdk.messenger.conversation.Conversation;
 import com.kayako.sdk.messenger.message.Message;
-import com.kayako.sdk.messenger.message.MessageSourceType;
-import com.kayako.sdk.messenger.message.PostMessageBodyParams;
 import com.kayako.sdk.messenger.rating.PostRatingBodyParams;
 import com.kayako.sdk.messenger.rating.PutRatingBodyParams;
 import com.kayako.sdk.messenger.rating.Rating;
@@ -71,6 +72,7 @@ public class MessageListContainerPresenter implements MessageListContainerContra
     private ConversationHelper mConversationHelper = new ConversationHelper();
     private ReplyBoxViewHelper mReplyBoxHelper = new ReplyBoxViewHelper();
     private MessengerListHelper mMessengerListHelper = new MessengerListHelper();
+    private MessengerListDiffHelper mMessengerListDiffHelper = new MessengerListDiffHelper();
     private OptimisticSendingViewHelper mOptimisticMessageHelper = new OptimisticSendingViewHelper();
     private ClientIdHelper mClientIdHelper = new ClientIdHelper();
     private ConversationMessagesHelper mConversationMessagesHelper = new ConversationMessagesHelper();
@@ -83,6 +85,8 @@ public class MessageListContainerPresenter implements MessageListContainerContra
     private AssignedAgentToolbarHelper mAssignedAgentToolbarHelper = new AssignedAgentToolbarHelper();
     private FileAttachmentDownloadHelper mFileAttachmentDownloadHelper = new FileAttachmentDownloadHelper();
 
+    private List<Message> mLoadedMessagesToMarkRead; // marked read once a list including them has been displayed
+
     public MessageListContainerPresenter(MessageListContainerContract.View view, MessageListContainerContract.Data data) {
         mView = view;
         mData = data;
@@ -193,6 +197,9 @@ public class MessageListContainerPresenter implements MessageListContainerContra
     public void closePage() {
         mRealtimeHelper.unsubscribeFromRealtimeConversationChanges();
         mFailsafePollingHelper.stopPolling();
+        mMessengerListDiffHelper.cancel();
+        mData.removeReplyListeners(); // every reply is handed to the outbox as soon as it is added, and is still sent
+        mFileAttachmentDownloadHelper.removeListeners(); // downloads still complete and are cached
 
         // Mark current conversation being viewed to prevent unread counters for this conversation
         UnreadCounterRepository.setCurrentConversationBeingViewed(0);
@@ -244,6 +251,7 @@ public class MessageListContainerPresenter implements MessageListContainerContra
         mConversationHelper = new ConversationHelper();
         mReplyBoxHelper = new ReplyBoxViewHelper();
         mMessengerListHelper = new MessengerListHelper();
+        mMessengerListDiffHelper = new MessengerListDiffHelper();
         mOptimisticMessageHelper = new OptimisticSendingViewHelper();
         mClientIdHelper = new ClientIdHelper();
         mConversationMessagesHelper = new ConversationMessagesHelper();
@@ -255,6 +263,7 @@ public class MessageListContainerPresenter implements MessageListContainerContra
         mOffboardingHelper = new OffboardingHelper();
         mAssignedAgentToolbarHelper = new AssignedAgentToolbarHelper();
         mFileAttachmentDownloadHelper = new FileAttachmentDownloadHelper();
+        mLoadedMessagesToMarkRead = null;
     }
 
     private void reloadPage(boolean resetView) {
@@ -269,6 +278,8 @@ public class MessageListContainerPresenter implements MessageListContainerContra
             // Load view
             displayList();
         } else {
+            loadCachedMessages();
+            loadPendingReplies();
             reloadConversation();
             reloadLatestMessages();
 
@@ -336,10 +347,7 @@ public class MessageListContainerPresenter implements MessageListContainerContra
     private OffboardingHelper.OffboardingHelperViewCallback mOffboardingHelperViewCallback = new OffboardingHelper.OffboardingHelperViewCallback() {
         @Override
         public void onRefreshListView(boolean scrollToBottom) {
-            displayList();
-            if (scrollToBottom) {
-                mView.scrollToBottomOfList();
-            }
+            displayList(scrollToBottom);
         }
 
         @Override
@@ -383,70 +391,111 @@ public class MessageListContainerPresenter implements MessageListContainerContra
 
     ////// VIEW MODIFYING METHODS //////
 
-    private List<BaseListItem> generateListItems() {
-        List<BaseListItem> allListItems = new ArrayList<>();
+    private void displayList() {
+        displayList(false);
+    }
 
-        List<BaseListItem> onboardingItems = getOnboardingListItemViews();
-        List<BaseListItem> optimisticSendingItems = mOptimisticMessageHelper.getOptimisticSendingListItems();
+    /**
+     * The list items are built and compared with the displayed list on a background thread.
+     * Only the state needed to build them is collected here, because the helpers are not thread-safe.
+     *
+     * @param scrollToBottom scroll to bottom of list once the list is displayed
+     */
+    private void displayList(final boolean scrollToBottom) {
+        final List<BaseListItem> headerItems = new ArrayList<>();
+        final List<BaseListItem> footerItems = new ArrayList<>();
 
-        allListItems.addAll(onboardingItems);
+        headerItems.addAll(getOnboardingListItemViews());
 
         // If existing conversation, load messages too - inbetween the onboarding items and the optimistic sending items
-        if (mConversationHelper.isConversationCreated()) {
-            Long userId = mMessengerPrefHelper.getUserId();
-            if (userId == null || userId == 0) {
-                throw new IllegalStateException("User Id should be known if conversation is created!");
-            }
-
-            allListItems.addAll(
-                    mMessengerListHelper.getMessageAsListItemViews(
-                            mConversationMessagesHelper.getMessages(),
-                            mMarkReadHelper.getOriginalLastMessageMarkedRead(),
-                            userId
-                    )
-            );
+        final boolean isConversationCreated = mConversationHelper.isConversationCreated();
+        final List<Message> messages = mConversationMessagesHelper.getMessages(); // unmodifiable snapshot, safe to read on any thread
+        final long lastOriginalMessageMarkedRead = mMarkReadHelper.getOriginalLastMessageMarkedRead();
+        final Long userId = mMessengerPrefHelper.getUserId();
+        if (isConversationCreated && (userId == null || userId == 0)) {
+            throw new IllegalStateException("User Id should be known if conversation is created!");
         }
 
-        allListItems.addAll(optimisticSendingItems);
+        footerItems.addAll(mOptimisticMessageHelper.getOptimisticSendingListItems());
 
         // footer items
-        allListItems.addAll(mTypingViewHelper.getTypingViews());
+        footerItems.addAll(mTypingViewHelper.getTypingViews());
 
         // Conversation Status Message
-        if (mConversationHelper.isConversationCreated()) {
-            allListItems.addAll(mMessengerListHelper.getConversationStatusMessages(mConversationHelper.getConversation()));
+        if (isConversationCreated) {
+            footerItems.addAll(mMessengerListHelper.getConversationStatusMessages(mConversationHelper.getConversation()));
         }
 
         // Offloading items
-        allListItems.addAll(getOffboardingListItemViews());
+        footerItems.addAll(getOffboardingListItemViews());
 
         // Add space at end
-        allListItems.add(new EmptyListItem());
-        return allListItems;
-    }
+        footerItems.add(new EmptyListItem());
 
-    private void displayList() {
-        List<BaseListItem> allListItems = generateListItems();
+        final MessengerListHelper messengerListHelper = mMessengerListHelper;
+        mMessengerListDiffHelper.submit(
+                new MessengerListDiffHelper.ListItemsGenerator() {
+                    @Override
+                    public List<BaseListItem> generateListItems() {
+                        List<BaseListItem> allListItems = new ArrayList<>(headerItems);
+                        if (isConversationCreated) {
+                            allListItems.addAll(messengerListHelper.getMessageAsListItemViews(messages, lastOriginalMessageMarkedRead, userId));
+                        }
+                        allListItems.addAll(footerItems);
+                        return allListItems;
+                    }
+                },
+                new MessengerListDiffHelper.OnListReadyListener() {
+                    @Override
+                    public boolean onListChanged(List<BaseListItem> listItems, DiffUtil.DiffResult diffResult) {
+                        if (!mView.hasPageLoaded()) { // Ensure callbacks after activity/fragment closed doesn't cause crashes
+                            return false;
+                        }
+
+                        if (diffResult == null || !mView.updateListInMessageListingView(listItems, diffResult)) {
+                            mView.setupListInMessageListingView(listItems);
+                        }
+
+                        if (!mConversationHelper.isConversationCreated()) {
+                            mView.setHasMoreItems(false);
+                        } else {
+                            mView.setHasMoreItems(mConversationMessagesHelper.hasMoreMessages());
+                        }
+
+                        onListDisplayed();
+                        return true;
+                    }
 
-        if (!mMessengerListHelper.shouldUpdateViewList(allListItems)) {
-            return; // Don't update list if there are no changes
-        }
+                    @Override
+                    public void onListUnchanged() {
+                        onListDisplayed();
+                    }
 
-        if (allListItems.size() != 0) {
-            mView.setupListInMessageListingView(
-                    new ArrayList<>(allListItems)); // Create and send copy because reference is updated (order reversed in view)
-            mMessengerListHelper.setLastDisplayedItems(allListItems);
+                    private void onListDisplayed() {
+                        if (scrollToBottom && mView.hasPageLoaded()) {
+                            mView.scrollToBottomOfList();
+                        }
 
-            if (!mConversationHelper.isConversationCreated()) {
-                mView.setHasMoreItems(false);
-            } else {
-                mView.setHasMoreItems(mConversationMessagesHelper.hasMoreMessages());
-            }
-        } else {
-            // There should never be an empty state view shown! Leave it blank inviting customer to add stuff.
-            mView.setupListInMessageListingView(new ArrayList<>(allListItems)); // Set empty list to show as blank
-            mMessengerListHelper.setLastDisplayedItems(allListItems);
+                        markLoadedMessagesAsRead();
+                    }
+                });
+    }
+
+    /**
+     * A newer list may replace the one submitted after loading messages before it is displayed, so the loaded messages are marked read
+     * once any list is displayed - every list displayed after loading them includes them.
+     */
+    private void markLoadedMessagesAsRead() {
+        if (mLoadedMessagesToMarkRead == null || !mView.hasPageLoaded()) {
+            return;
         }
+
+        List<Message> messages = mLoadedMessagesToMarkRead;
+        mLoadedMessagesToMarkRead = null;
+        mMarkReadHelper.markLastMessageAsRead(
+                messages,
+                mConversationHelper.getConversationId(),
+                mMarkReadCallback);
     }
 
     private void configureReplyBoxViewState() {
@@ -705,25 +754,20 @@ public class MessageListContainerPresenter implements MessageListContainerContra
 
             mConversationMessagesHelper.onLoadNextMessages(messageList, offset);
 
+            // Keep the disk cache up to date so that the next time the page opens, messages show instantly
+            mData.cacheMessages(mConversationHelper.getConversationId(), mConversationMessagesHelper.getMessages());
+
             // Remove optimisitc sending items - to be done before display list
             mOptimisticMessageHelper.removeOptimisticMessagesThatIsSuccessfullySentAndDisplayed(messageList);
 
             // Once messages have been loaded, mark the last message as delivered
             mMarkReadHelper.markLastMessageAsDelivered();
 
-            // Display list once necessary changes to list data are made above
-            displayList();
-
-            // Scroll to bottom after list is displayed
-            if (scrollToBottom) {
-                mView.scrollToBottomOfList();
-            }
-
             // Once messages have been loaded AND displayed in view, mark the last message as read
-            mMarkReadHelper.markLastMessageAsRead(
-                    messageList,
-                    mConversationHelper.getConversationId(),
-                    mMarkReadCallback);
+            mLoadedMessagesToMarkRead = messageList;
+
+            // Display list once necessary changes to list data are made above, scroll to bottom after list is displayed
+            displayList(scrollToBottom);
         }
 
         @Override
@@ -741,6 +785,24 @@ public class MessageListContainerPresenter implements MessageListContainerContra
         }
     };
 
+    private MessageListContainerContract.OnLoadCachedMessagesListener onLoadCachedMessagesListener = new MessageListContainerContract.OnLoadCachedMessagesListener() {
+        @Override
+        public void onLoad(List<Message> messageList) {
+            if (!mView.hasPageLoaded()) { // Ensure callbacks after activity/fragment closed doesn't cause crashes
+                return;
+            }
+
+            // Only paint cached messages until the network has responded - never replace newer data with older data
+            if (mConversationMessagesHelper.hasLoadedMessagesBefore()
+                    || mMessengerPrefHelper.getUserId() == null) {
+                return;
+            }
+
+            mConversationMessagesHelper.onLoadCachedMessages(messageList);
+            displayList(true);
+        }
+    };
+
     private MessageListContainerContract.PostNewMessageCallback onPostMessageListener = new MessageListContainerContract.PostNewMessageCallback() {
         @Override
         public void onSuccess(Message message) {
@@ -764,13 +826,61 @@ public class MessageListContainerPresenter implements MessageListContainerContra
 
             mView.showToastMessage(R.string.ko__messenger_msg_failed_to_send_reply);
 
+            boolean isAttachment = mAddReplyHelper.isAttachmentBeingSent(clientId);
+
             // Indicate the request failed
             mAddReplyHelper.onFailedSendingOfMessage(clientId);
 
-            // Mark all optimistic views as failed
-            // Now that AddReplyHelper ensures only one message is sent at a time, all pending items should be marked as failed too
-            // TODO: Mark only the client id as failed? ANd others as not-sent?
-            mOptimisticMessageHelper.markAllAsFailed(mOptimisticSendingViewCallback);
+            if (isAttachment) {
+                // Attachments are sent independent of each other - only this attachment failed
+                mOptimisticMessageHelper.markAsFailed(clientId, mOptimisticSendingViewCallback);
+            } else {
+                // Mark all optimistic views as failed
+                // The outbox holds back the messages after a failed one until it is sent, so all pending items should be marked as failed too
+                // TODO: Mark only the client id as failed? ANd others as not-sent?
+                mOptimisticMessageHelper.markAllAsFailed(mOptimisticSendingViewCallback);
+            }
+        }
+
+        @Override
+        public void onWaitingForNetwork(String clientId) {
+            if (!mView.hasPageLoaded()) { // Ensure callbacks after activity/fragment closed doesn't cause crashes
+                return;
+            }
+
+            // The outbox still sends the reply - onSuccess or onFailure is called once it does
+            mOptimisticMessageHelper.markAsWaitingForNetwork(clientId, mOptimisticSendingViewCallback);
+        }
+    };
+
+    private MessageListContainerContract.OnLoadPendingRepliesListener onLoadPendingRepliesListener = new MessageListContainerContract.OnLoadPendingRepliesListener() {
+        @Override
+        public void onLoad(List<OutboxReply> replies) {
+            if (!mView.hasPageLoaded()) { // Ensure callbacks after activity/fragment closed doesn't cause crashes
+                return;
+            }
+
+            // Replies left in the outbox when the page was last closed - shown and handed over again, which registers the listener and retries them
+            for (OutboxReply reply : replies) {
+                String clientId = reply.getClientId();
+                if (mAddReplyHelper.isReplyBeingSent(clientId)) {
+                    continue; // already shown
+                }
+
+                if (!reply.isAttachment()) {
+                    mOptimisticMessageHelper.addOptimisitcMessageView(reply.getMessage(), clientId, mOptimisticSendingViewCallback);
+                    mAddReplyHelper.addNewReply(reply.getMessage(), clientId);
+                } else {
+                    FileAttachment fileAttachment = reply.getAttachment();
+                    if (fileAttachment == null) {
+                        continue; // discarded by the outbox
+                    }
+
+                    mOptimisticMessageHelper.addOptimisitcMessageView(fileAttachment, clientId, mOptimisticSendingViewCallback);
+                    mFileAttachmentHelper.onSendingUnsentMessage(clientId, fileAttachment.getFile());
+                    mAddReplyHelper.addNewReply(fileAttachment, clientId);
+                }
+            }
         }
     };
 
@@ -930,6 +1040,18 @@ public class MessageListContainerPresenter implements MessageListContainerContra
         mData.getMessages(onLoadMessagesListener, conversationId, 0, mConversationMessagesHelper.getLimit());
     }
 
+    private void loadCachedMessages() {
+        if (mConversationMessagesHelper.getSize() != 0) {
+            return; // messages already in memory
+        }
+
+        mData.getCachedMessages(mConversationHelper.getConversationId(), onLoadCachedMessagesListener);
+    }
+
+    private void loadPendingReplies() {
+        mData.getPendingReplies(mConversationHelper.getConversationId(), onLoadPendingRepliesListener);
+    }
+
     public void loadNextMessages() {
         if (!mConversationHelper.isConversationCreated()) {
             throw new IllegalStateException("Method should only be called once conversation is created");
@@ -963,32 +1085,14 @@ public class MessageListContainerPresenter implements MessageListContainerContra
     }
 
     private void addNewMessage(long conversationId, String message, String clientId) {
-        mData.postNewMessage(conversationId,
-                new PostMessageBodyParams(
-                        message,
-                        MessageSourceType.MESSENGER,
-                        clientId
-                ),
-                clientId,
+        mData.postNewMessage(
+                OutboxReply.createMessageReply(conversationId, clientId, message),
                 onPostMessageListener);
     }
 
     private void addNewMessage(long conversationId, FileAttachment fileAttachment, String clientId) {
-        List<AttachmentFile> attachmentFiles = new ArrayList<>();
-        attachmentFiles.add(new AttachmentFile(
-                fileAttachment.getFile(),
-                fileAttachment.getMimeType(),
-                fileAttachment.getName()
-        ));
-
-        mData.postNewMessage(conversationId,
-                new PostMessageBodyParams(
-                        fileAttachment.getName(), // TODO: Find a way to send ONLY attachment without title
-                        MessageSourceType.MESSENGER,
-                        clientId,
-                        attachmentFiles
-                ),
-                clientId,
+        mData.postNewMessage(
+                OutboxReply.createAttachmentReply(conversationId, clientId, fileAttachment),
                 onPostMessageListener);
     }
 
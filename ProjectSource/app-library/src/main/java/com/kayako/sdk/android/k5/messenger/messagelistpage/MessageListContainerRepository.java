@@ -4,8 +4,11 @@ import android.os.Handler;
 
 import com.kayako.sdk.android.k5.common.utils.NetworkUtils;
 import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoClientProvider;
+import com.kayako.sdk.android.k5.messenger.data.conversation.ConversationDiskCache;
 import com.kayako.sdk.android.k5.messenger.data.conversation.ConversationStore;
-import com.kayako.sdk.auth.FingerprintAuth;
+import com.kayako.sdk.android.k5.messenger.data.outbox.OutboxReply;
+import com.kayako.sdk.android.k5.messenger.data.outbox.ReplyOutbox;
 import com.kayako.sdk.base.callback.EmptyCallback;
 import com.kayako.sdk.base.callback.ItemCallback;
 import com.kayako.sdk.base.callback.ListCallback;
@@ -16,7 +19,6 @@ import com.kayako.sdk.messenger.Messenger;
 import com.kayako.sdk.messenger.conversation.Conversation;
 import com.kayako.sdk.messenger.conversation.PostConversationBodyParams;
 import com.kayako.sdk.messenger.message.Message;
-import com.kayako.sdk.messenger.message.PostMessageBodyParams;
 import com.kayako.sdk.messenger.message.PutMessageBodyParams;
 import com.kayako.sdk.messenger.rating.PostRatingBodyParams;
 import com.kayako.sdk.messenger.rating.PutRatingBodyParams;
@@ -27,50 +29,62 @@ import java.util.List;
 public class MessageListContainerRepository implements MessageListContainerContract.Data {
 
     private static final long DELAY_BEFORE_NO_NETWORK_NOTICE = 1000;
-    private Messenger mMessenger;
 
-    public MessageListContainerRepository(String helpCenterUrl, FingerprintAuth fingerpritnAuth) {
-        mMessenger = new Messenger(helpCenterUrl, fingerpritnAuth);
+    public MessageListContainerRepository() {
+    }
+
+    private Messenger getMessenger() {
+        return KayakoClientProvider.getMessenger();
     }
 
     @Override
-    public void postNewMessage(long conversationId, PostMessageBodyParams postMessageBodyParams, final String clientId, final MessageListContainerContract.PostNewMessageCallback callback) {
-        if (postMessageBodyParams == null) {
+    public void postNewMessage(OutboxReply reply, final MessageListContainerContract.PostNewMessageCallback callback) {
+        if (reply == null) {
             throw new IllegalArgumentException("Can't be null");
         }
 
         final Handler handler = new Handler();
+        final String clientId = reply.getClientId();
 
         if (!NetworkUtils.isConnectedToNetwork(Kayako.getApplicationContext())) {
-            handler.postDelayed(new Runnable() {
+            // Saved in the outbox and sent once connectivity is restored - even if the page is closed by then. Posted before the listener can be called.
+            handler.post(new Runnable() {
                 @Override
                 public void run() {
-                    callback.onFailure(clientId);
+                    callback.onWaitingForNetwork(clientId);
                 }
-            }, DELAY_BEFORE_NO_NETWORK_NOTICE);
-            return;
+            });
         }
 
-        mMessenger.postMessage(conversationId, postMessageBodyParams, new ItemCallback<Message>() {
+        // The outbox calls back on this thread
+        ReplyOutbox.getInstance().send(reply, new ReplyOutbox.OnReplySentListener() {
             @Override
-            public void onSuccess(final Message item) {
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        callback.onSuccess(item);
-                    }
-                });
+            public void onSuccess(Message message) {
+                callback.onSuccess(message);
             }
 
             @Override
-            public void onFailure(final KayakoException exception) {
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        // TODO: Parse and see if there's a notification in KayakoException
-                        callback.onFailure(clientId);
-                    }
-                });
+            public void onFailure(String clientId) {
+                // TODO: Parse and see if there's a notification in KayakoException
+                callback.onFailure(clientId);
+            }
+        });
+    }
+
+    @Override
+    public void removeReplyListeners() {
+        ReplyOutbox.getInstance().removeListeners();
+    }
+
+    @Override
+    public void getPendingReplies(long conversationId, final MessageListContainerContract.OnLoadPendingRepliesListener listener) {
+        // The outbox calls back on this thread
+        ReplyOutbox.getInstance().getPendingReplies(conversationId, new ReplyOutbox.OnLoadPendingRepliesListener() {
+            @Override
+            public void onLoad(List<OutboxReply> replies) {
+                if (listener != null) {
+                    listener.onLoad(replies);
+                }
             }
         });
     }
@@ -89,7 +103,7 @@ public class MessageListContainerRepository implements MessageListContainerContr
             return;
         }
 
-        mMessenger.getMessages(conversationId, offset, limit, new ListCallback<Message>() {
+        getMessenger().getMessages(conversationId, offset, limit, new ListCallback<Message>() {
             @Override
             public void onSuccess(final List<Message> items) {
                 handler.post(new Runnable() {
@@ -127,6 +141,28 @@ public class MessageListContainerRepository implements MessageListContainerContr
         });
     }
 
+    @Override
+    public void getCachedMessages(long conversationId, final MessageListContainerContract.OnLoadCachedMessagesListener listener) {
+        // Disk cache posts back to the calling (UI) thread
+        ConversationDiskCache.getInstance().loadMessages(conversationId, new ConversationDiskCache.OnLoadFromDiskListener<Message>() {
+            @Override
+            public void onLoad(List<Message> items) {
+                if (listener != null) {
+                    listener.onLoad(items);
+                }
+            }
+
+            @Override
+            public void onNothingCached() {
+            }
+        });
+    }
+
+    @Override
+    public void cacheMessages(long conversationId, List<Message> messages) {
+        ConversationDiskCache.getInstance().saveMessages(conversationId, messages);
+    }
+
     @Override
     public void startNewConversation(final PostConversationBodyParams bodyParams, final MessageListContainerContract.PostConversationCallback postConversationCallback) {
         final Handler handler = new Handler(); // Needed to ensure that the callbacks run on the UI Thread
@@ -248,7 +284,7 @@ public class MessageListContainerRepository implements MessageListContainerContr
             return;
         }
 
-        mMessenger.putMessage(
+        getMessenger().putMessage(
                 conversationId,
                 messageId,
                 new PutMessageBodyParams(status),
@@ -298,7 +334,7 @@ public class MessageListContainerRepository implements MessageListContainerContr
             return;
         }
 
-        mMessenger
+        getMessenger()
                 .getRatingList(
                         conversationId,
                         new ListCallback<Rating>() {
@@ -344,7 +380,7 @@ public class MessageListContainerRepository implements MessageListContainerContr
             return;
         }
 
-        mMessenger.postRating(
+        getMessenger().postRating(
                 conversationId,
                 postRatingBodyParams,
                 new ItemCallback<Rating>() {
@@ -387,7 +423,7 @@ public class MessageListContainerRepository implements MessageListContainerContr
             return;
         }
 
-        mMessenger.putRating(
+        getMessenger().putRating(
                 conversationId,
                 ratingId,
                 putRatingBodyParams,
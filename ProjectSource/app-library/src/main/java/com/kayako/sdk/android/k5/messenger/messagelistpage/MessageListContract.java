@@ -1,5 +1,7 @@
 package com.kayako.sdk.android.k5.messenger.messagelistpage;
 
+import android.support.v7.util.DiffUtil;
+
 import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
 import com.kayako.sdk.android.k5.common.adapter.loadmorelist.EndlessRecyclerViewScrollAdapter;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.MessengerAdapter;
@@ -20,6 +22,11 @@ public class MessageListContract {
 
         void setupList(List<BaseListItem> conversation);
 
+        /**
+         * @return false if the list has not been set up yet, in which case nothing is changed and setupList() should be used instead
+         */
+        boolean updateList(List<BaseListItem> conversation, DiffUtil.DiffResult diffResult);
+
         void showEmptyView();
 
         void showErrorView();
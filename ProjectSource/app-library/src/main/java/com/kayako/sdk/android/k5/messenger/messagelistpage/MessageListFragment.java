@@ -3,6 +3,7 @@ package com.kayako.sdk.android.k5.messenger.messagelistpage;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
 import android.view.MotionEvent;
 import android.view.View;
 
@@ -11,6 +12,7 @@ import com.kayako.sdk.android.k5.activities.KayakoSelectConversationActivity;
 import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
 import com.kayako.sdk.android.k5.common.adapter.loadmorelist.EndlessRecyclerViewScrollAdapter;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.MessengerAdapter;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.AttachmentThumbnailPrefetcher;
 import com.kayako.sdk.android.k5.common.fragments.ListPageState;
 import com.kayako.sdk.android.k5.common.fragments.MessengerListFragment;
 import com.kayako.sdk.android.k5.common.fragments.OnListPageStateChangeListener;
@@ -26,6 +28,7 @@ public class MessageListFragment extends MessengerListFragment implements Messag
     private MessageListContract.OnErrorListener mErrorListener;
     private EndlessRecyclerViewScrollAdapter.OnLoadMoreListener mLoadMoreListener;
     private OnScrollListListener mOnScrollListener;
+    private AttachmentThumbnailPrefetcher mThumbnailPrefetcher;
     private boolean mIsListAlreadyInitialized;
     private ListPageState mListPageState;
 
@@ -76,6 +79,14 @@ public class MessageListFragment extends MessengerListFragment implements Messag
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (mThumbnailPrefetcher != null) {
+            mThumbnailPrefetcher.cancel();
+        }
+    }
+
     private boolean hasPageLoaded() {
         return isAdded();
     }
@@ -104,6 +115,9 @@ public class MessageListFragment extends MessengerListFragment implements Messag
                 super.setLoadMoreListener(mLoadMoreListener);
             }
 
+            mThumbnailPrefetcher = new AttachmentThumbnailPrefetcher(Kayako.getApplicationContext());
+            super.setScrollListener(mThumbnailPrefetcher);
+
             mIsListAlreadyInitialized = true;
         }
 
@@ -111,6 +125,23 @@ public class MessageListFragment extends MessengerListFragment implements Messag
         showListViewAndHideOthers();
     }
 
+    @Override
+    public boolean updateList(List<BaseListItem> messageList, DiffUtil.DiffResult diffResult) {
+        if (!hasPageLoaded() || !mIsListAlreadyInitialized) {
+            return false;
+        }
+
+        if (messageList == null) {
+            throw new IllegalStateException("Null argument unacceptable!");
+        }
+
+        replaceMessengerList(messageList, diffResult);
+
+        super.scrollToNewMessagesIfNearby();
+        showListViewAndHideOthers();
+        return true;
+    }
+
     @Override
     public void setHasMoreItemsToLoad(boolean hasMoreItems) {
         if (!hasPageLoaded()) {
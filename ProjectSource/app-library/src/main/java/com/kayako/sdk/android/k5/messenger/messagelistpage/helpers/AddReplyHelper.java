@@ -5,6 +5,9 @@ import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UnsentMessa
 import com.kayako.sdk.android.k5.common.utils.file.FileAttachment;
 import com.kayako.sdk.android.k5.core.KayakoLogHelper;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -16,8 +19,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 1. There's checking if the successful message sent is the one that was last part of the queue?
  * 2. The order is always maintained and messages are not sent more than once (multiple duplicate requests)
  * 3. Multiple new conversations should not be created when multiple replies are made for a new conversation! It should know that the first is to create new conversation, and all succeeding requests are messages to be added to the existing conversation
- * 4. Keep track of all messages that need to be sent - cache in memory
+ * 4. Keep track of all messages that need to be sent - cache in memory until the conversation is created. Once created, every reply is handed to the ReplyOutbox as soon as it is added, which persists it and keeps the order
  * 5. Attachments and Messages can be sent independent of each other. This allows messages to send without waiting for large attachment to send.
+ * 6. Attachments are sent in parallel by the ReplyOutbox so that a large or failed attachment does not hold back the others.
  */
 public class AddReplyHelper {
 
@@ -25,7 +29,7 @@ public class AddReplyHelper {
     private AtomicBoolean mIsConversationCreated;
 
     private AddReplyQueueHelper mAddMessageHelper = new AddReplyQueueHelper();
-    private AddReplyQueueHelper mAddAttachmentHelper = new AddReplyQueueHelper();
+    private Map<String, UnsentMessage> mHandedOverReplies = new LinkedHashMap<>(); // replies handed to the outbox and not sent yet, ordered by client id generation
 
     private OnAddReplyCallback mCallback;
 
@@ -45,28 +49,50 @@ public class AddReplyHelper {
         validateNewConversationSpecified();
         validateCallback();
 
-        mAddMessageHelper.addNewReply(
-                new UnsentMessage(message, ClientDeliveryStatus.SENDING, clientId),
-                clientId,
-                addReplyListener
-        );
+        UnsentMessage unsentMessage = new UnsentMessage(message, ClientDeliveryStatus.SENDING, clientId);
+        if (mIsConversationCreated.get()) {
+            handOverReply(unsentMessage); // The outbox sends the messages of a conversation one after the other
+        } else {
+            mAddMessageHelper.addNewReply(unsentMessage, clientId, addReplyListener);
+        }
     }
 
     public void addNewReply(FileAttachment attachment, String clientId) {
         validateNewConversationSpecified();
         validateCallback();
 
-        mAddAttachmentHelper.addNewReply(
-                new UnsentMessage(attachment, ClientDeliveryStatus.SENDING, clientId),
-                clientId,
-                addReplyListener
-        );
+        UnsentMessage unsentMessage = new UnsentMessage(attachment, ClientDeliveryStatus.SENDING, clientId);
+        if (mIsConversationCreated.get()) {
+            handOverReply(unsentMessage); // The outbox sends every attachment in a lane of its own
+        } else {
+            mAddMessageHelper.addNewReply(unsentMessage, clientId, addReplyListener);
+        }
+    }
+
+    /**
+     * @return true if the reply has been handed over to the outbox from this page and is not sent yet
+     */
+    public boolean isReplyBeingSent(String clientId) {
+        return mHandedOverReplies.containsKey(clientId);
     }
 
     public void resendReplies() {
         validateCallback();
-        mAddMessageHelper.sendNext(addReplyListener);
-        mAddAttachmentHelper.sendNext(addReplyListener);
+        if (mIsConversationCreated.get()) {
+            for (UnsentMessage unsentMessage : new ArrayList<>(mHandedOverReplies.values())) {
+                handOverReply(unsentMessage); // Handing over a reply already in the outbox only retries it
+            }
+        } else {
+            mAddMessageHelper.sendNext(addReplyListener);
+        }
+    }
+
+    /**
+     * @return true if the reply is an attachment being sent - attachments are sent independent of other replies
+     */
+    public boolean isAttachmentBeingSent(String clientId) {
+        UnsentMessage unsentMessage = mHandedOverReplies.get(clientId);
+        return unsentMessage != null && unsentMessage.getAttachment() != null;
     }
 
     public void onSuccessfulCreationOfConversation(String clientId) {
@@ -74,9 +100,10 @@ public class AddReplyHelper {
         setIsConversationCreated(true);
 
         if (mAddMessageHelper.getLastSentReplyClientId() != null && mAddMessageHelper.getLastSentReplyClientId().equals(clientId)) {
-            mAddMessageHelper.onSuccessfulSendingOfReply(clientId, addReplyListener);
-        } else if (mAddAttachmentHelper.getLastSentReplyClientId() != null && mAddAttachmentHelper.getLastSentReplyClientId().equals(clientId)) {
-            mAddAttachmentHelper.onSuccessfulSendingOfReply(clientId, addReplyListener);
+            // Replies added while the conversation was being created no longer need to wait for each other - the outbox keeps them in order
+            for (UnsentMessage unsentMessage : mAddMessageHelper.removeAllAfterSuccessfulSendingOfReply(clientId)) {
+                handOverReply(unsentMessage);
+            }
         } else {
             throwInvalidClientIdStateException();
         }
@@ -85,10 +112,10 @@ public class AddReplyHelper {
     public void onSuccessfulSendingOfMessage(String clientId) {
         validateCallback();
 
-        if (mAddMessageHelper.getLastSentReplyClientId() != null && mAddMessageHelper.getLastSentReplyClientId().equals(clientId)) {
+        if (mHandedOverReplies.remove(clientId) != null) {
+            return; // the outbox sends the next reply on its own
+        } else if (mAddMessageHelper.getLastSentReplyClientId() != null && mAddMessageHelper.getLastSentReplyClientId().equals(clientId)) {
             mAddMessageHelper.onSuccessfulSendingOfReply(clientId, addReplyListener);
-        } else if (mAddAttachmentHelper.getLastSentReplyClientId() != null && mAddAttachmentHelper.getLastSentReplyClientId().equals(clientId)) {
-            mAddAttachmentHelper.onSuccessfulSendingOfReply(clientId, addReplyListener);
         } else {
             throwInvalidClientIdStateException();
         }
@@ -101,8 +128,6 @@ public class AddReplyHelper {
 
         if (mAddMessageHelper.getLastSentReplyClientId() != null && mAddMessageHelper.getLastSentReplyClientId().equals(clientId)) {
             mAddMessageHelper.onFailedToSendReply(clientId);
-        } else if (mAddAttachmentHelper.getLastSentReplyClientId() != null && mAddAttachmentHelper.getLastSentReplyClientId().equals(clientId)) {
-            mAddAttachmentHelper.onFailedToSendReply(clientId);
         } else {
             throwInvalidClientIdStateException();
         }
@@ -110,15 +135,20 @@ public class AddReplyHelper {
 
     public void onFailedSendingOfMessage(String clientId) {
         KayakoLogHelper.e("onFailedSendingOfMessage", clientId);
-        if (mAddMessageHelper.getLastSentReplyClientId() != null && mAddMessageHelper.getLastSentReplyClientId().equals(clientId)) {
+        if (mHandedOverReplies.containsKey(clientId)) {
+            return; // kept in the outbox, and handed over again on resendReplies()
+        } else if (mAddMessageHelper.getLastSentReplyClientId() != null && mAddMessageHelper.getLastSentReplyClientId().equals(clientId)) {
             mAddMessageHelper.onFailedToSendReply(clientId);
-        } else if (mAddAttachmentHelper.getLastSentReplyClientId() != null && mAddAttachmentHelper.getLastSentReplyClientId().equals(clientId)) {
-            mAddAttachmentHelper.onFailedToSendReply(clientId);
         } else {
             throwInvalidClientIdStateException();
         }
     }
 
+    private void handOverReply(UnsentMessage unsentMessage) {
+        mHandedOverReplies.put(unsentMessage.getClientId(), unsentMessage);
+        mCallback.onAddMessage(unsentMessage);
+    }
+
     private void throwInvalidClientIdStateException() {
         // If a clientId is received which is not known by any of the Queue Helpers, then an invalid state has occured and an exception should be thrown
         // throw new IllegalStateException("Invalid State. Last sent client id does not match!");
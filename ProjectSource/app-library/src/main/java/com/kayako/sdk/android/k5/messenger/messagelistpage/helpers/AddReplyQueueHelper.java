@@ -2,6 +2,8 @@ package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
 
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UnsentMessage;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
@@ -32,6 +34,24 @@ public class AddReplyQueueHelper implements AddReplyQueueInterface {
         }
     }
 
+    /**
+     * Like onSuccessfulSendingOfReply(), but instead of sending the next reply, all replies waiting are removed and returned - to be sent by someone else.
+     *
+     * @return replies waiting behind the one sent, in the order they were added
+     */
+    public synchronized List<UnsentMessage> removeAllAfterSuccessfulSendingOfReply(String clientId) {
+        if (clientIdOfLastReplySending.get() == null || !clientIdOfLastReplySending.get().equals(clientId)) {
+            throw new IllegalStateException("Messages are not sent in a serial order! Something has gone wrong!");
+        }
+
+        queue.remove();
+        resetLastSendingClientId(clientId);
+
+        List<UnsentMessage> waitingReplies = new ArrayList<>(queue);
+        queue.clear();
+        return waitingReplies;
+    }
+
     @Override
     public synchronized void onFailedToSendReply(String clientId) {
         if (clientId == null) {
@@ -1,10 +1,13 @@
 package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
 
 
-import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UniqueSortedUpdatableResourceList;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UniqueSortedResourceIndex;
 import com.kayako.sdk.messenger.message.Message;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -13,11 +16,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class ConversationMessagesHelper {
 
-    private UniqueSortedUpdatableResourceList<Message> messages = new UniqueSortedUpdatableResourceList<>();
+    private UniqueSortedResourceIndex<Message> messages = new UniqueSortedResourceIndex<>();
     private final int LIMIT = 30;
     private AtomicInteger lastSuccessfulOffset = new AtomicInteger(-1);
     private AtomicBoolean hasMoreMessages = new AtomicBoolean(true);
     private AtomicBoolean hasLoadedMessagesBefore = new AtomicBoolean(false);
+    private final Set<Long> cachedMessageIds = Collections.synchronizedSet(new HashSet<Long>()); // messages from disk, not loaded from the network yet
 
     public boolean hasLoadedMessagesBefore() {
         return hasLoadedMessagesBefore.get();
@@ -53,6 +57,21 @@ public class ConversationMessagesHelper {
         }
 
         messages.addElement(message.getId(), message);
+        cachedMessageIds.remove(message.getId());
+    }
+
+    /**
+     * Add messages cached on disk to show while the latest messages are loaded. Pagination state is untouched.
+     * <p>
+     * The cached messages are replaced by the first page loaded from the network, so messages deleted or changed since never stay in the list.
+     *
+     * @param cachedMessages
+     */
+    public void onLoadCachedMessages(List<Message> cachedMessages) {
+        for (Message cachedMessage : cachedMessages) {
+            messages.addElement(cachedMessage.getId(), cachedMessage);
+            cachedMessageIds.add(cachedMessage.getId());
+        }
     }
 
     public void onLoadNextMessages(List<Message> newMessages, int offset) {
@@ -72,6 +91,14 @@ public class ConversationMessagesHelper {
             lastSuccessfulOffset.set(offset);
         }
 
+        // Replace the messages cached on disk - any still valid are in the pages loaded from the network
+        synchronized (cachedMessageIds) {
+            for (Long cachedMessageId : cachedMessageIds) {
+                messages.removeElement(cachedMessageId);
+            }
+            cachedMessageIds.clear();
+        }
+
         // Add new messages to messageList
         for (Message newMessage : newMessages) {
             messages.addElement(newMessage.getId(), newMessage);
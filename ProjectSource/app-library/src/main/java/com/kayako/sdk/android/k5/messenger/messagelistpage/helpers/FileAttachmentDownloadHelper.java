@@ -1,29 +1,53 @@
 package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
 
-import android.app.DownloadManager;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.widget.Toast;
 
 import com.kayako.sdk.android.k5.R;
-import com.kayako.sdk.android.k5.common.utils.file.FileDownloadUtil;
+import com.kayako.sdk.android.k5.common.utils.file.AttachmentDownloader;
+import com.kayako.sdk.android.k5.common.utils.file.FileAttachmentUtil;
+import com.kayako.sdk.android.k5.common.utils.file.FileStorageUtil;
+import com.kayako.sdk.android.k5.common.utils.file.KayakoFileProvider;
 import com.kayako.sdk.android.k5.core.Kayako;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
 import com.kayako.sdk.android.k5.core.MessengerPref;
 import com.kayako.sdk.auth.FingerprintAuth;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.File;
 import java.util.Map;
-import java.util.Set;
 
+/**
+ * Downloads attachments via {@link AttachmentDownloader} and opens them once downloaded.
+ * <p>
+ * Attachments are cached by the SDK, so an attachment downloaded before (on any page) is opened right away.
+ * Call {@link #removeListeners()} when the page is closed - downloads still complete, but are no longer opened.
+ */
 public class FileAttachmentDownloadHelper {
 
-    private DownloadManager mDownloadManager;
-    private Set<Long> mDownloadedLinks = new HashSet<>();
-    private Map<String, Long> mMapUrlToDownloadId = new HashMap<>();
+    private static final String TAG = "FileAttachmentDownloadHelper";
+
+    private AttachmentDownloader.OnDownloadListener mDownloadListener = new AttachmentDownloader.OnDownloadListener() {
+        @Override
+        public void onProgress(long downloadedBytes, long totalBytes) {
+            // Progress is not shown - the user is only notified when the download completes
+        }
+
+        @Override
+        public void onDownloaded(File file) {
+            Context context = Kayako.getApplicationContext();
+            Toast.makeText(context, context.getString(R.string.ko__attachment_msg_download_successful), Toast.LENGTH_SHORT).show();
+            openFile(context, file);
+        }
+
+        @Override
+        public void onFailed() {
+            Context context = Kayako.getApplicationContext();
+            Toast.makeText(context, context.getString(R.string.ko__attachment_msg_unable_to_download_file), Toast.LENGTH_SHORT).show();
+        }
+    };
 
     /**
      * @param attachment
@@ -33,73 +57,55 @@ public class FileAttachmentDownloadHelper {
         if (attachment == null) {
             throw new IllegalStateException();
         }
-        Long downloadId = mMapUrlToDownloadId.get(attachment.getDownloadUrl());
-        if (downloadId == null) {
-            downloadId = 0L;
-        }
 
-        Context context = Kayako.getInstance().getApplicationContext();
+        AttachmentDownloader downloader = AttachmentDownloader.getInstance();
+        Context context = Kayako.getApplicationContext();
 
-        if (!forceDownload && mDownloadedLinks.contains(downloadId) && mDownloadManager != null && mDownloadManager.getUriForDownloadedFile(downloadId) != null) { // if file has already downloaded
-            Intent intent = new Intent();
-            intent.setData(mDownloadManager.getUriForDownloadedFile(downloadId));
-            intent.setType(mDownloadManager.getMimeTypeForDownloadedFile(downloadId));
-            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            context.startActivity(intent);
+        if (forceDownload) {
+            downloader.delete(attachment.getDownloadUrl(), attachment.getFileSize());
+        }
 
-        } else if (!forceDownload && mDownloadedLinks.contains(downloadId) && mDownloadManager != null && mDownloadManager.getUriForDownloadedFile(downloadId) == null) { // if file is downloading
-            Toast.makeText(context, FileDownloadUtil.checkDownloadStatus(context, downloadId), Toast.LENGTH_SHORT).show();
+        File downloadedFile = downloader.getCachedFile(attachment.getDownloadUrl(), attachment.getFileName(), attachment.getFileSize());
+        if (downloadedFile != null) { // if file has already downloaded
+            openFile(context, downloadedFile);
 
-        } else { // if file download has not been initiated yet
-            startReceiver();
-            startDownload(attachment);
+        } else { // if file is downloading or download has not been initiated yet
+            downloader.download(
+                    attachment.getDownloadUrl(),
+                    getHeaders(attachment),
+                    attachment.getFileName(),
+                    attachment.getFileSize(),
+                    mDownloadListener);
             Toast.makeText(context, context.getString(R.string.ko__attachment_msg_download_running), Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void startDownload(DownloadAttachment attachment) {
-        Context context = Kayako.getApplicationContext();
-
-        mDownloadManager = (DownloadManager) context.getSystemService(Context.DOWNLOAD_SERVICE);
+    public void removeListeners() {
+        AttachmentDownloader.getInstance().removeListener(mDownloadListener);
+    }
 
-        long downloadId;
+    private Map<String, String> getHeaders(DownloadAttachment attachment) {
         if (attachment.getAuth() == null || attachment.getAuth().getHeaders().size() == 0) {
-            downloadId = FileDownloadUtil.downloadFile(
-                    context,
-                    mDownloadManager,
-                    attachment.getDownloadUrl(),
-                    attachment.getFileName(),
-                    attachment.getFileSize());
-
+            return null;
         } else {
-            downloadId = FileDownloadUtil.downloadFile(context,
-                    mDownloadManager,
-                    attachment.getAuth().getHeaders(),
-                    attachment.getDownloadUrl(),
-                    attachment.getFileName(),
-                    attachment.getFileSize());
+            return attachment.getAuth().getHeaders();
         }
-
-        mDownloadedLinks.add(downloadId);
-
-        mMapUrlToDownloadId.put(attachment.getDownloadUrl(), downloadId);
     }
 
-    private void startReceiver() {
-        BroadcastReceiver receiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                long downloadId = intent.getLongExtra(DownloadManager.EXTRA_DOWNLOAD_ID, 0);
+    private void openFile(Context context, File file) {
+        try {
+            Uri uri = KayakoFileProvider.getUriForFile(context, KayakoFileProvider.getAuthority(context.getPackageName()), file);
 
-                // Check added because every case post would have it's own receiver
-                if (mDownloadedLinks.contains(downloadId)) {
-                    Toast.makeText(context, FileDownloadUtil.checkDownloadStatus(context, downloadId), Toast.LENGTH_SHORT).show();
-                }
-            }
-        };
+            Intent intent = new Intent(Intent.ACTION_VIEW);
+            intent.setDataAndType(uri, FileStorageUtil.getMimeType(file));
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
 
-        Context context = Kayako.getApplicationContext();
-        context.registerReceiver(receiver, new IntentFilter(DownloadManager.ACTION_DOWNLOAD_COMPLETE));
+            FileAttachmentUtil.showErrorMessages(context, FileAttachmentUtil.openFileIntent(context, intent));
+        } catch (IllegalArgumentException e) {
+            // FileProvider not merged into the app manifest
+            KayakoLogHelper.logException(TAG, e);
+            FileAttachmentUtil.showErrorMessages(context, FileAttachmentUtil.STATUS_FAIL_INVALID_FILE);
+        }
     }
 
     public static DownloadAttachment generateDownloadAttachmentForMessenger(@NonNull String fileName, @NonNull Long fileSize, @NonNull String downloadUrl) {
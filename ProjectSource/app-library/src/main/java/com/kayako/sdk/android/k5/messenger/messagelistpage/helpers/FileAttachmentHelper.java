@@ -1,6 +1,7 @@
 package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
 
 import com.kayako.sdk.android.k5.common.utils.file.FileAttachmentUtil;
+import com.kayako.sdk.android.k5.messenger.data.outbox.ReplyOutbox;
 
 import java.io.File;
 import java.util.HashMap;
@@ -30,7 +31,9 @@ public class FileAttachmentHelper {
     }
 
     public void onReset() {
-        FileAttachmentUtil.clearSavedAttachments();
+        // Attachments still waiting to be sent by the ReplyOutbox are kept - it deletes them once sent
+        ReplyOutbox.getInstance().clearSavedAttachmentsNotInOutbox();
+        mCachedAttachments.clear();
     }
 
 }
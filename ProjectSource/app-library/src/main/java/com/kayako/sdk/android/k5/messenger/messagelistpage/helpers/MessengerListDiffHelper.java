@@ -0,0 +1,142 @@
+package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
+
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+
+import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.DiffUtilsCallback;
+import com.kayako.sdk.android.k5.core.KayakoLogHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the list items of the messenger list (including their html) and calculates the changes to be made to the view on a background thread.
+ * <p>
+ * Every call to {@link #submit(ListItemsGenerator, OnListReadyListener)} starts a new generation. Only the latest generation is
+ * delivered to the view - results of older generations are dropped, so that a burst of changes (like typing indicators) only
+ * results in a single update.
+ * <p>
+ * The list is compared with the last displayed list item by item first, so that unchanged lists are never diffed or redrawn.
+ * <p>
+ * If building or diffing the list fails, the error is logged and the whole list is replaced instead.
+ */
+public class MessengerListDiffHelper {
+
+    private static final String TAG = "MessengerListDiffHelper";
+
+    // Shared by all pages, only one messenger list is shown at a time
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final AtomicInteger mGeneration = new AtomicInteger(0);
+
+    // Only modified on the main thread, after a list is displayed
+    private volatile List<BaseListItem> mDisplayedItems;
+
+    /**
+     * @param generator called on a background thread to build the list items. Should not access any non-thread-safe state.
+     * @param listener  called on the calling thread if this is still the latest generation
+     */
+    public void submit(@NonNull final ListItemsGenerator generator, @NonNull final OnListReadyListener listener) {
+        final int generation = mGeneration.incrementAndGet();
+        final Handler handler = new Handler();
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration.get()) {
+                    return; // a newer list has been requested - skip building this one
+                }
+
+                final List<BaseListItem> oldItems = mDisplayedItems;
+                List<BaseListItem> newItems = null;
+                try {
+                    newItems = generator.generateListItems();
+                    MessengerListHelper.parseHtml(newItems); // Before the list is displayed, so that binding never parses html
+
+                    if (MessengerListHelper.areListsSame(oldItems, newItems)) {
+                        postResult(handler, generation, listener, null, null, null);
+                        return; // Don't update list if there are no changes
+                    }
+
+                    // Calculated on the reversed lists because the messenger list is displayed in reverse order
+                    final DiffUtil.DiffResult diffResult = oldItems == null ? null : DiffUtil.calculateDiff(new DiffUtilsCallback(reverse(oldItems), reverse(newItems)), false);
+                    postResult(handler, generation, listener, newItems, diffResult, oldItems);
+
+                } catch (Exception e) {
+                    KayakoLogHelper.logException(TAG, e);
+
+                    if (newItems != null) {
+                        postResult(handler, generation, listener, newItems, null, oldItems); // replace the whole list
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop the results of all pending generations
+     */
+    public void cancel() {
+        mGeneration.incrementAndGet();
+    }
+
+    private void postResult(Handler handler, final int generation, final OnListReadyListener listener,
+                            @Nullable final List<BaseListItem> newItems, @Nullable final DiffUtil.DiffResult diffResult, @Nullable final List<BaseListItem> oldItems) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration.get()) {
+                    return; // stale - a newer list will be delivered
+                }
+
+                if (newItems == null) {
+                    listener.onListUnchanged();
+                    return;
+                }
+
+                // The diff is only valid against the list it was calculated from - otherwise replace the whole list
+                DiffUtil.DiffResult applicableDiffResult = oldItems == mDisplayedItems ? diffResult : null;
+                if (listener.onListChanged(new ArrayList<>(newItems), applicableDiffResult)) { // Send copy because reference is updated (order reversed in view)
+                    mDisplayedItems = newItems;
+                }
+            }
+        });
+    }
+
+    private static List<BaseListItem> reverse(List<BaseListItem> items) {
+        List<BaseListItem> reversedItems = new ArrayList<>(items);
+        Collections.reverse(reversedItems);
+        return reversedItems;
+    }
+
+    public interface ListItemsGenerator {
+        @NonNull
+        List<BaseListItem> generateListItems();
+    }
+
+    public interface OnListReadyListener {
+        /**
+         * @param listItems  the new list items, ordered from oldest to newest
+         * @param diffResult the changes from the displayed list (in display order), null if the whole list should be replaced
+         * @return true if the list was displayed
+         */
+        boolean onListChanged(List<BaseListItem> listItems, @Nullable DiffUtil.DiffResult diffResult);
+
+        void onListUnchanged();
+    }
+}
@@ -1,15 +1,19 @@
 package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
 
 import com.kayako.sdk.android.k5.R;
+import com.kayako.sdk.android.k5.common.adapter.BaseIdentityListItem;
 import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.Attachment;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.AttachmentUrlType;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.DataItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.AttachmentHelper;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.DataItemHelper;
-import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.DiffUtilsHelper;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.IncrementalDataItemHelper;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UserDecorationHelper;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.BotMessageListItem;
 import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.SystemMessageListItem;
 import com.kayako.sdk.android.k5.common.fragments.ListPageState;
+import com.kayako.sdk.android.k5.common.utils.HtmlSpannedCache;
 import com.kayako.sdk.android.k5.common.utils.file.FileStorageUtil;
 import com.kayako.sdk.android.k5.core.Kayako;
 import com.kayako.sdk.android.k5.core.MessengerPref;
@@ -28,7 +32,7 @@ import java.util.List;
 public class MessengerListHelper {
 
     private ListPageState mListPageState;
-    private List<BaseListItem> mLastDisplayedItems;
+    private DataItemHelper mDataItemHelper = new IncrementalDataItemHelper(); // only regenerates list items of changed messages
 
     public ListPageState getListPageState() {
         return mListPageState;
@@ -38,40 +42,63 @@ public class MessengerListHelper {
         this.mListPageState = mListPageState;
     }
 
-    public void setLastDisplayedItems(List<BaseListItem> mLastDisplayedItems) {
-        this.mLastDisplayedItems = mLastDisplayedItems;
-    }
-
-    public boolean shouldUpdateViewList(List<BaseListItem> newItems) {
-        if (newItems == null || mLastDisplayedItems == null) {
-            return true; // EMPTY <-> NOT-EMPTY
+    /**
+     * Used to quickly check if a list has changed without comparing every item with every other item.
+     * <p>
+     * Two lists are the same if they have the same items (by type and id) in the same order, with equal contents.
+     *
+     * @param oldItems
+     * @param newItems
+     * @return
+     */
+    public static boolean areListsSame(List<BaseListItem> oldItems, List<BaseListItem> newItems) {
+        if (oldItems == null || newItems == null || oldItems.size() != newItems.size()) {
+            return false;
         }
 
-        if (newItems.size() != mLastDisplayedItems.size()) {
-            return true; // New items (checked by size)
+        for (int i = 0; i < newItems.size(); i++) {
+            BaseListItem oldItem = oldItems.get(i);
+            BaseListItem newItem = newItems.get(i);
+
+            if (oldItem.getItemType() != newItem.getItemType()
+                    || !areEqual(getId(oldItem), getId(newItem))
+                    || !areEqual(oldItem.getContents(), newItem.getContents())) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        for (BaseListItem newItem : newItems) {
-            boolean isFoundAndEqual = false;
+    private static Long getId(BaseListItem item) {
+        return item instanceof BaseIdentityListItem ? ((BaseIdentityListItem) item).getId() : null;
+    }
 
-            for (BaseListItem oldItem : mLastDisplayedItems) {
-                if (DiffUtilsHelper.areItemsSame(newItem, oldItem)) {
-                    isFoundAndEqual = true;
-                    break;
-                }
-            }
+    private static boolean areEqual(Object object1, Object object2) {
+        return object1 == null ? object2 == null : object1.equals(object2);
+    }
 
-            if (!isFoundAndEqual) {
-                return true;
+    /**
+     * Convert the html of the list items (bot messages, system messages and attachment captions) to text and cache it,
+     * so that binding the list items does not parse html on the main thread. Should be called on a background thread.
+     *
+     * @param items
+     */
+    public static void parseHtml(List<BaseListItem> items) {
+        HtmlSpannedCache htmlSpannedCache = HtmlSpannedCache.getInstance();
+        for (BaseListItem item : items) {
+            if (item instanceof BotMessageListItem && ((BotMessageListItem) item).getMessage() != null) {
+                htmlSpannedCache.fromHtml(null, ((BotMessageListItem) item).getMessage());
+            } else if (item instanceof SystemMessageListItem) {
+                htmlSpannedCache.fromHtml(null, ((SystemMessageListItem) item).getMessage());
+            } else {
+                AttachmentHelper.getParsedCaption(AttachmentHelper.getAttachment(item));
             }
         }
-
-        return false;
     }
 
     public List<BaseListItem> getMessageAsListItemViews(List<Message> messages, long lastOriginalMessageMarkedRead, long userId) {
         List<DataItem> dataItems = convertMessagesToDataItems(messages, lastOriginalMessageMarkedRead, userId);
-        return DataItemHelper.getInstance().convertDataItemToListItems(dataItems);
+        return mDataItemHelper.convertDataItemToListItems(dataItems);
     }
 
     public List<BaseListItem> getConversationStatusMessages(Conversation conversation) {
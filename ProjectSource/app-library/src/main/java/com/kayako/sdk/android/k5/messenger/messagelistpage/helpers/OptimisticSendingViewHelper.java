@@ -77,6 +77,28 @@ public class OptimisticSendingViewHelper {
         callback.onRefreshListView();
     }
 
+    /**
+     * Mark a single reply as failed - used for replies sent independent of the others, like attachments
+     */
+    public void markAsFailed(String clientId, OptimisticSendingViewCallback callback) {
+        validateCallback(callback);
+        validateHelper();
+
+        optimisticSendingHelper.markAsFailed(clientId);
+        callback.onRefreshListView();
+    }
+
+    /**
+     * Mark a reply saved in the ReplyOutbox while offline - it is sent once connectivity is restored, and should not be shown as failed
+     */
+    public void markAsWaitingForNetwork(String clientId, OptimisticSendingViewCallback callback) {
+        validateCallback(callback);
+        validateHelper();
+
+        optimisticSendingHelper.markAsWaitingForNetwork(clientId);
+        callback.onRefreshListView();
+    }
+
     public void markAllAsSending(OptimisticSendingViewCallback callback) {
         validateCallback(callback);
         validateHelper();
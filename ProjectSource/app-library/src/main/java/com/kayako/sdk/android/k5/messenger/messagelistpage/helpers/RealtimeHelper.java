@@ -9,8 +9,6 @@ import com.kayako.sdk.android.k5.messenger.data.realtime.RealtimeConversationHel
 import com.kayako.sdk.android.k5.messenger.data.realtime.RealtimeCurrentUserTrackerHelper;
 import com.kayako.sdk.messenger.conversation.Conversation;
 
-import java.util.HashSet;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RealtimeHelper {
@@ -126,8 +124,7 @@ public class RealtimeHelper {
 
     private void triggerPresenceCallbacks() {
         if (mOnAgentPresenceChangeListener != null && mAgentUserId != null && mConversationId != null) {
-            Set<Long> set = RealtimeConversationHelper.getActiveUsers(mConversationId);
-            mOnAgentPresenceChangeListener.onAgentPresenceChange(mAgentUserId, set.contains(mAgentUserId));
+            mOnAgentPresenceChangeListener.onAgentPresenceChange(mAgentUserId, RealtimeConversationHelper.isActiveUser(mConversationId, mAgentUserId));
         }
     }
 
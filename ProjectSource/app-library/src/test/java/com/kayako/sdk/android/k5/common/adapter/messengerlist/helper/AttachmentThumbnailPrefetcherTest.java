@@ -0,0 +1,48 @@
+package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
+
+import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.AttachmentUrlType;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.AttachmentMessageOtherListItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.view.AttachmentMessageSelfListItem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AttachmentThumbnailPrefetcherTest {
+
+    @Test
+    public void prefetchDistanceGrowsWithScrollSpeed() throws Exception {
+        Assert.assertEquals(6, AttachmentThumbnailPrefetcher.calculatePrefetchDistance(0, 2000));
+        Assert.assertEquals(12, AttachmentThumbnailPrefetcher.calculatePrefetchDistance(100, 2000));
+        Assert.assertEquals(18, AttachmentThumbnailPrefetcher.calculatePrefetchDistance(5000, 2000)); // capped
+        Assert.assertEquals(6, AttachmentThumbnailPrefetcher.calculatePrefetchDistance(100, 0)); // not laid out yet
+    }
+
+    @Test
+    public void onlyImageThumbnailsAheadAreReturnedNearestFirst() throws Exception {
+        List<BaseListItem> items = new ArrayList<>();
+        items.add(generateImageItem("0"));
+        items.add(generateImageItem("1"));
+        items.add(generateFileItem("2"));
+        items.add(generateImageItem("3"));
+        items.add(generateImageItem("4"));
+
+        Assert.assertEquals(Arrays.asList("thumbnail-3", "thumbnail-4"), AttachmentThumbnailPrefetcher.getThumbnailUrlsAhead(items, 1, 6, true));
+        Assert.assertEquals(Arrays.asList("thumbnail-1", "thumbnail-0"), AttachmentThumbnailPrefetcher.getThumbnailUrlsAhead(items, 2, 6, false));
+        Assert.assertEquals(Arrays.asList("thumbnail-1"), AttachmentThumbnailPrefetcher.getThumbnailUrlsAhead(items, 0, 2, true));
+    }
+
+    private BaseListItem generateImageItem(String id) {
+        AttachmentUrlType attachment = new AttachmentUrlType("thumbnail-" + id, "original-" + id, "image.png", 100, "image/png", 0, "download-" + id);
+        return new AttachmentMessageOtherListItem(null, "avatar", null, attachment, 0, null);
+    }
+
+    private BaseListItem generateFileItem(String id) {
+        AttachmentUrlType attachment = new AttachmentUrlType("thumbnail-" + id, "original-" + id, "file.pdf", 100, "application/pdf", 0, "download-" + id);
+        return new AttachmentMessageSelfListItem(null, null, false, attachment, 0, null);
+    }
+}
@@ -0,0 +1,132 @@
+package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
+
+import com.kayako.sdk.android.k5.common.adapter.BaseIdentityListItem;
+import com.kayako.sdk.android.k5.common.adapter.BaseListItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.Attachment;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.DataItem;
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.UserDecoration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class IncrementalDataItemHelperTest {
+
+    private static final long START_TIME = 1491558788000L;
+    private static final long SELF_USER_ID = 1L;
+    private static final long OTHER_USER_ID = 2L;
+
+    @Test
+    public void sameListItemsAsDataItemHelper() throws Exception {
+        List<DataItem> dataItems = generateDataItems(10);
+
+        List<BaseListItem> expected = new DataItemHelper().convertDataItemToListItems(dataItems);
+        List<BaseListItem> actual = new IncrementalDataItemHelper().convertDataItemToListItems(dataItems);
+
+        assertSameContents(expected, actual);
+    }
+
+    @Test
+    public void unchangedDataItemsReuseListItems() throws Exception {
+        IncrementalDataItemHelper helper = new IncrementalDataItemHelper();
+
+        List<BaseListItem> first = helper.convertDataItemToListItems(generateDataItems(10));
+        List<BaseListItem> second = helper.convertDataItemToListItems(generateDataItems(10)); // new but equal data items
+
+        Assert.assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertSame(first.get(i), second.get(i));
+        }
+    }
+
+    @Test
+    public void newDataItemRegeneratesOnlyItselfAndNeighbours() throws Exception {
+        IncrementalDataItemHelper helper = new IncrementalDataItemHelper();
+
+        List<BaseListItem> before = helper.convertDataItemToListItems(generateDataItems(10));
+        List<BaseListItem> after = helper.convertDataItemToListItems(generateDataItems(11));
+
+        // Matches the non-incremental conversion
+        assertSameContents(new DataItemHelper().convertDataItemToListItems(generateDataItems(11)), after);
+
+        // Every message except the last one (previously the last item of the list) is reused
+        for (int i = 0; i < 9; i++) {
+            Assert.assertSame(findById(before, i), findById(after, i));
+        }
+        Assert.assertNotSame(findById(before, 9), findById(after, 9));
+    }
+
+    @Test
+    public void changedDataItemRegeneratesOnlyItselfAndNeighbours() throws Exception {
+        IncrementalDataItemHelper helper = new IncrementalDataItemHelper();
+
+        List<DataItem> dataItems = generateDataItems(10);
+        List<BaseListItem> before = helper.convertDataItemToListItems(dataItems);
+
+        dataItems.set(5, generateDataItem(5, "Edited message"));
+        List<BaseListItem> after = helper.convertDataItemToListItems(dataItems);
+
+        assertSameContents(new DataItemHelper().convertDataItemToListItems(dataItems), after);
+
+        for (int i = 0; i < 10; i++) {
+            if (i >= 4 && i <= 6) {
+                Assert.assertNotSame(findById(before, i), findById(after, i));
+            } else {
+                Assert.assertSame(findById(before, i), findById(after, i));
+            }
+        }
+    }
+
+    @Test(expected = AssertionError.class)
+    public void duplicateIdsAreNotAllowed() throws Exception {
+        List<DataItem> dataItems = generateDataItems(3);
+        dataItems.add(generateDataItem(2, "Duplicate"));
+
+        new IncrementalDataItemHelper().convertDataItemToListItems(dataItems);
+    }
+
+    private List<DataItem> generateDataItems(int count) {
+        List<DataItem> dataItems = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            dataItems.add(generateDataItem(i, "Message " + i));
+        }
+        return dataItems;
+    }
+
+    private DataItem generateDataItem(long id, String message) {
+        boolean isSelf = id % 3 == 0; // mix of grouped and ungrouped messages
+        return new DataItem(
+                id,
+                null,
+                new UserDecoration("avatarUrl", isSelf ? SELF_USER_ID : OTHER_USER_ID, isSelf),
+                null,
+                null,
+                message,
+                START_TIME + id * 1000,
+                Collections.<Attachment>emptyList(),
+                true
+        );
+    }
+
+    private BaseListItem findById(List<BaseListItem> listItems, long id) {
+        for (BaseListItem listItem : listItems) {
+            if (listItem instanceof BaseIdentityListItem
+                    && ((BaseIdentityListItem) listItem).getId() != null
+                    && ((BaseIdentityListItem) listItem).getId() == id) {
+                return listItem;
+            }
+        }
+        throw new AssertionError("No list item found with id " + id);
+    }
+
+    private void assertSameContents(List<BaseListItem> expected, List<BaseListItem> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getItemType(), actual.get(i).getItemType());
+            Assert.assertEquals(expected.get(i).getContents(), actual.get(i).getContents());
+        }
+    }
+}
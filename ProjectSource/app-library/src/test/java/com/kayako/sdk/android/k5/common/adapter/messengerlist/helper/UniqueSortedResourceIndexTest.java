@@ -0,0 +1,216 @@
+package com.kayako.sdk.android.k5.common.adapter.messengerlist.helper;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class UniqueSortedResourceIndexTest {
+
+    private static final int REALTIME_LIST_SIZE = 2000;
+    private static final int REALTIME_UPDATES = 200;
+
+    private static final int BENCHMARK_SIZE = 10000;
+    private static final int BENCHMARK_UPDATES = 2000;
+
+    private static final Comparator<Item> DESCENDING_TIME_COMPARATOR = new Comparator<Item>() {
+        @Override
+        public int compare(Item lhs, Item rhs) {
+            // descending order of time
+            if (lhs.updatedAt == rhs.updatedAt) {
+                return 0;
+            } else if (lhs.updatedAt < rhs.updatedAt) {
+                return 1;
+            } else {
+                return -1;
+            }
+        }
+    };
+
+    @Test
+    public void sortedByIdWithoutComparator() throws Exception {
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        index.addElement(55L, new Item(55L, 0, null));
+        index.addElement(2L, new Item(2L, 0, "First One"));
+        index.addElement(100L, new Item(100L, 0, null));
+        index.addElement(4L, new Item(4L, 0, null));
+        index.addElement(2L, new Item(2L, 0, "Second One"));
+        index.addElement(2L, new Item(2L, 0, "Third One"));
+
+        List<Item> list = index.getList();
+
+        Assert.assertEquals("There should be no duplicates to the list", 4, list.size());
+        Assert.assertEquals(2L, list.get(0).id);
+        Assert.assertEquals(4L, list.get(1).id);
+        Assert.assertEquals(55L, list.get(2).id);
+        Assert.assertEquals(100L, list.get(3).id);
+        Assert.assertEquals("New elements should replace older elements", "Third One", list.get(0).subject);
+    }
+
+    @Test
+    public void updatedElementMovesToNewPosition() throws Exception {
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        index.setSortComparator(DESCENDING_TIME_COMPARATOR);
+        index.addElement(1L, new Item(1L, 100, null));
+        index.addElement(2L, new Item(2L, 200, null));
+        index.addElement(3L, new Item(3L, 300, null));
+
+        Assert.assertEquals(3L, index.getList().get(0).id);
+
+        index.addElement(1L, new Item(1L, 400, null));
+
+        List<Item> list = index.getList();
+        Assert.assertEquals(3, list.size());
+        Assert.assertEquals(1L, list.get(0).id);
+        Assert.assertEquals(3L, list.get(1).id);
+        Assert.assertEquals(2L, list.get(2).id);
+    }
+
+    @Test
+    public void removeElement() throws Exception {
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        index.addElement(1L, new Item(1L, 0, null));
+        index.addElement(2L, new Item(2L, 0, null));
+
+        index.removeElement(1L);
+
+        Assert.assertFalse(index.exists(1L));
+        Assert.assertNull(index.getElement(1L));
+        Assert.assertEquals(1, index.getSize());
+        Assert.assertEquals(2L, index.getList().get(0).id);
+    }
+
+    @Test
+    public void snapshotIsReusedUntilChanged() throws Exception {
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        index.addElement(1L, new Item(1L, 0, null));
+
+        List<Item> first = index.getList();
+        Assert.assertSame("Unchanged list should return the same snapshot", first, index.getList());
+
+        index.addElement(2L, new Item(2L, 0, null));
+        Assert.assertNotSame("Changed list should return a new snapshot", first, index.getList());
+        Assert.assertEquals("Older snapshots should not be affected by changes", 1, first.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotIsUnmodifiable() throws Exception {
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        index.addElement(1L, new Item(1L, 0, null));
+        index.getList().clear();
+    }
+
+    @Test
+    public void sameOrderAsUniqueSortedUpdatableResourceList() throws Exception {
+        UniqueSortedUpdatableResourceList<Item> originalList = new UniqueSortedUpdatableResourceList<>();
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        originalList.setSortComparator(DESCENDING_TIME_COMPARATOR);
+        index.setSortComparator(DESCENDING_TIME_COMPARATOR);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long id = random.nextInt(200);
+            Item item = new Item(id, random.nextLong(), null); // unique times to avoid ambiguous ordering of ties
+            originalList.addElement(id, item);
+            index.addElement(id, item);
+        }
+
+        assertSameIds(originalList.getList(), index.getList());
+    }
+
+    /**
+     * Simulates realtime events on a large list: every update is followed by a read of the sorted list, which must always be
+     * in the same order as {@link UniqueSortedUpdatableResourceList}
+     */
+    @Test
+    public void sameOrderAsUniqueSortedUpdatableResourceListAfterEveryUpdate() throws Exception {
+        UniqueSortedUpdatableResourceList<Item> originalList = new UniqueSortedUpdatableResourceList<>();
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        originalList.setSortComparator(DESCENDING_TIME_COMPARATOR);
+        index.setSortComparator(DESCENDING_TIME_COMPARATOR);
+
+        Random random = new Random(7);
+        for (int i = 0; i < REALTIME_LIST_SIZE; i++) {
+            Item item = new Item(i, random.nextLong(), null);
+            originalList.addElement(item.id, item);
+            index.addElement(item.id, item);
+        }
+
+        for (int i = 0; i < REALTIME_UPDATES; i++) {
+            Item update = new Item(random.nextInt(REALTIME_LIST_SIZE), random.nextLong(), null);
+            originalList.addElement(update.id, update);
+            index.addElement(update.id, update);
+            assertSameIds(originalList.getList(), index.getList());
+        }
+    }
+
+    /**
+     * Microbenchmark - Simulates realtime events on a list of 10k elements: every update is followed by a read of the sorted list.
+     * Times are printed, not asserted - run manually.
+     */
+    @Ignore("Benchmark - run manually")
+    @Test
+    public void benchmarkAgainstUniqueSortedUpdatableResourceList() throws Exception {
+        List<Item> initialItems = new ArrayList<>();
+        List<Item> updates = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < BENCHMARK_SIZE; i++) {
+            initialItems.add(new Item(i, random.nextLong(), null));
+        }
+        for (int i = 0; i < BENCHMARK_UPDATES; i++) {
+            updates.add(new Item(random.nextInt(BENCHMARK_SIZE), random.nextLong(), null));
+        }
+
+        UniqueSortedUpdatableResourceList<Item> originalList = new UniqueSortedUpdatableResourceList<>();
+        originalList.setSortComparator(DESCENDING_TIME_COMPARATOR);
+        UniqueSortedResourceIndex<Item> index = new UniqueSortedResourceIndex<>();
+        index.setSortComparator(DESCENDING_TIME_COMPARATOR);
+
+        // Warm up both implementations before measuring
+        runBenchmark(originalList, initialItems, updates.subList(0, 100));
+        runBenchmark(index, initialItems, updates.subList(0, 100));
+
+        long originalTime = runBenchmark(originalList, initialItems, updates);
+        long indexTime = runBenchmark(index, initialItems, updates);
+
+        System.out.println(String.format("%s elements, %s updates each followed by getList()", BENCHMARK_SIZE, BENCHMARK_UPDATES));
+        System.out.println(String.format("UniqueSortedUpdatableResourceList: %s ms", originalTime / 1000000));
+        System.out.println(String.format("UniqueSortedResourceIndex: %s ms", indexTime / 1000000));
+    }
+
+    private long runBenchmark(IUniqueResourceList<Item> list, List<Item> initialItems, List<Item> updates) {
+        for (Item item : initialItems) {
+            list.addElement(item.id, item);
+        }
+
+        long startTime = System.nanoTime();
+        for (Item update : updates) {
+            list.addElement(update.id, update);
+            list.getList();
+        }
+        return System.nanoTime() - startTime;
+    }
+
+    private void assertSameIds(List<Item> expected, List<Item> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals("Both lists should be sorted the same way", expected.get(i).id, actual.get(i).id);
+        }
+    }
+
+    private static class Item {
+        final long id;
+        final long updatedAt;
+        final String subject;
+
+        Item(long id, long updatedAt, String subject) {
+            this.id = id;
+            this.updatedAt = updatedAt;
+            this.subject = subject;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.kayako.sdk.android.k5.common.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AvatarCacheTest {
+
+    @Test
+    public void similarSizesShareABucket() {
+        Assert.assertEquals(32, AvatarCache.getSizeBucket(0));
+        Assert.assertEquals(32, AvatarCache.getSizeBucket(32));
+        Assert.assertEquals(96, AvatarCache.getSizeBucket(84)); // 32dp at 2.625x
+        Assert.assertEquals(96, AvatarCache.getSizeBucket(96)); // 32dp at xxhdpi (3x)
+        Assert.assertEquals(128, AvatarCache.getSizeBucket(97));
+        Assert.assertEquals(512, AvatarCache.getSizeBucket(4000));
+    }
+}
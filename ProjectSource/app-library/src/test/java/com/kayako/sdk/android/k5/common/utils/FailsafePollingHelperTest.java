@@ -0,0 +1,28 @@
+package com.kayako.sdk.android.k5.common.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FailsafePollingHelperTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    @Test
+    public void pollsLessOftenWhileRealtimeIsConnected() {
+        Assert.assertTrue(FailsafePollingHelper.shouldPoll(MINUTE, 0, false, false, true));
+        Assert.assertFalse(FailsafePollingHelper.shouldPoll(MINUTE, 0, true, true, true));
+        Assert.assertTrue(FailsafePollingHelper.shouldPoll(5 * MINUTE, 0, true, true, true));
+    }
+
+    @Test
+    public void pollsRightAwayWhenRealtimeDisconnects() {
+        Assert.assertTrue(FailsafePollingHelper.shouldPoll(1000, 0, true, false, true));
+        Assert.assertFalse(FailsafePollingHelper.shouldPoll(1000, 0, false, false, true));
+    }
+
+    @Test
+    public void neverPollsInTheBackground() {
+        Assert.assertFalse(FailsafePollingHelper.shouldPoll(10 * MINUTE, 0, false, false, false));
+        Assert.assertFalse(FailsafePollingHelper.shouldPoll(10 * MINUTE, 0, true, false, false));
+    }
+}
@@ -0,0 +1,72 @@
+package com.kayako.sdk.android.k5.common.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class KayakoSchedulerTest {
+
+    @Test
+    public void cancelledTaskDoesNotRun() throws Exception {
+        final AtomicInteger runs = new AtomicInteger(0);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        KayakoScheduler.Token cancelled = KayakoScheduler.getInstance().schedule(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 50);
+        KayakoScheduler.getInstance().schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 100);
+        cancelled.cancel();
+
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(0, runs.get());
+        Assert.assertTrue(cancelled.isCancelled());
+    }
+
+    @Test
+    public void allTasksShareOneThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(20);
+        KayakoScheduler.Token[] tokens = new KayakoScheduler.Token[20];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = KayakoScheduler.getInstance().scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, 0, 10);
+        }
+
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(1, KayakoScheduler.getInstance().getLiveThreadCount());
+
+        for (KayakoScheduler.Token token : tokens) {
+            token.cancel();
+        }
+        Assert.assertEquals(1, KayakoScheduler.getInstance().getLiveThreadCount()); // kept alive for the next periodic task
+    }
+
+    @Test
+    public void failingPeriodicTaskKeepsRunning() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        KayakoScheduler.Token token = KayakoScheduler.getInstance().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+                throw new IllegalStateException();
+            }
+        }, 0, 10);
+
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        token.cancel();
+    }
+}
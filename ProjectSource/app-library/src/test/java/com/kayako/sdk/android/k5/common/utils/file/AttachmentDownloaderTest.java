@@ -0,0 +1,82 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class AttachmentDownloaderTest {
+
+    @Test
+    public void keyDependsOnWholeUrlAndSize() throws Exception {
+        String url = "https://support.kayako.com/api/v1/media/123/download";
+        String key = AttachmentDownloader.generateKey(url, 1000);
+
+        Assert.assertEquals(key, AttachmentDownloader.generateKey(url, 1000));
+        Assert.assertNotEquals(key, AttachmentDownloader.generateKey(url + "?id=124", 1000)); // urls that differ only by query do not collide
+        Assert.assertNotEquals(key, AttachmentDownloader.generateKey(url, 1001));
+        Assert.assertNotEquals(key, AttachmentDownloader.generateKey("https://support.kayako.com/api/v1/media/124/download", 1000));
+        Assert.assertTrue(key.matches("[0-9a-f]{40}")); // safe to use as a directory name
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedFirst() throws Exception {
+        File cacheDirectory = createCacheDirectory();
+        File oldest = createEntry(cacheDirectory, "oldest", 100, 1000);
+        File older = createEntry(cacheDirectory, "older", 100, 2000);
+        File newest = createEntry(cacheDirectory, "newest", 100, 3000);
+
+        List<File> entriesToEvict = FileStorageUtil.selectFilesToEvict(Arrays.asList(newest, oldest, older), Collections.<String>emptySet(), 150);
+
+        Assert.assertEquals(Arrays.asList(oldest, older), entriesToEvict);
+    }
+
+    @Test
+    public void activeEntriesAreNeverEvicted() throws Exception {
+        File cacheDirectory = createCacheDirectory();
+        File oldest = createEntry(cacheDirectory, "oldest", 100, 1000);
+        File newest = createEntry(cacheDirectory, "newest", 100, 2000);
+
+        List<File> entriesToEvict = FileStorageUtil.selectFilesToEvict(Arrays.asList(oldest, newest), new HashSet<>(Collections.singletonList("oldest")), 150);
+
+        Assert.assertEquals(Collections.singletonList(newest), entriesToEvict);
+    }
+
+    @Test
+    public void nothingIsEvictedWithinBudget() throws Exception {
+        File cacheDirectory = createCacheDirectory();
+        File entry = createEntry(cacheDirectory, "entry", 100, 1000);
+
+        Assert.assertTrue(FileStorageUtil.selectFilesToEvict(Collections.singletonList(entry), Collections.<String>emptySet(), 100).isEmpty());
+    }
+
+    private File createCacheDirectory() throws Exception {
+        File cacheDirectory = File.createTempFile("cache", null);
+        Assert.assertTrue(cacheDirectory.delete() && cacheDirectory.mkdir());
+        cacheDirectory.deleteOnExit();
+        return cacheDirectory;
+    }
+
+    private File createEntry(File cacheDirectory, String key, int size, long lastModified) throws Exception {
+        File entry = new File(cacheDirectory, key);
+        Assert.assertTrue(entry.mkdir());
+
+        File file = new File(entry, "attachment.pdf");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(new byte[size]);
+        } finally {
+            outputStream.close();
+        }
+
+        Assert.assertTrue(entry.setLastModified(lastModified));
+        file.deleteOnExit();
+        entry.deleteOnExit();
+        return entry;
+    }
+}
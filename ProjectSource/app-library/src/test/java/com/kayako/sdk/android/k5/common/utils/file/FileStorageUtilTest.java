@@ -0,0 +1,177 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+public class FileStorageUtilTest {
+
+    private static final int FILE_SIZE = 1024 * 1024 + 123; // More than one transfer chunk and many copy buffers
+
+    @Test
+    public void transferFileCopiesAllBytesAndReportsProgress() throws Exception {
+        byte[] content = generateContent(FILE_SIZE);
+        File source = createFile(content);
+        File destination = File.createTempFile("destination", null);
+        RecordingListener listener = new RecordingListener(false);
+
+        FileChannel inputChannel = new FileInputStream(source).getChannel();
+        FileChannel outputChannel = new RandomAccessFile(destination, "rw").getChannel();
+        try {
+            FileStorageUtil.transferFile(inputChannel, outputChannel, FILE_SIZE, FILE_SIZE, listener);
+        } finally {
+            inputChannel.close();
+            outputChannel.close();
+        }
+
+        Assert.assertTrue(Arrays.equals(content, readFile(destination)));
+        Assert.assertEquals(FILE_SIZE, listener.lastCopiedBytes);
+        Assert.assertEquals(FILE_SIZE, listener.lastTotalBytes);
+    }
+
+    @Test
+    public void copyStreamCopiesAllBytesWithUnknownSize() throws Exception {
+        byte[] content = generateContent(FILE_SIZE);
+        File destination = File.createTempFile("destination", null);
+        RecordingListener listener = new RecordingListener(false);
+
+        FileChannel outputChannel = new RandomAccessFile(destination, "rw").getChannel();
+        try {
+            FileStorageUtil.copyStream(Channels.newChannel(new ByteArrayInputStream(content)), outputChannel, Long.MAX_VALUE, listener);
+        } finally {
+            outputChannel.close();
+        }
+
+        Assert.assertTrue(Arrays.equals(content, readFile(destination)));
+        Assert.assertEquals(FILE_SIZE, listener.lastCopiedBytes);
+        Assert.assertEquals(FileStorageUtil.UNKNOWN_SIZE, listener.lastTotalBytes);
+    }
+
+    @Test(expected = FileTooLargeException.class)
+    public void copyStreamStopsOnceMaxSizeIsExceeded() throws Exception {
+        File destination = File.createTempFile("destination", null);
+        FileChannel outputChannel = new RandomAccessFile(destination, "rw").getChannel();
+        try {
+            FileStorageUtil.copyStream(Channels.newChannel(new ByteArrayInputStream(generateContent(FILE_SIZE))), outputChannel, FILE_SIZE - 1, null);
+        } finally {
+            outputChannel.close();
+        }
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void transferFileStopsWhenCancelled() throws Exception {
+        File source = createFile(generateContent(FILE_SIZE));
+        File destination = File.createTempFile("destination", null);
+
+        FileChannel inputChannel = new FileInputStream(source).getChannel();
+        FileChannel outputChannel = new RandomAccessFile(destination, "rw").getChannel();
+        try {
+            FileStorageUtil.transferFile(inputChannel, outputChannel, FILE_SIZE, FILE_SIZE, new RecordingListener(true));
+        } finally {
+            inputChannel.close();
+            outputChannel.close();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedFilesAreEvictedFirst() throws Exception {
+        File oldest = createFile(new byte[100], 1000);
+        File older = createFile(new byte[100], 2000);
+        File newest = createFile(new byte[100], 3000);
+
+        List<File> filesToEvict = FileStorageUtil.selectFilesToEvict(Arrays.asList(newest, oldest, older), 150);
+
+        Assert.assertEquals(Arrays.asList(oldest, older), filesToEvict);
+        Assert.assertTrue(FileStorageUtil.selectFilesToEvict(Arrays.asList(newest, oldest, older), 300).isEmpty());
+    }
+
+    @Test
+    public void writeFileReplacesTheFileAndLeavesNoTemporaryFile() throws Exception {
+        File directory = File.createTempFile("directory", null);
+        Assert.assertTrue(directory.delete());
+        File file = new File(new File(directory, "child"), "file");
+        try {
+            FileStorageUtil.writeFile(file, generateContent(100));
+            FileStorageUtil.writeFile(file, generateContent(10));
+
+            Assert.assertTrue(Arrays.equals(generateContent(10), readFile(file)));
+            Assert.assertEquals(1, file.getParentFile().list().length);
+        } finally {
+            FileStorageUtil.deleteRecursively(directory);
+        }
+
+        Assert.assertFalse(directory.exists());
+    }
+
+    private byte[] generateContent(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        return content;
+    }
+
+    private File createFile(byte[] content) throws Exception {
+        File file = File.createTempFile("source", null);
+        file.deleteOnExit();
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+
+    private File createFile(byte[] content, long lastModified) throws Exception {
+        File file = createFile(content);
+        Assert.assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private byte[] readFile(File file) throws Exception {
+        file.deleteOnExit();
+        byte[] content = new byte[(int) file.length()];
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < content.length) {
+                offset += inputStream.read(content, offset, content.length - offset);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return content;
+    }
+
+    private static class RecordingListener implements FileStorageUtil.OnCopyListener {
+        final boolean isCancelled;
+        long lastCopiedBytes;
+        long lastTotalBytes;
+
+        RecordingListener(boolean isCancelled) {
+            this.isCancelled = isCancelled;
+        }
+
+        @Override
+        public void onProgress(long copiedBytes, long totalBytes) {
+            lastCopiedBytes = copiedBytes;
+            lastTotalBytes = totalBytes;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.kayako.sdk.android.k5.common.utils.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImageAttachmentProcessorTest {
+
+    @Test
+    public void inSampleSizeKeepsLongerSideAboveMaxDimension() throws Exception {
+        Assert.assertEquals(1, ImageAttachmentProcessor.calculateInSampleSize(1000, 800, 1920));
+        Assert.assertEquals(1, ImageAttachmentProcessor.calculateInSampleSize(3000, 2000, 1920));
+        Assert.assertEquals(2, ImageAttachmentProcessor.calculateInSampleSize(4000, 3000, 1920));
+        Assert.assertEquals(2, ImageAttachmentProcessor.calculateInSampleSize(3000, 4000, 1920)); // portrait
+        Assert.assertEquals(4, ImageAttachmentProcessor.calculateInSampleSize(8000, 6000, 1920));
+    }
+
+    @Test
+    public void scaleFitsLongerSideWithinMaxDimension() throws Exception {
+        Assert.assertEquals(1f, ImageAttachmentProcessor.calculateScale(1000, 800, 1920), 0);
+        Assert.assertEquals(0.5f, ImageAttachmentProcessor.calculateScale(3840, 2000, 1920), 0);
+        Assert.assertEquals(0.5f, ImageAttachmentProcessor.calculateScale(2000, 3840, 1920), 0);
+    }
+
+    @Test
+    public void imagesAreNeverScaledUp() throws Exception {
+        Assert.assertEquals(1f, ImageAttachmentProcessor.calculateScale(10, 10, 1920), 0);
+    }
+}
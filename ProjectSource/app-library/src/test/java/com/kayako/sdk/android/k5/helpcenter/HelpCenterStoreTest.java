@@ -0,0 +1,36 @@
+package com.kayako.sdk.android.k5.helpcenter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class HelpCenterStoreTest {
+
+    @Test
+    public void savedResourcesAreFreshForHalfAnHour() {
+        long fetchedAt = 1000000L;
+
+        Assert.assertTrue(HelpCenterStore.isFresh(fetchedAt, fetchedAt + TimeUnit.MINUTES.toMillis(29)));
+        Assert.assertFalse(HelpCenterStore.isFresh(fetchedAt, fetchedAt + TimeUnit.MINUTES.toMillis(31)));
+        Assert.assertFalse(HelpCenterStore.isFresh(fetchedAt, fetchedAt - 1)); // clock moved back
+    }
+
+    @Test
+    public void resourcesSurviveSerialization() throws Exception {
+        ArrayList<String> items = new ArrayList<>(Arrays.asList("Getting started", "Billing"));
+
+        byte[] bytes = HelpCenterStore.serialize(items);
+
+        Assert.assertEquals(items, HelpCenterStore.deserialize(bytes));
+        Assert.assertTrue(Arrays.equals(bytes, HelpCenterStore.serialize(new ArrayList<>(items)))); // Unchanged resources are not saved again
+    }
+
+    @Test
+    public void resourceIdsAreDistinct() {
+        Assert.assertNotEquals(HelpCenterStore.getSectionsId(1), HelpCenterStore.getArticlesId(1, 0, 20));
+        Assert.assertNotEquals(HelpCenterStore.getArticlesId(1, 0, 20), HelpCenterStore.getArticlesId(1, 20, 20));
+    }
+}
@@ -0,0 +1,36 @@
+package com.kayako.sdk.android.k5.helpcenter.articlepage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ArticleContentStoreTest {
+
+    @Test
+    public void excerptCollapsesWhitespace() {
+        Assert.assertEquals("Getting started with Kayako", ArticleContentStore.generateExcerpt("\n  Getting started\n\n\twith   Kayako \n"));
+        Assert.assertEquals("", ArticleContentStore.generateExcerpt(" \n "));
+    }
+
+    @Test
+    public void longExcerptIsCutAtAWordBoundary() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("word ");
+        }
+
+        String excerpt = ArticleContentStore.generateExcerpt(text.toString());
+
+        Assert.assertTrue(excerpt.length() <= 201);
+        Assert.assertTrue(excerpt.endsWith("word\u2026"));
+    }
+
+    @Test
+    public void documentIsStyledWithoutScripts() {
+        String document = ArticleContentStore.generateDocument("<p>Hello</p><SCRIPT type=\"text/javascript\">\nalert(1);\n</script ><p>World</p>", "p { margin: 0; }");
+
+        Assert.assertTrue(document.contains("<style type=\"text/css\">p { margin: 0; }</style>")); // inlined - assets can not be loaded from the help center origin
+        Assert.assertFalse(document.contains("file://"));
+        Assert.assertTrue(document.contains("<body><p>Hello</p><p>World</p></body>"));
+        Assert.assertFalse(document.contains("alert"));
+    }
+}
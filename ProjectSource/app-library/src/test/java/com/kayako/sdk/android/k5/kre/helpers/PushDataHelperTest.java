@@ -1,13 +1,28 @@
 package com.kayako.sdk.android.k5.kre.helpers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
 import com.kayako.sdk.android.k5.kre.data.Change;
 import com.kayako.sdk.android.k5.kre.data.ChangedProperties;
 
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 public class PushDataHelperTest {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Gson GSON = new Gson();
+
+    private static final int WARM_UP_ITERATIONS = 2000;
+    private static final int ITERATIONS = 5000;
+
+    // Recorded CHANGE payload
+    private static final String CHANGE_PAYLOAD = "{\"resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/cases/210\", \"resource_type\": \"case\", \"resource_id\": 210, " +
+            "\"customer_resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/conversations/210\", " +
+            "\"changed_properties\": {\"updated_at\": 1489264028, \"post_count\": 3, \"last_agent_activity_at\": 1489264028, \"form_id\": \"1\", \"form\": \"1\"}, " +
+            "\"agent_resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/cases/210\"}";
 
     @Test
     public void convertFromJsonString() throws Exception {
@@ -39,4 +54,57 @@ public class PushDataHelperTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void convertFromJsonNode() throws Exception {
+        JsonNode payload = new ObjectMapper().readTree("{\"resource_id\": 210, \"resource_type\": \"case\", \"unknown\": {\"a\": 1}, \"changed_properties\": {\"updated_at\": 1489264028, \"post_count\": 3, \"form_id\": \"1\"}}");
+
+        Change change = PushDataHelper.convertFromJsonNode(Change.class, payload);
+        Assert.assertEquals(210, change.getResourceId().longValue());
+        Assert.assertEquals("case", change.getResourceType());
+        Assert.assertEquals(1489264028L, change.getChangedProperties().getUpdatedAt().longValue());
+        Assert.assertEquals(3, change.getChangedProperties().getPostCount().intValue());
+
+        Assert.assertNull(PushDataHelper.convertFromJsonNode(Change.class, null));
+        Assert.assertNull(PushDataHelper.convertFromJsonNode(Change.class, new ObjectMapper().readTree("[]")));
+    }
+
+    /**
+     * Compares decoding a KRE event from the tree the Phoenix client already parsed with converting it back to a string and parsing that again.
+     * Both use a shared ObjectMapper/Gson, so only the decoding is measured. Times are printed, not asserted - run manually.
+     */
+    @Ignore("Benchmark - run manually")
+    @Test
+    public void benchmarkDecodingFromStringAndFromTree() throws Exception {
+        final JsonNode payload = OBJECT_MAPPER.readTree(CHANGE_PAYLOAD);
+
+        long fromString = measure(new Runnable() {
+            @Override
+            public void run() {
+                GSON.fromJson(payload.toString(), Change.class);
+            }
+        });
+        long fromTree = measure(new Runnable() {
+            @Override
+            public void run() {
+                PushDataHelper.convertFromJsonNode(Change.class, payload);
+            }
+        });
+
+        System.out.println(String.format("CHANGE: %d ns per event from string -> %d ns per event from tree", fromString, fromTree));
+    }
+
+    /**
+     * @return nanoseconds per event
+     */
+    private static long measure(Runnable decode) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            decode.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decode.run();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,68 @@
+package com.kayako.sdk.android.k5.kre.helpers.presence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import com.kayako.sdk.android.k5.kre.data.Change;
+import com.kayako.sdk.android.k5.kre.data.ChangePost;
+import com.kayako.sdk.android.k5.kre.helpers.PushDataHelper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+
+/**
+ * Compares decoding KRE events straight from the Jackson tree (as KreSubscription now does) with the previous approach of converting the tree back
+ * to a string and parsing it again per consumer. Both must decode the same values.
+ */
+public class KreEventDecodingTest {
+
+    // Recorded payloads
+    private static final String CHANGE_PAYLOAD = "{\"resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/cases/210\", \"resource_type\": \"case\", \"resource_id\": 210, " +
+            "\"customer_resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/conversations/210\", " +
+            "\"changed_properties\": {\"updated_at\": 1489264028, \"post_count\": 3, \"last_agent_activity_at\": 1489264028, \"form_id\": \"1\", \"form\": \"1\"}, " +
+            "\"agent_resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/cases/210\"}";
+
+    private static final String CHANGE_POST_PAYLOAD = "{\"resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/cases/posts/2191\", \"resource_type\": \"post\", \"resource_id\": 2191, " +
+            "\"customer_resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/conversations/258/message/2191\", \"changed_properties\": [], " +
+            "\"agent_resource_url\": \"https://kayako-mobile-testing.kayako.com/api/v1/cases/posts/2191\"}";
+
+    private static final String PRESENCE_DIFF_PAYLOAD = "{\"leaves\": {\"10\": {\"metas\": [{\"last_active_at\": 1487796680803, \"is_viewing\": true, \"is_foreground\": true, " +
+            "\"user\": {\"id\": 10, \"full_name\": \"Neil Mathew\", \"avatar\": \"https://kayako-mobile-testing.kayako.com/avatar/get/9e3180e4-6967-5f62-93df-185beae50f93?1487796405\"}, " +
+            "\"phx_ref_prev\": \"c4/FZg0AzFo=\", \"phx_ref\": \"lUXUbBdLe7E=\"}]}}, " +
+            "\"joins\": {\"10\": {\"metas\": [{\"last_active_at\": 1487796992127, \"is_viewing\": true, \"is_updating\": true, \"is_typing\": false, \"is_foreground\": true, " +
+            "\"user\": {\"id\": 10, \"full_name\": \"Neil Mathew\", \"avatar\": \"https://kayako-mobile-testing.kayako.com/avatar/get/9e3180e4-6967-5f62-93df-185beae50f93?1487796405\"}, " +
+            "\"phx_ref_prev\": \"lUXUbBdLe7E=\", \"phx_ref\": \"8WL0+5E+QFI=\"}]}}}";
+
+    @Test
+    public void changeIsDecodedFromTheTree() throws Exception {
+        JsonNode payload = new ObjectMapper().readTree(CHANGE_PAYLOAD); // as received from the Phoenix client
+
+        Change before = new Gson().fromJson(payload.toString(), Change.class);
+        Change after = PushDataHelper.convertFromJsonNode(Change.class, payload);
+        Assert.assertEquals(before, after);
+        Assert.assertEquals(1489264028L, after.getChangedProperties().getUpdatedAt().longValue());
+    }
+
+    @Test
+    public void changePostIsDecodedFromTheTree() throws Exception {
+        JsonNode payload = new ObjectMapper().readTree(CHANGE_POST_PAYLOAD);
+
+        ChangePost before = new Gson().fromJson(payload.toString(), ChangePost.class);
+        ChangePost after = PushDataHelper.convertFromJsonNode(ChangePost.class, payload);
+        Assert.assertEquals(before, after);
+        Assert.assertEquals(2191, after.resource_id.longValue());
+    }
+
+    @Test
+    public void presenceDiffIsDecodedFromTheTree() throws Exception {
+        JsonNode payload = new ObjectMapper().readTree(PRESENCE_DIFF_PAYLOAD);
+
+        Set<PresenceUser> joinsBefore = KrePresenceJsonHelper.parsePresenceDiffJsonAndGetJoins(payload.toString());
+        Set<PresenceUser> joinsAfter = KrePresenceJsonHelper.parsePresenceDiffJoins(payload);
+        Assert.assertEquals(joinsBefore, joinsAfter);
+        Assert.assertEquals(joinsBefore.iterator().next().getActivityData(), joinsAfter.iterator().next().getActivityData());
+        Assert.assertEquals(KrePresenceJsonHelper.parsePresenceDiffJsonAndGetLeaves(payload.toString()), KrePresenceJsonHelper.parsePresenceDiffLeaves(payload));
+    }
+}
@@ -0,0 +1,144 @@
+package com.kayako.sdk.android.k5.kre.helpers.presence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.kayako.sdk.android.k5.kre.data.ClientPresenceMeta;
+import com.kayako.sdk.android.k5.kre.helpers.PushDataHelper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class KrePresencePushDataCoalescerTest {
+
+    @Test
+    public void changesWithinATickArePushedOnce() {
+        final List<ClientPresenceMeta> pushed = new ArrayList<>();
+        ManualScheduler scheduler = new ManualScheduler();
+        KrePresencePushDataCoalescer coalescer = new KrePresencePushDataCoalescer(new KrePresencePushDataCoalescer.PushCallback() {
+            @Override
+            public void push(ClientPresenceMeta clientPresenceMeta) {
+                pushed.add(clientPresenceMeta);
+            }
+        }, scheduler);
+
+        coalescer.setForegroundViewing(true, true);
+        for (int i = 0; i < 20; i++) { // keystrokes
+            coalescer.setTyping(i % 2 == 0);
+        }
+        coalescer.setUpdating(true);
+
+        Assert.assertEquals(1, scheduler.tasks.size());
+        Assert.assertEquals(KrePresencePushDataCoalescer.TICK, scheduler.lastDelay);
+        Assert.assertEquals(0, pushed.size());
+
+        scheduler.runTasks(); // the tick has passed
+        scheduler.runTasks(); // nothing else should be scheduled or pushed
+
+        Assert.assertEquals(1, pushed.size());
+        ClientPresenceMeta meta = pushed.get(0);
+        Assert.assertEquals(Boolean.FALSE, meta.is_typing); // latest value
+        Assert.assertEquals(Boolean.TRUE, meta.is_updating);
+        Assert.assertEquals(Boolean.TRUE, meta.is_viewing);
+        Assert.assertEquals(Boolean.TRUE, meta.is_foreground);
+        Assert.assertTrue(meta.last_active_at > 0);
+    }
+
+    @Test
+    public void changesAfterAFlushScheduleTheNextUpdate() {
+        final List<ClientPresenceMeta> pushed = new ArrayList<>();
+        ManualScheduler scheduler = new ManualScheduler();
+        KrePresencePushDataCoalescer coalescer = new KrePresencePushDataCoalescer(new KrePresencePushDataCoalescer.PushCallback() {
+            @Override
+            public void push(ClientPresenceMeta clientPresenceMeta) {
+                pushed.add(clientPresenceMeta);
+            }
+        }, scheduler);
+
+        coalescer.setTyping(true);
+        scheduler.runTasks();
+        coalescer.setTyping(false);
+        Assert.assertEquals(1, scheduler.tasks.size());
+
+        scheduler.runTasks();
+        Assert.assertEquals(2, pushed.size());
+        Assert.assertEquals(Boolean.FALSE, pushed.get(1).is_typing);
+    }
+
+    @Test
+    public void pendingChangesArePushedOnTheWriterThread() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        KrePresencePushDataCoalescer coalescer = new KrePresencePushDataCoalescer(new KrePresencePushDataCoalescer.PushCallback() {
+            @Override
+            public void push(ClientPresenceMeta clientPresenceMeta) {
+                latch.countDown();
+            }
+        });
+
+        coalescer.setTyping(true);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void flushPushesRightAwayAndOnlyOnce() {
+        final List<ClientPresenceMeta> pushed = new ArrayList<>();
+        KrePresencePushDataCoalescer coalescer = new KrePresencePushDataCoalescer(new KrePresencePushDataCoalescer.PushCallback() {
+            @Override
+            public void push(ClientPresenceMeta clientPresenceMeta) {
+                pushed.add(clientPresenceMeta);
+            }
+        });
+
+        coalescer.setTyping(false);
+        coalescer.setUpdating(false);
+        coalescer.flush();
+        coalescer.flush(); // nothing left to send
+
+        Assert.assertEquals(1, pushed.size());
+        Assert.assertNull(coalescer.takePendingMeta());
+    }
+
+    @Test
+    public void unchangedStatesAreLeftOutOfTheJson() {
+        KrePresencePushDataCoalescer coalescer = new KrePresencePushDataCoalescer(new KrePresencePushDataCoalescer.PushCallback() {
+            @Override
+            public void push(ClientPresenceMeta clientPresenceMeta) {
+            }
+        });
+
+        coalescer.setTyping(true);
+        JsonNode json = PushDataHelper.convertToJsonNode(coalescer.takePendingMeta());
+
+        Assert.assertTrue(json.get("is_typing").asBoolean());
+        Assert.assertTrue(json.has("last_active_at"));
+        Assert.assertFalse(json.has("is_updating"));
+        Assert.assertFalse(json.has("is_viewing"));
+        Assert.assertFalse(json.has("is_foreground"));
+    }
+
+    /**
+     * Runs the scheduled flushes when the test says so, as if the tick has passed
+     */
+    private static class ManualScheduler implements KrePresencePushDataCoalescer.Scheduler {
+        final List<Runnable> tasks = new ArrayList<>();
+        long lastDelay;
+
+        @Override
+        public void schedule(Runnable task, long delay) {
+            lastDelay = delay;
+            tasks.add(task);
+        }
+
+        void runTasks() {
+            List<Runnable> tasksToRun = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Runnable task : tasksToRun) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.kayako.sdk.android.k5.kre.helpers.presence;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays recorded streams of presence_state and presence_diff events into a {@link KrePresenceStore} and checks the presence events it emits
+ */
+public class KrePresenceStoreTest {
+
+    private static final String EVENT_PRESENCE_STATE = "presence_state";
+    private static final String EVENT_PRESENCE_DIFF = "presence_diff";
+
+    private static final String AVATAR = "https://kayako-mobile-testing.kayako.com/avatar/get/9e3180e4-6967-5f62-93df-185beae50f93?1487796405";
+
+    @Test
+    public void recordedStreamEmitsOnlyChanges() {
+        List<String> events = replay(new KrePresenceStore(),
+                // Agent 10 is viewing the case, agent 11 has it open in the background
+                EVENT_PRESENCE_STATE, "{\"10\": {\"metas\": [" + meta(10, 1487796680803L, "\"is_viewing\": true, \"is_foreground\": true") + "]}, " +
+                        "\"11\": {\"metas\": [" + meta(11, 1487796680803L, "\"is_viewing\": true, \"is_foreground\": false") + "]}}",
+                // Agent 10 starts typing - is_foreground is not provided and carried forward
+                EVENT_PRESENCE_DIFF, "{\"leaves\": {\"10\": {\"metas\": [" + meta(10, 1487796680803L, "\"is_viewing\": true, \"is_foreground\": true") + "]}}, " +
+                        "\"joins\": {\"10\": {\"metas\": [" + meta(10, 1487796992127L, "\"is_typing\": true") + "]}}}",
+                // Agent 12 opens the case
+                EVENT_PRESENCE_DIFF, "{\"leaves\": {}, " +
+                        "\"joins\": {\"12\": {\"metas\": [" + meta(12, 1487796992127L, "\"is_viewing\": true, \"is_foreground\": true") + "]}}}",
+                // Agent 11 brings the case to the foreground and starts updating it
+                EVENT_PRESENCE_DIFF, "{\"leaves\": {\"11\": {\"metas\": [" + meta(11, 1487796680803L, "\"is_viewing\": true, \"is_foreground\": false") + "]}}, " +
+                        "\"joins\": {\"11\": {\"metas\": [" + meta(11, 1487796680803L, "\"is_viewing\": true, \"is_foreground\": true, \"is_updating\": true") + "]}}}",
+                // Agent 10 closes the case
+                EVENT_PRESENCE_DIFF, "{\"leaves\": {\"10\": {\"metas\": [" + meta(10, 1487796992127L, "\"is_typing\": true") + "]}}, \"joins\": {}}"
+        );
+
+        Assert.assertEquals(Arrays.asList(
+                "ALREADY_VIEWING 10", "ALREADY_SUBSCRIBED 10", "ALREADY_SUBSCRIBED 11",
+                "ACTIVE 10", "TYPING 10",
+                "VIEWING 12", "ACTIVE 12", "SUBSCRIBED 12",
+                "VIEWING 11", "UPDATING 11",
+                "NO_LONGER_VIEWING 10", "UNSUBSCRIBED 10"
+        ), events);
+    }
+
+    @Test
+    public void metaUpdateIsNotAnUnsubscription() {
+        KrePresenceStore store = new KrePresenceStore();
+        String metas = "{\"metas\": [" + meta(12, 1488362564423L, "\"is_viewing\": true, \"is_foreground\": true") + "]}";
+
+        List<String> events = replay(store,
+                EVENT_PRESENCE_STATE, "{\"12\": " + metas + "}",
+                EVENT_PRESENCE_DIFF, "{\"leaves\": {\"12\": " + metas + "}, \"joins\": {\"12\": " + metas + "}}", // same values, new phx_ref
+                EVENT_PRESENCE_DIFF, "{\"leaves\": {\"99\": " + metas.replace("\"id\": 12", "\"id\": 99") + "}, \"joins\": {}}" // never joined
+        );
+
+        Assert.assertEquals(Arrays.asList("ALREADY_VIEWING 12", "ALREADY_SUBSCRIBED 12"), events);
+        Assert.assertEquals(1, store.size());
+        Assert.assertTrue(store.contains(12));
+    }
+
+    @Test
+    public void busyCaseEmitsEventsOnlyForUsersInTheDiff() {
+        final int agents = 2000;
+        KrePresenceStore store = new KrePresenceStore();
+        replay(store, EVENT_PRESENCE_STATE, "{}");
+
+        // Every agent opens the case, one diff each
+        for (int id = 1; id <= agents; id++) {
+            List<String> events = replay(store, EVENT_PRESENCE_DIFF, "{\"leaves\": {}, \"joins\": {\"" + id + "\": {\"metas\": [" + meta(id, 1000L, "\"is_viewing\": true, \"is_foreground\": true") + "]}}}");
+            Assert.assertEquals(Arrays.asList("VIEWING " + id, "ACTIVE " + id, "SUBSCRIBED " + id), events);
+        }
+        Assert.assertEquals(agents, store.size());
+
+        // Every other agent closes the case
+        for (int id = 2; id <= agents; id += 2) {
+            List<String> events = replay(store, EVENT_PRESENCE_DIFF, "{\"leaves\": {\"" + id + "\": {\"metas\": [" + meta(id, 1000L, "\"is_foreground\": true") + "]}}, \"joins\": {}}");
+            Assert.assertEquals(Arrays.asList("NO_LONGER_VIEWING " + id, "UNSUBSCRIBED " + id), events);
+        }
+        Assert.assertEquals(agents / 2, store.size());
+        Assert.assertTrue(store.contains(1));
+        Assert.assertFalse(store.contains(2));
+        Assert.assertTrue(store.get(agents - 1).getActivityData().isForeground());
+    }
+
+    /**
+     * @param store
+     * @param recordedEvents pairs of event name and json payload, as received from KRE
+     * @return the presence events emitted by the store, as "TYPE userId"
+     */
+    private static List<String> replay(KrePresenceStore store, String... recordedEvents) {
+        List<String> emitted = new ArrayList<>();
+        for (int i = 0; i < recordedEvents.length; i += 2) {
+            String json = recordedEvents[i + 1];
+
+            List<PresenceEvent> events;
+            if (EVENT_PRESENCE_STATE.equals(recordedEvents[i])) {
+                events = store.applyState(KrePresenceJsonHelper.parsePresenceStateJson(json));
+            } else {
+                events = store.applyDiff(KrePresenceJsonHelper.parsePresenceDiffJsonAndGetJoins(json), KrePresenceJsonHelper.parsePresenceDiffJsonAndGetLeaves(json));
+            }
+
+            for (PresenceEvent event : events) {
+                emitted.add(event.toString());
+            }
+        }
+        return emitted;
+    }
+
+    private static String meta(long userId, long lastActiveAt, String values) {
+        return "{\"last_active_at\": " + lastActiveAt + ", " + values + ", " +
+                "\"user\": {\"id\": " + userId + ", \"full_name\": \"Agent " + userId + "\", \"avatar\": \"" + AVATAR + "\"}, " +
+                "\"phx_ref\": \"lUXUbBdLe7E=\"}";
+    }
+}
@@ -0,0 +1,162 @@
+package com.kayako.sdk.android.k5.messenger.data.conversation;
+
+import com.google.gson.Gson;
+import com.kayako.sdk.ParserFactory;
+import com.kayako.sdk.messenger.conversation.Conversation;
+import com.kayako.sdk.messenger.message.Message;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The disk cache saves the SDK models with Gson - these tests make sure real instances are read back with the same values
+ */
+public class ConversationDiskCacheTest {
+
+    private Conversation conversation = ParserFactory.getConversationParser().parse(
+            "{\n" +
+                    "      \"id\": 233,\n" +
+                    "      \"uuid\": \"32daac16-c3a3-54a6-8a88-b3702d774bc9\",\n" +
+                    "      \"legacyId\": null,\n" +
+                    "      \"subject\": \"4\",\n" +
+                    "      \"channel\": \"HELPCENTER\",\n" +
+                    "      \"requester\": {\n" +
+                    "        \"id\": 22,\n" +
+                    "        \"fullName\": \"neil.mathew+customer\",\n" +
+                    "        \"lastActiveAt\": \"2017-04-11T16:04:15+00:00\",\n" +
+                    "        \"lastSeenAt\": \"2017-04-11T16:04:15+00:00\",\n" +
+                    "        \"avatar\": \"https://kayako-mobile-testing.kayako.com/avatar/get/939743ae-8251-5084-809b-dec5d3ce841d?1491926655\",\n" +
+                    "        \"resourceType\": \"userMinimal\",\n" +
+                    "        \"resourceUrl\": \"https://kayako-mobile-testing.kayako.com/api/v1/users/22\"\n" +
+                    "      },\n" +
+                    "      \"creator\": {\n" +
+                    "        \"id\": 22,\n" +
+                    "        \"fullName\": \"neil.mathew+customer\",\n" +
+                    "        \"lastActiveAt\": \"2017-04-11T16:04:15+00:00\",\n" +
+                    "        \"lastSeenAt\": \"2017-04-11T16:04:15+00:00\",\n" +
+                    "        \"avatar\": \"https://kayako-mobile-testing.kayako.com/avatar/get/939743ae-8251-5084-809b-dec5d3ce841d?1491926655\",\n" +
+                    "        \"resourceType\": \"userMinimal\",\n" +
+                    "        \"resourceUrl\": \"https://kayako-mobile-testing.kayako.com/api/v1/users/22\"\n" +
+                    "      },\n" +
+                    "      \"lastReplier\": {\n" +
+                    "        \"id\": 22,\n" +
+                    "        \"fullName\": \"neil.mathew+customer\",\n" +
+                    "        \"lastActiveAt\": \"2017-04-11T16:04:15+00:00\",\n" +
+                    "        \"lastSeenAt\": \"2017-04-11T16:04:15+00:00\",\n" +
+                    "        \"avatar\": \"https://kayako-mobile-testing.kayako.com/avatar/get/939743ae-8251-5084-809b-dec5d3ce841d?1491926655\",\n" +
+                    "        \"resourceType\": \"userMinimal\",\n" +
+                    "        \"resourceUrl\": \"https://kayako-mobile-testing.kayako.com/api/v1/users/22\"\n" +
+                    "      },\n" +
+                    "      \"lastAgentReplier\": null,\n" +
+                    "      \"assignedTeam\": null,\n" +
+                    "      \"assignedAgent\": null,\n" +
+                    "      \"status\": {\n" +
+                    "        \"id\": 1,\n" +
+                    "        \"label\": \"New\",\n" +
+                    "        \"type\": \"NEW\",\n" +
+                    "        \"sortOrder\": 1,\n" +
+                    "        \"isSlaActive\": true,\n" +
+                    "        \"isDeleted\": false,\n" +
+                    "        \"createdAt\": \"2017-01-09T13:25:38+00:00\",\n" +
+                    "        \"updatedAt\": \"2017-01-09T13:25:38+00:00\",\n" +
+                    "        \"resourceType\": \"caseStatus\",\n" +
+                    "        \"resourceUrl\": \"https://kayako-mobile-testing.kayako.com/api/v1/cases/statuses/1\"\n" +
+                    "      },\n" +
+                    "      \"isCompleted\": false,\n" +
+                    "      \"priority\": null,\n" +
+                    "      \"type\": null,\n" +
+                    "      \"readMarker\": {\n" +
+                    "        \"id\": 321,\n" +
+                    "        \"lastReadPostId\": 1737,\n" +
+                    "        \"lastReadAt\": \"2017-04-11T04:18:42+00:00\",\n" +
+                    "        \"unreadCount\": 0,\n" +
+                    "        \"resourceType\": \"readMarker\"\n" +
+                    "      },\n" +
+                    "      \"customFields\": [],\n" +
+                    "      \"realtimeChannel\": \"presence-61485139915436ab6fc57ca6b1e0bc87f58649bc427077133b6e71a278c3e8a2@v1_cases_233\",\n" +
+                    "      \"lastMessagePreview\": \"2\",\n" +
+                    "      \"lastMessageStatus\": \"DELIVERED\",\n" +
+                    "      \"lastRepliedAt\": \"2017-04-10T08:40:35+00:00\",\n" +
+                    "      \"createdAt\": \"2017-04-07T11:45:13+00:00\",\n" +
+                    "      \"updatedAt\": \"2017-04-10T08:40:35+00:00\",\n" +
+                    "      \"resourceType\": \"conversation\",\n" +
+                    "      \"resourceUrl\": \"https://kayako-mobile-testing.kayako.com/api/v1/conversations/233\"\n" +
+                    "    }"
+    );
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("conversations", ".json");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void conversationsAreReadBackWithTheSameValues() {
+        ConversationDiskCache.writeList(file, Arrays.asList(conversation), ConversationDiskCache.CONVERSATION_LIST_TYPE);
+        List<Conversation> conversations = ConversationDiskCache.readList(file, ConversationDiskCache.CONVERSATION_LIST_TYPE);
+
+        Assert.assertNotNull(conversations);
+        Assert.assertEquals(1, conversations.size());
+
+        Conversation cachedConversation = conversations.get(0);
+        Assert.assertEquals(conversation.getId(), cachedConversation.getId());
+        Assert.assertEquals(conversation.getUpdatedAt(), cachedConversation.getUpdatedAt()); // used to sort the conversation list
+        Assert.assertEquals(conversation.getRealtimeChannel(), cachedConversation.getRealtimeChannel());
+        Assert.assertEquals(conversation.getLastMessagePreview(), cachedConversation.getLastMessagePreview());
+        Assert.assertEquals(conversation.getCreator().getFullName(), cachedConversation.getCreator().getFullName());
+        Assert.assertEquals(conversation.getReadMarker().getLastReadPostId(), cachedConversation.getReadMarker().getLastReadPostId());
+
+        // Every field, nested models included
+        Gson gson = new Gson();
+        Assert.assertEquals(gson.toJson(conversation), gson.toJson(cachedConversation));
+    }
+
+    @Test
+    public void messagesAreReadBackWithTheSameValues() {
+        List<Message> messages = Arrays.asList(
+                new Message(1737L, null, null, "First One", null, null, null, null, null, null, null, null, null),
+                new Message(1738L, null, null, "Second One", null, null, null, null, null, null, null, null, null));
+
+        ConversationDiskCache.writeList(file, messages, ConversationDiskCache.MESSAGE_LIST_TYPE);
+        List<Message> cachedMessages = ConversationDiskCache.readList(file, ConversationDiskCache.MESSAGE_LIST_TYPE);
+
+        Assert.assertNotNull(cachedMessages);
+        Assert.assertEquals(2, cachedMessages.size());
+        Assert.assertEquals(Long.valueOf(1737L), cachedMessages.get(0).getId());
+        Assert.assertEquals("Second One", cachedMessages.get(1).getSubject());
+
+        Gson gson = new Gson();
+        Assert.assertEquals(gson.toJson(messages), gson.toJson(cachedMessages));
+    }
+
+    @Test
+    public void unreadableFileIsDiscarded() throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write("[{\"id\": ".getBytes("UTF-8"));
+        outputStream.close();
+
+        Assert.assertNull(ConversationDiskCache.readList(file, ConversationDiskCache.CONVERSATION_LIST_TYPE));
+        Assert.assertFalse(file.exists());
+    }
+
+    @Test
+    public void nothingSavedIsReadAsNull() {
+        Assert.assertNull(ConversationDiskCache.readList(file, ConversationDiskCache.MESSAGE_LIST_TYPE));
+        Assert.assertNull(ConversationDiskCache.readList(null, ConversationDiskCache.MESSAGE_LIST_TYPE));
+    }
+}
@@ -0,0 +1,284 @@
+package com.kayako.sdk.android.k5.messenger.data.outbox;
+
+import com.kayako.sdk.android.k5.common.utils.file.FileAttachment;
+import com.kayako.sdk.base.callback.ItemCallback;
+import com.kayako.sdk.messenger.message.Message;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the outbox on the test thread - every task runs as soon as it is submitted, and posts complete only when the test says so
+ */
+public class ReplyOutboxTest {
+
+    private static final long CONVERSATION_ID = 233;
+
+    private File directory;
+    private FakeBackend backend;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("outbox", "");
+        directory.delete();
+        backend = new FakeBackend(directory);
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void repliesSurviveProcessDeath() {
+        backend.isConnected = false;
+        ReplyOutbox outbox = createOutbox();
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-1", "first"), null);
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-2", "second"), null);
+        Assert.assertEquals(0, backend.posts.size());
+
+        // A new outbox reads the replies saved by the one before
+        backend.isConnected = true;
+        ReplyOutbox restoredOutbox = createOutbox();
+        restoredOutbox.drain();
+
+        Assert.assertEquals(1, backend.posts.size());
+        Assert.assertEquals("client-1", backend.posts.get(0).reply.getClientId());
+        Assert.assertEquals("first", backend.posts.get(0).reply.getMessage());
+
+        backend.posts.get(0).succeed();
+        Assert.assertEquals("client-2", backend.posts.get(1).reply.getClientId());
+        backend.posts.get(1).succeed();
+
+        // Sent replies are removed from disk too
+        createOutbox().drain();
+        Assert.assertEquals(2, backend.posts.size());
+    }
+
+    @Test
+    public void messagesOfAConversationAreSentOneAfterTheOther() throws IOException {
+        ReplyOutbox outbox = createOutbox();
+        RecordingListener listener = new RecordingListener();
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-1", "first"), listener);
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-2", "second"), null);
+        outbox.send(OutboxReply.createAttachmentReply(CONVERSATION_ID, "client-3", createAttachment("image.png")), null);
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID + 1, "client-4", "other conversation"), null);
+
+        // Attachments and other conversations have lanes of their own
+        Assert.assertEquals(3, backend.posts.size());
+        Assert.assertEquals("client-1", backend.posts.get(0).reply.getClientId());
+        Assert.assertEquals("client-3", backend.posts.get(1).reply.getClientId());
+        Assert.assertEquals("client-4", backend.posts.get(2).reply.getClientId());
+
+        backend.posts.get(0).succeed();
+        Assert.assertEquals(4, backend.posts.size());
+        Assert.assertEquals("client-2", backend.posts.get(3).reply.getClientId());
+        Assert.assertEquals(1, listener.sentCount);
+    }
+
+    @Test
+    public void attachmentsInFlightAreCapped() throws IOException {
+        ReplyOutbox outbox = createOutbox();
+        for (int i = 1; i <= ReplyOutbox.MAX_ATTACHMENTS_SENDING + 1; i++) {
+            outbox.send(OutboxReply.createAttachmentReply(CONVERSATION_ID, "client-" + i, createAttachment("image-" + i + ".png")), null);
+        }
+        Assert.assertEquals(ReplyOutbox.MAX_ATTACHMENTS_SENDING, backend.posts.size());
+
+        // Any attachment completing frees a slot - a failed one too
+        backend.posts.get(1).fail();
+        Assert.assertEquals(ReplyOutbox.MAX_ATTACHMENTS_SENDING + 1, backend.posts.size());
+        Assert.assertEquals("client-" + (ReplyOutbox.MAX_ATTACHMENTS_SENDING + 1), backend.posts.get(ReplyOutbox.MAX_ATTACHMENTS_SENDING).reply.getClientId());
+    }
+
+    @Test
+    public void onlyAttachmentsOfRepliesInTheOutboxAreKept() throws IOException {
+        ReplyOutbox outbox = createOutbox();
+        FileAttachment sentAttachment = createAttachment("sent.png");
+        FileAttachment pendingAttachment = createAttachment("pending.png");
+        outbox.send(OutboxReply.createAttachmentReply(CONVERSATION_ID, "client-1", sentAttachment), null);
+        outbox.send(OutboxReply.createAttachmentReply(CONVERSATION_ID, "client-2", pendingAttachment), null);
+        backend.posts.get(0).succeed();
+
+        outbox.clearSavedAttachmentsNotInOutbox();
+
+        Assert.assertEquals(1, backend.fileNamesKept.size());
+        Assert.assertTrue(backend.fileNamesKept.contains("pending.png"));
+    }
+
+    @Test
+    public void failedReplyIsKeptAndRetriedWithTheSameClientId() {
+        ReplyOutbox outbox = createOutbox();
+        RecordingListener listener = new RecordingListener();
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-1", "first"), listener);
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-2", "second"), null);
+
+        // However many times it fails, the reply is never dropped and keeps holding back its lane
+        for (int attempt = 1; attempt <= 20; attempt++) {
+            backend.posts.get(backend.posts.size() - 1).fail();
+            Assert.assertEquals(1, listener.failedClientIds.size()); // the listener is called once
+            Assert.assertEquals(attempt, backend.posts.size()); // not retried on its own
+
+            outbox.drain();
+            Assert.assertEquals("client-1", backend.posts.get(attempt).reply.getClientId());
+        }
+
+        // A failed reply is not lost on a restart either
+        backend.posts.get(backend.posts.size() - 1).fail();
+        ReplyOutbox restoredOutbox = createOutbox();
+        restoredOutbox.drain();
+        Assert.assertEquals("client-1", backend.posts.get(backend.posts.size() - 1).reply.getClientId());
+        backend.posts.get(backend.posts.size() - 1).fail();
+
+        // Sending the reply again (like the user tapping on the failed reply) registers a new listener
+        RecordingListener retryListener = new RecordingListener();
+        restoredOutbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-1", "first"), retryListener);
+        Assert.assertEquals("client-1", backend.posts.get(backend.posts.size() - 1).reply.getClientId());
+        backend.posts.get(backend.posts.size() - 1).succeed();
+        Assert.assertEquals(1, retryListener.sentCount);
+        Assert.assertEquals("client-2", backend.posts.get(backend.posts.size() - 1).reply.getClientId());
+    }
+
+    @Test
+    public void pendingRepliesOfAConversationCanBeReadAfterARestart() {
+        backend.isConnected = false;
+        ReplyOutbox outbox = createOutbox();
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-1", "first"), null);
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID + 1, "client-2", "other conversation"), null);
+        outbox.send(OutboxReply.createMessageReply(CONVERSATION_ID, "client-3", "second"), null);
+
+        PendingRepliesListener pendingRepliesListener = new PendingRepliesListener();
+        createOutbox().getPendingReplies(CONVERSATION_ID, pendingRepliesListener);
+
+        Assert.assertEquals(2, pendingRepliesListener.replies.size());
+        Assert.assertEquals("client-1", pendingRepliesListener.replies.get(0).getClientId());
+        Assert.assertEquals("client-3", pendingRepliesListener.replies.get(1).getClientId());
+
+        // Once sent, a reply is no longer pending
+        backend.isConnected = true;
+        ReplyOutbox restoredOutbox = createOutbox();
+        RecordingListener listener = new RecordingListener();
+        restoredOutbox.send(pendingRepliesListener.replies.get(0), listener);
+        backend.posts.get(0).succeed();
+        Assert.assertEquals(1, listener.sentCount);
+
+        pendingRepliesListener = new PendingRepliesListener();
+        restoredOutbox.getPendingReplies(CONVERSATION_ID, pendingRepliesListener);
+        Assert.assertEquals(1, pendingRepliesListener.replies.size());
+        Assert.assertEquals("client-3", pendingRepliesListener.replies.get(0).getClientId());
+    }
+
+    private ReplyOutbox createOutbox() {
+        return new ReplyOutbox(new DirectExecutor(), backend);
+    }
+
+    private FileAttachment createAttachment(String name) throws IOException {
+        directory.mkdirs();
+        File file = new File(directory, name);
+        file.createNewFile();
+        return new FileAttachment("test", file);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    private static class FakeBackend implements ReplyOutbox.Backend {
+        final File directory;
+        final List<Post> posts = new ArrayList<>();
+        boolean isConnected = true;
+        Set<String> fileNamesKept;
+
+        FakeBackend(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public File getDirectory() {
+            return directory;
+        }
+
+        @Override
+        public boolean isConnectedToNetwork() {
+            return isConnected;
+        }
+
+        @Override
+        public void postMessage(OutboxReply reply, ItemCallback<Message> callback) {
+            posts.add(new Post(reply, callback));
+        }
+
+        @Override
+        public Executor getCallingThreadExecutor() {
+            return new DirectExecutor();
+        }
+
+        @Override
+        public void clearSavedAttachmentsExcept(Set<String> fileNamesToKeep) {
+            fileNamesKept = fileNamesToKeep;
+        }
+    }
+
+    private static class Post {
+        final OutboxReply reply;
+        final ItemCallback<Message> callback;
+
+        Post(OutboxReply reply, ItemCallback<Message> callback) {
+            this.reply = reply;
+            this.callback = callback;
+        }
+
+        void succeed() {
+            callback.onSuccess(new Message(1L, null, null, null, null, null, null, null, null, null, null, null, null));
+        }
+
+        void fail() {
+            callback.onFailure(null);
+        }
+    }
+
+    private static class RecordingListener implements ReplyOutbox.OnReplySentListener {
+        int sentCount;
+        List<String> failedClientIds = new ArrayList<>();
+
+        @Override
+        public void onSuccess(Message message) {
+            sentCount++;
+        }
+
+        @Override
+        public void onFailure(String clientId) {
+            failedClientIds.add(clientId);
+        }
+    }
+
+    private static class PendingRepliesListener implements ReplyOutbox.OnLoadPendingRepliesListener {
+        List<OutboxReply> replies;
+
+        @Override
+        public void onLoad(List<OutboxReply> replies) {
+            this.replies = replies;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.kayako.sdk.android.k5.messenger.data.realtime;
+
+import com.kayako.sdk.android.k5.kre.data.Change;
+import com.kayako.sdk.android.k5.kre.data.ChangedProperties;
+import com.kayako.sdk.android.k5.kre.helpers.PushDataHelper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConversationChangeHelperTest {
+
+    private static final long UPDATED_AT = 1489264028L; // in seconds, as in the payload
+
+    @Test
+    public void changeAlreadyInCachedConversationIsNotLoadedAgain() {
+        Change change = PushDataHelper.convertFromJsonString(Change.class, "{\"resource_id\": 210, \"resource_type\": \"case\", " +
+                "\"changed_properties\": {\"updated_at\": " + UPDATED_AT + ", \"last_updated_by\": 3, \"last_agent_activity_at\": " + UPDATED_AT + ", \"form_id\": \"1\"}}");
+
+        Assert.assertTrue(ConversationChangeHelper.isChangeLoaded(UPDATED_AT * 1000, change));
+    }
+
+    @Test
+    public void newChangeFallsBackToRest() {
+        // Whatever the changed properties, they are never applied from the payload
+        Assert.assertFalse(ConversationChangeHelper.isChangeLoaded(UPDATED_AT * 1000, createChange(UPDATED_AT + 1, null, null)));
+        Assert.assertFalse(ConversationChangeHelper.isChangeLoaded(UPDATED_AT * 1000, createChange(UPDATED_AT + 1, 3L, UPDATED_AT + 1)));
+        Assert.assertFalse(ConversationChangeHelper.isChangeLoaded((UPDATED_AT - 1) * 1000, createChange(UPDATED_AT, null, null)));
+    }
+
+    @Test
+    public void incompleteChangeFallsBackToRest() {
+        Assert.assertFalse(ConversationChangeHelper.isChangeLoaded(null, createChange(UPDATED_AT, null, null))); // conversation not loaded yet
+        Assert.assertFalse(ConversationChangeHelper.isChangeLoaded(UPDATED_AT * 1000, null));
+        Assert.assertFalse(ConversationChangeHelper.isChangeLoaded(UPDATED_AT * 1000, new Change(210L, "case", null, null)));
+        Assert.assertFalse(ConversationChangeHelper.isChangeLoaded(UPDATED_AT * 1000, createChange(null, 3L, UPDATED_AT))); // no updated_at
+    }
+
+    private static Change createChange(Long updatedAt, Long lastUpdatedBy, Long lastAgentActivityAt) {
+        return new Change(210L, "case", null, new ChangedProperties(null, null, null, lastUpdatedBy, updatedAt, lastAgentActivityAt));
+    }
+}
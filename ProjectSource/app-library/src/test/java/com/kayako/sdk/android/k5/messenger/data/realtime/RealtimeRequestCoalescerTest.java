@@ -0,0 +1,205 @@
+package com.kayako.sdk.android.k5.messenger.data.realtime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled requests are run by the test (see {@link ManualScheduler}) instead of waiting for the debounce time to pass
+ */
+public class RealtimeRequestCoalescerTest {
+
+    private static final long DEBOUNCE_TIME = 50;
+
+    @Test
+    public void burstOfEventsResultsInOneRequest() {
+        ManualScheduler scheduler = new ManualScheduler();
+        RealtimeRequestCoalescer<Long> coalescer = new RealtimeRequestCoalescer<>(DEBOUNCE_TIME, scheduler);
+        TestRequest request = new TestRequest(1);
+
+        for (int i = 0; i < 10; i++) {
+            coalescer.request(1L, request);
+        }
+
+        Assert.assertEquals(1, scheduler.getPendingTaskCount());
+        Assert.assertEquals(DEBOUNCE_TIME, scheduler.lastDelay);
+
+        scheduler.runPendingTasks();
+        request.complete();
+
+        Assert.assertEquals(0, scheduler.getPendingTaskCount());
+        Assert.assertEquals(10, coalescer.getEventsReceived());
+        Assert.assertEquals(1, coalescer.getRequestsIssued());
+    }
+
+    @Test
+    public void eventsWhileInFlightResultInOneFollowUpRequest() {
+        ManualScheduler scheduler = new ManualScheduler();
+        RealtimeRequestCoalescer<Long> coalescer = new RealtimeRequestCoalescer<>(DEBOUNCE_TIME, scheduler);
+        TestRequest firstRequest = new TestRequest(1);
+        TestRequest followUpRequest = new TestRequest(1);
+
+        coalescer.request(1L, firstRequest);
+        scheduler.runPendingTasks();
+
+        // In flight - should not make a request until complete
+        coalescer.request(1L, followUpRequest);
+        coalescer.request(1L, followUpRequest);
+        Assert.assertEquals(0, scheduler.getPendingTaskCount());
+        Assert.assertEquals(1, coalescer.getRequestsIssued());
+
+        firstRequest.complete();
+        Assert.assertEquals(1, scheduler.getPendingTaskCount());
+        scheduler.runPendingTasks();
+        followUpRequest.complete();
+
+        Assert.assertEquals(0, scheduler.getPendingTaskCount());
+        Assert.assertEquals(3, coalescer.getEventsReceived());
+        Assert.assertEquals(2, coalescer.getRequestsIssued());
+        Assert.assertEquals(1, firstRequest.executions);
+        Assert.assertEquals("Only the latest request should be used for the follow-up", 1, followUpRequest.executions);
+    }
+
+    @Test
+    public void differentResourcesAreRequestedSeparately() throws Exception {
+        // Runs on the shared scheduler
+        RealtimeRequestCoalescer<Long> coalescer = new RealtimeRequestCoalescer<>(DEBOUNCE_TIME);
+        TestRequest request1 = new TestRequest(1);
+        TestRequest request2 = new TestRequest(1);
+
+        coalescer.request(1L, request1);
+        coalescer.request(2L, request2);
+
+        Assert.assertTrue(request1.await());
+        Assert.assertTrue(request2.await());
+        Assert.assertEquals(2, coalescer.getRequestsIssued());
+    }
+
+    @Test
+    public void clearCancelsScheduledRequests() {
+        ManualScheduler scheduler = new ManualScheduler();
+        RealtimeRequestCoalescer<Long> coalescer = new RealtimeRequestCoalescer<>(DEBOUNCE_TIME, scheduler);
+        TestRequest request = new TestRequest(1);
+
+        coalescer.request(1L, request);
+        coalescer.clear();
+        Assert.assertEquals(0, scheduler.getPendingTaskCount());
+
+        scheduler.runAllTasks(); // even if the scheduler runs the task anyway
+        Assert.assertEquals(0, coalescer.getRequestsIssued());
+        Assert.assertEquals(0, request.executions);
+    }
+
+    @Test
+    public void requestCompletedAfterClearDoesNotRequestAgain() {
+        ManualScheduler scheduler = new ManualScheduler();
+        RealtimeRequestCoalescer<Long> coalescer = new RealtimeRequestCoalescer<>(DEBOUNCE_TIME, scheduler);
+        TestRequest request = new TestRequest(1);
+
+        coalescer.request(1L, request);
+        scheduler.runPendingTasks();
+        coalescer.request(1L, request);
+        coalescer.clear();
+        request.complete();
+
+        Assert.assertEquals(0, scheduler.getPendingTaskCount());
+        Assert.assertEquals(1, coalescer.getRequestsIssued());
+    }
+
+    private static class ManualScheduler implements RealtimeRequestCoalescer.Scheduler {
+        private final List<ScheduledTask> mTasks = new ArrayList<>();
+        long lastDelay;
+
+        @Override
+        public RealtimeRequestCoalescer.Cancellable schedule(Runnable task, long delay) {
+            lastDelay = delay;
+            ScheduledTask scheduledTask = new ScheduledTask(task);
+            mTasks.add(scheduledTask);
+            return scheduledTask;
+        }
+
+        int getPendingTaskCount() {
+            int count = 0;
+            for (ScheduledTask task : mTasks) {
+                if (!task.isCancelled) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Run the tasks that have not been cancelled, as if their delay has passed
+         */
+        void runPendingTasks() {
+            List<ScheduledTask> tasks = new ArrayList<>(mTasks);
+            mTasks.clear();
+            for (ScheduledTask task : tasks) {
+                if (!task.isCancelled) {
+                    task.task.run();
+                }
+            }
+        }
+
+        /**
+         * Run all the tasks, the cancelled ones included
+         */
+        void runAllTasks() {
+            List<ScheduledTask> tasks = new ArrayList<>(mTasks);
+            mTasks.clear();
+            for (ScheduledTask task : tasks) {
+                task.task.run();
+            }
+        }
+    }
+
+    private static class ScheduledTask implements RealtimeRequestCoalescer.Cancellable {
+        final Runnable task;
+        boolean isCancelled;
+
+        ScheduledTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+        }
+    }
+
+    private static class TestRequest implements RealtimeRequestCoalescer.Request {
+        private final CountDownLatch mExecuted;
+        private final List<RealtimeRequestCoalescer.OnRequestCompleteListener> mListeners = new ArrayList<>();
+        volatile int executions;
+
+        TestRequest(int expectedExecutions) {
+            mExecuted = new CountDownLatch(expectedExecutions);
+        }
+
+        @Override
+        public synchronized void execute(RealtimeRequestCoalescer.OnRequestCompleteListener listener) {
+            executions++;
+            mListeners.add(listener);
+            mExecuted.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return mExecuted.await(1, TimeUnit.SECONDS);
+        }
+
+        void complete() {
+            List<RealtimeRequestCoalescer.OnRequestCompleteListener> listeners;
+            synchronized (this) {
+                listeners = new ArrayList<>(mListeners);
+                mListeners.clear();
+            }
+            for (RealtimeRequestCoalescer.OnRequestCompleteListener listener : listeners) {
+                listener.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
+
+import com.kayako.sdk.android.k5.common.adapter.messengerlist.helper.UnsentMessage;
+import com.kayako.sdk.android.k5.common.utils.file.FileAttachment;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AddReplyHelperTest {
+
+    @Test
+    public void everyReplyToAnExistingConversationIsHandedOverRightAway() {
+        RecordingCallback callback = new RecordingCallback();
+        AddReplyHelper helper = createHelper(true, callback);
+
+        helper.addNewReply("first", "client-1");
+        helper.addNewReply("second", "client-2");
+        helper.addNewReply("third", "client-3");
+
+        // None of the replies wait in memory for the one before to be sent
+        Assert.assertEquals(3, callback.addedClientIds.size());
+        Assert.assertEquals("client-1", callback.addedClientIds.get(0));
+        Assert.assertEquals("client-3", callback.addedClientIds.get(2));
+    }
+
+    @Test
+    public void attachmentsAreHandedOverRightAway() throws IOException {
+        RecordingCallback callback = new RecordingCallback();
+        AddReplyHelper helper = createHelper(true, callback);
+        File file = File.createTempFile("attachment", ".png");
+        file.deleteOnExit();
+
+        helper.addNewReply(new FileAttachment("test", file), "client-1");
+        helper.addNewReply(new FileAttachment("test", file), "client-2");
+        helper.addNewReply("message", "client-3");
+
+        // Nothing is left in memory to be lost when the page closes
+        Assert.assertEquals(3, callback.addedClientIds.size());
+        Assert.assertTrue(helper.isAttachmentBeingSent("client-1"));
+        Assert.assertFalse(helper.isAttachmentBeingSent("client-3"));
+
+        helper.onFailedSendingOfMessage("client-1");
+        Assert.assertTrue(helper.isAttachmentBeingSent("client-1"));
+        helper.onSuccessfulSendingOfMessage("client-2");
+        Assert.assertFalse(helper.isAttachmentBeingSent("client-2"));
+    }
+
+    @Test
+    public void repliesAddedWhileCreatingConversationAreHandedOverOnceCreated() {
+        RecordingCallback callback = new RecordingCallback();
+        AddReplyHelper helper = createHelper(false, callback);
+
+        helper.addNewReply("first", "client-1");
+        helper.addNewReply("second", "client-2");
+        helper.addNewReply("third", "client-3");
+
+        Assert.assertEquals(1, callback.createdClientIds.size());
+        Assert.assertEquals(0, callback.addedClientIds.size());
+
+        helper.onSuccessfulCreationOfConversation("client-1");
+        Assert.assertEquals(2, callback.addedClientIds.size());
+        Assert.assertEquals("client-2", callback.addedClientIds.get(0));
+        Assert.assertEquals("client-3", callback.addedClientIds.get(1));
+
+        helper.addNewReply("fourth", "client-4");
+        Assert.assertEquals("client-4", callback.addedClientIds.get(2));
+    }
+
+    @Test
+    public void failedRepliesAreHandedOverAgainOnResend() {
+        RecordingCallback callback = new RecordingCallback();
+        AddReplyHelper helper = createHelper(true, callback);
+
+        helper.addNewReply("first", "client-1");
+        helper.addNewReply("second", "client-2");
+        helper.onSuccessfulSendingOfMessage("client-1");
+        helper.onFailedSendingOfMessage("client-2");
+
+        helper.resendReplies();
+        Assert.assertEquals(3, callback.addedClientIds.size());
+        Assert.assertEquals("client-2", callback.addedClientIds.get(2));
+
+        helper.onSuccessfulSendingOfMessage("client-2");
+        helper.resendReplies();
+        Assert.assertEquals(3, callback.addedClientIds.size());
+    }
+
+    private AddReplyHelper createHelper(boolean isConversationCreated, RecordingCallback callback) {
+        AddReplyHelper helper = new AddReplyHelper();
+        helper.setIsConversationCreated(isConversationCreated);
+        helper.setCallback(callback);
+        return helper;
+    }
+
+    private static class RecordingCallback implements AddReplyHelper.OnAddReplyCallback {
+        List<String> createdClientIds = new ArrayList<>();
+        List<String> addedClientIds = new ArrayList<>();
+
+        @Override
+        public void onCreateConversation(UnsentMessage unsentMessage) {
+            createdClientIds.add(unsentMessage.getClientId());
+        }
+
+        @Override
+        public void onAddMessage(UnsentMessage unsentMessage) {
+            addedClientIds.add(unsentMessage.getClientId());
+        }
+    }
+}
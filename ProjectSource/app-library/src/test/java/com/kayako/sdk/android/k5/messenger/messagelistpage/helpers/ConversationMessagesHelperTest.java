@@ -0,0 +1,64 @@
+package com.kayako.sdk.android.k5.messenger.messagelistpage.helpers;
+
+import com.kayako.sdk.messenger.message.Message;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ConversationMessagesHelperTest {
+
+    @Test
+    public void cachedMessagesAreReplacedByTheFirstPageFromTheNetwork() {
+        ConversationMessagesHelper helper = new ConversationMessagesHelper();
+        helper.onLoadCachedMessages(Arrays.asList(createMessage(1L, "cached"), createMessage(2L, "deleted since"), createMessage(3L, "cached")));
+        Assert.assertEquals(3, helper.getSize());
+
+        helper.onLoadNextMessages(Arrays.asList(createMessage(1L, "loaded"), createMessage(3L, "edited since"), createMessage(4L, "new")), 0);
+
+        // The stale message is dropped - not merged with the messages loaded from the network
+        Assert.assertEquals(3, helper.getSize());
+        Assert.assertFalse(helper.exists(2L));
+        Assert.assertEquals("edited since", getMessage(helper, 3L).getSubject());
+    }
+
+    @Test
+    public void cachedMessagesUpdatedInRealtimeAreKept() {
+        ConversationMessagesHelper helper = new ConversationMessagesHelper();
+        helper.onLoadCachedMessages(Arrays.asList(createMessage(1L, "cached"), createMessage(2L, "cached")));
+        helper.updateMessage(createMessage(2L, "updated"));
+
+        helper.onLoadNextMessages(new ArrayList<Message>(), 0);
+
+        Assert.assertEquals(1, helper.getSize());
+        Assert.assertEquals("updated", getMessage(helper, 2L).getSubject());
+    }
+
+    @Test
+    public void laterPagesAreAddedToTheList() {
+        ConversationMessagesHelper helper = new ConversationMessagesHelper();
+        helper.onLoadNextMessages(Arrays.asList(createMessage(3L, "first page")), 0);
+        helper.onLoadNextMessages(Arrays.asList(createMessage(1L, "second page")), helper.getLimit());
+
+        Assert.assertEquals(2, helper.getSize());
+        Assert.assertTrue(helper.exists(1L));
+        Assert.assertTrue(helper.exists(3L));
+    }
+
+    private static Message getMessage(ConversationMessagesHelper helper, long id) {
+        List<Message> messages = helper.getMessages();
+        for (Message message : messages) {
+            if (message.getId() == id) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    private static Message createMessage(long id, String subject) {
+        return new Message(id, null, null, subject, null, null, null, null, null, null, null, null, null);
+    }
+}